@@ -49,6 +49,13 @@ android {
         }
     }
 
+    testOptions {
+        // JVM 单元测试中 android.* 方法返回默认值（AppLog 内部调用 Log.println）
+        unitTests.isReturnDefaultValues = true
+        // JMH 基准测试：-Pjmh=<基准类名正则> 时由 JmhBenchmarks 运行，未指定时跳过
+        unitTests.all { it.systemProperty("jmh.include", project.findProperty("jmh")?.toString() ?: "") }
+    }
+
 }
 
 dependencies {
@@ -86,6 +93,11 @@ dependencies {
     implementation("io.grpc:grpc-stub:1.62.2")
 
     testImplementation(libs.junit)
+    // JVM 单元测试使用真实的 org.json 实现（android.jar 中只有桩）
+    testImplementation("org.json:json:20231013")
+    // JMH 基准测试（基准类放在 src/test，与单元测试同一进程运行）
+    testImplementation(libs.jmh.core)
+    testAnnotationProcessor(libs.jmh.generator.annprocess)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
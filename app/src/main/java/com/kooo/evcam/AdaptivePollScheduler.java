@@ -0,0 +1,57 @@
+package com.kooo.evcam;
+
+/**
+ * 自适应轮询间隔（CarSignalManagerObserver / DoorSignalObserver 共用）
+ *
+ * - 状态刚变化后的 holdMs 内保持快速轮询
+ * - 系统回调已被证实可靠（曾由回调触发的读取发现变化）时，轮询只作兜底，使用慢速间隔；
+ *   若定时轮询先发现了变化，说明回调没有覆盖该信号，恢复按活跃度轮询
+ * - 否则由观察者根据车速等给出活跃提示：活跃时快速，不活跃时慢速
+ *
+ * 只在轮询线程调用，不依赖 Android，便于替换时间源验证。
+ */
+class AdaptivePollScheduler {
+    private final long fastIntervalMs;
+    private final long slowIntervalMs;
+    private final long holdMs;
+
+    private boolean hasChanged = false;
+    private long lastChangeAt;
+    private boolean callbackTrusted = false;
+
+    AdaptivePollScheduler(long fastIntervalMs, long slowIntervalMs, long holdMs) {
+        this.fastIntervalMs = fastIntervalMs;
+        this.slowIntervalMs = slowIntervalMs;
+        this.holdMs = holdMs;
+    }
+
+    /**
+     * 一次读取完成后计算下次轮询的延迟
+     * @param changed 本次读取是否发现状态变化
+     * @param fromCallback 本次读取是否由系统回调触发
+     * @param active 观察者给出的活跃提示（如行驶中）
+     */
+    long onPolled(long now, boolean changed, boolean fromCallback, boolean active) {
+        if (changed) {
+            hasChanged = true;
+            lastChangeAt = now;
+            callbackTrusted = fromCallback;
+        }
+        if (hasChanged && now - lastChangeAt < holdMs) {
+            return fastIntervalMs;
+        }
+        if (callbackTrusted) {
+            return slowIntervalMs;
+        }
+        return active ? fastIntervalMs : slowIntervalMs;
+    }
+
+    boolean isCallbackTrusted() {
+        return callbackTrusted;
+    }
+
+    void reset() {
+        hasChanged = false;
+        callbackTrusted = false;
+    }
+}
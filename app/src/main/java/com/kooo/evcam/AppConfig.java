@@ -114,6 +114,16 @@ public class AppConfig {
     private static final String KEY_CUSTOM_KEY_SPEED_PROP_ID = "custom_key_speed_prop_id"; // 速度属性ID
     private static final String KEY_CUSTOM_KEY_BUTTON_PROP_ID = "custom_key_button_prop_id"; // 按钮属性ID
 
+    // 局域网直播配置
+    private static final String KEY_LAN_LIVE_VIEW_ENABLED = "lan_live_view_enabled";  // 局域网直播开关
+    private static final String KEY_LAN_SERVER_PORT = "lan_server_port";  // 局域网服务端口
+    
+    /** 局域网服务默认端口 */
+    public static final int DEFAULT_LAN_SERVER_PORT = 8765;
+
+    // 上传带宽配置
+    private static final String KEY_UPLOAD_RATE_LIMIT_KBPS = "upload_rate_limit_kbps";  // 上传速率上限（KB/s，0=自动）
+
     // 桌面悬浮模拟按钮 (补盲选项新增)
     private static final String KEY_MOCK_TURN_SIGNAL_FLOATING_ENABLED = "mock_turn_signal_floating_enabled"; // 悬浮模拟按钮开关
     private static final String KEY_MOCK_TURN_SIGNAL_FLOATING_X = "mock_turn_signal_floating_x";             // 悬浮模拟按钮X
@@ -2713,4 +2723,47 @@ public class AppConfig {
     public int getCustomKeyButtonPropId() {
         return prefs.getInt(KEY_CUSTOM_KEY_BUTTON_PROP_ID, 557872183);
     }
+
+    // ==================== 局域网直播配置相关方法 ====================
+
+    /**
+     * 设置局域网直播开关
+     * @param enabled true 表示在车机上启动局域网 HTTP 服务，手机连热点后直接观看实时画面
+     */
+    public void setLanLiveViewEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_LAN_LIVE_VIEW_ENABLED, enabled).apply();
+        AppLog.d(TAG, "局域网直播设置: " + (enabled ? "启用" : "禁用"));
+    }
+
+    /**
+     * 获取局域网直播开关状态（默认关闭）
+     */
+    public boolean isLanLiveViewEnabled() {
+        return prefs.getBoolean(KEY_LAN_LIVE_VIEW_ENABLED, false);
+    }
+
+    /**
+     * 获取局域网服务端口，默认 8765
+     */
+    public int getLanServerPort() {
+        return prefs.getInt(KEY_LAN_SERVER_PORT, DEFAULT_LAN_SERVER_PORT);
+    }
+
+    // ==================== 上传带宽配置相关方法 ====================
+
+    /**
+     * 设置上传速率上限（立即生效）
+     * @param kbps KB/s，0 表示自动（按链路 RTT 自适应）
+     */
+    public void setUploadRateLimitKbps(int kbps) {
+        prefs.edit().putInt(KEY_UPLOAD_RATE_LIMIT_KBPS, Math.max(0, kbps)).apply();
+        com.kooo.evcam.net.BandwidthShaper.getInstance().setCeiling(Math.max(0, kbps) * 1024L);
+    }
+
+    /**
+     * 获取上传速率上限（KB/s），默认 0（自动）
+     */
+    public int getUploadRateLimitKbps() {
+        return prefs.getInt(KEY_UPLOAD_RATE_LIMIT_KBPS, 0);
+    }
 }
@@ -31,8 +31,8 @@ public final class AppLog {
     private static final String PREFS_NAME = "app_settings";
     private static final String KEY_DEBUG_TO_INFO = "debug_to_info";
     private static final int MAX_BUFFER_LINES = 5000;
-    private static final Object LOCK = new Object();
-    private static final List<String> BUFFER = new ArrayList<>();
+    // 预分配的无锁环形缓冲，写入时不格式化，导出时才拼成日志行
+    private static final AppLogRing BUFFER = new AppLogRing(MAX_BUFFER_LINES);
     private static volatile boolean debugToInfo = false;
     
     // 会话日志文件名
@@ -164,10 +164,7 @@ public final class AppLog {
     public static void saveToPersistentLog(Context context) {
         if (context == null) return;
         
-        List<String> snapshot;
-        synchronized (LOCK) {
-            snapshot = new ArrayList<>(BUFFER);
-        }
+        List<String> snapshot = BUFFER.snapshot();
         
         if (snapshot.isEmpty()) return;
         
@@ -298,10 +295,7 @@ public final class AppLog {
         if (context == null) {
             return null;
         }
-        List<String> snapshot;
-        synchronized (LOCK) {
-            snapshot = new ArrayList<>(BUFFER);
-        }
+        List<String> snapshot = BUFFER.snapshot();
         String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
         String fileName = "evcam_log_" + timestamp + ".txt";
 
@@ -350,9 +344,7 @@ public final class AppLog {
                     snapshot = getPreviousSessionLogs(context);
                 } else {
                     // 获取当前运行日志
-                    synchronized (LOCK) {
-                        snapshot = new ArrayList<>(BUFFER);
-                    }
+                    snapshot = BUFFER.snapshot();
                 }
                 
                 if (snapshot.isEmpty()) {
@@ -510,19 +502,10 @@ public final class AppLog {
     }
 
     private static void addToBuffer(int level, String tag, String message) {
-        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US).format(new Date());
-        String levelLabel = levelToLabel(level);
-        String line = timestamp + " " + levelLabel + "/" + tag + ": " + message;
-        synchronized (LOCK) {
-            BUFFER.add(line);
-            if (BUFFER.size() > MAX_BUFFER_LINES) {
-                int removeCount = BUFFER.size() - MAX_BUFFER_LINES;
-                BUFFER.subList(0, removeCount).clear();
-            }
-        }
+        BUFFER.add(System.currentTimeMillis(), level, tag, message);
     }
 
-    private static String levelToLabel(int level) {
+    static String levelToLabel(int level) {
         switch (level) {
             case Log.ERROR:
                 return "E";
@@ -0,0 +1,106 @@
+package com.kooo.evcam;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * AppLog 的内存日志缓冲（多生产者无锁环形缓冲区）
+ *
+ * 槽位按字段预先分配，写入只保存原始时间戳、级别、tag 和消息引用，不加锁、不格式化；
+ * 时间格式化和拼行推迟到 snapshot（保存文件、上传、查看）时进行。
+ *
+ * 每个槽位有一个序号戳：写入方先用 CAS 把戳置为 WRITING 占住槽位，写完字段后再写入自己的序号；
+ * 读取方复制字段前后各读一次戳，两次都等于期望序号才采用。写入方落后整整一圈时
+ * （槽位已有更新的序号）这条本就已移出最近 capacity 条，直接放弃。
+ */
+final class AppLogRing {
+    private static final long WRITING = -1;
+    private static final long EMPTY = -2;
+
+    private final int capacity;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLongArray stamps;
+    private final AtomicLongArray times;
+    private final AtomicIntegerArray levels;
+    private final AtomicReferenceArray<String> tags;
+    private final AtomicReferenceArray<String> messages;
+
+    AppLogRing(int capacity) {
+        this.capacity = capacity;
+        this.stamps = new AtomicLongArray(capacity);
+        this.times = new AtomicLongArray(capacity);
+        this.levels = new AtomicIntegerArray(capacity);
+        this.tags = new AtomicReferenceArray<>(capacity);
+        this.messages = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            stamps.set(i, EMPTY);
+        }
+    }
+
+    /**
+     * 追加一条日志（任意线程，无锁）
+     */
+    void add(long timeMillis, int level, String tag, String message) {
+        long seq = cursor.getAndIncrement();
+        int index = (int) (seq % capacity);
+        while (true) {
+            long current = stamps.get(index);
+            if (current > seq) {
+                return;  // 落后一整圈，已被更新的日志覆盖
+            }
+            if (current == WRITING) {
+                // 落后一圈的写入方还没写完，只差几次赋值
+                Thread.yield();
+                continue;
+            }
+            if (stamps.compareAndSet(index, current, WRITING)) {
+                break;
+            }
+        }
+        times.lazySet(index, timeMillis);
+        levels.lazySet(index, level);
+        tags.lazySet(index, tag);
+        messages.lazySet(index, message);
+        stamps.set(index, seq);
+    }
+
+    /**
+     * 按写入顺序格式化当前缓冲区内的日志
+     * 格式: "yyyy-MM-dd HH:mm:ss.SSS L/tag: message"
+     */
+    List<String> snapshot() {
+        long end = cursor.get();
+        long start = Math.max(0, end - capacity);
+        List<String> lines = new ArrayList<>((int) (end - start));
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        Date date = new Date();
+        StringBuilder sb = new StringBuilder(128);
+        for (long seq = start; seq < end; seq++) {
+            int index = (int) (seq % capacity);
+            if (stamps.get(index) != seq) {
+                continue;  // 尚未写完或已被覆盖
+            }
+            long time = times.get(index);
+            int level = levels.get(index);
+            String tag = tags.get(index);
+            String message = messages.get(index);
+            if (stamps.get(index) != seq) {
+                continue;  // 读取期间被覆盖
+            }
+            date.setTime(time);
+            sb.setLength(0);
+            sb.append(format.format(date)).append(' ')
+                    .append(AppLog.levelToLabel(level)).append('/')
+                    .append(tag).append(": ").append(message);
+            lines.add(sb.toString());
+        }
+        return lines;
+    }
+}
@@ -19,6 +19,7 @@ import android.widget.FrameLayout;
 import com.kooo.evcam.camera.CameraManagerHolder;
 import com.kooo.evcam.camera.MultiCameraManager;
 import com.kooo.evcam.camera.SingleCamera;
+import com.kooo.evcam.signal.BlindSpotLatencyTracker;
 
 /**
  * 独立补盲悬浮窗视图
@@ -145,6 +146,7 @@ public class BlindSpotFloatingWindowView extends FrameLayout {
             public void onSurfaceTextureUpdated(android.graphics.SurfaceTexture surface) {
                 if (pendingShowAnimation) {
                     pendingShowAnimation = false;
+                    BlindSpotLatencyTracker.getInstance().markFirstFrame();
                     if (showAnimFallback != null) {
                         mainHandler.removeCallbacks(showAnimFallback);
                         showAnimFallback = null;
@@ -336,6 +338,7 @@ public class BlindSpotFloatingWindowView extends FrameLayout {
                 pendingShowAnimation = true;
 
                 windowManager.addView(this, params);
+                BlindSpotLatencyTracker.getInstance().markWindowShown();
                 if (isAdjustPreviewMode) {
                     moveToAdjustPreviewDefaultPosition();
                 }
@@ -27,12 +27,17 @@ import android.widget.TextView;
 
 import androidx.annotation.Nullable;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 import com.kooo.evcam.camera.MultiCameraManager;
 import com.kooo.evcam.camera.SingleCamera;
+import com.kooo.evcam.signal.BlindSpotLatencyTracker;
+import com.kooo.evcam.signal.SignalRecorder;
+import com.kooo.evcam.signal.SignalReplayer;
 
 /**
  * 补盲选项服务
@@ -60,6 +65,9 @@ public class BlindSpotService extends Service {
     private VhalSignalObserver vhalSignalObserver;
     private CarSignalManagerObserver carSignalManagerObserver;
     private DoorSignalObserver doorSignalObserver; // 车门联动观察者
+    private SignalReplayer signalReplayer; // 信号回放（延迟基准测试）
+    private long logcatObserverStartTime;
+    private static final long LOGCAT_WARMUP_MS = 500;
     private final Handler hideHandler = new Handler(Looper.getMainLooper());
     private Runnable hideRunnable;
     private Runnable signalKeepAliveRunnable; // 信号保活计时器（debounce）
@@ -354,39 +362,9 @@ public class BlindSpotService extends Service {
 
         // 安全兜底：即使 logcat -T 已从源头跳过历史缓冲，
         // 仍保留 500ms 预热期以防极端情况（如系统时间跳变）
-        final long observerStartTime = System.currentTimeMillis();
-        final long WARMUP_MS = 500;
+        logcatObserverStartTime = System.currentTimeMillis();
 
-        logcatSignalObserver = new LogcatSignalObserver((line, data1) -> {
-            if (System.currentTimeMillis() - observerStartTime < WARMUP_MS) return;
-
-            if (!appConfig.isBlindSpotGlobalEnabled()) return;
-            if (!appConfig.isTurnSignalLinkageEnabled()) return;
-
-            String leftKeyword = appConfig.getTurnSignalLeftTriggerLog();
-            String rightKeyword = appConfig.getTurnSignalRightTriggerLog();
-
-            boolean matched = false;
-            if (leftKeyword != null && !leftKeyword.isEmpty() && line.contains(leftKeyword)) {
-                matched = true;
-                hideHandler.post(() -> handleTurnSignal("left"));
-            } else if (rightKeyword != null && !rightKeyword.isEmpty() && line.contains(rightKeyword)) {
-                matched = true;
-                hideHandler.post(() -> handleTurnSignal("right"));
-            }
-
-            if (matched) return;
-
-            if (line.contains("left front turn signal:0") && line.contains("right front turn signal:0")) {
-                hideHandler.post(this::startHideTimer);
-                return;
-            }
-
-            if (line.contains("data1 = 0") || data1 == 0) {
-                hideHandler.post(this::startHideTimer);
-                return;
-            }
-        });
+        logcatSignalObserver = new LogcatSignalObserver(this::handleLogcatLine);
         // 将用户配置的触发关键字传入，用于构建 logcat -e 原生过滤正则。
         // 行驶中车机日志量暴增，不做原生过滤会导致转向灯信号被"淹没"而延迟。
         logcatSignalObserver.setFilterKeywords(
@@ -396,6 +374,39 @@ public class BlindSpotService extends Service {
         logcatSignalObserver.start();
     }
 
+    /**
+     * 处理转向灯相关 logcat 行（logcat 读取线程或信号回放线程）
+     */
+    private void handleLogcatLine(String line, int data1) {
+        if (System.currentTimeMillis() - logcatObserverStartTime < LOGCAT_WARMUP_MS) return;
+
+        if (!appConfig.isBlindSpotGlobalEnabled()) return;
+        if (!appConfig.isTurnSignalLinkageEnabled()) return;
+
+        String leftKeyword = appConfig.getTurnSignalLeftTriggerLog();
+        String rightKeyword = appConfig.getTurnSignalRightTriggerLog();
+
+        boolean matched = false;
+        if (leftKeyword != null && !leftKeyword.isEmpty() && line.contains(leftKeyword)) {
+            matched = true;
+            hideHandler.post(() -> handleTurnSignal("left"));
+        } else if (rightKeyword != null && !rightKeyword.isEmpty() && line.contains(rightKeyword)) {
+            matched = true;
+            hideHandler.post(() -> handleTurnSignal("right"));
+        }
+
+        if (matched) return;
+
+        if (line.contains("left front turn signal:0") && line.contains("right front turn signal:0")) {
+            hideHandler.post(this::startHideTimer);
+            return;
+        }
+
+        if (line.contains("data1 = 0") || data1 == 0) {
+            hideHandler.post(this::startHideTimer);
+        }
+    }
+
     private void stopSignalObservers() {
         if (logcatSignalObserver != null) {
             logcatSignalObserver.stop();
@@ -455,6 +466,7 @@ public class BlindSpotService extends Service {
 
         currentSignalCamera = cameraPos;
         AppLog.i(TAG, "🚦 转向灯激活，设置 currentSignalCamera = " + cameraPos);
+        BlindSpotLatencyTracker.getInstance().markSignalIfIdle(System.nanoTime());
 
         // 确保前台服务已启动
         CameraForegroundService.start(this, "补盲运行中", "正在显示补盲画面");
@@ -525,6 +537,7 @@ public class BlindSpotService extends Service {
 
         currentSignalCamera = cameraPos;
         AppLog.d(TAG, "转向灯触发摄像头: " + cameraPos);
+        BlindSpotLatencyTracker.getInstance().markSignalIfIdle(System.nanoTime());
 
         // 确保前台服务已启动（带 camera 类型的前台服务是后台访问摄像头的前提条件）
         // 冷启动时 CameraForegroundService 可能还未启动，导致摄像头被系统 CAMERA_DISABLED 拦截
@@ -936,6 +949,19 @@ public class BlindSpotService extends Service {
                 updateWindows();
                 return START_STICKY;
             }
+            if ("start_signal_recording".equals(action)) {
+                startSignalRecording(intent.getStringExtra("trace_path"));
+                return START_STICKY;
+            }
+            if ("stop_signal_recording".equals(action)) {
+                SignalRecorder recorder = SignalRecorder.getActive();
+                if (recorder != null) recorder.stop();
+                return START_STICKY;
+            }
+            if ("replay_signal_trace".equals(action)) {
+                startSignalReplay(intent.getStringExtra("trace_path"), intent.getFloatExtra("replay_speed", 1f));
+                return START_STICKY;
+            }
         }
         // 重新初始化新功能（设置变更时通过 update() 触发）
         appConfig = new AppConfig(this);
@@ -945,6 +971,52 @@ public class BlindSpotService extends Service {
         return START_STICKY;
     }
 
+    // ==================== 信号录制/回放（延迟基准测试） ====================
+    // 服务未导出，需在 root shell 下启动，例如：
+    // adb shell am startservice -n com.kooo.evcam/.BlindSpotService --es action start_signal_recording
+    // adb shell am startservice -n com.kooo.evcam/.BlindSpotService --es action replay_signal_trace --ef replay_speed 4
+
+    private File resolveTraceFile(String path) {
+        if (path != null && !path.isEmpty()) return new File(path);
+        File dir = getExternalFilesDir(null);
+        return new File(dir != null ? dir : getFilesDir(), "signal_trace.bin");
+    }
+
+    private void startSignalRecording(String path) {
+        File file = resolveTraceFile(path);
+        try {
+            SignalRecorder.start(file, VhalSignalObserver.PROP_TURN_SIGNAL_STATE, VhalSignalObserver.PROP_DOOR_POS);
+        } catch (IOException e) {
+            AppLog.e(TAG, "无法开始信号录制: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 回放录制的信号：VHAL 事件进入信号总线，logcat 行进入 logcat 处理逻辑。
+     * 结束后输出 信号→窗口 / 信号→首帧 的延迟分布。
+     */
+    private void startSignalReplay(String path, float speed) {
+        if (signalReplayer != null) {
+            signalReplayer.stop();
+        }
+        BlindSpotLatencyTracker tracker = BlindSpotLatencyTracker.getInstance();
+        hideHandler.post(tracker::reset);
+        signalReplayer = new SignalReplayer(resolveTraceFile(path), speed, new SignalReplayer.Listener() {
+            @Override
+            public void onLogLine(String line, int data1) {
+                handleLogcatLine(line, data1);
+            }
+
+            @Override
+            public void onFinished(int records) {
+                // 等最后一次触发的窗口出首帧后再输出
+                hideHandler.postDelayed(() -> AppLog.i(TAG, "📊 信号回放延迟统计 (" + records + " 条记录)\n"
+                        + tracker.summary()), 1000);
+            }
+        });
+        signalReplayer.start();
+    }
+
     private void showPreviewWindow(String cameraPos) {
         if (!WakeUpHelper.hasOverlayPermission(this)) return;
 
@@ -1686,6 +1758,10 @@ public class BlindSpotService extends Service {
     @Override
     public void onDestroy() {
         stopSignalObservers();
+        if (signalReplayer != null) {
+            signalReplayer.stop();
+            signalReplayer = null;
+        }
         stopAvmAvoidance();
         if (hideRunnable != null) {
             hideHandler.removeCallbacks(hideRunnable);
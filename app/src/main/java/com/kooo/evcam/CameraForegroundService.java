@@ -55,11 +55,18 @@ public class CameraForegroundService extends Service {
         // 获取 WakeLock 防止系统休眠（车机必须）
         acquireWakeLock();
         
+        // 上传带宽上限（需在远程服务发起请求前生效）
+        com.kooo.evcam.net.BandwidthShaper.getInstance()
+                .setCeiling(new AppConfig(this).getUploadRateLimitKbps() * 1024L);
+        
         // 启动远程服务（钉钉/Telegram）
         // 这样远程服务不依赖 MainActivity，即使 Activity 被杀也能继续运行
         startRemoteServicesIfNeeded();
 
         startCameraRepairLoop();
+
+        // 局域网直播（手机连车机热点直接观看，不经过云端）
+        com.kooo.evcam.lan.LanServerManager.getInstance().startIfEnabled(this);
     }
     
     /**
@@ -237,6 +244,10 @@ public class CameraForegroundService extends Service {
     public void onDestroy() {
         AppLog.d(TAG, "Service destroyed - 尝试重启...");
         stopCameraRepairLoop();
+        com.kooo.evcam.lan.LanServerManager.getInstance().stop();
+
+        // 记录本次运行期间各主机的网络指标，便于排查 4G 网络问题
+        com.kooo.evcam.net.NetworkStack.getInstance().logMetrics();
         
         // 服务被杀时，发送延迟重启广播
         scheduleServiceRestart();
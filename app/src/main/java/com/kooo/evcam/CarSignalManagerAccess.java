@@ -0,0 +1,274 @@
+package com.kooo.evcam;
+
+import android.content.Context;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * CarSignalManager 反射访问（CarSignalManagerObserver / DoorSignalObserver 共用）
+ *
+ * 获取方式：
+ * 1. ECARX API: ecarxcar_service → ECarXCar.createCar() → getCarManager("car_signal")
+ * 2. CarSensor API: CarSensor.create() (备用)
+ *
+ * getXxx() 在连接时一次性解析为绑定好接收者的 MethodHandle，轮询时直接调用并按 Number 取值，
+ * 不再每次走 Method.invoke + toString() 解析。管理器提供回调注册方法时，
+ * 用动态代理注册回调，信号变化时立即通知观察者读取。
+ */
+class CarSignalManagerAccess {
+    private static final String TAG = "CarSignalManagerAccess";
+
+    /** 车速 getter 候选名（不同车型命名不同，找不到时视为未知） */
+    private static final String[] SPEED_GETTERS = {"getVehSpdLgt", "getVehSpd", "getVehicleSpeed"};
+    private static final String[] REGISTER_METHODS = {"registerCallback", "registerListener", "addCallback", "addListener"};
+    private static final String[] UNREGISTER_METHODS = {"unregisterCallback", "unregisterListener", "removeCallback", "removeListener"};
+
+    private CarSignalManagerAccess() {
+    }
+
+    /**
+     * 预先解析的 getter
+     */
+    static final class Accessor {
+        private final String name;
+        private final Object target;
+        private final Method method;
+        /** ()Object，已绑定接收者；解析失败时为 null，回退到 Method.invoke */
+        private final MethodHandle handle;
+
+        Accessor(String name, Object target, Method method, MethodHandle handle) {
+            this.name = name;
+            this.target = target;
+            this.method = method;
+            this.handle = handle;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        int getInt() throws Exception {
+            Object value = invoke();
+            if (value instanceof Number) {
+                return ((Number) value).intValue();
+            }
+            if (value == null) {
+                throw new IllegalStateException(name + "() 返回 null");
+            }
+            return Integer.parseInt(value.toString().trim());
+        }
+
+        float getFloat() throws Exception {
+            Object value = invoke();
+            if (value instanceof Number) {
+                return ((Number) value).floatValue();
+            }
+            if (value == null) {
+                throw new IllegalStateException(name + "() 返回 null");
+            }
+            return Float.parseFloat(value.toString().trim());
+        }
+
+        private Object invoke() throws Exception {
+            if (handle == null) {
+                return method.invoke(target);
+            }
+            try {
+                return (Object) handle.invokeExact();
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new Exception(t);
+            }
+        }
+    }
+
+    /**
+     * 已注册的系统回调
+     */
+    static final class CallbackRegistration {
+        private final Object manager;
+        private final Method unregisterMethod;
+        private final Object callback;
+
+        private CallbackRegistration(Object manager, Method unregisterMethod, Object callback) {
+            this.manager = manager;
+            this.unregisterMethod = unregisterMethod;
+            this.callback = callback;
+        }
+
+        void unregister() {
+            if (unregisterMethod == null) return;
+            try {
+                unregisterMethod.invoke(manager, callback);
+            } catch (Exception e) {
+                AppLog.w(TAG, "注销 CarSignalManager 回调失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 获取 CarSignalManager 实例（阻塞，需在后台线程调用）
+     * @return 失败返回 null
+     */
+    static Object connect(Context context) {
+        // 方法1：尝试通过 ServiceManager 获取 ecarxcar_service
+        try {
+            Class<?> serviceManagerClass = Class.forName("android.os.ServiceManager");
+            Method getServiceMethod = serviceManagerClass.getMethod("getService", String.class);
+            Object binder = getServiceMethod.invoke(null, "ecarxcar_service");
+
+            if (binder != null) {
+                AppLog.d(TAG, "✅ ecarxcar_service Binder获取成功");
+                Class<?> stubClass = Class.forName("ecarx.car.IECarXCar$Stub");
+                Method asInterfaceMethod = stubClass.getMethod("asInterface", Class.forName("android.os.IBinder"));
+                Object eCarXCar = asInterfaceMethod.invoke(null, binder);
+
+                if (eCarXCar != null) {
+                    Class<?> eCarXCarClass = Class.forName("ecarx.car.ECarXCar");
+                    Class<?> iECarXCarClass = Class.forName("ecarx.car.IECarXCar");
+                    Method createCarMethod = eCarXCarClass.getMethod("createCar", Context.class, iECarXCarClass);
+                    Object car = createCarMethod.invoke(null, context, eCarXCar);
+
+                    if (car != null) {
+                        Method getCarManagerMethod = car.getClass().getMethod("getCarManager", String.class, iECarXCarClass);
+                        Object carSignalManager = getCarManagerMethod.invoke(car, "car_signal", eCarXCar);
+                        if (carSignalManager != null) {
+                            AppLog.d(TAG, "✅ ECARX CarSignalManager 初始化成功");
+                            return carSignalManager;
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            AppLog.w(TAG, "ECARX API 初始化失败: " + e.getMessage());
+        }
+
+        // 方法2：尝试 CarSensor API (备用)
+        try {
+            AppLog.d(TAG, "尝试备用 CarSensor API...");
+            Class<?> clazz = Class.forName("com.ecarx.xui.adaptapi.car.sensor.CarSensor");
+            Method createMethod = clazz.getMethod("create", Context.class);
+            Object carSensor = createMethod.invoke(null, context);
+            if (carSensor != null) {
+                AppLog.d(TAG, "✅ CarSensor 初始化成功(备用API)");
+                return carSensor;
+            }
+        } catch (Exception e) {
+            AppLog.w(TAG, "CarSensor API 初始化失败: " + e.getMessage());
+        }
+
+        AppLog.e(TAG, "❌ 所有 Car API 初始化失败");
+        return null;
+    }
+
+    /**
+     * 解析无参 getter
+     * @throws NoSuchMethodException 管理器没有该方法
+     */
+    static Accessor accessor(Object manager, String name) throws NoSuchMethodException {
+        Method method = manager.getClass().getMethod(name);
+        try {
+            method.setAccessible(true);
+        } catch (RuntimeException ignored) {
+            // 无法关闭访问检查时仍可正常调用，只是稍慢
+        }
+        MethodHandle handle = null;
+        try {
+            handle = MethodHandles.lookup().unreflect(method)
+                    .bindTo(manager)
+                    .asType(MethodType.methodType(Object.class));
+        } catch (Exception e) {
+            AppLog.d(TAG, name + "() 无法转为 MethodHandle，回退反射调用: " + e.getMessage());
+        }
+        return new Accessor(name, manager, method, handle);
+    }
+
+    /**
+     * 查找车速 getter（用于自适应轮询），找不到返回 null
+     */
+    static Accessor speedAccessor(Object manager) {
+        for (String name : SPEED_GETTERS) {
+            try {
+                Accessor accessor = accessor(manager, name);
+                accessor.getFloat();
+                AppLog.d(TAG, "车速读取方法: " + name + "()");
+                return accessor;
+            } catch (Exception ignored) {
+                // 尝试下一个
+            }
+        }
+        AppLog.d(TAG, "未找到车速读取方法，按固定间隔轮询");
+        return null;
+    }
+
+    /**
+     * 尝试注册信号变化回调（参数为单个接口类型的 register 方法），回调时执行 onEvent
+     * @return 注册失败或管理器不支持时返回 null
+     */
+    static CallbackRegistration registerCallback(Object manager, Runnable onEvent) {
+        for (Method method : manager.getClass().getMethods()) {
+            if (!contains(REGISTER_METHODS, method.getName()) || method.getParameterTypes().length != 1) {
+                continue;
+            }
+            Class<?> type = method.getParameterTypes()[0];
+            if (!type.isInterface()) {
+                continue;
+            }
+            try {
+                Object callback = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                        (proxy, m, args) -> {
+                            if (m.getDeclaringClass() == Object.class) {
+                                switch (m.getName()) {
+                                    case "equals": return proxy == args[0];
+                                    case "hashCode": return System.identityHashCode(proxy);
+                                    default: return "CarSignalCallback@" + Integer.toHexString(System.identityHashCode(proxy));
+                                }
+                            }
+                            onEvent.run();
+                            return defaultValue(m.getReturnType());
+                        });
+                method.invoke(manager, callback);
+                AppLog.i(TAG, "✅ 已注册 CarSignalManager 回调: " + method.getName() + "(" + type.getSimpleName() + ")");
+                return new CallbackRegistration(manager, findUnregisterMethod(manager, type), callback);
+            } catch (Exception e) {
+                AppLog.d(TAG, method.getName() + "(" + type.getSimpleName() + ") 注册失败: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private static Method findUnregisterMethod(Object manager, Class<?> callbackType) {
+        for (String name : UNREGISTER_METHODS) {
+            try {
+                return manager.getClass().getMethod(name, callbackType);
+            } catch (NoSuchMethodException ignored) {
+                // 尝试下一个
+            }
+        }
+        return null;
+    }
+
+    private static boolean contains(String[] names, String name) {
+        for (String n : names) {
+            if (n.equals(name)) return true;
+        }
+        return false;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}
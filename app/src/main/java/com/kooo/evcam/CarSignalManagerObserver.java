@@ -2,8 +2,11 @@ package com.kooo.evcam;
 
 import android.content.Context;
 import android.os.Handler;
-import android.os.IBinder;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.SystemClock;
+
+import com.kooo.evcam.signal.SignalRecorder;
 
 import java.lang.reflect.Method;
 
@@ -16,11 +19,19 @@ import java.lang.reflect.Method;
  * 初始化方式：
  * 1. ECARX API: ecarxcar_service → ECarXCar.createCar() → getCarManager("car_signal")
  * 2. CarSensor API: CarSensor.create() (备用)
+ *
+ * 读取在独立的后台线程进行：管理器支持回调时信号变化立即读取，
+ * 否则自适应轮询（行驶中或刚停车 200ms，长时间静止 1000ms），只在状态变化时输出日志。
  */
 public class CarSignalManagerObserver {
     
     private static final String TAG = "CarSignalManagerObserver";
-    private static final long POLL_INTERVAL_MS = 200; // 200ms轮询一次
+    private static final long FAST_POLL_INTERVAL_MS = 200;  // 行驶中/状态刚变化
+    private static final long SLOW_POLL_INTERVAL_MS = 1000; // 长时间静止或回调可靠
+    private static final long CHANGE_HOLD_MS = 5000;        // 状态变化后保持快速轮询的时长
+    // 车速持续为 0 超过该时长视为驻车（无挡位信号，等红灯时仍保持快速轮询）
+    static final long PARKED_AFTER_MS = 3 * 60 * 1000;
+    private static final float MOVING_SPEED_THRESHOLD = 0.5f;
     
     /**
      * 转向灯信号回调接口
@@ -34,10 +45,20 @@ public class CarSignalManagerObserver {
     
     private final Context context;
     private final TurnSignalListener listener;
-    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AdaptivePollScheduler scheduler = new AdaptivePollScheduler(
+            FAST_POLL_INTERVAL_MS, SLOW_POLL_INTERVAL_MS, CHANGE_HOLD_MS);
+    
+    private HandlerThread pollThread;
+    private volatile Handler pollHandler;
     
+    // 以下字段在轮询线程访问（connect/poll/release 同步，防止 stop 后立即 start 时新旧线程交错）
     private Object carSignalManager = null;
-    private Method getIndcrStsMethod = null;  // 获取转向灯状态的方法
+    private CarSignalManagerAccess.Accessor indcrStsAccessor = null;  // 获取转向灯状态
+    private ActivityHint activityHint = null;                         // 按车速判断是否活跃
+    private CarSignalManagerAccess.CallbackRegistration callbackRegistration = null;
+    private long lastPollDelay = -1;
+    private boolean lastPollFailed = false;
     
     private volatile boolean running = false;
     private volatile boolean connected = false;
@@ -45,22 +66,8 @@ public class CarSignalManagerObserver {
     // 上一次的转向灯状态（0=关闭, 1=左转, 2=右转, 3=双闪）
     private int lastTurnSignalState = 0;
     
-    private final Runnable pollRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (!running) return;
-            
-            try {
-                pollTurnSignalState();
-            } catch (Exception e) {
-                AppLog.e(TAG, "Failed to poll turn signal state", e);
-            } finally {
-                if (running) {
-                    handler.postDelayed(this, POLL_INTERVAL_MS);
-                }
-            }
-        }
-    };
+    private final Runnable timerPollRunnable = () -> poll(false);
+    private final Runnable callbackPollRunnable = () -> poll(true);
     
     public CarSignalManagerObserver(Context context, TurnSignalListener listener) {
         this.context = context;
@@ -74,18 +81,15 @@ public class CarSignalManagerObserver {
         if (running) return;
         running = true;
         lastTurnSignalState = -1; // 重置状态，确保首次读取会触发回调
+        scheduler.reset();
+        lastPollDelay = -1;
+        lastPollFailed = false;
         
-        new Thread(() -> {
-            boolean success = initCarSignalManager();
-            
-            if (listener != null) {
-                handler.post(() -> listener.onConnectionStateChanged(success));
-            }
-            
-            if (success) {
-                handler.post(pollRunnable);
-            }
-        }).start();
+        pollThread = new HandlerThread(TAG);
+        pollThread.start();
+        Handler handler = new Handler(pollThread.getLooper());
+        pollHandler = handler;
+        handler.post(this::connect);
     }
     
     /**
@@ -94,9 +98,17 @@ public class CarSignalManagerObserver {
     public void stop() {
         running = false;
         connected = false;
-        handler.removeCallbacks(pollRunnable);
-        carSignalManager = null;
-        getIndcrStsMethod = null;
+        Handler handler = pollHandler;
+        pollHandler = null;
+        if (handler != null) {
+            handler.removeCallbacksAndMessages(null);
+            // 在轮询线程上注销回调并释放引用，避免与正在进行的读取并发
+            handler.post(this::releaseIfStopped);
+        }
+        if (pollThread != null) {
+            pollThread.quitSafely();
+            pollThread = null;
+        }
     }
     
     /**
@@ -172,160 +184,209 @@ public class CarSignalManagerObserver {
     // ==================== Internal ====================
     
     /**
-     * 初始化 CarSignalManager（参考 L7Test 项目的成功实现）
+     * 连接 CarSignalManager 并开始读取（轮询线程）
      */
-    private boolean initCarSignalManager() {
-        try {
-            AppLog.d(TAG, "🔍 开始初始化 CarSignalManager...");
-            
-            // 方法1：尝试通过 ServiceManager 获取 ecarxcar_service
+    private synchronized void connect() {
+        // 上一轮 stop 后的 release 可能因立即重新 start 而跳过
+        release();
+        AppLog.d(TAG, "🔍 开始初始化 CarSignalManager...");
+        boolean success = false;
+        Object manager = CarSignalManagerAccess.connect(context);
+        if (manager != null) {
             try {
-                Class<?> serviceManagerClass = Class.forName("android.os.ServiceManager");
-                Method getServiceMethod = serviceManagerClass.getMethod("getService", String.class);
-                Object binder = getServiceMethod.invoke(null, "ecarxcar_service");
-                
-                if (binder != null) {
-                    AppLog.d(TAG, "✅ ecarxcar_service Binder获取成功");
-                    Class<?> stubClass = Class.forName("ecarx.car.IECarXCar$Stub");
-                    Method asInterfaceMethod = stubClass.getMethod("asInterface", Class.forName("android.os.IBinder"));
-                    Object eCarXCar = asInterfaceMethod.invoke(null, binder);
-                    
-                    if (eCarXCar != null) {
-                        Class<?> eCarXCarClass = Class.forName("ecarx.car.ECarXCar");
-                        Class<?> iECarXCarClass = Class.forName("ecarx.car.IECarXCar");
-                        Method createCarMethod = eCarXCarClass.getMethod("createCar", Context.class, iECarXCarClass);
-                        Object car = createCarMethod.invoke(null, context, eCarXCar);
-                        
-                        if (car != null) {
-                            Method getCarManagerMethod = car.getClass().getMethod("getCarManager", String.class, iECarXCarClass);
-                            carSignalManager = getCarManagerMethod.invoke(car, "car_signal", eCarXCar);
-                            
-                            if (carSignalManager != null) {
-                                AppLog.d(TAG, "✅ ECARX CarSignalManager 初始化成功");
-                                getIndcrStsMethod = carSignalManager.getClass().getMethod("getIndcrSts");
-                                
-                                // 测试调用
-                                Object testResult = getIndcrStsMethod.invoke(carSignalManager);
-                                AppLog.d(TAG, "📊 当前转向灯状态: " + testResult);
-                                
-                                connected = true;
-                                return true;
-                            }
-                        }
-                    }
-                }
+                indcrStsAccessor = CarSignalManagerAccess.accessor(manager, "getIndcrSts");
+                // 测试调用
+                AppLog.d(TAG, "📊 当前转向灯状态: " + indcrStsAccessor.getInt());
+                carSignalManager = manager;
+                activityHint = new ActivityHint(CarSignalManagerAccess.speedAccessor(manager),
+                        SystemClock.elapsedRealtime());
+                callbackRegistration = CarSignalManagerAccess.registerCallback(manager, this::requestPoll);
+                success = true;
             } catch (Exception e) {
-                AppLog.w(TAG, "ECARX API 初始化失败: " + e.getMessage());
+                AppLog.e(TAG, "❌ getIndcrSts() 不可用: " + e.getMessage());
+                indcrStsAccessor = null;
             }
-            
-            // 方法2：尝试 CarSensor API (备用)
+        }
+        if (!running) {
+            releaseIfStopped();
+            return;
+        }
+        connected = success;
+        
+        if (listener != null) {
+            final boolean result = success;
+            mainHandler.post(() -> listener.onConnectionStateChanged(result));
+        }
+        
+        if (success) {
+            poll(false);
+        }
+    }
+    
+    private synchronized void releaseIfStopped() {
+        if (!running) {
+            release();
+        }
+    }
+    
+    private void release() {
+        if (callbackRegistration != null) {
+            callbackRegistration.unregister();
+            callbackRegistration = null;
+        }
+        carSignalManager = null;
+        indcrStsAccessor = null;
+        activityHint = null;
+    }
+    
+    /**
+     * 系统回调：信号有变化，立即读取（任意线程）
+     */
+    private void requestPoll() {
+        Handler handler = pollHandler;
+        if (handler != null && running) {
+            handler.removeCallbacks(timerPollRunnable);
+            handler.removeCallbacks(callbackPollRunnable);
+            handler.post(callbackPollRunnable);
+        }
+    }
+    
+    /**
+     * 读取一次并调度下次轮询（轮询线程）
+     */
+    private synchronized void poll(boolean fromCallback) {
+        Handler handler = pollHandler;
+        if (!running || handler == null || handler.getLooper() != Looper.myLooper()) return;
+        
+        boolean changed = false;
+        try {
+            changed = pollTurnSignalState();
+        } catch (Exception e) {
+            AppLog.e(TAG, "Failed to poll turn signal state", e);
+        }
+        
+        long now = SystemClock.elapsedRealtime();
+        boolean active = activityHint == null || activityHint.isActive(now);
+        long delay = scheduler.onPolled(now, changed, fromCallback, active);
+        if (delay != lastPollDelay) {
+            AppLog.d(TAG, "轮询间隔: " + delay + "ms" + (scheduler.isCallbackTrusted() ? " (回调兜底)" : ""));
+            lastPollDelay = delay;
+        }
+        handler.removeCallbacks(timerPollRunnable);
+        handler.postDelayed(timerPollRunnable, delay);
+    }
+    
+    /**
+     * 轮询活跃提示：行驶中或静止未超过 PARKED_AFTER_MS 视为活跃；读不到车速时始终活跃
+     */
+    static final class ActivityHint {
+        private final CarSignalManagerAccess.Accessor speedAccessor;
+        private long lastMovingAt;
+
+        /**
+         * @param speedAccessor 车速 getter，可为 null
+         * @param now 连接时间（elapsedRealtime），连接后按刚行驶过处理
+         */
+        ActivityHint(CarSignalManagerAccess.Accessor speedAccessor, long now) {
+            this.speedAccessor = speedAccessor;
+            this.lastMovingAt = now;
+        }
+
+        boolean isActive(long now) {
+            if (speedAccessor == null) return true;
             try {
-                AppLog.d(TAG, "尝试备用 CarSensor API...");
-                Class<?> clazz = Class.forName("com.ecarx.xui.adaptapi.car.sensor.CarSensor");
-                Method createMethod = clazz.getMethod("create", Context.class);
-                carSignalManager = createMethod.invoke(null, context);
-                
-                if (carSignalManager != null) {
-                    AppLog.d(TAG, "✅ CarSensor 初始化成功(备用API)");
-                    getIndcrStsMethod = carSignalManager.getClass().getMethod("getIndcrSts");
-                    
-                    // 测试调用
-                    Object testResult = getIndcrStsMethod.invoke(carSignalManager);
-                    AppLog.d(TAG, "📊 当前转向灯状态: " + testResult);
-                    
-                    connected = true;
-                    return true;
+                if (Math.abs(speedAccessor.getFloat()) > MOVING_SPEED_THRESHOLD) {
+                    lastMovingAt = now;
                 }
             } catch (Exception e) {
-                AppLog.w(TAG, "CarSensor API 初始化失败: " + e.getMessage());
+                return true;
             }
-            
-            AppLog.e(TAG, "❌ 所有 Car API 初始化失败");
-            return false;
-            
-        } catch (Exception e) {
-            AppLog.e(TAG, "❌ CarSignalManager 初始化异常", e);
-            carSignalManager = null;
-            getIndcrStsMethod = null;
-            connected = false;
-            return false;
+            return now - lastMovingAt < PARKED_AFTER_MS;
         }
     }
     
     /**
-     * 轮询转向灯状态（200ms间隔）
+     * 读取转向灯状态
+     * @return 状态是否变化
      */
-    private void pollTurnSignalState() {
-        if (carSignalManager == null || getIndcrStsMethod == null) {
-            return;
+    private boolean pollTurnSignalState() {
+        if (carSignalManager == null || indcrStsAccessor == null) {
+            return false;
         }
         
         try {
             // 调用 getIndcrSts() 获取转向灯状态
             // 返回值：0=关闭, 1=左转, 2=右转, 3=双闪
-            Object result = getIndcrStsMethod.invoke(carSignalManager);
-            
-            if (result != null) {
-                int currentState = Integer.parseInt(result.toString());
-                checkTurnSignalChange(currentState);
-            } else {
-                AppLog.w(TAG, "⚠️ getIndcrSts() 返回 null");
+            int currentState = indcrStsAccessor.getInt();
+            if (lastPollFailed) {
+                AppLog.i(TAG, "转向灯状态读取恢复");
+                lastPollFailed = false;
             }
+            return checkTurnSignalChange(currentState);
         } catch (Exception e) {
-            AppLog.e(TAG, "❌ 转向灯状态读取失败: " + e.getMessage());
+            // 连续失败只记录一次
+            if (!lastPollFailed) {
+                AppLog.e(TAG, "❌ 转向灯状态读取失败: " + e.getMessage());
+                lastPollFailed = true;
+            }
+            return false;
         }
     }
     
     /**
      * 检测转向灯状态变化并通知监听器
      * @param currentState 当前状态: 0=关闭, 1=左转, 2=右转, 3=双闪
+     * @return 状态是否变化
      */
-    private void checkTurnSignalChange(int currentState) {
-        if (lastTurnSignalState != currentState) {
-            String statusDesc = getTurnSignalDesc(currentState);
-            AppLog.d(TAG, "🔄 转向灯状态变化: " + lastTurnSignalState + " → " + currentState + " (" + statusDesc + ")");
-            
-            // 通知监听器
-            if (listener != null) {
-                // 根据状态转换为方向和开关信息
-                switch (currentState) {
-                    case 0: // 关闭
-                        // 只在从非关闭状态切换到关闭状态时，才通知关闭
-                        // 避免重复触发 startHideTimer()
-                        if (lastTurnSignalState == 1) {
-                            // 从左转切换到关闭
-                            handler.post(() -> listener.onTurnSignal("left", false));
-                        } else if (lastTurnSignalState == 2) {
-                            // 从右转切换到关闭
-                            handler.post(() -> listener.onTurnSignal("right", false));
-                        } else if (lastTurnSignalState == 3) {
-                            // 从双闪切换到关闭
-                            handler.post(() -> {
-                                listener.onTurnSignal("left", false);
-                                listener.onTurnSignal("right", false);
-                            });
-                        }
-                        break;
-                        
-                    case 1: // 左转
-                        handler.post(() -> listener.onTurnSignal("left", true));
-                        break;
-                        
-                    case 2: // 右转
-                        handler.post(() -> listener.onTurnSignal("right", true));
-                        break;
-                        
-                    case 3: // 双闪
-                        handler.post(() -> {
-                            listener.onTurnSignal("left", true);
-                            listener.onTurnSignal("right", true);
+    private boolean checkTurnSignalChange(int currentState) {
+        if (lastTurnSignalState == currentState) {
+            return false;
+        }
+        String statusDesc = getTurnSignalDesc(currentState);
+        AppLog.d(TAG, "🔄 转向灯状态变化: " + lastTurnSignalState + " → " + currentState + " (" + statusDesc + ")");
+        SignalRecorder.recordCarSignal(indcrStsAccessor.getName(), currentState);
+        
+        // 通知监听器
+        if (listener != null) {
+            // 根据状态转换为方向和开关信息
+            switch (currentState) {
+                case 0: // 关闭
+                    // 只在从非关闭状态切换到关闭状态时，才通知关闭
+                    // 避免重复触发 startHideTimer()
+                    if (lastTurnSignalState == 1) {
+                        // 从左转切换到关闭
+                        mainHandler.post(() -> listener.onTurnSignal("left", false));
+                    } else if (lastTurnSignalState == 2) {
+                        // 从右转切换到关闭
+                        mainHandler.post(() -> listener.onTurnSignal("right", false));
+                    } else if (lastTurnSignalState == 3) {
+                        // 从双闪切换到关闭
+                        mainHandler.post(() -> {
+                            listener.onTurnSignal("left", false);
+                            listener.onTurnSignal("right", false);
                         });
-                        break;
-                }
+                    }
+                    break;
+                    
+                case 1: // 左转
+                    mainHandler.post(() -> listener.onTurnSignal("left", true));
+                    break;
+                    
+                case 2: // 右转
+                    mainHandler.post(() -> listener.onTurnSignal("right", true));
+                    break;
+                    
+                case 3: // 双闪
+                    mainHandler.post(() -> {
+                        listener.onTurnSignal("left", true);
+                        listener.onTurnSignal("right", true);
+                    });
+                    break;
             }
-            
-            lastTurnSignalState = currentState;
         }
+        
+        lastTurnSignalState = currentState;
+        return true;
     }
     
     /**
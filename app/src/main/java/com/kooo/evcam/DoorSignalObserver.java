@@ -2,7 +2,11 @@ package com.kooo.evcam;
 
 import android.content.Context;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.SystemClock;
+
+import com.kooo.evcam.signal.SignalRecorder;
 
 import java.lang.reflect.Method;
 
@@ -20,11 +24,17 @@ import java.lang.reflect.Method;
  * - getDoorRiReSts() - 右后门状态
  * 
  * 返回值：1=打开, 2=关闭
+ * 
+ * 读取在独立的后台线程进行：管理器支持回调时信号变化立即读取，
+ * 否则自适应轮询（低速/静止 200ms，行驶中车门不会打开，1000ms），只在状态变化时输出日志。
  */
 public class DoorSignalObserver {
     
     private static final String TAG = "DoorSignalObserver";
-    private static final long POLL_INTERVAL_MS = 500; // 500ms轮询一次
+    private static final long FAST_POLL_INTERVAL_MS = 200;  // 低速/静止或状态刚变化
+    private static final long SLOW_POLL_INTERVAL_MS = 1000; // 行驶中或回调可靠
+    private static final long CHANGE_HOLD_MS = 5000;        // 状态变化后保持快速轮询的时长
+    private static final float DOOR_ACTIVE_MAX_SPEED = 10f; // 低于该车速时车门可能打开
     
     /**
      * 车门信号回调接口
@@ -39,13 +49,23 @@ public class DoorSignalObserver {
     
     private final Context context;
     private final DoorSignalListener listener;
-    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AdaptivePollScheduler scheduler = new AdaptivePollScheduler(
+            FAST_POLL_INTERVAL_MS, SLOW_POLL_INTERVAL_MS, CHANGE_HOLD_MS);
+    
+    private HandlerThread pollThread;
+    private volatile Handler pollHandler;
     
+    // 以下字段在轮询线程访问（connect/poll/release 同步，防止 stop 后立即 start 时新旧线程交错）
     private Object carSignalManager = null;
-    private Method getDoorDrvrStsMethod = null;  // 主驾驶门
-    private Method getDoorPassStsMethod = null;  // 副驾驶门
-    private Method getDoorLeReStsMethod = null;  // 左后门
-    private Method getDoorRiReStsMethod = null;  // 右后门
+    private CarSignalManagerAccess.Accessor doorDrvrSts = null;  // 主驾驶门
+    private CarSignalManagerAccess.Accessor doorPassSts = null;  // 副驾驶门
+    private CarSignalManagerAccess.Accessor doorLeReSts = null;  // 左后门
+    private CarSignalManagerAccess.Accessor doorRiReSts = null;  // 右后门
+    private CarSignalManagerAccess.Accessor speedAccessor = null; // 车速（可选）
+    private CarSignalManagerAccess.CallbackRegistration callbackRegistration = null;
+    private long lastPollDelay = -1;
+    private boolean lastPollFailed = false;
     
     private volatile boolean running = false;
     private volatile boolean connected = false;
@@ -61,30 +81,8 @@ public class DoorSignalObserver {
     private boolean isLeftRearDoorOpen = false;  // 左后门
     private boolean isRightRearDoorOpen = false; // 右后门
     
-    private final Runnable pollRunnable = new Runnable() {
-        @Override
-        public void run() {
-            AppLog.d(TAG, "🚪 pollRunnable.run() 执行，running=" + running);
-            
-            if (!running) {
-                AppLog.w(TAG, "🚪 running=false，停止轮询");
-                return;
-            }
-            
-            try {
-                pollDoorState();
-            } catch (Exception e) {
-                AppLog.e(TAG, "Failed to poll door state", e);
-            } finally {
-                if (running) {
-                    AppLog.d(TAG, "🚪 调度下次轮询，延迟 " + POLL_INTERVAL_MS + "ms");
-                    handler.postDelayed(this, POLL_INTERVAL_MS);
-                } else {
-                    AppLog.w(TAG, "🚪 running=false，不再调度下次轮询");
-                }
-            }
-        }
-    };
+    private final Runnable timerPollRunnable = () -> poll(false);
+    private final Runnable callbackPollRunnable = () -> poll(true);
     
     public DoorSignalObserver(Context context, DoorSignalListener listener) {
         this.context = context;
@@ -101,7 +99,7 @@ public class DoorSignalObserver {
         }
         running = true;
         
-        AppLog.i(TAG, "🚪 ========== DoorSignalObserver.start() 开始执行 ==========");
+        AppLog.i(TAG, "🚪 DoorSignalObserver.start()");
         
         // 重置状态
         lastDoorDrvrSts = 2;
@@ -111,61 +109,37 @@ public class DoorSignalObserver {
         isPassDoorOpen = false;
         isLeftRearDoorOpen = false;
         isRightRearDoorOpen = false;
+        scheduler.reset();
+        lastPollDelay = -1;
+        lastPollFailed = false;
         
-        AppLog.i(TAG, "🚪 启动初始化线程...");
-        new Thread(() -> {
-            AppLog.i(TAG, "🚪 初始化线程开始运行");
-            boolean success = initCarSignalManager();
-            AppLog.i(TAG, "🚪 初始化结果: " + (success ? "成功" : "失败"));
-            
-            if (listener != null) {
-                handler.post(() -> {
-                    AppLog.i(TAG, "🚪 通知连接状态变化: " + (success ? "已连接" : "未连接"));
-                    listener.onConnectionStateChanged(success);
-                });
-            }
-            
-            if (success) {
-                AppLog.i(TAG, "🚪 准备启动轮询 Runnable...");
-                // 延迟 100ms 启动轮询，避免立即被停止
-                handler.postDelayed(() -> {
-                    AppLog.i(TAG, "🚪 ✅ 轮询 Runnable 准备执行，running=" + running + ", connected=" + connected);
-                    if (running && connected) {
-                        AppLog.i(TAG, "🚪 开始第一次轮询");
-                        pollRunnable.run();
-                    } else {
-                        AppLog.e(TAG, "🚪 ❌ running=" + running + ", connected=" + connected + "，轮询未启动");
-                    }
-                }, 100);
-            } else {
-                AppLog.e(TAG, "🚪 ❌ 初始化失败，轮询未启动");
-            }
-        }).start();
-        
-        AppLog.i(TAG, "🚪 ========== DoorSignalObserver.start() 执行完成 ==========");
+        pollThread = new HandlerThread(TAG);
+        pollThread.start();
+        Handler handler = new Handler(pollThread.getLooper());
+        pollHandler = handler;
+        handler.post(this::connect);
     }
     
     /**
      * 停止监听
      */
     public void stop() {
-        AppLog.i(TAG, "🚪 ========== DoorSignalObserver.stop() 开始执行 ==========");
-        AppLog.i(TAG, "🚪 当前 running=" + running);
+        AppLog.i(TAG, "🚪 DoorSignalObserver.stop(), running=" + running);
         
         running = false;
         connected = false;
         
-        // 移除所有待执行的 Runnable
-        handler.removeCallbacks(pollRunnable);
-        AppLog.i(TAG, "🚪 已移除所有待执行的轮询 Runnable");
-        
-        carSignalManager = null;
-        getDoorDrvrStsMethod = null;
-        getDoorPassStsMethod = null;
-        getDoorLeReStsMethod = null;
-        getDoorRiReStsMethod = null;
-        
-        AppLog.i(TAG, "🚪 ========== DoorSignalObserver.stop() 执行完成 ==========");
+        Handler handler = pollHandler;
+        pollHandler = null;
+        if (handler != null) {
+            // 移除所有待执行的读取，在轮询线程上注销回调并释放引用
+            handler.removeCallbacksAndMessages(null);
+            handler.post(this::releaseIfStopped);
+        }
+        if (pollThread != null) {
+            pollThread.quitSafely();
+            pollThread = null;
+        }
     }
     
     /**
@@ -241,161 +215,200 @@ public class DoorSignalObserver {
     // ==================== Internal ====================
     
     /**
-     * 初始化 CarSignalManager
+     * 连接 CarSignalManager 并开始读取（轮询线程）
      */
-    private boolean initCarSignalManager() {
-        try {
-            AppLog.d(TAG, "🔍 开始初始化 CarSignalManager (车门监听)...");
-            
-            // 方法1：尝试通过 ServiceManager 获取 ecarxcar_service
-            try {
-                Class<?> serviceManagerClass = Class.forName("android.os.ServiceManager");
-                Method getServiceMethod = serviceManagerClass.getMethod("getService", String.class);
-                Object binder = getServiceMethod.invoke(null, "ecarxcar_service");
-                
-                if (binder != null) {
-                    AppLog.d(TAG, "✅ ecarxcar_service Binder获取成功");
-                    Class<?> stubClass = Class.forName("ecarx.car.IECarXCar$Stub");
-                    Method asInterfaceMethod = stubClass.getMethod("asInterface", Class.forName("android.os.IBinder"));
-                    Object eCarXCar = asInterfaceMethod.invoke(null, binder);
-                    
-                    if (eCarXCar != null) {
-                        Class<?> eCarXCarClass = Class.forName("ecarx.car.ECarXCar");
-                        Class<?> iECarXCarClass = Class.forName("ecarx.car.IECarXCar");
-                        Method createCarMethod = eCarXCarClass.getMethod("createCar", Context.class, iECarXCarClass);
-                        Object car = createCarMethod.invoke(null, context, eCarXCar);
-                        
-                        if (car != null) {
-                            Method getCarManagerMethod = car.getClass().getMethod("getCarManager", String.class, iECarXCarClass);
-                            carSignalManager = getCarManagerMethod.invoke(car, "car_signal", eCarXCar);
-                            
-                            if (carSignalManager != null) {
-                                AppLog.d(TAG, "✅ ECARX CarSignalManager 初始化成功");
-                                // 获取车门状态方法
-                                getDoorDrvrStsMethod = carSignalManager.getClass().getMethod("getDoorDrvrSts");
-                                getDoorPassStsMethod = carSignalManager.getClass().getMethod("getDoorPassSts");
-                                getDoorLeReStsMethod = carSignalManager.getClass().getMethod("getDoorLeReSts");
-                                getDoorRiReStsMethod = carSignalManager.getClass().getMethod("getDoorRiReSts");
-                                
-                                // 测试调用
-                                Object testResult = getDoorDrvrStsMethod.invoke(carSignalManager);
-                                AppLog.d(TAG, "📊 当前主驾门状态: " + testResult);
-                                
-                                connected = true;
-                                return true;
-                            }
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                AppLog.w(TAG, "ECARX API 初始化失败: " + e.getMessage());
-            }
-            
-            // 方法2：尝试 CarSensor API (备用)
+    private synchronized void connect() {
+        // 上一轮 stop 后的 release 可能因立即重新 start 而跳过
+        release();
+        AppLog.d(TAG, "🔍 开始初始化 CarSignalManager (车门监听)...");
+        boolean success = false;
+        Object manager = CarSignalManagerAccess.connect(context);
+        if (manager != null) {
             try {
-                AppLog.d(TAG, "尝试备用 CarSensor API...");
-                Class<?> clazz = Class.forName("com.ecarx.xui.adaptapi.car.sensor.CarSensor");
-                Method createMethod = clazz.getMethod("create", Context.class);
-                carSignalManager = createMethod.invoke(null, context);
-                
-                if (carSignalManager != null) {
-                    AppLog.d(TAG, "✅ CarSensor 初始化成功(备用API)");
-                    // 获取车门状态方法
-                    getDoorDrvrStsMethod = carSignalManager.getClass().getMethod("getDoorDrvrSts");
-                    getDoorPassStsMethod = carSignalManager.getClass().getMethod("getDoorPassSts");
-                    getDoorLeReStsMethod = carSignalManager.getClass().getMethod("getDoorLeReSts");
-                    getDoorRiReStsMethod = carSignalManager.getClass().getMethod("getDoorRiReSts");
-                    
-                    // 测试调用
-                    Object testResult = getDoorDrvrStsMethod.invoke(carSignalManager);
-                    AppLog.d(TAG, "📊 当前主驾门状态: " + testResult);
-                    
-                    connected = true;
-                    return true;
-                }
+                doorDrvrSts = CarSignalManagerAccess.accessor(manager, "getDoorDrvrSts");
+                doorPassSts = CarSignalManagerAccess.accessor(manager, "getDoorPassSts");
+                doorLeReSts = CarSignalManagerAccess.accessor(manager, "getDoorLeReSts");
+                doorRiReSts = CarSignalManagerAccess.accessor(manager, "getDoorRiReSts");
+                // 测试调用
+                AppLog.d(TAG, "📊 当前主驾门状态: " + doorDrvrSts.getInt());
+                carSignalManager = manager;
+                speedAccessor = CarSignalManagerAccess.speedAccessor(manager);
+                callbackRegistration = CarSignalManagerAccess.registerCallback(manager, this::requestPoll);
+                success = true;
             } catch (Exception e) {
-                AppLog.w(TAG, "CarSensor API 初始化失败: " + e.getMessage());
+                AppLog.e(TAG, "❌ 车门状态方法不可用: " + e.getMessage());
+                release();
             }
-            
-            AppLog.e(TAG, "❌ 所有 Car API 初始化失败");
-            return false;
-            
+        }
+        AppLog.i(TAG, "🚪 初始化结果: " + (success ? "成功" : "失败"));
+        if (!running) {
+            releaseIfStopped();
+            return;
+        }
+        connected = success;
+        
+        if (listener != null) {
+            final boolean result = success;
+            mainHandler.post(() -> listener.onConnectionStateChanged(result));
+        }
+        
+        if (success) {
+            poll(false);
+        }
+    }
+    
+    private synchronized void releaseIfStopped() {
+        if (!running) {
+            release();
+        }
+    }
+    
+    private void release() {
+        if (callbackRegistration != null) {
+            callbackRegistration.unregister();
+            callbackRegistration = null;
+        }
+        carSignalManager = null;
+        doorDrvrSts = null;
+        doorPassSts = null;
+        doorLeReSts = null;
+        doorRiReSts = null;
+        speedAccessor = null;
+    }
+    
+    /**
+     * 系统回调：信号有变化，立即读取（任意线程）
+     */
+    private void requestPoll() {
+        Handler handler = pollHandler;
+        if (handler != null && running) {
+            handler.removeCallbacks(timerPollRunnable);
+            handler.removeCallbacks(callbackPollRunnable);
+            handler.post(callbackPollRunnable);
+        }
+    }
+    
+    /**
+     * 读取一次并调度下次轮询（轮询线程）
+     */
+    private synchronized void poll(boolean fromCallback) {
+        Handler handler = pollHandler;
+        if (!running || handler == null || handler.getLooper() != Looper.myLooper()) return;
+        
+        boolean changed = false;
+        try {
+            changed = pollDoorState();
         } catch (Exception e) {
-            AppLog.e(TAG, "❌ CarSignalManager 初始化异常", e);
-            carSignalManager = null;
-            connected = false;
-            return false;
+            AppLog.e(TAG, "Failed to poll door state", e);
         }
+        
+        long delay = scheduler.onPolled(SystemClock.elapsedRealtime(), changed, fromCallback, isDoorActive(speedAccessor));
+        if (delay != lastPollDelay) {
+            AppLog.d(TAG, "🚪 轮询间隔: " + delay + "ms" + (scheduler.isCallbackTrusted() ? " (回调兜底)" : ""));
+            lastPollDelay = delay;
+        }
+        handler.removeCallbacks(timerPollRunnable);
+        handler.postDelayed(timerPollRunnable, delay);
     }
     
     /**
-     * 轮询车门状态（500ms间隔）
+     * 低速/静止时车门可能打开；读不到车速时始终活跃
      */
-    private void pollDoorState() {
+    static boolean isDoorActive(CarSignalManagerAccess.Accessor speedAccessor) {
+        if (speedAccessor == null) return true;
+        try {
+            return Math.abs(speedAccessor.getFloat()) < DOOR_ACTIVE_MAX_SPEED;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+    
+    /**
+     * 读取车门状态
+     * @return 是否有车门状态变化
+     */
+    private boolean pollDoorState() {
         if (carSignalManager == null) {
-            AppLog.w(TAG, "🚪 carSignalManager 为 null，跳过轮询");
-            return;
+            return false;
         }
         
+        int drvr, pass, leRe, riRe;
         try {
             // 获取四个车门状态
-            int drvr = Integer.parseInt(getDoorDrvrStsMethod.invoke(carSignalManager).toString());
-            int pass = Integer.parseInt(getDoorPassStsMethod.invoke(carSignalManager).toString());
-            int leRe = Integer.parseInt(getDoorLeReStsMethod.invoke(carSignalManager).toString());
-            int riRe = Integer.parseInt(getDoorRiReStsMethod.invoke(carSignalManager).toString());
-            
-            // 🔍 每次都输出当前车门状态（用于调试）
-            AppLog.d(TAG, String.format("🚪 车门状态 - 主驾:%d 副驾:%d 左后:%d 右后:%d", drvr, pass, leRe, riRe));
-            
-            // 主驾驶门（不触发摄像头，只记录状态）
-            if (drvr != lastDoorDrvrSts) {
-                AppLog.i(TAG, "🚪 主驾门状态变化: " + lastDoorDrvrSts + " → " + drvr);
-                lastDoorDrvrSts = drvr;
+            drvr = doorDrvrSts.getInt();
+            pass = doorPassSts.getInt();
+            leRe = doorLeReSts.getInt();
+            riRe = doorRiReSts.getInt();
+            if (lastPollFailed) {
+                AppLog.i(TAG, "🚪 车门状态读取恢复");
+                lastPollFailed = false;
             }
-            
-            // 副驾驶门（右侧摄像头）
-            checkDoorChange("副驾门", pass, lastDoorPassSts, (opened) -> {
-                isPassDoorOpen = opened;
-                if (opened) {
-                    notifyDoorOpen("right");
-                } else {
-                    // 只有当副驾门和右后门都关闭时才关闭右侧摄像头
-                    if (!isRightRearDoorOpen) {
-                        notifyDoorClose("right");
-                    }
-                }
-            });
-            lastDoorPassSts = pass;
-            
-            // 左后门（左侧摄像头）
-            checkDoorChange("左后门", leRe, lastDoorLeReSts, (opened) -> {
-                isLeftRearDoorOpen = opened;
-                if (opened) {
-                    notifyDoorOpen("left");
-                } else {
-                    // 左后门关闭就可以关闭左侧摄像头
-                    notifyDoorClose("left");
-                }
-            });
-            lastDoorLeReSts = leRe;
-            
-            // 右后门（右侧摄像头）
-            checkDoorChange("右后门", riRe, lastDoorRiReSts, (opened) -> {
-                isRightRearDoorOpen = opened;
-                if (opened) {
-                    notifyDoorOpen("right");
-                } else {
-                    // 只有当副驾门和右后门都关闭时才关闭右侧摄像头
-                    if (!isPassDoorOpen) {
-                        notifyDoorClose("right");
-                    }
-                }
-            });
-            lastDoorRiReSts = riRe;
-            
         } catch (Exception e) {
-            AppLog.e(TAG, "❌ 车门状态读取失败: " + e.getMessage());
+            // 连续失败只记录一次
+            if (!lastPollFailed) {
+                AppLog.e(TAG, "❌ 车门状态读取失败: " + e.getMessage());
+                lastPollFailed = true;
+            }
+            return false;
         }
+        
+        boolean changed = drvr != lastDoorDrvrSts || pass != lastDoorPassSts
+                || leRe != lastDoorLeReSts || riRe != lastDoorRiReSts;
+        if (!changed) {
+            return false;
+        }
+        AppLog.d(TAG, String.format("🚪 车门状态 - 主驾:%d 副驾:%d 左后:%d 右后:%d", drvr, pass, leRe, riRe));
+        if (drvr != lastDoorDrvrSts) SignalRecorder.recordCarSignal(doorDrvrSts.getName(), drvr);
+        if (pass != lastDoorPassSts) SignalRecorder.recordCarSignal(doorPassSts.getName(), pass);
+        if (leRe != lastDoorLeReSts) SignalRecorder.recordCarSignal(doorLeReSts.getName(), leRe);
+        if (riRe != lastDoorRiReSts) SignalRecorder.recordCarSignal(doorRiReSts.getName(), riRe);
+        
+        // 主驾驶门（不触发摄像头，只记录状态）
+        if (drvr != lastDoorDrvrSts) {
+            AppLog.i(TAG, "🚪 主驾门状态变化: " + lastDoorDrvrSts + " → " + drvr);
+            lastDoorDrvrSts = drvr;
+        }
+        
+        // 副驾驶门（右侧摄像头）
+        checkDoorChange("副驾门", pass, lastDoorPassSts, (opened) -> {
+            isPassDoorOpen = opened;
+            if (opened) {
+                notifyDoorOpen("right");
+            } else {
+                // 只有当副驾门和右后门都关闭时才关闭右侧摄像头
+                if (!isRightRearDoorOpen) {
+                    notifyDoorClose("right");
+                }
+            }
+        });
+        lastDoorPassSts = pass;
+        
+        // 左后门（左侧摄像头）
+        checkDoorChange("左后门", leRe, lastDoorLeReSts, (opened) -> {
+            isLeftRearDoorOpen = opened;
+            if (opened) {
+                notifyDoorOpen("left");
+            } else {
+                // 左后门关闭就可以关闭左侧摄像头
+                notifyDoorClose("left");
+            }
+        });
+        lastDoorLeReSts = leRe;
+        
+        // 右后门（右侧摄像头）
+        checkDoorChange("右后门", riRe, lastDoorRiReSts, (opened) -> {
+            isRightRearDoorOpen = opened;
+            if (opened) {
+                notifyDoorOpen("right");
+            } else {
+                // 只有当副驾门和右后门都关闭时才关闭右侧摄像头
+                if (!isPassDoorOpen) {
+                    notifyDoorClose("right");
+                }
+            }
+        });
+        lastDoorRiReSts = riRe;
+        return true;
     }
     
     /**
@@ -423,7 +436,7 @@ public class DoorSignalObserver {
      */
     private void notifyDoorOpen(String side) {
         if (listener != null) {
-            handler.post(() -> listener.onDoorOpen(side));
+            mainHandler.post(() -> listener.onDoorOpen(side));
         }
     }
     
@@ -432,7 +445,7 @@ public class DoorSignalObserver {
      */
     private void notifyDoorClose(String side) {
         if (listener != null) {
-            handler.post(() -> listener.onDoorClose(side));
+            mainHandler.post(() -> listener.onDoorClose(side));
         }
     }
     
@@ -0,0 +1,33 @@
+package com.kooo.evcam;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.module.AppGlideModule;
+import com.kooo.evcam.playback.ExifThumbnailDecoder;
+
+import java.io.File;
+
+/**
+ * Glide 全局配置
+ * 注册 EXIF 内嵌缩略图解码器，照片网格优先读取拍照时写入的小缩略图
+ */
+@GlideModule
+public final class EvCamGlideModule extends AppGlideModule {
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.prepend(Registry.BUCKET_BITMAP, File.class, Bitmap.class,
+                new ExifThumbnailDecoder(glide.getBitmapPool()));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -0,0 +1,301 @@
+package com.kooo.evcam;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+/**
+ * logcat 输出的字节级行扫描器（LogcatSignalObserver 使用）
+ *
+ * 直接读取进程 InputStream 到复用的字节缓冲区，用 Aho-Corasick 自动机对每个字节只做一次查表，
+ * 同时匹配 "data1 =" 和所有触发关键字；data1 的数值在缓冲区内原地解析。
+ * 只有命中关键字的行才解码为 String 并回调，其余行不产生任何对象。
+ *
+ * 关键字按 UTF-8 字节匹配，结果与 String.contains 一致。
+ */
+final class LogcatLineScanner {
+    static final String DATA1_PATTERN = "data1 =";
+
+    /** 超过该长度仍无换行时按一行处理（logcat 单条日志远小于此值） */
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int ALPHABET = 256;
+    /** 模式 0 固定为 DATA1_PATTERN */
+    private static final long DATA1_BIT = 1L;
+    private static final byte[] DATA1_BYTES = DATA1_PATTERN.getBytes(StandardCharsets.UTF_8);
+
+    interface LineCallback {
+        /**
+         * @param line 命中关键字的完整行（不含换行符）
+         * @param data1 解析到的 data1（未解析到则为 -1）
+         */
+        void onLine(String line, int data1);
+    }
+
+    private final LineCallback callback;
+    /**
+     * 状态转移表：state * 256 + byte → 下一状态。
+     * 下一状态有命中模式或该字节为换行符时存为按位取反（负数），热循环中只需一次符号判断。
+     */
+    private final int[] transitions;
+    /** 每个状态命中的模式集合（bit i 对应第 i 个模式） */
+    private final long[] outputs;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    /** buffer 中 [0, filled) 为已读入数据，当前行从 0 开始，[0, scanned) 已扫描 */
+    private int filled;
+    private int scanned;
+    private int state;
+    private long lineMatches;
+    /** 当前行第一个 "data1 =" 之后相对行首的偏移，-1 表示没有 */
+    private int data1At = -1;
+
+    private long lineCount;
+    private long matchedLineCount;
+
+    /**
+     * @param keywords 触发关键字（空值和重复项忽略），"data1 =" 总是包含在内
+     */
+    LogcatLineScanner(LineCallback callback, String... keywords) {
+        this.callback = callback;
+
+        byte[][] patterns = collectPatterns(keywords);
+        int maxStates = 1;
+        for (byte[] p : patterns) {
+            maxStates += p.length;
+        }
+        int[] trie = new int[maxStates * ALPHABET];
+        Arrays.fill(trie, -1);
+        long[] out = new long[maxStates];
+        int states = 1;
+
+        // 构建 trie
+        for (int i = 0; i < patterns.length; i++) {
+            int s = 0;
+            for (byte b : patterns[i]) {
+                int index = s * ALPHABET + (b & 0xFF);
+                if (trie[index] < 0) {
+                    trie[index] = states++;
+                }
+                s = trie[index];
+            }
+            out[s] |= 1L << i;
+        }
+
+        // BFS 计算失败链接，并把 goto 表补全为确定性自动机
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = trie[c];
+            if (next < 0) {
+                trie[c] = 0;
+            } else {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            out[s] |= out[fail[s]];
+            for (int c = 0; c < ALPHABET; c++) {
+                int index = s * ALPHABET + c;
+                int next = trie[index];
+                if (next < 0) {
+                    trie[index] = trie[fail[s] * ALPHABET + c];
+                } else {
+                    fail[next] = trie[fail[s] * ALPHABET + c];
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions = Arrays.copyOf(trie, states * ALPHABET);
+        this.outputs = Arrays.copyOf(out, states);
+        for (int i = 0; i < transitions.length; i++) {
+            if ((i & (ALPHABET - 1)) == '\n') {
+                transitions[i] = ~0;
+            } else if (outputs[transitions[i]] != 0) {
+                transitions[i] = ~transitions[i];
+            }
+        }
+    }
+
+    private static byte[][] collectPatterns(String[] keywords) {
+        LinkedHashSet<String> unique = new LinkedHashSet<>();
+        unique.add(DATA1_PATTERN);
+        if (keywords != null) {
+            for (String keyword : keywords) {
+                if (keyword != null && !keyword.isEmpty()) {
+                    unique.add(keyword);
+                }
+            }
+        }
+        if (unique.size() > 64) {
+            throw new IllegalArgumentException("最多支持 64 个关键字");
+        }
+        byte[][] patterns = new byte[unique.size()][];
+        int i = 0;
+        for (String keyword : unique) {
+            patterns[i++] = keyword.getBytes(StandardCharsets.UTF_8);
+        }
+        return patterns;
+    }
+
+    /**
+     * 从输入流读取一次并处理其中所有完整的行（阻塞）
+     * @return 本次读取的字节数，流结束返回 -1
+     */
+    int readFrom(InputStream in) throws IOException {
+        if (filled == buffer.length) {
+            // 整个缓冲区都是同一行：按一行处理，避免无限增长
+            endLine(0, filled);
+            compact(filled);
+        }
+        int n = in.read(buffer, filled, buffer.length - filled);
+        if (n <= 0) {
+            return n;
+        }
+        filled += n;
+        scan();
+        return n;
+    }
+
+    /**
+     * 流结束时处理最后一个没有换行符的行
+     */
+    void flush() {
+        if (filled > 0) {
+            endLine(0, filled);
+            compact(filled);
+        }
+    }
+
+    /** 已处理的行数 */
+    long getLineCount() {
+        return lineCount;
+    }
+
+    /** 命中关键字的行数 */
+    long getMatchedLineCount() {
+        return matchedLineCount;
+    }
+
+    private void scan() {
+        final byte[] buf = buffer;
+        final int[] table = transitions;
+        int s = state;
+        int lineStart = 0;
+        for (int i = scanned; i < filled; i++) {
+            int next = table[(s << 8) | (buf[i] & 0xFF)];
+            if (next >= 0) {
+                s = next;
+                continue;
+            }
+            s = ~next;
+            if (buf[i] == '\n') {
+                endLine(lineStart, i);
+                lineStart = i + 1;
+                continue;
+            }
+            long matched = outputs[s];
+            if ((matched & DATA1_BIT) != 0 && data1At < 0) {
+                data1At = i + 1 - lineStart;
+            }
+            lineMatches |= matched;
+        }
+        state = s;
+        scanned = filled;
+        compact(lineStart);
+    }
+
+    /**
+     * 结束 [start, end) 这一行
+     */
+    private void endLine(int start, int end) {
+        lineCount++;
+        if (lineMatches != 0) {
+            int length = end - start;
+            if (length > 0 && buffer[start + length - 1] == '\r') {
+                length--;
+            }
+            int data1 = data1At >= 0 ? parseData1(start + data1At, start + length) : -1;
+            matchedLineCount++;
+            if (callback != null) {
+                callback.onLine(new String(buffer, start, length, StandardCharsets.UTF_8), data1);
+            }
+        }
+        lineMatches = 0;
+        data1At = -1;
+        state = 0;
+    }
+
+    /**
+     * 把 [from, filled) 移到缓冲区开头
+     */
+    private void compact(int from) {
+        if (from > filled) {
+            from = filled;
+        }
+        if (from > 0) {
+            System.arraycopy(buffer, from, buffer, 0, filled - from);
+            filled -= from;
+            scanned = Math.max(0, scanned - from);
+        }
+    }
+
+    /**
+     * 按 "data1 = (\d+)" 的语义解析：从第一个 "data1 =" 开始找第一个后面跟 " 数字" 的位置
+     * @param at 第一个 "data1 =" 之后的位置
+     */
+    private int parseData1(int at, int end) {
+        while (at >= 0) {
+            int value = parseDigitsAfterSpace(at, end);
+            if (value != -2) {
+                return value;
+            }
+            at = indexOf(DATA1_BYTES, at, end);
+        }
+        return -1;
+    }
+
+    /**
+     * @return 解析到的值；溢出返回 -1（与 Integer.parseInt 失败时一致）；格式不符返回 -2
+     */
+    private int parseDigitsAfterSpace(int at, int end) {
+        if (at + 1 >= end || buffer[at] != ' ') {
+            return -2;
+        }
+        int i = at + 1;
+        long value = 0;
+        int digits = 0;
+        while (i < end) {
+            int c = buffer[i] - '0';
+            if (c < 0 || c > 9) break;
+            if (value <= Integer.MAX_VALUE) {
+                value = value * 10 + c;
+            }
+            digits++;
+            i++;
+        }
+        if (digits == 0) {
+            return -2;
+        }
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    /**
+     * @return pattern 在 [from, end) 中第一次出现的结束位置，没有返回 -1
+     */
+    private int indexOf(byte[] pattern, int from, int end) {
+        outer:
+        for (int i = from; i + pattern.length <= end; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buffer[i + j] != pattern[j]) continue outer;
+            }
+            return i + pattern.length;
+        }
+        return -1;
+    }
+}
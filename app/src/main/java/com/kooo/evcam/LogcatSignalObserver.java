@@ -1,7 +1,8 @@
 package com.kooo.evcam;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import com.kooo.evcam.signal.SignalRecorder;
+
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -9,8 +10,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Logcat 信号观察者
@@ -18,15 +17,18 @@ import java.util.regex.Pattern;
  *
  * 使用 logcat -e 在原生层面过滤，只输出匹配的日志行。
  * 这样即使行驶中系统日志量暴增，也不会影响转向灯信号的响应速度。
+ *
+ * Java 层用 LogcatLineScanner 直接扫描进程输出的字节流，只有命中关键字的行才转为 String 回调。
  */
 public class LogcatSignalObserver {
     private static final String TAG = "LogcatSignalObserver";
-    
-    private static final Pattern SIGNAL_PATTERN = Pattern.compile("data1 = (\\d+)");
+
+    // 内置转向灯状态关键字（用于检测转向灯关闭）
+    private static final String TURN_SIGNAL_STATE_PATTERN = "front turn signal:";
 
     public interface SignalListener {
         /**
-         * 原始日志回调
+         * 原始日志回调（只回调包含 "data1 =" 或过滤关键字的行）
          * @param line 完整logcat行
          * @param data1 解析到的 data1（未解析到则为 -1）
          */
@@ -58,7 +60,7 @@ public class LogcatSignalObserver {
         
         logcatThread = new Thread(() -> {
             Process process = null;
-            BufferedReader reader = null;
+            InputStream input = null;
             try {
                 // 使用 -T 参数从当前时间开始读取，完全跳过历史缓冲区。
                 // 避免冷启动时读到旧的转向灯信号导致误触发补盲画面。
@@ -85,31 +87,30 @@ public class LogcatSignalObserver {
 
                 process = Runtime.getRuntime().exec(cmd.toArray(new String[0]));
                 logcatProcess = process;
-                reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-                
-                String line;
-                while (isRunning && (line = reader.readLine()) != null) {
-                    int data1 = -1;
-                    if (line.contains("data1 =")) {
-                        Matcher matcher = SIGNAL_PATTERN.matcher(line);
-                        if (matcher.find()) {
-                            try {
-                                data1 = Integer.parseInt(matcher.group(1));
-                            } catch (NumberFormatException e) {
-                                data1 = -1;
-                            }
-                        }
-                    }
-                    if (listener != null) {
+                input = process.getInputStream();
+
+                // 与 logcat -e 使用同一组关键字，非命中行不产生 String
+                LogcatLineScanner scanner = new LogcatLineScanner((line, data1) -> {
+                    SignalRecorder.recordLogLine(line, data1);
+                    if (isRunning && listener != null) {
                         listener.onLogLine(line, data1);
                     }
+                }, buildScanKeywords());
+
+                while (isRunning && scanner.readFrom(input) >= 0) {
+                    // 每次读取后 scanner 已回调其中所有完整的命中行
                 }
+                if (isRunning) {
+                    scanner.flush();
+                }
+                AppLog.d(TAG, "Logcat scanner stopped, lines=" + scanner.getLineCount()
+                        + ", matched=" + scanner.getMatchedLineCount());
             } catch (Exception e) {
                 AppLog.e(TAG, "Logcat reading error: " + e.getMessage());
             } finally {
                 isRunning = false;
                 try {
-                    if (reader != null) reader.close();
+                    if (input != null) input.close();
                     if (process != null) process.destroy();
                 } catch (Exception e) {
                     // Ignore
@@ -121,6 +122,23 @@ public class LogcatSignalObserver {
         logcatThread.start();
     }
 
+    /**
+     * Java 层扫描使用的关键字："data1 =" 由扫描器内置，另加转向灯状态关键字和用户配置的触发关键字。
+     * 关键字按原文匹配（不做正则转义），是 logcat -e 过滤结果的超集。
+     */
+    private String[] buildScanKeywords() {
+        List<String> keywords = new ArrayList<>();
+        keywords.add(TURN_SIGNAL_STATE_PATTERN);
+        if (filterKeywords != null) {
+            for (String keyword : filterKeywords) {
+                if (keyword != null && !keyword.trim().isEmpty()) {
+                    keywords.add(keyword.trim());
+                }
+            }
+        }
+        return keywords.toArray(new String[0]);
+    }
+
     /**
      * 构建 logcat -e 使用的正则表达式。
      * 将用户配置的触发关键字与内置的 "data1 =" 模式合并为一个 OR 正则。
@@ -133,10 +151,10 @@ public class LogcatSignalObserver {
         Set<String> parts = new HashSet<>();
 
         // 内置 data1 模式（转向灯通用信号）
-        parts.add("data1 =");
+        parts.add(LogcatLineScanner.DATA1_PATTERN);
 
         // 内置转向灯状态关键字（用于检测转向灯关闭）
-        parts.add("front turn signal:");
+        parts.add(TURN_SIGNAL_STATE_PATTERN);
 
         // 用户自定义触发关键字
         if (filterKeywords != null) {
@@ -147,7 +165,7 @@ public class LogcatSignalObserver {
                     // 但如果用户设置了完全不同的关键字，需要单独加入
                     String trimmed = keyword.trim();
                     boolean coveredByBuiltin = false;
-                    for (String builtin : new String[]{"data1 =", "front turn signal:"}) {
+                    for (String builtin : new String[]{LogcatLineScanner.DATA1_PATTERN, TURN_SIGNAL_STATE_PATTERN}) {
                         if (trimmed.contains(builtin)) {
                             coveredByBuiltin = true;
                             break;
@@ -189,7 +207,7 @@ public class LogcatSignalObserver {
 
     public void stop() {
         isRunning = false;
-        // 先销毁进程，使 readLine() 立即返回 null 从而退出循环
+        // 先销毁进程，使 read() 立即返回 -1 从而退出循环
         if (logcatProcess != null) {
             logcatProcess.destroy();
             logcatProcess = null;
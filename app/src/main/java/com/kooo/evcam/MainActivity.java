@@ -64,6 +64,7 @@ import java.util.concurrent.TimeUnit;
 public class MainActivity extends AppCompatActivity implements WechatRemoteManager.CommandExecutor {
     private static final String TAG = "MainActivity";
     private static final int REQUEST_PERMISSIONS = 100;
+    private static final int PREVIEW_FRAME_MAX_EDGE = 960;  // 远程预览帧长边上限
     
     // 静态实例引用（用于悬浮窗等外部组件访问）
     private static MainActivity instance;
@@ -2217,21 +2218,56 @@ public class MainActivity extends AppCompatActivity implements WechatRemoteManag
         }
         
         if (targetView == null) {
-            AppLog.w(TAG, "没有可用的 TextureView 用于捕获预览帧");
+            // 熄屏/预览已分离：通过 ImageReader 获取硬件 JPEG
+            byte[] jpeg = captureStillJpegFrame();
+            if (jpeg == null) {
+                AppLog.w(TAG, "没有可用的 TextureView 用于捕获预览帧");
+            }
+            return jpeg;
+        }
+        
+        if (targetView.getWidth() <= 0 || targetView.getHeight() <= 0) {
             return null;
         }
         
+        // 远程预览按目标分辨率回读（GPU 缩放），长边不超过 PREVIEW_FRAME_MAX_EDGE
+        float scale = Math.min(1f, (float) PREVIEW_FRAME_MAX_EDGE
+                / Math.max(targetView.getWidth(), targetView.getHeight()));
+        int frameWidth = Math.max(1, Math.round(targetView.getWidth() * scale));
+        int frameHeight = Math.max(1, Math.round(targetView.getHeight() * scale));
+        
+        com.kooo.evcam.camera.BitmapPool pool = com.kooo.evcam.camera.BitmapPool.getInstance();
+        android.graphics.Bitmap bitmap = null;
         try {
-            android.graphics.Bitmap bitmap = targetView.getBitmap();
-            if (bitmap != null) {
-                java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-                bitmap.compress(android.graphics.Bitmap.CompressFormat.JPEG, 70, baos);
-                byte[] data = baos.toByteArray();
-                bitmap.recycle();
-                return data;
-            }
+            bitmap = pool.acquire(frameWidth, frameHeight,
+                    android.graphics.Bitmap.Config.ARGB_8888, "previewFrame");
+            targetView.getBitmap(bitmap);
+            java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+            bitmap.compress(android.graphics.Bitmap.CompressFormat.JPEG, 70, baos);
+            return baos.toByteArray();
         } catch (Exception e) {
             AppLog.e(TAG, "捕获预览帧失败: " + e.getMessage(), e);
+        } finally {
+            pool.release(bitmap);
+        }
+        return null;
+    }
+
+    /**
+     * 从第一个可用摄像头的 ImageReader 通道获取一帧 JPEG（阻塞，需在后台线程调用）
+     */
+    private byte[] captureStillJpegFrame() {
+        if (cameraManager == null) {
+            return null;
+        }
+        for (String position : new String[]{"front", "back", "left", "right"}) {
+            SingleCamera camera = cameraManager.getCamera(position);
+            if (camera != null && camera.isCameraOpened() && camera.shouldUseStillCapture()) {
+                byte[] jpeg = camera.captureJpeg(1500);
+                if (jpeg != null) {
+                    return jpeg;
+                }
+            }
         }
         return null;
     }
@@ -4963,6 +4999,15 @@ public class MainActivity extends AppCompatActivity implements WechatRemoteManag
         // 因为 onResume 执行时 HeartbeatManager 可能还没有初始化
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // 内存紧张时释放 Bitmap 复用池中的空闲缓冲
+            com.kooo.evcam.camera.BitmapPool.getInstance().clear();
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -18,6 +18,7 @@ import android.widget.FrameLayout;
 import com.kooo.evcam.camera.CameraManagerHolder;
 import com.kooo.evcam.camera.MultiCameraManager;
 import com.kooo.evcam.camera.SingleCamera;
+import com.kooo.evcam.signal.BlindSpotLatencyTracker;
 
 /**
  * 主屏悬浮窗视图
@@ -129,6 +130,7 @@ public class MainFloatingWindowView extends FrameLayout {
             public void onSurfaceTextureUpdated(android.graphics.SurfaceTexture surface) {
                 if (pendingShowAnimation) {
                     pendingShowAnimation = false;
+                    BlindSpotLatencyTracker.getInstance().markFirstFrame();
                     if (showAnimFallback != null) {
                         mainHandler.removeCallbacks(showAnimFallback);
                         showAnimFallback = null;
@@ -348,6 +350,7 @@ public class MainFloatingWindowView extends FrameLayout {
                 pendingShowAnimation = true;
 
                 windowManager.addView(this, params);
+                BlindSpotLatencyTracker.getInstance().markWindowShown();
                 if (textureView != null && textureView.isAvailable() && cachedSurface != null && cachedSurface.isValid()) {
                     startCameraPreview(cachedSurface);
                 } else {
@@ -19,6 +19,7 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.signature.ObjectKey;
+import com.kooo.evcam.playback.ExifThumbnailDecoder;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
@@ -178,6 +179,7 @@ public class PhotoAdapter extends RecyclerView.Adapter<PhotoAdapter.PhotoViewHol
                 .centerCrop()
                 .diskCacheStrategy(DiskCacheStrategy.RESOURCE)  // 缓存解码后的资源
                 .signature(new ObjectKey(photoFile.lastModified()))  // 文件修改时间作为缓存key
+                .set(ExifThumbnailDecoder.USE_EXIF_THUMBNAIL, true)  // 优先读取内嵌 EXIF 缩略图
                 .placeholder(android.R.drawable.ic_menu_gallery)
                 .error(android.R.drawable.ic_menu_gallery);
 
@@ -53,6 +53,7 @@ public class SettingsFragment extends Fragment {
     // private SwitchMaterial preventSleepSwitch;
     private SwitchMaterial recordingStatsSwitch;
     private SwitchMaterial timestampWatermarkSwitch;
+    private SwitchMaterial lanLiveViewSwitch;
     
     // 预览画面矫正相关
     private SwitchMaterial previewCorrectionSwitch;
@@ -283,6 +284,28 @@ public class SettingsFragment extends Fragment {
             }
         });
 
+        // 初始化局域网直播开关
+        lanLiveViewSwitch = view.findViewById(R.id.switch_lan_live_view);
+        if (getContext() != null && appConfig != null) {
+            lanLiveViewSwitch.setChecked(appConfig.isLanLiveViewEnabled());
+        }
+
+        // 设置局域网直播开关监听器
+        lanLiveViewSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (getContext() != null && appConfig != null) {
+                appConfig.setLanLiveViewEnabled(isChecked);
+                com.kooo.evcam.lan.LanServerManager lanServer = com.kooo.evcam.lan.LanServerManager.getInstance();
+                if (isChecked) {
+                    lanServer.startIfEnabled(getContext());
+                } else {
+                    lanServer.stop();
+                }
+                String message = isChecked ? "局域网直播已开启" : "局域网直播已关闭";
+                Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
+                AppLog.d("SettingsFragment", message);
+            }
+        });
+
         // 初始化预览画面矫正
         previewCorrectionSwitch = view.findViewById(R.id.switch_preview_correction);
         previewCorrectionButtonsLayout = view.findViewById(R.id.layout_preview_correction_buttons);
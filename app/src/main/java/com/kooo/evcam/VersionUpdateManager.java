@@ -7,6 +7,9 @@ import android.os.Environment;
 import android.os.Handler;
 import android.os.Looper;
 
+import com.kooo.evcam.net.NetworkStack;
+import com.kooo.evcam.net.TrafficClass;
+
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -91,7 +94,7 @@ public class VersionUpdateManager {
         this.mainHandler = new Handler(Looper.getMainLooper());
         
         // 配置 OkHttpClient
-        this.httpClient = new OkHttpClient.Builder()
+        this.httpClient = NetworkStack.getInstance().newBuilder(TrafficClass.BULK)
                 .connectTimeout(15, TimeUnit.SECONDS)
                 .readTimeout(60, TimeUnit.SECONDS)
                 .writeTimeout(60, TimeUnit.SECONDS)
@@ -0,0 +1,215 @@
+package com.kooo.evcam.camera;
+
+import android.graphics.Bitmap;
+
+import com.kooo.evcam.AppLog;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 进程级 Bitmap 复用池
+ * 心跳推图、拍照、水印、预览帧截图等路径每次都要分配整帧 ARGB_8888 Bitmap，
+ * 4 路摄像头一个周期就有上百 MB 的短命分配。这些尺寸在运行期间基本固定，
+ * 因此按 (宽, 高, Config) 分成尺寸档，借出的 Bitmap 用完后归还，稳定状态下不再分配。
+ *
+ * - 空闲 Bitmap 总量受内存上限约束，超出时按最久未使用的尺寸档淘汰（recycle）
+ * - 借出登记：未归还就被 GC 回收的 Bitmap 记为泄漏，并打印借出时的标签
+ * - 命中率统计：{@link #getStatsSummary()}
+ *
+ * 线程安全，可在任意线程借还。
+ */
+public final class BitmapPool {
+    private static final String TAG = "BitmapPool";
+
+    /** 单个尺寸档最多保留的空闲 Bitmap 数（4 路摄像头 + 拼接/水印副本） */
+    private static final int MAX_IDLE_PER_SIZE = 6;
+
+    private static volatile BitmapPool instance;
+
+    private final long maxIdleBytes;
+    private long idleBytes = 0;
+
+    /** 尺寸档 → 空闲 Bitmap，accessOrder=true 以便按最久未使用淘汰 */
+    private final LinkedHashMap<String, ArrayDeque<Bitmap>> idle = new LinkedHashMap<>(8, 0.75f, true);
+
+    /** 借出登记（Bitmap 未重写 equals/hashCode，按对象身份比较） */
+    private final WeakHashMap<Bitmap, Lease> leases = new WeakHashMap<>();
+    private final ReferenceQueue<Bitmap> leakQueue = new ReferenceQueue<>();
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long leaks = 0;
+
+    /**
+     * 借出记录；Bitmap 被归还时 clear()，不会进入 leakQueue
+     */
+    private static final class Lease extends WeakReference<Bitmap> {
+        final String tag;
+        final long acquiredAt;
+
+        Lease(Bitmap bitmap, ReferenceQueue<Bitmap> queue, String tag) {
+            super(bitmap, queue);
+            this.tag = tag;
+            this.acquiredAt = System.currentTimeMillis();
+        }
+    }
+
+    public static BitmapPool getInstance() {
+        if (instance == null) {
+            synchronized (BitmapPool.class) {
+                if (instance == null) {
+                    instance = new BitmapPool();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private BitmapPool() {
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        // 堆上限的 1/8，限制在 16MB ~ 64MB 之间
+        maxIdleBytes = Math.max(16L * 1024 * 1024, Math.min(64L * 1024 * 1024, maxMemory / 8));
+        AppLog.d(TAG, "Bitmap pool: max idle=" + (maxIdleBytes / 1024 / 1024) + "MB");
+    }
+
+    /**
+     * 借出一个可写 Bitmap，内容未定义（需要时由调用方 eraseColor）
+     * @param tag 借出方标识，用于泄漏日志
+     */
+    public Bitmap acquire(int width, int height, Bitmap.Config config, String tag) {
+        String key = key(width, height, config);
+        Bitmap bitmap = null;
+        synchronized (this) {
+            drainLeaks();
+            ArrayDeque<Bitmap> queue = idle.get(key);
+            while (queue != null && !queue.isEmpty() && bitmap == null) {
+                Bitmap candidate = queue.pollFirst();
+                idleBytes -= candidate.getAllocationByteCount();
+                if (!candidate.isRecycled()) {
+                    bitmap = candidate;
+                }
+            }
+            if (bitmap != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(width, height, config);
+        }
+        synchronized (this) {
+            leases.put(bitmap, new Lease(bitmap, leakQueue, tag));
+        }
+        return bitmap;
+    }
+
+    /**
+     * 归还 Bitmap；null、已回收或不可写的 Bitmap 会被忽略/直接回收
+     * 非本池借出的 Bitmap 也可归还，之后同样参与复用
+     */
+    public void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!bitmap.isMutable()) {
+            bitmap.recycle();
+            return;
+        }
+        String key = key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        int bytes = bitmap.getAllocationByteCount();
+        synchronized (this) {
+            Lease lease = leases.remove(bitmap);
+            if (lease != null) {
+                lease.clear();
+            }
+            ArrayDeque<Bitmap> queue = idle.get(key);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                idle.put(key, queue);
+            }
+            for (Bitmap existing : queue) {
+                if (existing == bitmap) {
+                    AppLog.w(TAG, "Bitmap released twice: " + key);
+                    return;
+                }
+            }
+            if (queue.size() >= MAX_IDLE_PER_SIZE || bytes > maxIdleBytes) {
+                evictions++;
+                bitmap.recycle();
+                return;
+            }
+            queue.addFirst(bitmap);
+            idleBytes += bytes;
+            trimToSize();
+        }
+    }
+
+    /**
+     * 清空所有空闲 Bitmap（低内存时调用）
+     */
+    public synchronized void clear() {
+        for (ArrayDeque<Bitmap> queue : idle.values()) {
+            for (Bitmap bitmap : queue) {
+                bitmap.recycle();
+            }
+        }
+        idle.clear();
+        idleBytes = 0;
+    }
+
+    /**
+     * 统计摘要：命中率、空闲占用、借出中数量、淘汰与泄漏次数
+     */
+    public synchronized String getStatsSummary() {
+        drainLeaks();
+        long total = hits + misses;
+        int hitRate = total > 0 ? (int) (hits * 100 / total) : 0;
+        return "hit=" + hits + "/" + total + " (" + hitRate + "%)"
+                + ", idle=" + (idleBytes / 1024 / 1024) + "MB/" + (maxIdleBytes / 1024 / 1024) + "MB"
+                + ", leased=" + leases.size()
+                + ", evicted=" + evictions
+                + ", leaked=" + leaks;
+    }
+
+    public synchronized long getLeakCount() {
+        drainLeaks();
+        return leaks;
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, ArrayDeque<Bitmap>>> it = idle.entrySet().iterator();
+        while (idleBytes > maxIdleBytes && it.hasNext()) {
+            ArrayDeque<Bitmap> queue = it.next().getValue();
+            while (idleBytes > maxIdleBytes && !queue.isEmpty()) {
+                Bitmap bitmap = queue.pollLast();
+                idleBytes -= bitmap.getAllocationByteCount();
+                bitmap.recycle();
+                evictions++;
+            }
+            if (queue.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    private void drainLeaks() {
+        Lease lease;
+        while ((lease = (Lease) leakQueue.poll()) != null) {
+            leaks++;
+            long heldMs = System.currentTimeMillis() - lease.acquiredAt;
+            AppLog.w(TAG, "Bitmap leaked (never released): tag=" + lease.tag + ", acquired " + heldMs + "ms ago");
+        }
+    }
+
+    private static String key(int width, int height, Bitmap.Config config) {
+        return width + "x" + height + ":" + config;
+    }
+}
@@ -0,0 +1,194 @@
+package com.kooo.evcam.camera;
+
+import android.graphics.Bitmap;
+
+import com.kooo.evcam.AppLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * JPEG 内嵌 EXIF 缩略图写入器
+ * 在照片写盘时于 SOI 之后插入一个只含 IFD0 + IFD1 的 APP1(Exif) 段，
+ * IFD1 携带一张小尺寸 JPEG 缩略图。相册网格直接读取这几 KB 的缩略图，
+ * 不必再解码整张原图。
+ */
+public final class ExifThumbnailWriter {
+    private static final String TAG = "ExifThumbnailWriter";
+
+    /** 缩略图长边像素 */
+    private static final int THUMBNAIL_MAX_EDGE = 320;
+
+    /** 缩略图 JPEG 质量 */
+    private static final int THUMBNAIL_QUALITY = 75;
+
+    /** APP1 段长度字段为 16 位，整个段不能超过 64KB */
+    private static final int MAX_APP1_LENGTH = 0xFFFF;
+
+    /** TIFF 头(8) + IFD0(1 项, 18) + IFD1(3 项, 42) */
+    private static final int TIFF_HEADER_AND_IFDS_SIZE = 8 + 18 + 42;
+
+    private ExifThumbnailWriter() {
+    }
+
+    /**
+     * 包装 JPEG 输出流：原图 JPEG 的 SOI 写出后立即插入带缩略图的 APP1 段
+     * 缩略图生成失败时返回原始输出流，照片照常保存
+     *
+     * @param out    目标输出流
+     * @param source 用于生成缩略图的原图（调用方负责回收）
+     */
+    public static OutputStream wrap(OutputStream out, Bitmap source) {
+        byte[] app1 = buildExifApp1(source);
+        if (app1 == null) {
+            return out;
+        }
+        return new InsertAfterSoiOutputStream(out, app1);
+    }
+
+    /**
+     * 构建完整的 APP1(Exif) 段（含 FFE1 标记与长度）
+     */
+    static byte[] buildExifApp1(Bitmap source) {
+        if (source == null || source.isRecycled()) {
+            return null;
+        }
+        byte[] thumbnail = compressThumbnail(source);
+        if (thumbnail == null) {
+            return null;
+        }
+
+        int tiffSize = TIFF_HEADER_AND_IFDS_SIZE + thumbnail.length;
+        int segmentLength = 2 + 6 + tiffSize;  // 长度字段自身 + "Exif\0\0" + TIFF
+        if (segmentLength > MAX_APP1_LENGTH) {
+            AppLog.w(TAG, "EXIF thumbnail too large: " + thumbnail.length + " bytes, skipped");
+            return null;
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(2 + segmentLength);
+        // APP1 标记与长度
+        baos.write(0xFF);
+        baos.write(0xE1);
+        writeShort(baos, segmentLength);
+        // Exif 标识
+        baos.write('E');
+        baos.write('x');
+        baos.write('i');
+        baos.write('f');
+        baos.write(0);
+        baos.write(0);
+
+        // TIFF 头（大端序），IFD0 紧随其后（偏移 8）
+        baos.write('M');
+        baos.write('M');
+        writeShort(baos, 0x002A);
+        writeInt(baos, 8);
+
+        // IFD0：Orientation = 1（画面方向已在像素中处理）
+        int ifd1Offset = 8 + 18;
+        writeShort(baos, 1);
+        writeEntry(baos, 0x0112, 3, 1, 1 << 16);  // SHORT 左对齐
+        writeInt(baos, ifd1Offset);
+
+        // IFD1：缩略图（Compression=6 表示 JPEG）
+        int thumbnailOffset = TIFF_HEADER_AND_IFDS_SIZE;
+        writeShort(baos, 3);
+        writeEntry(baos, 0x0103, 3, 1, 6 << 16);
+        writeEntry(baos, 0x0201, 4, 1, thumbnailOffset);
+        writeEntry(baos, 0x0202, 4, 1, thumbnail.length);
+        writeInt(baos, 0);  // 没有后续 IFD
+
+        baos.write(thumbnail, 0, thumbnail.length);
+        return baos.toByteArray();
+    }
+
+    private static byte[] compressThumbnail(Bitmap source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        float scale = Math.min(1f, (float) THUMBNAIL_MAX_EDGE / Math.max(width, height));
+        int thumbWidth = Math.max(1, Math.round(width * scale));
+        int thumbHeight = Math.max(1, Math.round(height * scale));
+
+        Bitmap scaled = null;
+        try {
+            scaled = (scale < 1f)
+                    ? Bitmap.createScaledBitmap(source, thumbWidth, thumbHeight, true)
+                    : source;
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(16 * 1024);
+            scaled.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, baos);
+            return baos.toByteArray();
+        } catch (Exception | OutOfMemoryError e) {
+            AppLog.w(TAG, "Failed to build EXIF thumbnail: " + e.getMessage());
+            return null;
+        } finally {
+            if (scaled != null && scaled != source) {
+                scaled.recycle();
+            }
+        }
+    }
+
+    private static void writeEntry(ByteArrayOutputStream out, int tag, int type, int count, int value) {
+        writeShort(out, tag);
+        writeShort(out, type);
+        writeInt(out, count);
+        writeInt(out, value);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write((value >> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write((value >>> 24) & 0xFF);
+        out.write((value >> 16) & 0xFF);
+        out.write((value >> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    /**
+     * 在 JPEG 的 SOI(FFD8) 之后插入一段数据的输出流
+     */
+    private static final class InsertAfterSoiOutputStream extends FilterOutputStream {
+        private final byte[] insertion;
+        private int written = 0;
+
+        InsertAfterSoiOutputStream(OutputStream out, byte[] insertion) {
+            super(out);
+            this.insertion = insertion;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            written++;
+            if (written == 2) {
+                out.write(insertion);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (written >= 2) {
+                out.write(b, off, len);
+                written += len;
+                return;
+            }
+            int head = Math.min(2 - written, len);
+            out.write(b, off, head);
+            written += head;
+            if (written == 2) {
+                out.write(insertion);
+            }
+            if (len > head) {
+                out.write(b, off + head, len - head);
+                written += len - head;
+            }
+        }
+    }
+}
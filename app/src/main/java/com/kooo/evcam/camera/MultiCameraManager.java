@@ -1949,21 +1949,18 @@ public class MultiCameraManager {
 
         AppLog.d(TAG, "Taking picture with " + keys.size() + " camera(s) using timestamp: " + timestamp);
 
-        // 快速拍照，每个摄像头间隔300ms触发拍照，但保存文件时按顺序延迟1秒
-        for (int i = 0; i < keys.size(); i++) {
-            final String key = keys.get(i);
-            final int captureDelay = i * 300;      // 拍照触发延迟：300ms（快速抓拍画面）
-            final int saveDelay = i * 1000;        // 文件保存延迟：1秒（分散磁盘I/O）
-
-            mainHandler.postDelayed(() -> {
-                SingleCamera camera = cameras.get(key);
-                if (camera != null && camera.isConnected()) {
-                    AppLog.d(TAG, "Taking picture with camera " + key);
-                    camera.takePicture(timestamp, saveDelay);  // 传递统一时间戳和保存延迟
-                } else {
-                    AppLog.w(TAG, "Camera " + key + " not available for taking picture");
-                }
-            }, captureDelay);
+        // 所有摄像头同时触发抓拍，编码与写盘由 PhotoPipeline 按内存预算排队（不再固定间隔错开）
+        PhotoPipeline pipeline = PhotoPipeline.getInstance();
+        pipeline.beginBatch(timestamp, keys.size());
+        for (String key : keys) {
+            SingleCamera camera = cameras.get(key);
+            if (camera != null && camera.isConnected()) {
+                AppLog.d(TAG, "Taking picture with camera " + key);
+                camera.takePicture(timestamp);
+            } else {
+                AppLog.w(TAG, "Camera " + key + " not available for taking picture");
+                pipeline.skip(timestamp, key, "not connected");
+            }
         }
     }
 
@@ -0,0 +1,369 @@
+package com.kooo.evcam.camera;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.kooo.evcam.AppLog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多摄像头拍照流水线
+ * - 以字节为单位的内存预算：每个拍照任务在抓图前先申请整帧 Bitmap（含水印副本）所需内存，
+ *   预算不足时排队等待，而不是像以前那样按固定间隔 sleep 错开 I/O
+ * - 有界编码线程池：线程数按 CPU 核数确定（上限为摄像头路数）
+ * - 按时间戳聚合成批次，记录每路各阶段耗时和端到端延迟，批次完成后回调远程处理器
+ */
+public final class PhotoPipeline {
+    private static final String TAG = "PhotoPipeline";
+
+    /** 单批次最长等待时间，超时后以部分结果回调 */
+    public static final long DEFAULT_BATCH_TIMEOUT_MS = 8000;
+
+    /** 等待内存预算的最长时间，超时后仍放行（避免永久阻塞） */
+    private static final long RESERVE_TIMEOUT_MS = 5000;
+
+    /** 保留最近完成的批次结果，供晚到的等待者直接获取 */
+    private static final int MAX_RECENT_RESULTS = 8;
+
+    private static volatile PhotoPipeline instance;
+
+    private final long memoryBudgetBytes;
+    private final Object budgetLock = new Object();
+    private long reservedBytes = 0;
+
+    private final ThreadPoolExecutor encoderPool;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Map<String, Batch> activeBatches = new HashMap<>();
+    private final Map<String, BatchResult> recentResults = new LinkedHashMap<String, BatchResult>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BatchResult> eldest) {
+            return size() > MAX_RECENT_RESULTS;
+        }
+    };
+
+    /**
+     * 批次完成回调（主线程）
+     */
+    public interface BatchListener {
+        void onBatchComplete(BatchResult result);
+    }
+
+    public static PhotoPipeline getInstance() {
+        if (instance == null) {
+            synchronized (PhotoPipeline.class) {
+                if (instance == null) {
+                    instance = new PhotoPipeline();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private PhotoPipeline() {
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        // 堆上限的 1/8，限制在 24MB ~ 96MB 之间
+        memoryBudgetBytes = Math.max(24L * 1024 * 1024, Math.min(96L * 1024 * 1024, maxMemory / 8));
+
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger threadIndex = new AtomicInteger();
+        encoderPool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "PhotoEncoder-" + threadIndex.incrementAndGet());
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                });
+        encoderPool.allowCoreThreadTimeOut(true);
+
+        AppLog.d(TAG, "Photo pipeline: budget=" + (memoryBudgetBytes / 1024 / 1024) + "MB, encoders=" + threads);
+    }
+
+    // ==================== 批次 ====================
+
+    /**
+     * 开始一个拍照批次（多路摄像头共用一个时间戳）
+     * @param timestamp 批次时间戳
+     * @param expectedCount 预计参与的摄像头数
+     */
+    public void beginBatch(String timestamp, int expectedCount) {
+        synchronized (activeBatches) {
+            recentResults.remove(timestamp);
+            Batch batch = activeBatches.get(timestamp);
+            if (batch == null) {
+                activeBatches.put(timestamp, new Batch(timestamp, expectedCount));
+            } else {
+                batch.expected += expectedCount;
+            }
+        }
+    }
+
+    /**
+     * 为某一路摄像头创建拍照任务
+     * 未通过 beginBatch 登记的时间戳自动创建单路批次
+     */
+    public Job newJob(String timestamp, String cameraKey) {
+        synchronized (activeBatches) {
+            Batch batch = activeBatches.get(timestamp);
+            if (batch == null) {
+                batch = new Batch(timestamp, 1);
+                activeBatches.put(timestamp, batch);
+            }
+            return new Job(batch, cameraKey);
+        }
+    }
+
+    /**
+     * 某一路摄像头未能参与拍照（未连接等）
+     */
+    public void skip(String timestamp, String cameraKey, String reason) {
+        newJob(timestamp, cameraKey).fail(reason);
+    }
+
+    /**
+     * 等待批次完成；已完成则立即回调。超时以部分结果回调。
+     */
+    public void whenBatchComplete(String timestamp, long timeoutMs, BatchListener listener) {
+        Batch batch;
+        synchronized (activeBatches) {
+            BatchResult done = recentResults.get(timestamp);
+            if (done != null) {
+                mainHandler.post(() -> listener.onBatchComplete(done));
+                return;
+            }
+            batch = activeBatches.get(timestamp);
+            if (batch == null) {
+                // 批次尚未开始（拍照命令还在切换线程），先登记一个空批次
+                batch = new Batch(timestamp, 0);
+                activeBatches.put(timestamp, batch);
+            }
+            batch.listeners.add(listener);
+        }
+        final Batch target = batch;
+        mainHandler.postDelayed(() -> target.finish(true), timeoutMs);
+    }
+
+    private void onBatchFinished(Batch batch, BatchResult result, List<BatchListener> listeners) {
+        synchronized (activeBatches) {
+            if (activeBatches.get(batch.timestamp) == batch) {
+                activeBatches.remove(batch.timestamp);
+            }
+            recentResults.put(batch.timestamp, result);
+        }
+        AppLog.i(TAG, result.getSummary());
+        for (BatchListener listener : listeners) {
+            mainHandler.post(() -> listener.onBatchComplete(result));
+        }
+    }
+
+    // ==================== 内存预算与编码池 ====================
+
+    /**
+     * 在编码线程池中执行任务：先申请内存预算（不足时排队），执行完毕后归还
+     * @param job 拍照任务（用于记录排队耗时）
+     * @param bytes 任务期间需要的峰值内存
+     * @param work 抓图 + 编码 + 写盘
+     */
+    public void submit(Job job, long bytes, Runnable work) {
+        encoderPool.execute(() -> {
+            long reserved = reserve(bytes);
+            job.markStage("queue");
+            try {
+                work.run();
+            } catch (Throwable t) {
+                AppLog.e(TAG, "Photo job failed for camera " + job.cameraKey, t);
+                job.fail(t.getMessage());
+            } finally {
+                release(reserved);
+            }
+        });
+    }
+
+    private long reserve(long bytes) {
+        long amount = Math.min(bytes, memoryBudgetBytes);  // 单个超大任务也能放行
+        long deadline = System.currentTimeMillis() + RESERVE_TIMEOUT_MS;
+        synchronized (budgetLock) {
+            while (reservedBytes + amount > memoryBudgetBytes) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    AppLog.w(TAG, "Memory budget wait timed out, proceeding (reserved="
+                            + (reservedBytes / 1024 / 1024) + "MB)");
+                    break;
+                }
+                try {
+                    budgetLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            reservedBytes += amount;
+        }
+        return amount;
+    }
+
+    private void release(long amount) {
+        synchronized (budgetLock) {
+            reservedBytes = Math.max(0, reservedBytes - amount);
+            budgetLock.notifyAll();
+        }
+    }
+
+    // ==================== 任务与批次模型 ====================
+
+    /**
+     * 单路摄像头的拍照任务，按顺序记录各阶段耗时
+     */
+    public static final class Job {
+        private final Batch batch;
+        private final String cameraKey;
+        private final long startMs = System.currentTimeMillis();
+        private long lastMarkMs = startMs;
+        private final Map<String, Long> stages = new LinkedHashMap<>();
+        private boolean finished = false;
+
+        private Job(Batch batch, String cameraKey) {
+            this.batch = batch;
+            this.cameraKey = cameraKey;
+        }
+
+        /**
+         * 记录从上一次标记到现在的阶段耗时
+         */
+        public synchronized void markStage(String stage) {
+            long now = System.currentTimeMillis();
+            stages.put(stage, now - lastMarkMs);
+            lastMarkMs = now;
+        }
+
+        public void complete() {
+            finish(true, null);
+        }
+
+        public void fail(String reason) {
+            finish(false, reason);
+        }
+
+        private void finish(boolean success, String reason) {
+            Map<String, Long> snapshot;
+            synchronized (this) {
+                if (finished) return;
+                finished = true;
+                snapshot = new LinkedHashMap<>(stages);
+            }
+            if (!success) {
+                AppLog.w(TAG, "Camera " + cameraKey + " photo failed: " + reason);
+            }
+            batch.onJobFinished(cameraKey, success, System.currentTimeMillis() - startMs, snapshot);
+        }
+    }
+
+    private final class Batch {
+        final String timestamp;
+        final long startMs = System.currentTimeMillis();
+        final List<BatchListener> listeners = new ArrayList<>();
+        final Map<String, Long> cameraLatencyMs = new LinkedHashMap<>();
+        final Map<String, Long> stageMaxMs = new LinkedHashMap<>();
+        int expected;
+        int succeeded = 0;
+        int failed = 0;
+        boolean done = false;
+
+        Batch(String timestamp, int expected) {
+            this.timestamp = timestamp;
+            this.expected = expected;
+        }
+
+        void onJobFinished(String cameraKey, boolean success, long latencyMs, Map<String, Long> stages) {
+            synchronized (this) {
+                if (success) succeeded++; else failed++;
+                cameraLatencyMs.put(cameraKey, latencyMs);
+                for (Map.Entry<String, Long> e : stages.entrySet()) {
+                    Long prev = stageMaxMs.get(e.getKey());
+                    if (prev == null || e.getValue() > prev) {
+                        stageMaxMs.put(e.getKey(), e.getValue());
+                    }
+                }
+            }
+            finish(false);
+        }
+
+        void finish(boolean timedOut) {
+            BatchResult result;
+            List<BatchListener> toNotify;
+            synchronized (this) {
+                if (done) return;
+                if (!timedOut && (expected == 0 || succeeded + failed < expected)) return;
+                done = true;
+                result = new BatchResult(timestamp, expected, succeeded, failed, timedOut,
+                        System.currentTimeMillis() - startMs,
+                        new LinkedHashMap<>(cameraLatencyMs), new LinkedHashMap<>(stageMaxMs));
+                toNotify = new ArrayList<>(listeners);
+            }
+            onBatchFinished(this, result, toNotify);
+        }
+    }
+
+    /**
+     * 拍照批次结果
+     */
+    public static final class BatchResult {
+        private final String timestamp;
+        private final int expected;
+        private final int succeeded;
+        private final int failed;
+        private final boolean timedOut;
+        private final long endToEndMs;
+        private final Map<String, Long> cameraLatencyMs;
+        private final Map<String, Long> stageMaxMs;
+
+        BatchResult(String timestamp, int expected, int succeeded, int failed, boolean timedOut,
+                    long endToEndMs, Map<String, Long> cameraLatencyMs, Map<String, Long> stageMaxMs) {
+            this.timestamp = timestamp;
+            this.expected = expected;
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.timedOut = timedOut;
+            this.endToEndMs = endToEndMs;
+            this.cameraLatencyMs = cameraLatencyMs;
+            this.stageMaxMs = stageMaxMs;
+        }
+
+        public String getTimestamp() { return timestamp; }
+        public int getExpected() { return expected; }
+        public int getSucceeded() { return succeeded; }
+        public int getFailed() { return failed; }
+        public boolean isTimedOut() { return timedOut; }
+        public long getEndToEndMs() { return endToEndMs; }
+        public Map<String, Long> getCameraLatencyMs() { return cameraLatencyMs; }
+        public Map<String, Long> getStageMaxMs() { return stageMaxMs; }
+
+        /**
+         * 日志/消息用的简要描述
+         */
+        public String getSummary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.getDefault(), "拍照 %s: %d/%d 成功, 端到端 %dms",
+                    timestamp, succeeded, expected, endToEndMs));
+            if (timedOut) {
+                sb.append(" (超时)");
+            }
+            if (!stageMaxMs.isEmpty()) {
+                sb.append(", 阶段最大耗时");
+                for (Map.Entry<String, Long> e : stageMaxMs.entrySet()) {
+                    sb.append(' ').append(e.getKey()).append('=').append(e.getValue()).append("ms");
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
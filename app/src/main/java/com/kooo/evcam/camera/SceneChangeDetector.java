@@ -0,0 +1,163 @@
+package com.kooo.evcam.camera;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 画面变化检测器
+ * 把画面缩成 32x32 亮度缩略图，与上一次发送时的缩略图按 4x4 像素块比较。
+ * 驻车时画面几乎不变，心跳和预览流可以据此跳过图片上传；超过强制刷新间隔后无论是否变化都发送一次。
+ *
+ * - 先扣除全局平均亮度差，自动曝光的整体明暗漂移不会被当成变化
+ * - 参考帧只在"判定发送"时更新，缓慢累积的变化最终也会超过阈值
+ *
+ * 线程安全。
+ */
+public class SceneChangeDetector {
+
+    /** 亮度缩略图边长 */
+    private static final int THUMB_SIZE = 32;
+
+    /** 比较块边长（像素） */
+    private static final int BLOCK_SIZE = 4;
+
+    /** 块内平均亮度差超过此值视为该块变化（0-255） */
+    private static final int BLOCK_THRESHOLD = 12;
+
+    /** 变化块数达到此值视为画面变化（共 64 块） */
+    private static final int MIN_CHANGED_BLOCKS = 2;
+
+    private static final class Reference {
+        byte[] luma;
+        long sentAt;
+    }
+
+    private final long forceRefreshMs;
+    private final Map<String, Reference> references = new HashMap<>();
+
+    /**
+     * @param forceRefreshMs 强制刷新间隔：距上次发送超过此时间时必定发送
+     */
+    public SceneChangeDetector(long forceRefreshMs) {
+        this.forceRefreshMs = forceRefreshMs;
+    }
+
+    /**
+     * 判断是否需要发送本帧；返回 true 时本帧成为新的参考帧
+     * @param key 画面来源（如 "heartbeat"、"wechatPreview"）
+     * @param luma {@link #computeLuma} 的结果；null 时总是发送
+     */
+    public synchronized boolean shouldSend(String key, byte[] luma) {
+        if (luma == null) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        Reference ref = references.get(key);
+        boolean send = ref == null
+                || now - ref.sentAt >= forceRefreshMs
+                || countChangedBlocks(ref.luma, luma) >= MIN_CHANGED_BLOCKS;
+        if (send) {
+            if (ref == null) {
+                ref = new Reference();
+                references.put(key, ref);
+            }
+            ref.luma = luma;
+            ref.sentAt = now;
+        }
+        return send;
+    }
+
+    /**
+     * 丢弃参考帧（发送失败时调用，保证下一帧一定发送）
+     */
+    public synchronized void invalidate(String key) {
+        references.remove(key);
+    }
+
+    /**
+     * 计算 Bitmap 的 32x32 亮度缩略图
+     */
+    public static byte[] computeLuma(Bitmap source) {
+        if (source == null || source.isRecycled()) {
+            return null;
+        }
+        BitmapPool pool = BitmapPool.getInstance();
+        Bitmap thumb = pool.acquire(THUMB_SIZE, THUMB_SIZE, Bitmap.Config.ARGB_8888, "sceneThumb");
+        try {
+            Canvas canvas = new Canvas(thumb);
+            canvas.drawBitmap(source, null, new Rect(0, 0, THUMB_SIZE, THUMB_SIZE),
+                    new Paint(Paint.FILTER_BITMAP_FLAG));
+            int[] pixels = new int[THUMB_SIZE * THUMB_SIZE];
+            thumb.getPixels(pixels, 0, THUMB_SIZE, 0, 0, THUMB_SIZE, THUMB_SIZE);
+            byte[] luma = new byte[pixels.length];
+            for (int i = 0; i < pixels.length; i++) {
+                int p = pixels[i];
+                int r = (p >> 16) & 0xFF;
+                int g = (p >> 8) & 0xFF;
+                int b = p & 0xFF;
+                luma[i] = (byte) ((r * 77 + g * 150 + b * 29) >> 8);
+            }
+            return luma;
+        } finally {
+            pool.release(thumb);
+        }
+    }
+
+    /**
+     * 计算 JPEG 数据的亮度缩略图（按 1/8 降采样解码，开销很小）
+     */
+    public static byte[] computeLuma(byte[] jpeg) {
+        if (jpeg == null || jpeg.length == 0) {
+            return null;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 8;
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        Bitmap decoded = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+        if (decoded == null) {
+            return null;
+        }
+        try {
+            return computeLuma(decoded);
+        } finally {
+            decoded.recycle();
+        }
+    }
+
+    static int countChangedBlocks(byte[] previous, byte[] current) {
+        if (previous == null || current == null || previous.length != current.length) {
+            return Integer.MAX_VALUE;
+        }
+        // 全局平均亮度差（曝光漂移），逐块比较时扣除
+        long totalDiff = 0;
+        for (int i = 0; i < current.length; i++) {
+            totalDiff += (current[i] & 0xFF) - (previous[i] & 0xFF);
+        }
+        int globalShift = (int) (totalDiff / current.length);
+
+        int blocksPerRow = THUMB_SIZE / BLOCK_SIZE;
+        int changed = 0;
+        for (int by = 0; by < blocksPerRow; by++) {
+            for (int bx = 0; bx < blocksPerRow; bx++) {
+                int sum = 0;
+                for (int y = 0; y < BLOCK_SIZE; y++) {
+                    int row = (by * BLOCK_SIZE + y) * THUMB_SIZE + bx * BLOCK_SIZE;
+                    for (int x = 0; x < BLOCK_SIZE; x++) {
+                        int d = (current[row + x] & 0xFF) - (previous[row + x] & 0xFF) - globalShift;
+                        sum += Math.abs(d);
+                    }
+                }
+                if (sum / (BLOCK_SIZE * BLOCK_SIZE) > BLOCK_THRESHOLD) {
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+}
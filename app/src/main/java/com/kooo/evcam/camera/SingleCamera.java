@@ -66,6 +66,7 @@ public class SingleCamera {
     private OutputConfiguration activePreviewConfig; // 共享预览配置，用于动态 Surface 增减
     private Surface previewSurface;  // 预览Surface（缓存以避免重复创建）
     private ImageReader imageReader;  // 用于拍照的ImageReader
+    private StillImageCapture stillCapture;  // 按需挂载到会话的 JPEG 静态拍照通道
     private boolean singleOutputMode = false;  // 单一输出模式（用于不支持多路输出的车机平台）
     
     // 鱼眼矫正
@@ -1197,7 +1198,8 @@ public class SingleCamera {
             boolean hasAnySurface = (surface != null && surface.isValid())
                     || (mainFloatingSurface != null && mainFloatingSurface.isValid())
                     || (secondaryDisplaySurface != null && secondaryDisplaySurface.isValid())
-                    || (recordSurface != null && recordSurface.isValid());
+                    || (recordSurface != null && recordSurface.isValid())
+                    || (stillCapture != null && stillCapture.getSurface() != null && stillCapture.hasPending());
             if (!hasAnySurface) {
                 AppLog.d(TAG, "Camera " + cameraId + " no available surfaces, skipping session creation (waiting for surface)");
                 // 关闭旧 session，防止继续推帧到已销毁的 Surface（queueBuffer abandoned）
@@ -1231,6 +1233,7 @@ public class SingleCamera {
             // 准备所有输出Surface
             java.util.List<Surface> surfaces = new java.util.ArrayList<>();
             java.util.List<OutputConfiguration> outputConfigs = new java.util.ArrayList<>();
+            boolean stillSurfaceAdded = false;
 
             // 单一输出模式处理（用于 L6/L7 等不支持多路输出的车机平台）
             if (singleOutputMode && recordSurface != null && recordSurface.isValid()) {
@@ -1315,8 +1318,20 @@ public class SingleCamera {
                     previewRequestBuilder.addTarget(recordSurface);
                     AppLog.d(TAG, "Added record surface as SEPARATE stream");
                 }
+
+                // 静态拍照 ImageReader（仅按需挂载，不加入重复请求目标）
+                Surface stillSurface = (stillCapture != null) ? stillCapture.getSurface() : null;
+                if (stillSurface != null && stillSurface.isValid()) {
+                    outputConfigs.add(new OutputConfiguration(stillSurface));
+                    surfaces.add(stillSurface);
+                    stillSurfaceAdded = true;
+                    AppLog.d(TAG, "Added still capture ImageReader as SEPARATE stream");
+                }
             }
 
+            // 只有静态拍照流时（熄屏且未录制）不启动重复请求
+            final boolean hasRepeatingTarget = surfaces.size() > (stillSurfaceAdded ? 1 : 0);
+
             if (outputConfigs.isEmpty()) {
                 AppLog.w(TAG, "Camera " + cameraId + " No valid surfaces for session, skipping configuration");
                 if (captureSession != null) {
@@ -1379,12 +1394,21 @@ public class SingleCamera {
                         lastFrameLogTime = System.currentTimeMillis();
 
                         if (captureSession != session) return;
-                        captureSession.setRepeatingRequest(previewRequestBuilder.build(), activeCaptureCallback, backgroundHandler);
-                        AppLog.d(TAG, "Camera " + cameraId + " preview started!");
+                        if (hasRepeatingTarget) {
+                            captureSession.setRepeatingRequest(previewRequestBuilder.build(), activeCaptureCallback, backgroundHandler);
+                            AppLog.d(TAG, "Camera " + cameraId + " preview started!");
+                        } else {
+                            AppLog.d(TAG, "Camera " + cameraId + " still-capture-only session, no repeating request");
+                        }
                         lastFrameTimestampMs = System.currentTimeMillis();
                         stallRecoveryLevel = 0;
                         lastStallRecoveryMs = 0;
-                        startHealthMonitor();
+                        if (hasRepeatingTarget) {
+                            startHealthMonitor();
+                        } else {
+                            stopHealthMonitor();  // 无连续帧，避免误判卡死
+                        }
+                        submitPendingStillCaptures();
                         if (callback != null) callback.onCameraConfigured(cameraId);
                     } catch (CameraAccessException e) {
                         AppLog.e(TAG, "Failed to start preview", e);
@@ -1408,6 +1432,19 @@ public class SingleCamera {
                         createCameraPreviewSession();
                         return;
                     }
+
+                    // 静态拍照通道导致的配置失败（超出 HAL 流组合限制）：释放后按原配置重试
+                    if (stillCapture != null && stillCapture.isAttached()) {
+                        AppLog.w(TAG, "Camera " + cameraId + " retrying without still capture ImageReader...");
+                        stillCapture.release("session configuration failed");
+                        stillCaptureUnsupported = true;
+                        if (backgroundHandler != null) {
+                            backgroundHandler.post(() -> {
+                                if (cameraDevice != null) createCameraPreviewSession();
+                            });
+                        }
+                        return;
+                    }
                     
                     // 重试逻辑
                     boolean fisheyeActive = (fisheyeCorrector != null && fisheyeCorrector.isInitialized());
@@ -1842,36 +1879,78 @@ public class SingleCamera {
      * 用于心跳推图等需要实时获取图片的功能
      * 注意：必须在主线程调用
      * 
-     * @return 当前画面的 Bitmap，失败返回 null（调用方负责回收）
+     * @return 当前画面的 Bitmap（借自 {@link BitmapPool}，用完后调用方归还），失败返回 null
      */
     public android.graphics.Bitmap captureBitmap() {
+        if (previewSize == null) {
+            AppLog.w(TAG, "Camera " + cameraId + " preview size not available for capture");
+            return null;
+        }
+        return captureBitmap(previewSize.getWidth(), previewSize.getHeight());
+    }
+
+    /**
+     * 按指定尺寸捕获当前画面：缩放在 TextureView 的 GPU 回读中完成，
+     * 不再先读出整帧再在 CPU 上缩小
+     * 
+     * @return 当前画面的 Bitmap（借自 {@link BitmapPool}，用完后调用方归还），失败返回 null
+     */
+    public android.graphics.Bitmap captureBitmap(int width, int height) {
         if (textureView == null || !textureView.isAvailable()) {
             AppLog.w(TAG, "Camera " + cameraId + " TextureView not available for capture");
             return null;
         }
 
-        if (previewSize == null) {
-            AppLog.w(TAG, "Camera " + cameraId + " preview size not available for capture");
+        android.graphics.Bitmap bitmap = null;
+        try {
+            bitmap = grabPreviewBitmap(textureView, width, height, "captureBitmap");
+            AppLog.d(TAG, "Camera " + cameraId + " captured bitmap: " +
+                    bitmap.getWidth() + "x" + bitmap.getHeight());
+            return bitmap;
+        } catch (Exception e) {
+            BitmapPool.getInstance().release(bitmap);
+            AppLog.e(TAG, "Camera " + cameraId + " failed to capture bitmap", e);
             return null;
         }
+    }
 
+    /**
+     * 捕获实时画面帧（局域网直播按帧率高频调用，不输出日志）
+     * 保持预览宽高比，长边不超过 maxEdge
+     *
+     * @return 借自 {@link BitmapPool} 的 Bitmap（用完后调用方归还），预览不可用时返回 null
+     */
+    public android.graphics.Bitmap captureLiveFrame(int maxEdge) {
+        TextureView view = textureView;
+        if (view == null || !view.isAvailable() || view.getWidth() <= 0 || view.getHeight() <= 0) {
+            return null;
+        }
+        float scale = Math.min(1f, (float) maxEdge / Math.max(view.getWidth(), view.getHeight()));
+        int width = Math.max(2, Math.round(view.getWidth() * scale) & ~1);
+        int height = Math.max(2, Math.round(view.getHeight() * scale) & ~1);
+        android.graphics.Bitmap bitmap = null;
         try {
-            android.graphics.Bitmap bitmap = textureView.getBitmap(
-                    previewSize.getWidth(),
-                    previewSize.getHeight()
-            );
-            
-            if (bitmap != null) {
-                AppLog.d(TAG, "Camera " + cameraId + " captured bitmap: " + 
-                        bitmap.getWidth() + "x" + bitmap.getHeight());
-            }
+            bitmap = grabPreviewBitmap(view, width, height, "liveFrame");
             return bitmap;
         } catch (Exception e) {
-            AppLog.e(TAG, "Camera " + cameraId + " failed to capture bitmap", e);
+            BitmapPool.getInstance().release(bitmap);
             return null;
         }
     }
 
+    /**
+     * 把 TextureView 当前画面读入从 BitmapPool 借出的 Bitmap（按 Bitmap 尺寸缩放）
+     */
+    private static android.graphics.Bitmap grabPreviewBitmap(TextureView view, int width, int height, String tag) {
+        android.graphics.Bitmap bitmap = BitmapPool.getInstance().acquire(
+                width, height, android.graphics.Bitmap.Config.ARGB_8888, tag);
+        return view.getBitmap(bitmap);
+    }
+
+    private static android.graphics.Bitmap grabPreviewBitmap(TextureView view, Size size, String tag) {
+        return grabPreviewBitmap(view, size.getWidth(), size.getHeight(), tag);
+    }
+
     /**
      * 拍照（自动生成时间戳）
      */
@@ -1886,62 +1965,370 @@ public class SingleCamera {
      * @param timestamp 文件命名用的时间戳
      */
     public void takePicture(String timestamp) {
-        takePicture(timestamp, 0);  // 默认无延迟
-    }
+        String key = (cameraPosition != null) ? cameraPosition : cameraId;
+        PhotoPipeline pipeline = PhotoPipeline.getInstance();
+        PhotoPipeline.Job job = pipeline.newJob(timestamp, key);
+
+        if (shouldUseStillCapture()) {
+            takePictureWithImageReader(timestamp, job);
+            return;
+        }
 
-    /**
-     * 拍照（使用指定的时间戳和保存延迟）
-     * @param timestamp 文件命名用的时间戳
-     * @param saveDelayMs 保存文件前的延迟时间（毫秒）
-     */
-    public void takePicture(String timestamp, int saveDelayMs) {
         if (textureView == null || !textureView.isAvailable()) {
             AppLog.e(TAG, "Camera " + cameraId + " TextureView not available");
+            job.fail("TextureView not available");
             return;
         }
 
         if (previewSize == null) {
             AppLog.e(TAG, "Camera " + cameraId + " preview size not available");
+            job.fail("preview size not available");
             return;
         }
 
-        // 在后台线程中处理截图和保存
-        if (backgroundHandler != null) {
-            backgroundHandler.post(() -> {
+        // 整帧 ARGB 与水印副本所需的峰值内存，预算不足时在流水线中排队
+        long frameBytes = (long) previewSize.getWidth() * previewSize.getHeight() * 4;
+        boolean watermark = new AppConfig(context).isTimestampWatermarkEnabled();
+        long peakBytes = watermark ? frameBytes * 2 : frameBytes;
+
+        pipeline.submit(job, peakBytes, () -> {
+            TextureView view = textureView;
+            Size size = previewSize;
+            if (view == null || !view.isAvailable() || size == null) {
+                job.fail("TextureView detached while queued");
+                return;
+            }
+            // 1. 从TextureView获取Bitmap（复用池中的缓冲）
+            android.graphics.Bitmap bitmap = grabPreviewBitmap(view, size, "takePicture");
+            job.markStage("capture");
+            AppLog.d(TAG, "Camera " + cameraId + " picture captured (" +
+                    bitmap.getWidth() + "x" + bitmap.getHeight() + ")");
+
+            // 2. 编码并保存文件
+            boolean saved;
+            try {
+                saved = saveBitmapAsJPEG(bitmap, timestamp);
+            } finally {
+                BitmapPool.getInstance().release(bitmap);
+            }
+            job.markStage("encode");
+            if (saved) {
+                AppLog.d(TAG, "Camera " + cameraId + " picture saved");
+                job.complete();
+            } else {
+                job.fail("save failed");
+            }
+        });
+    }
+
+    // ===== ImageReader 静态拍照 =====
+
+    /** 静态拍照通道最后一次使用后保留的时间，连续拍照无需反复重建会话 */
+    private static final long STILL_CAPTURE_LINGER_MS = 30000;
+
+    /** 挂载 ImageReader 后会话配置失败过，本次打开期间不再尝试 */
+    private volatile boolean stillCaptureUnsupported = false;
+
+    private final Runnable detachStillCaptureRunnable = this::detachStillCaptureIfIdle;
+
+    /**
+     * 是否走 ImageReader 静态拍照通道
+     * - 录制中不挂载/卸载 ImageReader（每次都要重建会话，会打断录制）：
+     *   已挂载时直接使用，否则走 TextureView 截图（预览不可用时拍照失败，与录制相比优先保证录制）
+     * - 未录制时使用，TextureView 不可用（熄屏/预览已分离）时也能拍照
+     * - 鱼眼矫正开启时预览画面经过 GL 矫正，保持与预览一致，使用 TextureView 截图
+     * - 单一输出模式的平台不支持额外的输出流
+     */
+    public boolean shouldUseStillCapture() {
+        if (cameraDevice == null || backgroundHandler == null || singleOutputMode || stillCaptureUnsupported) {
+            return false;
+        }
+        boolean textureAvailable = textureView != null && textureView.isAvailable() && previewSize != null;
+        boolean fisheyeActive = fisheyeCorrector != null && fisheyeCorrector.isInitialized();
+        if (textureAvailable && fisheyeActive) {
+            return false;
+        }
+        if (recordSurface != null) {
+            return stillCapture != null && stillCapture.isAttached();
+        }
+        return true;
+    }
+
+    /**
+     * 通过 ImageReader 拍照：HAL 硬件 JPEG 直接写盘
+     */
+    private void takePictureWithImageReader(String timestamp, PhotoPipeline.Job job) {
+        requestStillJpeg(new StillImageCapture.JpegCallback() {
+            @Override
+            public void onJpegAvailable(ByteBuffer jpeg) {
+                job.markStage("capture");
+                boolean saved = saveJpegBuffer(jpeg, timestamp);
+                job.markStage("write");
+                if (saved) {
+                    job.complete();
+                } else {
+                    job.fail("save failed");
+                }
+            }
+
+            @Override
+            public void onFailed(String reason) {
+                AppLog.w(TAG, "Camera " + cameraId + " still capture failed: " + reason);
+                // 回退：预览可用时用 TextureView 截图
+                boolean saved = false;
+                if (textureView != null && textureView.isAvailable() && previewSize != null) {
+                    android.graphics.Bitmap bitmap = grabPreviewBitmap(textureView, previewSize, "stillFallback");
+                    try {
+                        saved = saveBitmapAsJPEG(bitmap, timestamp);
+                    } finally {
+                        BitmapPool.getInstance().release(bitmap);
+                    }
+                }
+                job.markStage("fallback");
+                if (saved) {
+                    job.complete();
+                } else {
+                    job.fail(reason);
+                }
+            }
+        });
+    }
+
+    /**
+     * 请求一帧硬件 JPEG（异步，回调在后台线程）
+     * 未挂载 ImageReader 时先挂载并重建会话，会话就绪后自动提交拍照请求；
+     * 录制中不重建会话，未挂载时直接失败
+     */
+    public void requestStillJpeg(StillImageCapture.JpegCallback jpegCallback) {
+        Handler handler = backgroundHandler;
+        if (handler == null || cameraDevice == null) {
+            jpegCallback.onFailed("camera not opened");
+            return;
+        }
+        handler.post(() -> {
+            if (cameraDevice == null) {
+                jpegCallback.onFailed("camera closed");
+                return;
+            }
+            if (recordSurface != null && (stillCapture == null || !stillCapture.isAttached())) {
+                jpegCallback.onFailed("recording active, not rebuilding session");
+                return;
+            }
+            if (stillCapture == null) {
+                stillCapture = new StillImageCapture(cameraId, backgroundHandler);
+            }
+            stillCapture.enqueue(jpegCallback);
+            handler.removeCallbacks(detachStillCaptureRunnable);
+            handler.postDelayed(detachStillCaptureRunnable, STILL_CAPTURE_LINGER_MS);
+
+            if (!stillCapture.isAttached()) {
                 try {
-                    // 1. 立即从TextureView获取Bitmap（快速抓拍）
-                    android.graphics.Bitmap bitmap = textureView.getBitmap(
-                            previewSize.getWidth(),
-                            previewSize.getHeight()
-                    );
-                    
-                    if (bitmap != null) {
-                        AppLog.d(TAG, "Camera " + cameraId + " picture captured (" +
-                              bitmap.getWidth() + "x" + bitmap.getHeight() + "), will save in " + saveDelayMs + "ms");
-                        
-                        // 2. 延迟后再保存到磁盘（分散I/O压力）
-                        if (saveDelayMs > 0) {
-                            try {
-                                Thread.sleep(saveDelayMs);
-                            } catch (InterruptedException e) {
-                                AppLog.w(TAG, "Save delay interrupted");
-                            }
-                        }
-                        
-                        // 3. 保存文件
-                        saveBitmapAsJPEG(bitmap, timestamp);
-                        bitmap.recycle();
-                        AppLog.d(TAG, "Camera " + cameraId + " picture saved");
-                    } else {
-                        AppLog.e(TAG, "Camera " + cameraId + " failed to get bitmap from TextureView");
+                    CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
+                    if (!stillCapture.attach(characteristics, previewSize)) {
+                        stillCaptureUnsupported = true;
+                        stillCapture.release("no JPEG output");
+                        return;
                     }
-                } catch (Exception e) {
-                    AppLog.e(TAG, "Camera " + cameraId + " error capturing picture", e);
+                } catch (CameraAccessException e) {
+                    stillCapture.release("characteristics unavailable: " + e.getMessage());
+                    return;
                 }
-            });
+                // 新的输出流需要重建会话，onConfigured 后提交拍照请求
+                AppLog.d(TAG, "Camera " + cameraId + " attaching still ImageReader, rebuilding session");
+                createCameraPreviewSession();
+                return;
+            }
+
+            synchronized (sessionLock) {
+                if (isConfiguring || isSessionClosing) {
+                    return;  // 会话重建完成后统一提交
+                }
+            }
+            submitPendingStillCaptures();
+        });
+    }
+
+    /**
+     * 阻塞获取一帧硬件 JPEG（不可在相机后台线程调用）
+     * @param timeoutMs 超时时间
+     * @return JPEG 数据，失败或超时返回 null
+     */
+    public byte[] captureJpeg(long timeoutMs) {
+        if (backgroundHandler != null && backgroundHandler.getLooper().isCurrentThread()) {
+            AppLog.w(TAG, "Camera " + cameraId + " captureJpeg called on camera thread");
+            return null;
+        }
+        final byte[][] result = new byte[1][];
+        final java.util.concurrent.CountDownLatch latch = new java.util.concurrent.CountDownLatch(1);
+        requestStillJpeg(new StillImageCapture.JpegCallback() {
+            @Override
+            public void onJpegAvailable(ByteBuffer jpeg) {
+                byte[] data = new byte[jpeg.remaining()];
+                jpeg.get(data);
+                result[0] = data;
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailed(String reason) {
+                latch.countDown();
+            }
+        });
+        try {
+            if (!latch.await(timeoutMs, java.util.concurrent.TimeUnit.MILLISECONDS)) {
+                AppLog.w(TAG, "Camera " + cameraId + " captureJpeg timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result[0];
+    }
+
+    /**
+     * 为每个等待中的拍照提交一次 STILL_CAPTURE 请求（需在后台线程调用）
+     */
+    private void submitPendingStillCaptures() {
+        if (stillCapture == null || !stillCapture.isAttached() || !stillCapture.hasPending()) {
+            return;
+        }
+        Surface stillSurface = stillCapture.getSurface();
+        if (captureSession == null || cameraDevice == null || stillSurface == null) {
+            return;
+        }
+        try {
+            CaptureRequest.Builder builder = cameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_STILL_CAPTURE);
+            builder.addTarget(stillSurface);
+            builder.set(CaptureRequest.JPEG_QUALITY, (byte) 90);
+            if (customRotation % 90 == 0) {
+                builder.set(CaptureRequest.JPEG_ORIENTATION, ((customRotation % 360) + 360) % 360);
+            }
+            // HAL 在 JPEG 中写入 EXIF 缩略图，相册网格直接使用
+            Size thumbnailSize = stillCapture.getThumbnailSize();
+            if (thumbnailSize != null) {
+                builder.set(CaptureRequest.JPEG_THUMBNAIL_SIZE, thumbnailSize);
+                builder.set(CaptureRequest.JPEG_THUMBNAIL_QUALITY, (byte) 75);
+            }
+            if (imageAdjustEnabled) {
+                applyImageAdjustParamsFromConfig(builder);
+            }
+            CaptureRequest request = builder.build();
+            CameraCaptureSession.CaptureCallback stillCallback = new CameraCaptureSession.CaptureCallback() {
+                @Override
+                public void onCaptureFailed(@NonNull CameraCaptureSession session,
+                                            @NonNull CaptureRequest request,
+                                            @NonNull android.hardware.camera2.CaptureFailure failure) {
+                    if (stillCapture != null) {
+                        stillCapture.failOldest("capture failed, reason=" + failure.getReason());
+                    }
+                }
+            };
+            // 只为尚未提交的拍照发出请求（ImageReader 按 FIFO 出图）
+            int count = stillCapture.takeUnsubmitted();
+            if (count == 0) {
+                return;
+            }
+            java.util.List<CaptureRequest> burst = new java.util.ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                burst.add(request);
+            }
+            captureSession.captureBurst(burst, stillCallback, backgroundHandler);
+            AppLog.d(TAG, "Camera " + cameraId + " submitted " + burst.size() + " still capture(s), jpeg size "
+                    + stillCapture.getJpegSize());
+        } catch (CameraAccessException | IllegalStateException | IllegalArgumentException e) {
+            AppLog.e(TAG, "Camera " + cameraId + " failed to submit still capture", e);
+            stillCapture.release("submit failed: " + e.getMessage());
+            createCameraPreviewSession();
         }
     }
 
+    /**
+     * 空闲后卸载 ImageReader 并重建会话，释放 JPEG 缓冲
+     */
+    private void detachStillCaptureIfIdle() {
+        if (stillCapture == null || !stillCapture.isAttached()) {
+            return;
+        }
+        // 录制中卸载同样需要重建会话，推迟到录制结束后
+        if (stillCapture.hasPending() || recordSurface != null) {
+            if (backgroundHandler != null) {
+                backgroundHandler.postDelayed(detachStillCaptureRunnable, STILL_CAPTURE_LINGER_MS);
+            }
+            return;
+        }
+        AppLog.d(TAG, "Camera " + cameraId + " still capture idle, detaching ImageReader");
+        stillCapture.release("idle");
+        if (cameraDevice != null) {
+            createCameraPreviewSession();
+        }
+    }
+
+    /**
+     * 将硬件 JPEG 缓冲写入照片文件
+     * 未开启时间角标时直接写盘（无解码/重压缩）；开启时解码一次叠加角标后再压缩
+     */
+    private boolean saveJpegBuffer(ByteBuffer jpeg, String timestamp) {
+        AppConfig appConfig = new AppConfig(context);
+        if (appConfig.isTimestampWatermarkEnabled()) {
+            byte[] data = new byte[jpeg.remaining()];
+            jpeg.get(data);
+            android.graphics.Bitmap bitmap = decodeIntoPooledBitmap(data);
+            if (bitmap == null) {
+                return false;
+            }
+            try {
+                return saveBitmapAsJPEG(bitmap, timestamp);
+            } finally {
+                BitmapPool.getInstance().release(bitmap);
+            }
+        }
+
+        File photoDir = StorageHelper.getPhotoDir(context);
+        if (!photoDir.exists()) {
+            photoDir.mkdirs();
+        }
+        String position = (cameraPosition != null) ? cameraPosition : cameraId;
+        File photoFile = new File(photoDir, timestamp + "_" + position + ".jpg");
+        try (FileOutputStream output = new FileOutputStream(photoFile)) {
+            java.nio.channels.FileChannel channel = output.getChannel();
+            while (jpeg.hasRemaining()) {
+                channel.write(jpeg);
+            }
+            AppLog.i(TAG, "Photo saved (hardware JPEG): " + photoFile.getAbsolutePath());
+            return true;
+        } catch (IOException e) {
+            if (e.getMessage() != null && e.getMessage().contains("ENOSPC")) {
+                AppLog.e(TAG, "Camera " + cameraId + " 保存照片失败：存储空间已满");
+            } else {
+                AppLog.e(TAG, "Failed to save photo", e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 把 JPEG 解码到从 BitmapPool 借出的 Bitmap 中（尺寸未知或解码失败时回退普通解码）
+     */
+    private android.graphics.Bitmap decodeIntoPooledBitmap(byte[] data) {
+        Size jpegSize = (stillCapture != null) ? stillCapture.getJpegSize() : null;
+        if (jpegSize != null) {
+            android.graphics.Bitmap reusable = BitmapPool.getInstance().acquire(jpegSize.getWidth(),
+                    jpegSize.getHeight(), android.graphics.Bitmap.Config.ARGB_8888, "stillDecode");
+            android.graphics.BitmapFactory.Options options = new android.graphics.BitmapFactory.Options();
+            options.inMutable = true;
+            options.inBitmap = reusable;
+            try {
+                android.graphics.Bitmap decoded = android.graphics.BitmapFactory.decodeByteArray(data, 0, data.length, options);
+                if (decoded != null) {
+                    return decoded;
+                }
+            } catch (IllegalArgumentException e) {
+                AppLog.d(TAG, "Camera " + cameraId + " pooled decode not possible: " + e.getMessage());
+            }
+            BitmapPool.getInstance().release(reusable);
+        }
+        return android.graphics.BitmapFactory.decodeByteArray(data, 0, data.length);
+    }
+
     /**
      * 将Bitmap保存为JPEG文件
      */
@@ -1953,8 +2340,9 @@ public class SingleCamera {
 
     /**
      * 将Bitmap保存为JPEG文件（使用指定的时间戳）
+     * @return 是否保存成功
      */
-    private void saveBitmapAsJPEG(android.graphics.Bitmap bitmap, String timestamp) {
+    private boolean saveBitmapAsJPEG(android.graphics.Bitmap bitmap, String timestamp) {
         File photoDir = StorageHelper.getPhotoDir(context);
         if (!photoDir.exists()) {
             photoDir.mkdirs();
@@ -1978,11 +2366,16 @@ public class SingleCamera {
             finalBitmap = addTimestampWatermark(bitmap, timestamp);
         }
 
+        boolean saved = false;
         FileOutputStream output = null;
         try {
             output = new FileOutputStream(photoFile);
-            finalBitmap.compress(android.graphics.Bitmap.CompressFormat.JPEG, 90, output);
-            output.flush();
+            // 写入时内嵌 EXIF 缩略图，相册网格直接读取缩略图而不解码原图
+            java.io.OutputStream jpegOutput = ExifThumbnailWriter.wrap(
+                    new java.io.BufferedOutputStream(output, 64 * 1024), finalBitmap);
+            finalBitmap.compress(android.graphics.Bitmap.CompressFormat.JPEG, 90, jpegOutput);
+            jpegOutput.flush();
+            saved = true;
             AppLog.i(TAG, "Photo saved: " + photoFile.getAbsolutePath());
         } catch (IOException e) {
             if (e.getMessage() != null && e.getMessage().contains("ENOSPC")) {
@@ -2004,24 +2397,28 @@ public class SingleCamera {
                     }
                 }
             }
-            // 如果创建了新的bitmap用于水印，需要回收
+            // 水印副本借自 BitmapPool，用完归还
             if (finalBitmap != bitmap && finalBitmap != null) {
-                finalBitmap.recycle();
+                BitmapPool.getInstance().release(finalBitmap);
             }
         }
+        return saved;
     }
 
     /**
      * 在Bitmap上添加时间角标
      * @param originalBitmap 原始图片
      * @param timestamp 时间戳字符串（格式：yyyyMMdd_HHmmss）
-     * @return 带有时间角标的新Bitmap
+     * @return 带有时间角标的新Bitmap（借自 BitmapPool）
      */
     private android.graphics.Bitmap addTimestampWatermark(android.graphics.Bitmap originalBitmap, String timestamp) {
+        android.graphics.Bitmap mutableBitmap = null;
         try {
-            // 创建可编辑的副本
-            android.graphics.Bitmap mutableBitmap = originalBitmap.copy(android.graphics.Bitmap.Config.ARGB_8888, true);
+            // 创建可编辑的副本（复用池中的同尺寸缓冲）
+            mutableBitmap = BitmapPool.getInstance().acquire(originalBitmap.getWidth(),
+                    originalBitmap.getHeight(), android.graphics.Bitmap.Config.ARGB_8888, "watermark");
             android.graphics.Canvas canvas = new android.graphics.Canvas(mutableBitmap);
+            canvas.drawBitmap(originalBitmap, 0, 0, null);
 
             // 将时间戳转换为可读格式：yyyyMMdd_HHmmss -> yyyy-MM-dd HH:mm:ss
             String displayTime;
@@ -2068,6 +2465,7 @@ public class SingleCamera {
 
         } catch (Exception e) {
             AppLog.e(TAG, "Camera " + cameraId + " failed to add timestamp watermark", e);
+            BitmapPool.getInstance().release(mutableBitmap);
             return originalBitmap;  // 失败时返回原图
         }
     }
@@ -2147,6 +2545,13 @@ public class SingleCamera {
                 secondaryDisplaySurface = null;
             }
 
+            // 释放静态拍照通道
+            if (stillCapture != null) {
+                stillCapture.release("camera closed");
+                stillCapture = null;
+            }
+            stillCaptureUnsupported = false;
+
             // 释放ImageReader
             if (imageReader != null) {
                 try {
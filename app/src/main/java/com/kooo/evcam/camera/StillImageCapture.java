@@ -0,0 +1,275 @@
+package com.kooo.evcam.camera;
+
+import android.graphics.ImageFormat;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.util.Size;
+import android.view.Surface;
+
+import com.kooo.evcam.AppLog;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * 基于 ImageReader 的静态拍照通道
+ * 按需把一个 JPEG ImageReader 挂到 Camera2 会话上，由 HAL 硬件 JPEG 编码器出图，
+ * 输出缓冲区直接写盘，不再经过 TextureView.getBitmap 的 GPU→CPU 回读和二次压缩。
+ * 不依赖 TextureView，熄屏（预览 TextureView 已分离）时同样可用。
+ *
+ * JPEG 回调在 SingleCamera 的后台线程执行；等待队列可在任意线程访问。
+ */
+public class StillImageCapture {
+    private static final String TAG = "StillImageCapture";
+
+    /** 静态拍照的最大像素数（约 400 万），避免全传感器尺寸占用过多缓冲 */
+    private static final long MAX_STILL_PIXELS = 2560L * 1600L;
+
+    /** 同时在途的 JPEG 帧数 */
+    private static final int MAX_IMAGES = 2;
+
+    /**
+     * JPEG 输出回调（在后台线程调用）
+     * buffer 仅在回调期间有效，回调返回后 Image 即被关闭
+     */
+    public interface JpegCallback {
+        void onJpegAvailable(ByteBuffer jpeg);
+
+        void onFailed(String reason);
+    }
+
+    private final String cameraId;
+    private final Handler handler;
+    private final ArrayDeque<JpegCallback> pending = new ArrayDeque<>();
+
+    /** 已提交给 HAL、尚未出图的拍照数量（pending 的前 inFlight 个） */
+    private int inFlight = 0;
+
+    private ImageReader imageReader;
+    private Size jpegSize;
+    private Size thumbnailSize;
+
+    public StillImageCapture(String cameraId, Handler handler) {
+        this.cameraId = cameraId;
+        this.handler = handler;
+    }
+
+    /**
+     * 是否已创建 ImageReader（需要包含在会话输出中）
+     */
+    public boolean isAttached() {
+        return imageReader != null;
+    }
+
+    public Surface getSurface() {
+        return imageReader != null ? imageReader.getSurface() : null;
+    }
+
+    public Size getJpegSize() {
+        return jpegSize;
+    }
+
+    /**
+     * HAL 生成的 EXIF 缩略图尺寸，null 表示不支持
+     */
+    public Size getThumbnailSize() {
+        return thumbnailSize;
+    }
+
+    public boolean hasPending() {
+        synchronized (pending) {
+            return !pending.isEmpty();
+        }
+    }
+
+    /**
+     * 取出尚未提交给 HAL 的拍照数量，并将其标记为已提交
+     */
+    public int takeUnsubmitted() {
+        synchronized (pending) {
+            int count = pending.size() - inFlight;
+            inFlight = pending.size();
+            return Math.max(0, count);
+        }
+    }
+
+    /**
+     * 提交失败时撤销标记，等待下次会话就绪后重新提交
+     */
+    public void markUnsubmitted(int count) {
+        synchronized (pending) {
+            inFlight = Math.max(0, inFlight - count);
+        }
+    }
+
+    /**
+     * 创建 ImageReader
+     * @param characteristics 摄像头特性（用于选择 JPEG 尺寸）
+     * @param previewSize 预览尺寸（优先选择相同宽高比）
+     * @return 是否创建成功
+     */
+    public boolean attach(CameraCharacteristics characteristics, Size previewSize) {
+        if (imageReader != null) {
+            return true;
+        }
+        try {
+            jpegSize = chooseJpegSize(characteristics, previewSize);
+            if (jpegSize == null) {
+                AppLog.w(TAG, "Camera " + cameraId + " has no JPEG output size");
+                return false;
+            }
+            thumbnailSize = chooseThumbnailSize(characteristics, jpegSize);
+            imageReader = ImageReader.newInstance(jpegSize.getWidth(), jpegSize.getHeight(),
+                    ImageFormat.JPEG, MAX_IMAGES);
+            imageReader.setOnImageAvailableListener(this::onImageAvailable, handler);
+            AppLog.d(TAG, "Camera " + cameraId + " still ImageReader attached: " + jpegSize
+                    + ", thumbnail: " + thumbnailSize);
+            return true;
+        } catch (Exception e) {
+            AppLog.e(TAG, "Camera " + cameraId + " failed to create still ImageReader", e);
+            release("attach failed");
+            return false;
+        }
+    }
+
+    /**
+     * 登记一次拍照，对应的 JPEG 到达时回调
+     */
+    public void enqueue(JpegCallback callback) {
+        synchronized (pending) {
+            pending.addLast(callback);
+        }
+    }
+
+    /**
+     * 某次拍照请求失败：按 FIFO 顺序移除最早的等待者
+     */
+    public void failOldest(String reason) {
+        JpegCallback callback;
+        synchronized (pending) {
+            callback = pending.pollFirst();
+            if (inFlight > 0) inFlight--;
+        }
+        if (callback != null) {
+            callback.onFailed(reason);
+        }
+    }
+
+    /**
+     * 释放 ImageReader，所有等待中的拍照都以失败结束
+     */
+    public void release(String reason) {
+        while (hasPending()) {
+            failOldest(reason);
+        }
+        if (imageReader != null) {
+            try {
+                imageReader.close();
+            } catch (Exception e) {
+                AppLog.d(TAG, "Camera " + cameraId + " ignored exception while closing still reader: " + e.getMessage());
+            }
+            imageReader = null;
+            AppLog.d(TAG, "Camera " + cameraId + " still ImageReader released");
+        }
+    }
+
+    private void onImageAvailable(ImageReader reader) {
+        Image image = null;
+        try {
+            image = reader.acquireNextImage();
+            if (image == null) {
+                return;
+            }
+            JpegCallback callback;
+            synchronized (pending) {
+                callback = pending.pollFirst();
+                if (inFlight > 0) inFlight--;
+            }
+            if (callback == null) {
+                AppLog.w(TAG, "Camera " + cameraId + " dropped unexpected still image");
+                return;
+            }
+            ByteBuffer buffer = image.getPlanes()[0].getBuffer();
+            callback.onJpegAvailable(buffer);
+        } catch (Exception e) {
+            AppLog.e(TAG, "Camera " + cameraId + " failed to handle still image", e);
+        } finally {
+            if (image != null) {
+                image.close();
+            }
+        }
+    }
+
+    private static Size chooseJpegSize(CameraCharacteristics characteristics, Size previewSize) {
+        StreamConfigurationMap map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        if (map == null) {
+            return null;
+        }
+        Size[] sizes = map.getOutputSizes(ImageFormat.JPEG);
+        if (sizes == null || sizes.length == 0) {
+            return null;
+        }
+
+        Size best = null;
+        Size bestAnyRatio = null;
+        for (Size size : sizes) {
+            long pixels = (long) size.getWidth() * size.getHeight();
+            if (pixels > MAX_STILL_PIXELS) {
+                continue;
+            }
+            if (bestAnyRatio == null || pixels > (long) bestAnyRatio.getWidth() * bestAnyRatio.getHeight()) {
+                bestAnyRatio = size;
+            }
+            if (previewSize != null && sameAspectRatio(size, previewSize)
+                    && (best == null || pixels > (long) best.getWidth() * best.getHeight())) {
+                best = size;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        if (bestAnyRatio != null) {
+            return bestAnyRatio;
+        }
+        // 所有尺寸都超出上限：取最小的一个
+        Size smallest = sizes[0];
+        for (Size size : sizes) {
+            if ((long) size.getWidth() * size.getHeight() < (long) smallest.getWidth() * smallest.getHeight()) {
+                smallest = size;
+            }
+        }
+        return smallest;
+    }
+
+    private static Size chooseThumbnailSize(CameraCharacteristics characteristics, Size jpegSize) {
+        Size[] sizes = characteristics.get(CameraCharacteristics.JPEG_AVAILABLE_THUMBNAIL_SIZES);
+        if (sizes == null) {
+            return null;
+        }
+        Size best = null;
+        for (Size size : sizes) {
+            if (size.getWidth() == 0 || size.getHeight() == 0) {
+                continue;  // (0,0) 表示不生成缩略图
+            }
+            if (best == null) {
+                best = size;
+                continue;
+            }
+            boolean sizeMatches = sameAspectRatio(size, jpegSize);
+            boolean bestMatches = sameAspectRatio(best, jpegSize);
+            if (sizeMatches != bestMatches) {
+                if (sizeMatches) best = size;
+            } else if (size.getWidth() > best.getWidth() && size.getWidth() <= 320) {
+                best = size;
+            }
+        }
+        return best;
+    }
+
+    private static boolean sameAspectRatio(Size a, Size b) {
+        return Math.abs((float) a.getWidth() / a.getHeight() - (float) b.getWidth() / b.getHeight()) < 0.01f;
+    }
+}
@@ -2,6 +2,9 @@ package com.kooo.evcam.dingtalk;
 
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.net.NetworkStack;
+import com.kooo.evcam.net.TrafficClass;
+import com.kooo.evcam.remote.core.HttpStatusException;
 import android.util.Log;
 
 import com.google.gson.Gson;
@@ -34,7 +37,7 @@ public class DingTalkApiClient {
     public DingTalkApiClient(DingTalkConfig config) {
         this.config = config;
         this.gson = new Gson();
-        this.httpClient = new OkHttpClient.Builder()
+        this.httpClient = NetworkStack.getInstance().newBuilder(TrafficClass.CONTROL)
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(60, TimeUnit.SECONDS)
@@ -68,7 +71,7 @@ public class DingTalkApiClient {
             AppLog.d(TAG, "Access Token 响应: " + responseBody);
 
             if (!response.isSuccessful()) {
-                throw new IOException("获取 Access Token 失败: " + response.code() + " - " + responseBody);
+                throw new HttpStatusException(response.code(), "获取 Access Token 失败: " + response.code() + " - " + responseBody);
             }
 
             JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
@@ -129,7 +132,7 @@ public class DingTalkApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "Webhook 发送消息失败，响应: " + responseBody);
-                throw new IOException("Webhook 发送消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "Webhook 发送消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "Webhook 消息发送成功，响应: " + responseBody);
         }
@@ -212,7 +215,7 @@ public class DingTalkApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送群聊文本消息失败，响应: " + responseBody);
-                throw new IOException("发送群聊文本消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送群聊文本消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "群聊文本消息发送成功，响应: " + responseBody);
         }
@@ -255,7 +258,7 @@ public class DingTalkApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送单聊文本消息失败，响应: " + responseBody);
-                throw new IOException("发送单聊文本消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送单聊文本消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "单聊文本消息发送成功，响应: " + responseBody);
         }
@@ -297,11 +300,12 @@ public class DingTalkApiClient {
         Request request = new Request.Builder()
                 .url(url)
                 .post(requestBody)
+                .tag(TrafficClass.class, TrafficClass.BULK)
                 .build();
 
         try (Response response = httpClient.newCall(request).execute()) {
             if (!response.isSuccessful()) {
-                throw new IOException("上传媒体文件失败: " + response.code());
+                throw new HttpStatusException(response.code(), "上传媒体文件失败: " + response.code());
             }
 
             String responseBody = response.body().string();
@@ -373,7 +377,7 @@ public class DingTalkApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送群聊文件消息失败，响应: " + responseBody);
-                throw new IOException("发送群聊文件消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送群聊文件消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "群聊文件消息发送成功，响应: " + responseBody);
         }
@@ -422,7 +426,7 @@ public class DingTalkApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送单聊文件消息失败，响应: " + responseBody);
-                throw new IOException("发送单聊文件消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送单聊文件消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "单聊文件消息发送成功，响应: " + responseBody);
         }
@@ -489,7 +493,7 @@ public class DingTalkApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送群聊视频消息失败，响应: " + responseBody);
-                throw new IOException("发送群聊视频消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送群聊视频消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "群聊视频消息发送成功，响应: " + responseBody);
         }
@@ -537,7 +541,7 @@ public class DingTalkApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送单聊视频消息失败，响应: " + responseBody);
-                throw new IOException("发送单聊视频消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送单聊视频消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "单聊视频消息发送成功，响应: " + responseBody);
         }
@@ -596,7 +600,7 @@ public class DingTalkApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送群聊图片消息失败，响应: " + responseBody);
-                throw new IOException("发送群聊图片消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送群聊图片消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "群聊图片消息发送成功，响应: " + responseBody);
         }
@@ -639,7 +643,7 @@ public class DingTalkApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送单聊图片消息失败，响应: " + responseBody);
-                throw new IOException("发送单聊图片消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送单聊图片消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "单聊图片消息发送成功，响应: " + responseBody);
         }
@@ -700,7 +704,7 @@ public class DingTalkApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送群聊Markdown消息失败，响应: " + responseBody);
-                throw new IOException("发送群聊Markdown消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送群聊Markdown消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "群聊Markdown消息发送成功，响应: " + responseBody);
         }
@@ -744,7 +748,7 @@ public class DingTalkApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送单聊Markdown消息失败，响应: " + responseBody);
-                throw new IOException("发送单聊Markdown消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送单聊Markdown消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "单聊Markdown消息发送成功，响应: " + responseBody);
         }
@@ -806,7 +810,7 @@ public class DingTalkApiClient {
             AppLog.d(TAG, "Stream 响应: " + responseBody);
 
             if (!response.isSuccessful()) {
-                throw new IOException("获取 Stream 连接信息失败: " + response.code() + " - " + responseBody);
+                throw new HttpStatusException(response.code(), "获取 Stream 连接信息失败: " + response.code() + " - " + responseBody);
             }
 
             JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
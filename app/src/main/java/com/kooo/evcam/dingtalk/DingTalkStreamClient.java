@@ -2,6 +2,8 @@ package com.kooo.evcam.dingtalk;
 
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.net.NetworkStack;
+import com.kooo.evcam.net.TrafficClass;
 import android.util.Log;
 
 import com.google.gson.Gson;
@@ -42,7 +44,7 @@ public class DingTalkStreamClient extends WebSocketListener {
         this.apiClient = apiClient;
         this.callback = callback;
         this.gson = new Gson();
-        this.httpClient = new OkHttpClient.Builder()
+        this.httpClient = NetworkStack.getInstance().newBuilder(TrafficClass.CONTROL)
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(0, TimeUnit.SECONDS) // 长连接不设置读超时
                 .writeTimeout(30, TimeUnit.SECONDS)
@@ -2,8 +2,14 @@ package com.kooo.evcam.dingtalk;
 
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.remote.core.RemoteUploadCallback;
+import com.kooo.evcam.remote.upload.UploadCache;
+import com.kooo.evcam.remote.upload.UploadEngine;
+import com.kooo.evcam.remote.upload.UploadJob;
+
 import android.content.Context;
-import android.util.Log;
+
+import org.json.JSONObject;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -11,13 +17,16 @@ import java.util.List;
 
 /**
  * 图片上传服务
- * 负责将拍摄的照片上传到钉钉
+ * 负责将拍摄的照片上传到钉钉（排队、限速、重试和续传由 {@link UploadEngine} 负责）
  */
-public class PhotoUploadService {
+public class PhotoUploadService implements UploadEngine.Uploader {
     private static final String TAG = "PhotoUploadService";
 
+    public static final String UPLOADER_KEY = "dingtalk." + UploadJob.KIND_PHOTO;
+
     private final Context context;
     private final DingTalkApiClient apiClient;
+    private final UploadCache uploadCache;
 
     public interface UploadCallback {
         void onProgress(String message);
@@ -28,6 +37,7 @@ public class PhotoUploadService {
     public PhotoUploadService(Context context, DingTalkApiClient apiClient) {
         this.context = context;
         this.apiClient = apiClient;
+        this.uploadCache = UploadCache.getInstance(context);
     }
 
     /**
@@ -39,89 +49,104 @@ public class PhotoUploadService {
      * @param callback 上传回调
      */
     public void uploadPhotos(List<File> photoFiles, String conversationId, String conversationType, String userId, UploadCallback callback) {
-        new Thread(() -> {
-            try {
-                if (photoFiles == null || photoFiles.isEmpty()) {
-                    callback.onError("没有图片文件可上传");
-                    return;
-                }
-
-                callback.onProgress("开始上传 " + photoFiles.size() + " 张照片...");
-
-                List<String> uploadedFiles = new ArrayList<>();
-
-                for (int i = 0; i < photoFiles.size(); i++) {
-                    File photoFile = photoFiles.get(i);
+        UploadEngine engine = UploadEngine.getInstance(context);
+        engine.register(this);
+        engine.submit(UploadJob.create(UPLOADER_KEY,
+                VideoUploadService.encodeTarget(conversationId, conversationType, userId), photoFiles),
+                new RemoteUploadCallback() {
+                    @Override
+                    public void onProgress(String message) {
+                        callback.onProgress(message);
+                    }
 
-                    if (!photoFile.exists()) {
-                        AppLog.w(TAG, "图片文件不存在: " + photoFile.getPath());
-                        continue;
+                    @Override
+                    public void onSuccess(String message) {
+                        callback.onSuccess(message);
                     }
 
-                    callback.onProgress("正在上传 (" + (i + 1) + "/" + photoFiles.size() + "): " + photoFile.getName());
-
-                    try {
-                        // 1. 上传图片到钉钉（使用 image 类型）
-                        callback.onProgress("正在上传图片 (" + (i + 1) + "/" + photoFiles.size() + ")...");
-                        String mediaId = apiClient.uploadImage(photoFile);
-                        AppLog.d(TAG, "图片上传成功，mediaId: " + mediaId);
-
-                        // 2. 尝试使用 mediaId 发送图片消息
-                        callback.onProgress("正在发送图片消息 (" + (i + 1) + "/" + photoFiles.size() + ")...");
-                        try {
-                            // 尝试直接使用 mediaId 作为 photoURL (可能钉钉会自动处理)
-                            apiClient.sendImageMessage(conversationId, conversationType, mediaId, userId);
-                            AppLog.d(TAG, "图片消息发送成功: " + photoFile.getName());
-                        } catch (Exception imageError) {
-                            // 如果图片消息失败,降级为文件消息
-                            AppLog.w(TAG, "图片消息发送失败,降级为文件消息: " + imageError.getMessage());
-                            apiClient.sendFileMessage(conversationId, conversationType, mediaId, photoFile.getName(), userId);
-                            AppLog.d(TAG, "文件消息发送成功: " + photoFile.getName());
-                        }
-
-                        uploadedFiles.add(photoFile.getName());
-
-                        // 3. 延迟2秒后再上传下一张照片，减少网络和系统压力
-                        if (i < photoFiles.size() - 1) {  // 不是最后一张照片
-                            callback.onProgress("等待2秒后上传下一张照片...");
-                            Thread.sleep(2000);
-                        }
-
-                    } catch (Exception e) {
-                        AppLog.e(TAG, "上传图片失败: " + photoFile.getName(), e);
-                        callback.onError("上传失败: " + photoFile.getName() + " - " + e.getMessage());
+                    @Override
+                    public void onError(String error) {
+                        callback.onError(error);
                     }
-                }
+                });
+    }
 
-                if (uploadedFiles.isEmpty()) {
-                    callback.onError("所有图片上传失败");
-                } else {
-                    String successMessage = "图片上传完成！共上传 " + uploadedFiles.size() + " 张照片";
-                    callback.onSuccess(successMessage);
+    /**
+     * 上传单张图片
+     */
+    public void uploadPhoto(File photoFile, String conversationId, String conversationType, String userId, UploadCallback callback) {
+        List<File> files = new ArrayList<>();
+        files.add(photoFile);
+        uploadPhotos(files, conversationId, conversationType, userId, callback);
+    }
 
-                    // 等待3秒，确保图片消息被钉钉服务器处理完毕后再发送完成消息
-                    // 避免"上传完成"消息比图片先到达用户端
-                    try {
-                        Thread.sleep(3000);
-                    } catch (InterruptedException ignored) {}
+    // ==================== UploadEngine.Uploader ====================
+
+    @Override
+    public String getKey() {
+        return UPLOADER_KEY;
+    }
 
-                    // 发送完成消息，传递 conversationType 和 userId
-                    apiClient.sendTextMessage(conversationId, conversationType, successMessage, userId);
-                }
+    @Override
+    public String uploadFile(UploadJob job, File photoFile, int index) throws Exception {
+        JSONObject target = new JSONObject(job.getTarget());
+        String conversationId = target.optString("conversationId");
+        String conversationType = target.optString("conversationType");
+        String userId = target.optString("userId", null);
 
+        // 相同内容的照片已上传过时直接用 mediaId 发送
+        String cachedId = uploadCache.lookup(UploadCache.KIND_DINGTALK_IMAGE, photoFile);
+        if (cachedId != null) {
+            try {
+                sendPhotoMessage(conversationId, conversationType, cachedId, photoFile, userId);
+                return cachedId;
             } catch (Exception e) {
-                AppLog.e(TAG, "上传过程出错", e);
-                callback.onError("上传过程出错: " + e.getMessage());
+                AppLog.w(TAG, "缓存的 mediaId 发送失败，重新上传: " + e.getMessage());
+                uploadCache.invalidate(UploadCache.KIND_DINGTALK_IMAGE, photoFile);
             }
-        }).start();
+        }
+
+        // 1. 上传图片到钉钉（使用 image 类型）
+        String mediaId = apiClient.uploadImage(photoFile);
+        uploadCache.store(UploadCache.KIND_DINGTALK_IMAGE, photoFile, mediaId);
+        AppLog.d(TAG, "图片上传成功，mediaId: " + mediaId);
+
+        // 2. 发送图片消息
+        sendPhotoMessage(conversationId, conversationType, mediaId, photoFile, userId);
+        return mediaId;
     }
 
     /**
-     * 上传单张图片
+     * 用 mediaId 发送图片消息，失败时降级为文件消息
      */
-    public void uploadPhoto(File photoFile, String conversationId, String conversationType, String userId, UploadCallback callback) {
-        List<File> files = new ArrayList<>();
-        files.add(photoFile);
-        uploadPhotos(files, conversationId, conversationType, userId, callback);
+    private void sendPhotoMessage(String conversationId, String conversationType, String mediaId,
+                                  File photoFile, String userId) throws Exception {
+        try {
+            // 尝试直接使用 mediaId 作为 photoURL (可能钉钉会自动处理)
+            apiClient.sendImageMessage(conversationId, conversationType, mediaId, userId);
+            AppLog.d(TAG, "图片消息发送成功: " + photoFile.getName());
+        } catch (Exception imageError) {
+            // 如果图片消息失败,降级为文件消息
+            AppLog.w(TAG, "图片消息发送失败,降级为文件消息: " + imageError.getMessage());
+            apiClient.sendFileMessage(conversationId, conversationType, mediaId, photoFile.getName(), userId);
+            AppLog.d(TAG, "文件消息发送成功: " + photoFile.getName());
+        }
+    }
+
+    @Override
+    public void onJobFinished(UploadJob job) {
+        if (job.getUploadedCount() == 0) {
+            return;
+        }
+        try {
+            // 等待3秒，确保图片消息被钉钉服务器处理完毕后再发送完成消息
+            // 避免"上传完成"消息比图片先到达用户端
+            Thread.sleep(3000);
+            JSONObject target = new JSONObject(job.getTarget());
+            apiClient.sendTextMessage(target.optString("conversationId"), target.optString("conversationType"),
+                    job.getSummary(), target.optString("userId", null));
+        } catch (Exception e) {
+            AppLog.e(TAG, "发送完成消息失败", e);
+        }
     }
 }
@@ -2,6 +2,7 @@ package com.kooo.evcam.dingtalk;
 
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.mp4.Mp4Info;
 import android.graphics.Bitmap;
 import android.media.MediaMetadataRetriever;
 import android.util.Log;
@@ -70,6 +71,26 @@ public class VideoThumbnailExtractor {
      * @return 视频时长，失败返回 0
      */
     public static int getVideoDuration(File videoFile) {
+        return (int) (getVideoDurationMs(videoFile) / 1000);
+    }
+
+    /**
+     * 获取视频时长（毫秒）
+     * 优先直接解析 MP4 的 moov（结果带缓存），无法解析时再使用 MediaMetadataRetriever
+     * @param videoFile 视频文件
+     * @return 视频时长，失败返回 0
+     */
+    public static long getVideoDurationMs(File videoFile) {
+        try {
+            long durationMs = Mp4Info.get(videoFile).getDurationMs();
+            if (durationMs > 0) {
+                AppLog.d(TAG, "视频时长: " + durationMs + " 毫秒");
+                return durationMs;
+            }
+        } catch (IOException e) {
+            AppLog.d(TAG, "MP4 解析失败，改用 MediaMetadataRetriever: " + e.getMessage());
+        }
+
         MediaMetadataRetriever retriever = null;
         try {
             retriever = new MediaMetadataRetriever();
@@ -78,9 +99,8 @@ public class VideoThumbnailExtractor {
             String durationStr = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
             if (durationStr != null) {
                 long durationMs = Long.parseLong(durationStr);
-                int durationSec = (int) (durationMs / 1000);
-                AppLog.d(TAG, "视频时长: " + durationSec + " 秒");
-                return durationSec;
+                AppLog.d(TAG, "视频时长: " + durationMs + " 毫秒");
+                return durationMs;
             }
         } catch (Exception e) {
             AppLog.e(TAG, "获取视频时长失败: " + videoFile.getName(), e);
@@ -2,8 +2,14 @@ package com.kooo.evcam.dingtalk;
 
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.remote.core.RemoteUploadCallback;
+import com.kooo.evcam.remote.upload.UploadCache;
+import com.kooo.evcam.remote.upload.UploadEngine;
+import com.kooo.evcam.remote.upload.UploadJob;
+
 import android.content.Context;
-import android.util.Log;
+
+import org.json.JSONObject;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -11,13 +17,16 @@ import java.util.List;
 
 /**
  * 视频上传服务
- * 负责将录制的视频上传到钉钉
+ * 负责将录制的视频上传到钉钉（排队、限速、重试和续传由 {@link UploadEngine} 负责）
  */
-public class VideoUploadService {
+public class VideoUploadService implements UploadEngine.Uploader {
     private static final String TAG = "VideoUploadService";
 
+    public static final String UPLOADER_KEY = "dingtalk." + UploadJob.KIND_VIDEO;
+
     private final Context context;
     private final DingTalkApiClient apiClient;
+    private final UploadCache uploadCache;
 
     public interface UploadCallback {
         void onProgress(String message);
@@ -28,6 +37,7 @@ public class VideoUploadService {
     public VideoUploadService(Context context, DingTalkApiClient apiClient) {
         this.context = context;
         this.apiClient = apiClient;
+        this.uploadCache = UploadCache.getInstance(context);
     }
 
     /**
@@ -39,98 +49,25 @@ public class VideoUploadService {
      * @param callback 上传回调
      */
     public void uploadVideos(List<File> videoFiles, String conversationId, String conversationType, String userId, UploadCallback callback) {
-        new Thread(() -> {
-            try {
-                if (videoFiles == null || videoFiles.isEmpty()) {
-                    callback.onError("没有视频文件可上传");
-                    return;
-                }
-
-                callback.onProgress("开始上传 " + videoFiles.size() + " 个视频文件...");
-
-                List<String> uploadedFiles = new ArrayList<>();
-
-                for (int i = 0; i < videoFiles.size(); i++) {
-                    File videoFile = videoFiles.get(i);
-
-                    if (!videoFile.exists()) {
-                        AppLog.w(TAG, "视频文件不存在: " + videoFile.getPath());
-                        continue;
+        UploadEngine engine = UploadEngine.getInstance(context);
+        engine.register(this);
+        engine.submit(UploadJob.create(UPLOADER_KEY, encodeTarget(conversationId, conversationType, userId), videoFiles),
+                new RemoteUploadCallback() {
+                    @Override
+                    public void onProgress(String message) {
+                        callback.onProgress(message);
                     }
 
-                    callback.onProgress("正在处理 (" + (i + 1) + "/" + videoFiles.size() + "): " + videoFile.getName());
-
-                    try {
-                        // 1. 提取视频封面
-                        File thumbnailFile = new File(videoFile.getParent(),
-                                videoFile.getName().replace(".mp4", "_thumb.jpg"));
-
-                        boolean thumbnailExtracted = VideoThumbnailExtractor.extractThumbnail(videoFile, thumbnailFile);
-                        if (!thumbnailExtracted) {
-                            AppLog.w(TAG, "封面提取失败，跳过视频: " + videoFile.getName());
-                            callback.onError("封面提取失败: " + videoFile.getName());
-                            continue;
-                        }
-
-                        // 2. 获取视频时长
-                        int duration = VideoThumbnailExtractor.getVideoDuration(videoFile);
-                        if (duration == 0) {
-                            duration = 60; // 默认 60 秒
-                        }
-
-                        // 3. 上传视频文件到钉钉
-                        callback.onProgress("正在上传视频 (" + (i + 1) + "/" + videoFiles.size() + ")...");
-                        String videoMediaId = apiClient.uploadFile(videoFile);
-
-                        // 4. 上传封面图到钉钉
-                        callback.onProgress("正在上传封面 (" + (i + 1) + "/" + videoFiles.size() + ")...");
-                        String picMediaId = apiClient.uploadImage(thumbnailFile);
-
-                        // 5. 发送视频消息
-                        callback.onProgress("正在发送视频消息 (" + (i + 1) + "/" + videoFiles.size() + ")...");
-                        apiClient.sendVideoMessage(conversationId, conversationType, videoMediaId, picMediaId, duration, userId);
-
-                        uploadedFiles.add(videoFile.getName());
-                        AppLog.d(TAG, "视频上传成功: " + videoFile.getName());
-
-                        // 6. 清理临时封面文件
-                        if (thumbnailFile.exists()) {
-                            thumbnailFile.delete();
-                        }
-
-                        // 7. 延迟2秒后再上传下一个视频，减少网络和系统压力
-                        if (i < videoFiles.size() - 1) {  // 不是最后一个视频
-                            callback.onProgress("等待2秒后上传下一个视频...");
-                            Thread.sleep(2000);
-                        }
-
-                    } catch (Exception e) {
-                        AppLog.e(TAG, "上传视频失败: " + videoFile.getName(), e);
-                        callback.onError("上传失败: " + videoFile.getName() + " - " + e.getMessage());
+                    @Override
+                    public void onSuccess(String message) {
+                        callback.onSuccess(message);
                     }
-                }
 
-                if (uploadedFiles.isEmpty()) {
-                    callback.onError("所有视频上传失败");
-                } else {
-                    String successMessage = "视频上传完成！共上传 " + uploadedFiles.size() + " 个文件";
-                    callback.onSuccess(successMessage);
-
-                    // 等待5秒，确保视频消息被钉钉服务器处理完毕后再发送完成消息
-                    // 视频处理比图片更慢，需要更长的等待时间
-                    try {
-                        Thread.sleep(5000);
-                    } catch (InterruptedException ignored) {}
-
-                    // 发送完成消息，传递 conversationType 和 userId
-                    apiClient.sendTextMessage(conversationId, conversationType, successMessage, userId);
-                }
-
-            } catch (Exception e) {
-                AppLog.e(TAG, "上传过程出错", e);
-                callback.onError("上传过程出错: " + e.getMessage());
-            }
-        }).start();
+                    @Override
+                    public void onError(String error) {
+                        callback.onError(error);
+                    }
+                });
     }
 
     /**
@@ -141,4 +78,99 @@ public class VideoUploadService {
         files.add(videoFile);
         uploadVideos(files, conversationId, conversationType, userId, callback);
     }
+
+    /**
+     * 钉钉发送目标（会话 ID + 会话类型 + 用户 ID）编码为任务的 target
+     */
+    static String encodeTarget(String conversationId, String conversationType, String userId) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("conversationId", conversationId);
+            json.put("conversationType", conversationType);
+            json.put("userId", userId);
+            return json.toString();
+        } catch (Exception e) {
+            return "{}";
+        }
+    }
+
+    // ==================== UploadEngine.Uploader ====================
+
+    @Override
+    public String getKey() {
+        return UPLOADER_KEY;
+    }
+
+    @Override
+    public String uploadFile(UploadJob job, File videoFile, int index) throws Exception {
+        JSONObject target = new JSONObject(job.getTarget());
+
+        // 0. 相同内容的视频和封面都已上传过时直接用 mediaId 发送
+        String cachedVideoId = uploadCache.lookup(UploadCache.KIND_DINGTALK_FILE, videoFile);
+        String cachedPicId = uploadCache.lookup(UploadCache.KIND_DINGTALK_THUMB, videoFile);
+        if (cachedVideoId != null && cachedPicId != null) {
+            try {
+                int duration = VideoThumbnailExtractor.getVideoDuration(videoFile);
+                apiClient.sendVideoMessage(target.optString("conversationId"), target.optString("conversationType"),
+                        cachedVideoId, cachedPicId, duration == 0 ? 60 : duration, target.optString("userId", null));
+                return cachedVideoId;
+            } catch (Exception e) {
+                AppLog.w(TAG, "缓存的 mediaId 发送失败，重新上传: " + e.getMessage());
+                uploadCache.invalidate(UploadCache.KIND_DINGTALK_FILE, videoFile);
+                uploadCache.invalidate(UploadCache.KIND_DINGTALK_THUMB, videoFile);
+            }
+        }
+
+        // 1. 提取视频封面
+        File thumbnailFile = new File(videoFile.getParent(),
+                videoFile.getName().replace(".mp4", "_thumb.jpg"));
+        boolean thumbnailExtracted = VideoThumbnailExtractor.extractThumbnail(videoFile, thumbnailFile);
+        if (!thumbnailExtracted) {
+            // 钉钉视频消息必须带封面，提取失败重试也没有意义
+            throw new IllegalStateException("封面提取失败");
+        }
+
+        try {
+            // 2. 获取视频时长
+            int duration = VideoThumbnailExtractor.getVideoDuration(videoFile);
+            if (duration == 0) {
+                duration = 60; // 默认 60 秒
+            }
+
+            // 3. 上传视频文件到钉钉
+            String videoMediaId = apiClient.uploadFile(videoFile);
+            uploadCache.store(UploadCache.KIND_DINGTALK_FILE, videoFile, videoMediaId);
+
+            // 4. 上传封面图到钉钉（以视频内容为键缓存）
+            String picMediaId = apiClient.uploadImage(thumbnailFile);
+            uploadCache.store(UploadCache.KIND_DINGTALK_THUMB, videoFile, picMediaId);
+
+            // 5. 发送视频消息
+            apiClient.sendVideoMessage(target.optString("conversationId"), target.optString("conversationType"),
+                    videoMediaId, picMediaId, duration, target.optString("userId", null));
+            return videoMediaId;
+        } finally {
+            // 6. 清理临时封面文件
+            if (thumbnailFile.exists()) {
+                thumbnailFile.delete();
+            }
+        }
+    }
+
+    @Override
+    public void onJobFinished(UploadJob job) {
+        if (job.getUploadedCount() == 0) {
+            return;
+        }
+        try {
+            // 等待5秒，确保视频消息被钉钉服务器处理完毕后再发送完成消息
+            // 视频处理比图片更慢，需要更长的等待时间
+            Thread.sleep(5000);
+            JSONObject target = new JSONObject(job.getTarget());
+            apiClient.sendTextMessage(target.optString("conversationId"), target.optString("conversationType"),
+                    job.getSummary(), target.optString("userId", null));
+        } catch (Exception e) {
+            AppLog.e(TAG, "发送完成消息失败", e);
+        }
+    }
 }
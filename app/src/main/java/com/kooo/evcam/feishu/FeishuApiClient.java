@@ -1,6 +1,9 @@
 package com.kooo.evcam.feishu;
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.net.NetworkStack;
+import com.kooo.evcam.net.TrafficClass;
+import com.kooo.evcam.remote.core.HttpStatusException;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -31,7 +34,7 @@ public class FeishuApiClient {
     public FeishuApiClient(FeishuConfig config) {
         this.config = config;
         this.gson = new Gson();
-        this.httpClient = new OkHttpClient.Builder()
+        this.httpClient = NetworkStack.getInstance().newBuilder(TrafficClass.CONTROL)
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(120, TimeUnit.SECONDS) // 上传大文件需要更长时间
@@ -71,7 +74,7 @@ public class FeishuApiClient {
             AppLog.d(TAG, "Access Token 响应: " + responseBody);
 
             if (!response.isSuccessful()) {
-                throw new IOException("获取 Access Token 失败: " + response.code() + " - " + responseBody);
+                throw new HttpStatusException(response.code(), "获取 Access Token 失败: " + response.code() + " - " + responseBody);
             }
 
             JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
@@ -132,7 +135,7 @@ public class FeishuApiClient {
             AppLog.d(TAG, "WebSocket 连接信息响应: " + responseBody);
 
             if (!response.isSuccessful()) {
-                throw new IOException("获取 WebSocket 连接失败: " + response.code() + " - " + responseBody);
+                throw new HttpStatusException(response.code(), "获取 WebSocket 连接失败: " + response.code() + " - " + responseBody);
             }
 
             JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
@@ -187,7 +190,7 @@ public class FeishuApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送消息失败: " + responseBody);
-                throw new IOException("发送消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "消息发送成功: " + responseBody);
         }
@@ -226,7 +229,7 @@ public class FeishuApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "回复消息失败: " + responseBody);
-                throw new IOException("回复消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "回复消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "回复消息成功: " + responseBody);
         }
@@ -256,13 +259,14 @@ public class FeishuApiClient {
                 .url(url)
                 .header("Authorization", "Bearer " + accessToken)
                 .post(requestBody)
+                .tag(TrafficClass.class, TrafficClass.BULK)
                 .build();
 
         try (Response response = httpClient.newCall(request).execute()) {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "上传图片失败: " + responseBody);
-                throw new IOException("上传图片失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "上传图片失败: " + response.code() + ", " + responseBody);
             }
 
             JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
@@ -306,7 +310,7 @@ public class FeishuApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送图片消息失败: " + responseBody);
-                throw new IOException("发送图片消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送图片消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "图片消息发送成功: " + responseBody);
         }
@@ -356,13 +360,14 @@ public class FeishuApiClient {
                 .url(url)
                 .header("Authorization", "Bearer " + accessToken)
                 .post(requestBody)
+                .tag(TrafficClass.class, TrafficClass.BULK)
                 .build();
 
         try (Response response = httpClient.newCall(request).execute()) {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "上传文件失败: " + responseBody);
-                throw new IOException("上传文件失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "上传文件失败: " + response.code() + ", " + responseBody);
             }
 
             JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
@@ -406,7 +411,7 @@ public class FeishuApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送文件消息失败: " + responseBody);
-                throw new IOException("发送文件消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送文件消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "文件消息发送成功: " + responseBody);
         }
@@ -451,7 +456,7 @@ public class FeishuApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送视频消息失败: " + responseBody);
-                throw new IOException("发送视频消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送视频消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "视频消息发送成功: " + responseBody);
         }
@@ -3,6 +3,9 @@ package com.kooo.evcam.feishu;
 import com.kooo.evcam.AppLog;
 import com.kooo.evcam.WakeUpHelper;
 import com.kooo.evcam.feishu.pb.Pbbp2Frame;
+import com.kooo.evcam.feishu.pb.Pbbp2Reassembler;
+import com.kooo.evcam.net.NetworkStack;
+import com.kooo.evcam.net.TrafficClass;
 
 import android.content.Context;
 import android.net.Uri;
@@ -13,11 +16,10 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 
-import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.OkHttpClient;
@@ -55,8 +57,8 @@ public class FeishuBotManager {
     private int serviceId = 0;
     private String connId = "";
 
-    // 消息分包缓存
-    private final ConcurrentHashMap<String, byte[][]> messageCache = new ConcurrentHashMap<>();
+    // 消息分包重组（带过期和内存上限）
+    private final Pbbp2Reassembler reassembler = new Pbbp2Reassembler();
 
     // 心跳定时器
     private Handler pingHandler;
@@ -146,7 +148,7 @@ public class FeishuBotManager {
                 parseUrlParams(wsUrl);
 
                 // 3. 创建 OkHttp WebSocket 客户端
-                wsClient = new OkHttpClient.Builder()
+                wsClient = NetworkStack.getInstance().newBuilder(TrafficClass.CONTROL)
                         .connectTimeout(30, TimeUnit.SECONDS)
                         .readTimeout(0, TimeUnit.SECONDS) // 无超时，保持长连接
                         .writeTimeout(30, TimeUnit.SECONDS)
@@ -216,9 +218,9 @@ public class FeishuBotManager {
 
         @Override
         public void onMessage(WebSocket webSocket, ByteString bytes) {
-            // 处理二进制 Protobuf 消息
+            // 处理二进制 Protobuf 消息（直接解析 ByteString 的只读视图，不复制）
             AppLog.d(TAG, "收到二进制消息: " + bytes.size() + " 字节");
-            processProtobufMessage(bytes.toByteArray());
+            processProtobufMessage(bytes.asByteBuffer());
         }
 
         @Override
@@ -252,7 +254,7 @@ public class FeishuBotManager {
     /**
      * 处理 Protobuf 消息
      */
-    private void processProtobufMessage(byte[] data) {
+    private void processProtobufMessage(ByteBuffer data) {
         try {
             Pbbp2Frame frame = Pbbp2Frame.parseFrom(data);
             AppLog.d(TAG, "解析帧: " + frame.toString());
@@ -260,7 +262,7 @@ public class FeishuBotManager {
             if (frame.isControlFrame()) {
                 handleControlFrame(frame);
             } else if (frame.isDataFrame()) {
-                handleDataFrame(frame, data);
+                handleDataFrame(frame);
             }
         } catch (Exception e) {
             AppLog.e(TAG, "处理 Protobuf 消息失败", e);
@@ -288,7 +290,7 @@ public class FeishuBotManager {
     /**
      * 处理数据帧
      */
-    private void handleDataFrame(Pbbp2Frame frame, byte[] rawData) {
+    private void handleDataFrame(Pbbp2Frame frame) {
         try {
             String msgId = frame.getHeaderValue(Pbbp2Frame.HEADER_MESSAGE_ID);
             String traceId = frame.getHeaderValue(Pbbp2Frame.HEADER_TRACE_ID);
@@ -299,22 +301,24 @@ public class FeishuBotManager {
             int sum = sumStr != null ? Integer.parseInt(sumStr) : 1;
             int seq = seqStr != null ? Integer.parseInt(seqStr) : 0;
 
-            byte[] payload = frame.getPayload();
-
             // 处理分包消息
+            String payloadStr;
             if (sum > 1) {
-                payload = combinePackets(msgId, sum, seq, payload);
-                if (payload == null) {
+                byte[] combined = reassembler.offer(msgId, sum, seq, frame.getPayloadBuffer(),
+                        System.currentTimeMillis());
+                if (combined == null) {
                     // 还有包未到达
                     return;
                 }
+                payloadStr = new String(combined, StandardCharsets.UTF_8);
+            } else {
+                payloadStr = frame.getPayloadAsString();
             }
 
             AppLog.d(TAG, "数据帧类型: " + type + ", msgId: " + msgId + ", traceId: " + traceId);
 
             // 处理事件消息
-            if (Pbbp2Frame.TYPE_EVENT.equals(type)) {
-                String payloadStr = new String(payload, StandardCharsets.UTF_8);
+            if (Pbbp2Frame.TYPE_EVENT.equals(type) && payloadStr != null) {
                 AppLog.d(TAG, "事件 payload: " + payloadStr);
 
                 long startTime = System.currentTimeMillis();
@@ -329,35 +333,6 @@ public class FeishuBotManager {
         }
     }
 
-    /**
-     * 合并分包消息
-     */
-    private byte[] combinePackets(String msgId, int sum, int seq, byte[] data) {
-        byte[][] packets = messageCache.get(msgId);
-        if (packets == null) {
-            packets = new byte[sum][];
-            messageCache.put(msgId, packets);
-        }
-
-        packets[seq] = data;
-
-        // 检查是否所有包都已到达
-        ByteArrayOutputStream combined = new ByteArrayOutputStream();
-        for (byte[] packet : packets) {
-            if (packet == null) {
-                return null; // 还有包未到达
-            }
-            try {
-                combined.write(packet);
-            } catch (Exception ignored) {
-            }
-        }
-
-        // 清除缓存
-        messageCache.remove(msgId);
-        return combined.toByteArray();
-    }
-
     /**
      * 发送事件响应
      */
@@ -729,13 +704,11 @@ public class FeishuBotManager {
             webSocket = null;
         }
 
-        if (wsClient != null) {
-            wsClient.dispatcher().executorService().shutdown();
-            wsClient = null;
-        }
+        // wsClient 与其他客户端共享调度器线程池，不能关闭，只释放引用
+        wsClient = null;
 
-        // 清除消息缓存
-        messageCache.clear();
+        // 清除未完成的分包
+        reassembler.clear();
 
         AppLog.d(TAG, "Bot 已停止");
     }
@@ -1,6 +1,10 @@
 package com.kooo.evcam.feishu;
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.remote.core.RemoteUploadCallback;
+import com.kooo.evcam.remote.upload.UploadCache;
+import com.kooo.evcam.remote.upload.UploadEngine;
+import com.kooo.evcam.remote.upload.UploadJob;
 
 import android.content.Context;
 
@@ -10,13 +14,16 @@ import java.util.List;
 
 /**
  * 飞书图片上传服务
- * 负责将拍摄的照片上传到飞书
+ * 负责将拍摄的照片上传到飞书（排队、限速、重试和续传由 {@link UploadEngine} 负责）
  */
-public class FeishuPhotoUploadService {
+public class FeishuPhotoUploadService implements UploadEngine.Uploader {
     private static final String TAG = "FeishuPhotoUpload";
 
+    public static final String UPLOADER_KEY = "feishu." + UploadJob.KIND_PHOTO;
+
     private final Context context;
     private final FeishuApiClient apiClient;
+    private final UploadCache uploadCache;
 
     public interface UploadCallback {
         void onProgress(String message);
@@ -27,6 +34,7 @@ public class FeishuPhotoUploadService {
     public FeishuPhotoUploadService(Context context, FeishuApiClient apiClient) {
         this.context = context;
         this.apiClient = apiClient;
+        this.uploadCache = UploadCache.getInstance(context);
     }
 
     /**
@@ -36,95 +44,25 @@ public class FeishuPhotoUploadService {
      * @param callback 上传回调
      */
     public void uploadPhotos(List<File> photoFiles, String chatId, UploadCallback callback) {
-        new Thread(() -> {
-            try {
-                if (photoFiles == null || photoFiles.isEmpty()) {
-                    callback.onError("没有图片文件可上传");
-                    return;
-                }
-
-                callback.onProgress("开始上传 " + photoFiles.size() + " 张照片...");
-
-                List<String> uploadedFiles = new ArrayList<>();
-                List<String> failedFiles = new ArrayList<>();
-
-                for (int i = 0; i < photoFiles.size(); i++) {
-                    File photoFile = photoFiles.get(i);
-
-                    if (!photoFile.exists()) {
-                        AppLog.w(TAG, "图片文件不存在: " + photoFile.getPath());
-                        failedFiles.add(photoFile.getName() + " (文件不存在)");
-                        continue;
+        UploadEngine engine = UploadEngine.getInstance(context);
+        engine.register(this);
+        engine.submit(UploadJob.create(UPLOADER_KEY, chatId, photoFiles),
+                new RemoteUploadCallback() {
+                    @Override
+                    public void onProgress(String message) {
+                        callback.onProgress(message);
                     }
 
-                    callback.onProgress("正在上传 (" + (i + 1) + "/" + photoFiles.size() + "): " + photoFile.getName());
-
-                    // 重试上传（最多2次）
-                    boolean uploadSuccess = false;
-                    int retryCount = 0;
-                    int maxRetries = 2;
-                    String lastError = "";
-
-                    while (!uploadSuccess && retryCount < maxRetries) {
-                        try {
-                            if (retryCount > 0) {
-                                callback.onProgress("重试第 " + retryCount + " 次: " + photoFile.getName());
-                                Thread.sleep(1500);
-                            }
-
-                            // 1. 上传图片获取 image_key
-                            String imageKey = apiClient.uploadImage(photoFile);
-
-                            // 2. 发送图片消息
-                            apiClient.sendImageMessage("chat_id", chatId, imageKey);
-
-                            uploadedFiles.add(photoFile.getName());
-                            AppLog.d(TAG, "图片上传成功: " + photoFile.getName());
-                            uploadSuccess = true;
-
-                        } catch (Exception e) {
-                            retryCount++;
-                            lastError = e.getMessage();
-                            AppLog.e(TAG, "上传图片失败 (尝试 " + retryCount + "/" + maxRetries + "): " + photoFile.getName(), e);
-
-                            if (retryCount >= maxRetries) {
-                                failedFiles.add(photoFile.getName() + " (" + (lastError != null ? lastError : "未知错误") + ")");
-                                break;
-                            }
-                        }
+                    @Override
+                    public void onSuccess(String message) {
+                        callback.onSuccess(message);
                     }
 
-                    // 延迟500ms后再上传下一张照片
-                    if (i < photoFiles.size() - 1) {
-                        Thread.sleep(500);
+                    @Override
+                    public void onError(String error) {
+                        callback.onError(error);
                     }
-                }
-
-                // 统一处理上传结果
-                if (uploadedFiles.isEmpty()) {
-                    String errorMsg = "❌ 所有图片上传失败\n失败列表:\n" + String.join("\n", failedFiles);
-                    callback.onError(errorMsg);
-                    apiClient.sendTextMessage("chat_id", chatId, errorMsg);
-                } else if (failedFiles.isEmpty()) {
-                    String successMessage = "✅ 图片上传完成！共上传 " + uploadedFiles.size() + " 张照片";
-                    callback.onSuccess(successMessage);
-                    Thread.sleep(2000);
-                    apiClient.sendTextMessage("chat_id", chatId, successMessage);
-                } else {
-                    String mixedMessage = "⚠️ 上传完成（部分失败）\n" +
-                            "成功: " + uploadedFiles.size() + " 张\n" +
-                            "失败: " + failedFiles.size() + " 张\n\n" +
-                            "失败列表:\n" + String.join("\n", failedFiles);
-                    callback.onSuccess(mixedMessage);
-                    Thread.sleep(2000);
-                    apiClient.sendTextMessage("chat_id", chatId, mixedMessage);
-                }
-
-            } catch (Exception e) {
-                AppLog.e(TAG, "上传过程出错", e);
-                callback.onError("上传过程出错: " + e.getMessage());
-            }
-        }).start();
+                });
     }
 
     /**
@@ -135,4 +73,46 @@ public class FeishuPhotoUploadService {
         files.add(photoFile);
         uploadPhotos(files, chatId, callback);
     }
+
+    // ==================== UploadEngine.Uploader ====================
+
+    @Override
+    public String getKey() {
+        return UPLOADER_KEY;
+    }
+
+    @Override
+    public String uploadFile(UploadJob job, File photoFile, int index) throws Exception {
+        // 相同内容的照片已上传过时直接用 image_key 发送
+        String cachedKey = uploadCache.lookup(UploadCache.KIND_FEISHU_IMAGE, photoFile);
+        if (cachedKey != null) {
+            try {
+                apiClient.sendImageMessage("chat_id", job.getTarget(), cachedKey);
+                return cachedKey;
+            } catch (Exception e) {
+                AppLog.w(TAG, "缓存的 image_key 发送失败，重新上传: " + e.getMessage());
+                uploadCache.invalidate(UploadCache.KIND_FEISHU_IMAGE, photoFile);
+            }
+        }
+
+        // 1. 上传图片获取 image_key
+        String imageKey = apiClient.uploadImage(photoFile);
+        uploadCache.store(UploadCache.KIND_FEISHU_IMAGE, photoFile, imageKey);
+
+        // 2. 发送图片消息
+        apiClient.sendImageMessage("chat_id", job.getTarget(), imageKey);
+        return imageKey;
+    }
+
+    @Override
+    public void onJobFinished(UploadJob job) {
+        try {
+            if (job.getUploadedCount() > 0) {
+                Thread.sleep(2000);
+            }
+            apiClient.sendTextMessage("chat_id", job.getTarget(), job.getSummary());
+        } catch (Exception e) {
+            AppLog.e(TAG, "发送完成消息失败", e);
+        }
+    }
 }
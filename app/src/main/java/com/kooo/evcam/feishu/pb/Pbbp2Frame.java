@@ -1,6 +1,7 @@
 package com.kooo.evcam.feishu.pb;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -47,7 +48,8 @@ public class Pbbp2Frame {
     private List<Pbbp2Header> headers = new ArrayList<>();
     private String payloadEncoding;
     private String payloadType;
-    private byte[] payload;
+    /** payload 视图（解析时共享输入数据，不复制），无 payload 时为 null */
+    private ByteBuffer payload;
     private String logIDNew;
 
     public Pbbp2Frame() {
@@ -118,22 +120,43 @@ public class Pbbp2Frame {
         this.payloadType = payloadType;
     }
 
+    /**
+     * payload 的副本（每次调用都会复制，热路径请使用 getPayloadBuffer）
+     */
     public byte[] getPayload() {
-        return payload;
+        if (payload == null) return null;
+        byte[] copy = new byte[payload.remaining()];
+        payload.duplicate().get(copy);
+        return copy;
+    }
+
+    /**
+     * payload 的只读视图，无 payload 时返回 null
+     */
+    public ByteBuffer getPayloadBuffer() {
+        return payload == null ? null : payload.asReadOnlyBuffer();
+    }
+
+    public int getPayloadSize() {
+        return payload == null ? 0 : payload.remaining();
     }
 
     public void setPayload(byte[] payload) {
-        this.payload = payload;
+        this.payload = payload == null ? null : ByteBuffer.wrap(payload);
     }
 
     public String getPayloadAsString() {
         if (payload == null) return null;
-        return new String(payload, StandardCharsets.UTF_8);
+        if (payload.hasArray()) {
+            return new String(payload.array(), payload.arrayOffset() + payload.position(),
+                    payload.remaining(), StandardCharsets.UTF_8);
+        }
+        return StandardCharsets.UTF_8.decode(payload.duplicate()).toString();
     }
 
     public void setPayloadFromString(String payloadStr) {
         if (payloadStr != null) {
-            this.payload = payloadStr.getBytes(StandardCharsets.UTF_8);
+            this.payload = ByteBuffer.wrap(payloadStr.getBytes(StandardCharsets.UTF_8));
         }
     }
 
@@ -182,6 +205,15 @@ public class Pbbp2Frame {
      * 从二进制数据解析 Frame
      */
     public static Pbbp2Frame parseFrom(byte[] data) throws IOException {
+        return parseFrom(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * 从缓冲区视图解析 Frame
+     * 游标式读取，header 直接在视图上解析，payload 保存为共享输入数据的视图（不复制），
+     * 因此解析后不能再修改输入数据。
+     */
+    public static Pbbp2Frame parseFrom(ByteBuffer data) throws IOException {
         Pbbp2Frame frame = new Pbbp2Frame();
         ProtobufLite.Reader reader = new ProtobufLite.Reader(data);
 
@@ -206,9 +238,7 @@ public class Pbbp2Frame {
                     frame.method = reader.readInt32();
                     break;
                 case 5: // headers
-                    byte[] headerBytes = reader.readBytes();
-                    Pbbp2Header header = Pbbp2Header.parseFrom(headerBytes);
-                    frame.headers.add(header);
+                    frame.headers.add(Pbbp2Header.parseFrom(reader.readBytesView()));
                     break;
                 case 6: // payload_encoding
                     frame.payloadEncoding = reader.readString();
@@ -217,7 +247,7 @@ public class Pbbp2Frame {
                     frame.payloadType = reader.readString();
                     break;
                 case 8: // payload
-                    frame.payload = reader.readBytes();
+                    frame.payload = reader.readBytesView();
                     break;
                 case 9: // LogIDNew
                     frame.logIDNew = reader.readString();
@@ -235,7 +265,8 @@ public class Pbbp2Frame {
      * 序列化为二进制数据
      */
     public byte[] toByteArray() throws IOException {
-        ProtobufLite.Writer writer = new ProtobufLite.Writer();
+        // 先计算编码长度，只分配一次输出数组
+        ProtobufLite.Writer writer = new ProtobufLite.Writer(getSerializedSize());
 
         // 必填字段
         writer.writeUInt64(1, seqID);
@@ -243,9 +274,10 @@ public class Pbbp2Frame {
         writer.writeInt32(3, service);
         writer.writeInt32(4, method);
 
-        // headers
+        // headers（直接写入，不生成中间数组）
         for (Pbbp2Header header : headers) {
-            writer.writeMessage(5, header.toByteArray());
+            writer.writeMessageHeader(5, header.getSerializedSize());
+            header.writeTo(writer);
         }
 
         // 可选字段
@@ -255,7 +287,7 @@ public class Pbbp2Frame {
         if (payloadType != null && !payloadType.isEmpty()) {
             writer.writeString(7, payloadType);
         }
-        if (payload != null && payload.length > 0) {
+        if (payload != null && payload.hasRemaining()) {
             writer.writeBytes(8, payload);
         }
         if (logIDNew != null && !logIDNew.isEmpty()) {
@@ -265,6 +297,32 @@ public class Pbbp2Frame {
         return writer.toByteArray();
     }
 
+    /**
+     * 编码后的字节数
+     */
+    public int getSerializedSize() {
+        int size = 4 // 四个必填字段的 tag 各 1 字节
+                + ProtobufLite.varintSize(seqID) + ProtobufLite.varintSize(logID)
+                + ProtobufLite.varintSize(service) + ProtobufLite.varintSize(method);
+        for (Pbbp2Header header : headers) {
+            size += ProtobufLite.lengthDelimitedSize(5, header.getSerializedSize());
+        }
+        size += stringFieldSize(6, payloadEncoding);
+        size += stringFieldSize(7, payloadType);
+        if (payload != null && payload.hasRemaining()) {
+            size += ProtobufLite.lengthDelimitedSize(8, payload.remaining());
+        }
+        size += stringFieldSize(9, logIDNew);
+        return size;
+    }
+
+    private static int stringFieldSize(int fieldNumber, String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        return ProtobufLite.lengthDelimitedSize(fieldNumber, ProtobufLite.utf8Length(value));
+    }
+
     /**
      * 创建 Ping 帧
      */
@@ -290,7 +348,7 @@ public class Pbbp2Frame {
         response.headers = new ArrayList<>(this.headers);
         response.payloadEncoding = this.payloadEncoding;
         response.payloadType = this.payloadType;
-        response.payload = newPayload;
+        response.payload = newPayload == null ? null : ByteBuffer.wrap(newPayload);
         response.logIDNew = this.logIDNew;
         return response;
     }
@@ -305,7 +363,7 @@ public class Pbbp2Frame {
         sb.append(", headers=").append(headers);
         if (payloadEncoding != null) sb.append(", payloadEncoding='").append(payloadEncoding).append("'");
         if (payloadType != null) sb.append(", payloadType='").append(payloadType).append("'");
-        if (payload != null) sb.append(", payload=").append(payload.length).append(" bytes");
+        if (payload != null) sb.append(", payload=").append(payload.remaining()).append(" bytes");
         if (logIDNew != null) sb.append(", logIDNew='").append(logIDNew).append("'");
         sb.append("}");
         return sb.toString();
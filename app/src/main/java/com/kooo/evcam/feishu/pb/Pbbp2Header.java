@@ -1,6 +1,7 @@
 package com.kooo.evcam.feishu.pb;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Protobuf Header 消息
@@ -42,6 +43,13 @@ public class Pbbp2Header {
      * 从二进制数据解析 Header
      */
     public static Pbbp2Header parseFrom(byte[] data) throws IOException {
+        return parseFrom(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * 从缓冲区视图解析 Header（不复制输入）
+     */
+    public static Pbbp2Header parseFrom(ByteBuffer data) throws IOException {
         Pbbp2Header header = new Pbbp2Header();
         ProtobufLite.Reader reader = new ProtobufLite.Reader(data);
 
@@ -72,16 +80,31 @@ public class Pbbp2Header {
      * 序列化为二进制数据
      */
     public byte[] toByteArray() throws IOException {
-        ProtobufLite.Writer writer = new ProtobufLite.Writer();
+        ProtobufLite.Writer writer = new ProtobufLite.Writer(getSerializedSize());
+        writeTo(writer);
+        return writer.toByteArray();
+    }
 
-        if (key != null) {
-            writer.writeString(1, key);
+    /**
+     * 编码后的字节数
+     */
+    public int getSerializedSize() {
+        int size = 0;
+        if (key != null && !key.isEmpty()) {
+            size += ProtobufLite.lengthDelimitedSize(1, ProtobufLite.utf8Length(key));
         }
-        if (value != null) {
-            writer.writeString(2, value);
+        if (value != null && !value.isEmpty()) {
+            size += ProtobufLite.lengthDelimitedSize(2, ProtobufLite.utf8Length(value));
         }
+        return size;
+    }
 
-        return writer.toByteArray();
+    /**
+     * 直接写入外层消息的写入器（作为嵌套消息时避免中间数组）
+     */
+    void writeTo(ProtobufLite.Writer writer) throws IOException {
+        writer.writeString(1, key);
+        writer.writeString(2, value);
     }
 
     @Override
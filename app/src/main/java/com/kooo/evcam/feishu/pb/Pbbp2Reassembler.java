@@ -0,0 +1,144 @@
+package com.kooo.evcam.feishu.pb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * 飞书分包消息重组
+ *
+ * 同一 message_id 的分包（header sum / seq）先以视图形式暂存，全部到达后按总长度一次性分配并拷贝，
+ * 每个分包只拷贝一次。未完成的消息超过有效期或超出数量、内存上限时按到达顺序淘汰，
+ * 避免丢包导致缓存无限增长。
+ */
+public class Pbbp2Reassembler {
+    /** 未完成消息的有效期 */
+    public static final long DEFAULT_TTL_MS = 30_000;
+    /** 同时等待重组的消息数上限 */
+    private static final int MAX_PENDING_MESSAGES = 32;
+    /** 暂存分包的总字节上限 */
+    private static final long MAX_PENDING_BYTES = 8L * 1024 * 1024;
+    /** 单条消息的分包数上限 */
+    private static final int MAX_PACKETS = 256;
+
+    private final long ttlMs;
+    /** message_id → 未完成消息（按首个分包到达顺序） */
+    private final LinkedHashMap<String, Pending> pending = new LinkedHashMap<>();
+    private long pendingBytes;
+    private int evictedCount;
+
+    private static final class Pending {
+        final ByteBuffer[] parts;
+        final long createdAt;
+        int received;
+        long bytes;
+
+        Pending(int sum, long createdAt) {
+            this.parts = new ByteBuffer[sum];
+            this.createdAt = createdAt;
+        }
+    }
+
+    public Pbbp2Reassembler() {
+        this(DEFAULT_TTL_MS);
+    }
+
+    public Pbbp2Reassembler(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * 加入一个分包
+     * @param part 分包数据（[position, limit)），调用方之后不能再修改
+     * @return 全部分包到达时返回完整 payload，否则返回 null
+     * @throws IOException 分包参数非法或消息超出内存上限
+     */
+    public synchronized byte[] offer(String msgId, int sum, int seq, ByteBuffer part, long now) throws IOException {
+        evictExpired(now);
+
+        if (msgId == null || sum < 1 || sum > MAX_PACKETS || seq < 0 || seq >= sum) {
+            throw new IOException("非法分包: msgId=" + msgId + ", sum=" + sum + ", seq=" + seq);
+        }
+        Pending message = pending.get(msgId);
+        if (message == null) {
+            message = new Pending(sum, now);
+            pending.put(msgId, message);
+        } else if (message.parts.length != sum) {
+            drop(msgId, message);
+            throw new IOException("分包数不一致: msgId=" + msgId);
+        }
+
+        if (message.parts[seq] == null) {
+            int length = part == null ? 0 : part.remaining();
+            message.parts[seq] = part == null ? ByteBuffer.allocate(0) : part;
+            message.received++;
+            message.bytes += length;
+            pendingBytes += length;
+        }
+
+        if (message.received < sum) {
+            if (message.bytes > MAX_PENDING_BYTES) {
+                drop(msgId, message);
+                throw new IOException("分包消息过大: msgId=" + msgId);
+            }
+            evictOverflow();
+            return null;
+        }
+
+        // 全部到达：一次分配，逐段拷贝
+        pending.remove(msgId);
+        pendingBytes -= message.bytes;
+        byte[] combined = new byte[(int) message.bytes];
+        int offset = 0;
+        for (ByteBuffer p : message.parts) {
+            int length = p.remaining();
+            p.duplicate().get(combined, offset, length);
+            offset += length;
+        }
+        return combined;
+    }
+
+    public synchronized void clear() {
+        pending.clear();
+        pendingBytes = 0;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /** 因过期或超限被丢弃的未完成消息数 */
+    public synchronized int getEvictedCount() {
+        return evictedCount;
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Pending> it = pending.values().iterator();
+        while (it.hasNext()) {
+            Pending message = it.next();
+            if (now - message.createdAt <= ttlMs) {
+                break;  // 按到达顺序排列，后面的更新
+            }
+            it.remove();
+            pendingBytes -= message.bytes;
+            evictedCount++;
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Pending> it = pending.values().iterator();
+        while ((pending.size() > MAX_PENDING_MESSAGES || pendingBytes > MAX_PENDING_BYTES) && it.hasNext()) {
+            Pending message = it.next();
+            it.remove();
+            pendingBytes -= message.bytes;
+            evictedCount++;
+        }
+    }
+
+    private void drop(String msgId, Pending message) {
+        pending.remove(msgId);
+        pendingBytes -= message.bytes;
+        evictedCount++;
+    }
+}
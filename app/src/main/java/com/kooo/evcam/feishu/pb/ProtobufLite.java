@@ -1,9 +1,9 @@
 package com.kooo.evcam.feishu.pb;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * 轻量级 Protobuf 编解码工具类
@@ -19,15 +19,25 @@ public class ProtobufLite {
 
     /**
      * Protobuf 读取器
+     * 以游标方式直接读取 ByteBuffer（可以是 OkHttp ByteString 的只读视图），不复制整帧；
+     * 嵌套消息和 bytes 字段可以按视图读出，只有需要 byte[] 时才复制。
      */
     public static class Reader {
-        private final ByteArrayInputStream input;
+        private final ByteBuffer buffer;
         private final int limit;
-        private int position = 0;
+        private int position;
 
         public Reader(byte[] data) {
-            this.input = new ByteArrayInputStream(data);
-            this.limit = data.length;
+            this(ByteBuffer.wrap(data));
+        }
+
+        /**
+         * 读取 [position, limit) 区间，不改变传入缓冲区的游标
+         */
+        public Reader(ByteBuffer data) {
+            this.buffer = data;
+            this.position = data.position();
+            this.limit = data.limit();
         }
 
         public boolean hasMore() {
@@ -49,16 +59,13 @@ public class ProtobufLite {
 
         public long readVarint() throws IOException {
             long result = 0;
-            int shift = 0;
-            while (true) {
-                int b = input.read();
-                if (b == -1) throw new IOException("Unexpected end of stream");
-                position++;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= limit) throw new IOException("Unexpected end of stream");
+                int b = buffer.get(position++);
                 result |= (long) (b & 0x7F) << shift;
-                if ((b & 0x80) == 0) break;
-                shift += 7;
+                if ((b & 0x80) == 0) return result;
             }
-            return result;
+            throw new IOException("Malformed varint");
         }
 
         public int readInt32() throws IOException {
@@ -69,29 +76,51 @@ public class ProtobufLite {
             return readVarint();
         }
 
-        public byte[] readBytes() throws IOException {
-            int length = (int) readVarint();
+        private int readLength() throws IOException {
+            long length = readVarint();
             if (length < 0) {
                 throw new IOException("Invalid negative length: " + length);
             }
-            if (length == 0) {
-                return new byte[0];
+            if (length > limit - position) {
+                throw new IOException("Unexpected end of stream, expected " + length + " bytes, got " + (limit - position));
             }
+            return (int) length;
+        }
+
+        public byte[] readBytes() throws IOException {
+            int length = readLength();
             byte[] data = new byte[length];
-            int totalRead = 0;
-            while (totalRead < length) {
-                int read = input.read(data, totalRead, length - totalRead);
-                if (read == -1) {
-                    throw new IOException("Unexpected end of stream, expected " + length + " bytes, got " + totalRead);
+            if (buffer.hasArray()) {
+                System.arraycopy(buffer.array(), buffer.arrayOffset() + position, data, 0, length);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    data[i] = buffer.get(position + i);
                 }
-                totalRead += read;
             }
             position += length;
             return data;
         }
 
+        /**
+         * 读取 length-delimited 字段的只读视图（共享底层数据，不复制）
+         */
+        public ByteBuffer readBytesView() throws IOException {
+            int length = readLength();
+            ByteBuffer view = buffer.duplicate();
+            view.limit(position + length);
+            view.position(position);
+            position += length;
+            return view.slice();
+        }
+
         public String readString() throws IOException {
-            return new String(readBytes(), StandardCharsets.UTF_8);
+            if (!buffer.hasArray()) {
+                return new String(readBytes(), StandardCharsets.UTF_8);
+            }
+            int length = readLength();
+            String value = new String(buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
         }
 
         public void skipField(int wireType) throws IOException {
@@ -104,7 +133,7 @@ public class ProtobufLite {
                     skipBytes(8);
                     break;
                 case WIRE_TYPE_LENGTH_DELIMITED:
-                    readBytes();
+                    skipBytes(readLength());
                     break;
                 case WIRE_TYPE_32BIT:
                     // 跳过 4 字节
@@ -118,22 +147,85 @@ public class ProtobufLite {
         }
 
         private void skipBytes(int count) throws IOException {
-            long skipped = input.skip(count);
-            position += (int) skipped;
-            if (skipped < count) {
+            if (count > limit - position) {
+                position = limit;
                 throw new IOException("Unexpected end of stream while skipping");
             }
+            position += count;
         }
     }
 
+    // ==================== 编码长度计算 ====================
+
+    public static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * 字符串的 UTF-8 编码长度（不分配临时数组）
+     */
+    public static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * length-delimited 字段（tag + 长度 + 数据）的编码长度
+     */
+    public static int lengthDelimitedSize(int fieldNumber, int length) {
+        return varintSize(fieldNumber << 3) + varintSize(length) + length;
+    }
+
     /**
      * Protobuf 写入器
+     * 预先给出编码长度时只分配一次数组，toByteArray 直接返回该数组
      */
     public static class Writer {
-        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private byte[] output;
+        private int position;
+
+        public Writer() {
+            this(64);
+        }
+
+        public Writer(int expectedSize) {
+            this.output = new byte[Math.max(expectedSize, 1)];
+        }
 
         public byte[] toByteArray() {
-            return output.toByteArray();
+            return position == output.length ? output : Arrays.copyOf(output, position);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > output.length) {
+                output = Arrays.copyOf(output, Math.max(output.length * 2, position + extra));
+            }
+        }
+
+        private void writeByte(int b) {
+            ensureCapacity(1);
+            output[position++] = (byte) b;
         }
 
         public void writeTag(int fieldNumber, int wireType) throws IOException {
@@ -143,10 +235,10 @@ public class ProtobufLite {
         public void writeVarint(long value) throws IOException {
             while (true) {
                 if ((value & ~0x7FL) == 0) {
-                    output.write((int) value);
+                    writeByte((int) value);
                     return;
                 } else {
-                    output.write(((int) value & 0x7F) | 0x80);
+                    writeByte(((int) value & 0x7F) | 0x80);
                     value >>>= 7;
                 }
             }
@@ -165,19 +257,71 @@ public class ProtobufLite {
         public void writeBytes(int fieldNumber, byte[] value) throws IOException {
             writeTag(fieldNumber, WIRE_TYPE_LENGTH_DELIMITED);
             writeVarint(value.length);
-            output.write(value);
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, output, position, value.length);
+            position += value.length;
+        }
+
+        /**
+         * 写入 bytes 字段，数据取自缓冲区的 [position, limit)，不改变其游标
+         */
+        public void writeBytes(int fieldNumber, ByteBuffer value) throws IOException {
+            int length = value.remaining();
+            writeTag(fieldNumber, WIRE_TYPE_LENGTH_DELIMITED);
+            writeVarint(length);
+            ensureCapacity(length);
+            value.duplicate().get(output, position, length);
+            position += length;
         }
 
         public void writeString(int fieldNumber, String value) throws IOException {
             if (value != null && !value.isEmpty()) {
-                writeBytes(fieldNumber, value.getBytes(StandardCharsets.UTF_8));
+                int length = utf8Length(value);
+                writeTag(fieldNumber, WIRE_TYPE_LENGTH_DELIMITED);
+                writeVarint(length);
+                ensureCapacity(length);
+                writeUtf8(value);
             }
         }
 
         public void writeMessage(int fieldNumber, byte[] messageBytes) throws IOException {
+            writeBytes(fieldNumber, messageBytes);
+        }
+
+        /**
+         * 写入嵌套消息的头部（tag + 长度），随后由调用方写入消息体
+         */
+        public void writeMessageHeader(int fieldNumber, int messageSize) throws IOException {
             writeTag(fieldNumber, WIRE_TYPE_LENGTH_DELIMITED);
-            writeVarint(messageBytes.length);
-            output.write(messageBytes);
+            writeVarint(messageSize);
+        }
+
+        private void writeUtf8(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    output[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    output[position++] = (byte) (0xC0 | (c >> 6));
+                    output[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, value.charAt(++i));
+                    output[position++] = (byte) (0xF0 | (cp >> 18));
+                    output[position++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    output[position++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    output[position++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    // 孤立代理项按 String.getBytes 的行为替换为 '?'
+                    if (Character.isSurrogate(c)) {
+                        output[position++] = '?';
+                        continue;
+                    }
+                    output[position++] = (byte) (0xE0 | (c >> 12));
+                    output[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    output[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
         }
     }
 }
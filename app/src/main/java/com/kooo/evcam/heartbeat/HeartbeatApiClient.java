@@ -3,6 +3,8 @@ package com.kooo.evcam.heartbeat;
 import android.util.Base64;
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.net.NetworkStack;
+import com.kooo.evcam.net.TrafficClass;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -29,7 +31,7 @@ public class HeartbeatApiClient {
     private final OkHttpClient client;
     
     public HeartbeatApiClient() {
-        client = new OkHttpClient.Builder()
+        client = NetworkStack.getInstance().newBuilder(TrafficClass.HEARTBEAT)
                 .connectTimeout(15, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(60, TimeUnit.SECONDS)  // 写入超时较长（上传图片）
@@ -42,21 +44,23 @@ public class HeartbeatApiClient {
      * @param serverUrl 服务器地址
      * @param vehicleId 车辆ID
      * @param secretKey 通信密钥
-     * @param imageBytes 图片数据
+     * @param imageBytes 图片数据；null 表示画面无变化，只发送状态（不带图片）
      * @param imageWidth 图片宽度
      * @param imageHeight 图片高度
      * @param cameraCount 摄像头数量
      * @param appStatus App 状态 JSON 字符串
+     * @param capturedAt 心跳产生时间（离线补发时早于发送时间）
      * @return 请求是否成功
      */
     public HeartbeatResult sendHeartbeat(String serverUrl, String vehicleId, String secretKey,
                                           byte[] imageBytes, int imageWidth, int imageHeight,
-                                          int cameraCount, String appStatus) {
+                                          int cameraCount, String appStatus, long capturedAt) {
         if (serverUrl == null || serverUrl.isEmpty()) {
             return new HeartbeatResult(false, "服务器地址未配置");
         }
         
-        if (imageBytes == null || imageBytes.length == 0) {
+        boolean metadataOnly = imageBytes == null;
+        if (!metadataOnly && imageBytes.length == 0) {
             return new HeartbeatResult(false, "图片数据为空");
         }
         
@@ -71,9 +75,10 @@ public class HeartbeatApiClient {
             }
             
             // 构建 JSON 请求体
-            String imageBase64 = Base64.encodeToString(imageBytes, Base64.NO_WRAP);
+            String imageBase64 = metadataOnly ? null : Base64.encodeToString(imageBytes, Base64.NO_WRAP);
             String jsonBody = buildJsonBody(vehicleId, timestamp, nonce, signature,
-                    imageBase64, imageWidth, imageHeight, imageBytes.length, cameraCount, appStatus);
+                    imageBase64, imageWidth, imageHeight, metadataOnly ? 0 : imageBytes.length,
+                    cameraCount, appStatus, capturedAt);
             
             // 发送请求
             RequestBody body = RequestBody.create(jsonBody, JSON);
@@ -87,7 +92,8 @@ public class HeartbeatApiClient {
                     .addHeader("X-Signature", signature)
                     .build();
             
-            AppLog.d(TAG, "发送心跳请求: " + serverUrl + ", 图片大小: " + (imageBytes.length / 1024) + "KB");
+            AppLog.d(TAG, "发送心跳请求: " + serverUrl + (metadataOnly
+                    ? ", 画面无变化（仅状态）" : ", 图片大小: " + (imageBytes.length / 1024) + "KB"));
             
             try (Response response = client.newCall(request).execute()) {
                 int code = response.code();
@@ -155,7 +161,8 @@ public class HeartbeatApiClient {
      */
     private String buildJsonBody(String vehicleId, long timestamp, String nonce, String signature,
                                   String imageBase64, int imageWidth, int imageHeight,
-                                  int imageSizeBytes, int cameraCount, String appStatus) {
+                                  int imageSizeBytes, int cameraCount, String appStatus,
+                                  long capturedAt) {
         StringBuilder sb = new StringBuilder();
         sb.append("{");
         
@@ -165,12 +172,18 @@ public class HeartbeatApiClient {
         sb.append("\"nonce\":\"").append(escapeJson(nonce)).append("\",");
         sb.append("\"signature\":\"").append(escapeJson(signature)).append("\",");
         
-        // 图片数据
-        sb.append("\"imageBase64\":\"").append(imageBase64).append("\",");
+        // 图片数据（画面无变化时为 null，服务端沿用上一张图片）
+        if (imageBase64 != null) {
+            sb.append("\"imageBase64\":\"").append(imageBase64).append("\",");
+        } else {
+            sb.append("\"imageBase64\":null,");
+            sb.append("\"sceneUnchanged\":true,");
+        }
         sb.append("\"imageWidth\":").append(imageWidth).append(",");
         sb.append("\"imageHeight\":").append(imageHeight).append(",");
         sb.append("\"imageSizeBytes\":").append(imageSizeBytes).append(",");
         sb.append("\"cameraCount\":").append(cameraCount).append(",");
+        sb.append("\"capturedAt\":").append(capturedAt).append(",");
         
         // App 状态（已经是 JSON 对象，直接嵌入）
         if (appStatus != null && !appStatus.isEmpty()) {
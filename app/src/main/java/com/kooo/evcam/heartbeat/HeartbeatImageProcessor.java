@@ -3,10 +3,12 @@ package com.kooo.evcam.heartbeat;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
 import android.util.Size;
-import android.view.TextureView;
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.camera.BitmapPool;
 import com.kooo.evcam.camera.SingleCamera;
 
 import java.io.ByteArrayOutputStream;
@@ -20,18 +22,79 @@ import java.util.List;
 public class HeartbeatImageProcessor {
     private static final String TAG = "HeartbeatImageProcessor";
     
+    /** 可接受的最低 JPEG 质量，预测低于此值时改为缩小分辨率 */
+    private static final int MIN_ACCEPTABLE_QUALITY = 40;
+    
+    /** 最小缩放比例 */
+    private static final double MIN_SCALE = 0.25;
+    
+    /** 由目标体积反推输出分辨率时假定的 JPEG 质量 */
+    private static final int PLANNING_QUALITY = 75;
+    
+    /** 格子最小宽度，避免目标体积很小时画面无法辨认 */
+    private static final int MIN_TILE_WIDTH = 160;
+    
+    /** 单次心跳最多编码次数 */
+    private static final int MAX_PASSES = 3;
+    
+    /** 跨心跳保留的质量-体积模型 */
+    private final JpegSizeModel sizeModel = new JpegSizeModel();
+    
+    /**
+     * 目标体积编码结果
+     */
+    public static class EncodedImage {
+        public final byte[] data;
+        public final int width;
+        public final int height;
+        public final int quality;
+        public final int passes;
+        
+        EncodedImage(byte[] data, int width, int height, int quality, int passes) {
+            this.data = data;
+            this.width = width;
+            this.height = height;
+            this.quality = quality;
+            this.passes = passes;
+        }
+    }
+    
     /**
      * 从多个相机获取实时画面并拼接
+     * 先由目标体积推算最终输出分辨率，各路画面直接按缩小后的格子尺寸回读（GPU 缩放），
+     * 再拼到 RGB_565 缓冲中，不再先拼出 2W x 2H 的整帧 ARGB 大图。
      * 
      * @param cameras SingleCamera 列表
-     * @return 拼接后的 Bitmap（调用方负责回收），失败返回 null
+     * @param targetSizeKB 目标体积（KB），0 表示保持原始分辨率
+     * @return 拼接后的 Bitmap（借自 {@link BitmapPool}，调用方用完后归还），失败返回 null
      */
-    public Bitmap captureAndMerge(List<SingleCamera> cameras) {
+    public Bitmap captureAndMerge(List<SingleCamera> cameras, int targetSizeKB) {
         if (cameras == null || cameras.isEmpty()) {
             AppLog.w(TAG, "相机列表为空");
             return null;
         }
         
+        // 以第一路有预览尺寸的相机确定格子宽高比
+        Size tileSource = null;
+        int count = 0;
+        for (SingleCamera camera : cameras) {
+            if (camera == null) {
+                continue;
+            }
+            count++;
+            if (tileSource == null) {
+                tileSource = camera.getPreviewSize();
+            }
+        }
+        if (tileSource == null) {
+            AppLog.w(TAG, "相机预览尺寸未知");
+            return null;
+        }
+        
+        int[] tile = planTileSize(tileSource.getWidth(), tileSource.getHeight(), count, targetSizeKB);
+        int tileW = tile[0];
+        int tileH = tile[1];
+        
         List<Bitmap> bitmaps = new ArrayList<>();
         
         for (SingleCamera camera : cameras) {
@@ -40,7 +103,7 @@ public class HeartbeatImageProcessor {
             }
             
             try {
-                Bitmap bitmap = captureSingleCamera(camera);
+                Bitmap bitmap = captureSingleCamera(camera, tileW, tileH);
                 if (bitmap != null) {
                     bitmaps.add(bitmap);
                 }
@@ -56,99 +119,113 @@ public class HeartbeatImageProcessor {
         
         AppLog.d(TAG, "成功获取 " + bitmaps.size() + " 个相机画面");
         
+        // 单张图片：回读结果即为输出，无需拼接
+        if (bitmaps.size() == 1) {
+            return bitmaps.get(0);
+        }
+        
         // 拼接图片
-        Bitmap merged = mergeBitmaps(bitmaps);
+        Bitmap merged = mergeBitmaps(bitmaps, tileW, tileH);
         
-        // 回收原始 bitmap（拼接后不再需要）
+        // 归还原始 bitmap（拼接后不再需要）
+        BitmapPool pool = BitmapPool.getInstance();
         for (Bitmap bitmap : bitmaps) {
-            if (bitmap != null && !bitmap.isRecycled()) {
-                bitmap.recycle();
-            }
+            pool.release(bitmap);
         }
         
         return merged;
     }
     
     /**
-     * 从单个相机获取画面
+     * 由目标体积推算单个格子的尺寸
+     * 按模型预测的每像素字节数（规划质量下）换算出总像素预算，再平均分给各格子
+     * 
+     * @return {宽, 高}
      */
-    private Bitmap captureSingleCamera(SingleCamera camera) {
-        // 获取 TextureView（通过反射或公开方法）
-        // 由于 SingleCamera 类的设计，我们需要在主线程获取 Bitmap
-        // 这里假设 camera 有提供获取 Bitmap 的方法
+    private int[] planTileSize(int sourceWidth, int sourceHeight, int cameraCount, int targetSizeKB) {
+        if (targetSizeKB <= 0) {
+            return new int[]{sourceWidth, sourceHeight};
+        }
+        int cells = cameraCount <= 1 ? 1 : (cameraCount == 2 ? 2 : 4);
+        double bytesPerPixel = sizeModel.predictBytesPerPixel(modelKey(cameraCount), PLANNING_QUALITY);
+        double targetPixels = targetSizeKB * 1024.0 / bytesPerPixel;
+        double scale = Math.min(1.0, Math.sqrt(targetPixels / ((double) sourceWidth * sourceHeight * cells)));
         
+        int tileW = (int) Math.round(sourceWidth * scale);
+        tileW = Math.min(sourceWidth, Math.max(MIN_TILE_WIDTH, tileW)) & ~1;
+        int tileH = Math.max(2, (int) Math.round((double) tileW * sourceHeight / sourceWidth) & ~1);
+        AppLog.d(TAG, "目标 " + targetSizeKB + "KB，格子尺寸: " + tileW + "x" + tileH
+                + " (原始 " + sourceWidth + "x" + sourceHeight + ")");
+        return new int[]{tileW, tileH};
+    }
+    
+    /**
+     * 从单个相机按格子尺寸获取画面
+     */
+    private Bitmap captureSingleCamera(SingleCamera camera, int width, int height) {
         Size previewSize = camera.getPreviewSize();
         if (previewSize == null) {
             AppLog.w(TAG, "相机 " + camera.getCameraId() + " 预览尺寸未知");
             return null;
         }
         
-        // 使用 SingleCamera 内部的方法获取 Bitmap
-        // 注意：这需要在 SingleCamera 中添加一个公开方法
-        return camera.captureBitmap();
+        // 必须在主线程调用（TextureView 回读）
+        return camera.captureBitmap(width, height);
     }
     
     /**
-     * 拼接 Bitmap
-     * - 1张：原图
+     * 拼接 Bitmap（RGB_565 缓冲，JPEG 不需要透明通道）
      * - 2张：横向拼接 (W*2, H)
      * - 3-4张：四宫格 (W*2, H*2)
      * 
-     * @param bitmaps Bitmap 列表
-     * @return 拼接后的 Bitmap
+     * @param bitmaps Bitmap 列表（至少 2 张）
+     * @return 拼接后的 Bitmap（借自 BitmapPool）
      */
-    private Bitmap mergeBitmaps(List<Bitmap> bitmaps) {
+    private Bitmap mergeBitmaps(List<Bitmap> bitmaps, int w, int h) {
         int count = bitmaps.size();
-        Bitmap first = bitmaps.get(0);
-        int w = first.getWidth();
-        int h = first.getHeight();
+        int rows = count == 2 ? 1 : 2;
         
         AppLog.d(TAG, "拼接 " + count + " 张图片，单张尺寸: " + w + "x" + h);
         
-        if (count == 1) {
-            // 单张图片，直接复制返回
-            return first.copy(Bitmap.Config.ARGB_8888, false);
-        }
-        
-        if (count == 2) {
-            // 横向拼接
-            Bitmap result = Bitmap.createBitmap(w * 2, h, Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(result);
-            canvas.drawBitmap(bitmaps.get(0), 0, 0, null);
-            canvas.drawBitmap(bitmaps.get(1), w, 0, null);
-            AppLog.d(TAG, "横向拼接完成，尺寸: " + (w * 2) + "x" + h);
-            return result;
-        }
-        
-        // 四宫格 (3或4张)
-        Bitmap result = Bitmap.createBitmap(w * 2, h * 2, Bitmap.Config.ARGB_8888);
+        Bitmap result = BitmapPool.getInstance().acquire(w * 2, h * rows, Bitmap.Config.RGB_565,
+                count == 2 ? "heartbeatMerge2" : "heartbeatMerge4");
         Canvas canvas = new Canvas(result);
-        canvas.drawColor(Color.BLACK); // 背景色（3摄时右下角填黑）
+        if (count < 4) {
+            canvas.drawColor(Color.BLACK); // 背景色（3摄时右下角填黑）
+        }
         
-        // 左上
-        canvas.drawBitmap(bitmaps.get(0), 0, 0, null);
-        // 右上
-        canvas.drawBitmap(bitmaps.get(1), w, 0, null);
-        // 左下
-        canvas.drawBitmap(bitmaps.get(2), 0, h, null);
-        // 右下（如果有第4张）
-        if (count >= 4) {
-            canvas.drawBitmap(bitmaps.get(3), w, h, null);
+        // 按 左上、右上、左下、右下 顺序放置；尺寸不一致的画面缩放到格子内
+        Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        Rect cell = new Rect();
+        for (int i = 0; i < Math.min(count, 4); i++) {
+            int left = (i % 2) * w;
+            int top = (i / 2) * h;
+            cell.set(left, top, left + w, top + h);
+            canvas.drawBitmap(bitmaps.get(i), null, cell, paint);
         }
         
-        AppLog.d(TAG, "四宫格拼接完成，尺寸: " + (w * 2) + "x" + (h * 2));
+        AppLog.d(TAG, "拼接完成，尺寸: " + result.getWidth() + "x" + result.getHeight());
         return result;
     }
     
+    /**
+     * 质量-体积模型的分组键（按拼接路数）
+     */
+    private static String modelKey(int cameraCount) {
+        return "tiles:" + Math.min(cameraCount, 4);
+    }
+    
     /**
      * 压缩 Bitmap 到目标大小
-     * 使用二分法动态调整 JPEG 质量
+     * 根据 {@link JpegSizeModel} 中以往心跳的质量-体积观测直接预测质量，通常一到两次编码即可命中；
+     * 预测质量低于可接受下限时先缩小图片，而不是把质量压到很低。
      * 
      * @param bitmap 原图
      * @param targetSizeKB 目标大小（KB），0 表示不压缩
-     * @return 压缩后的 byte[]
+     * @param cameraCount 拼接路数（选择对应的质量-体积模型）
+     * @return 编码结果（含实际输出尺寸），失败返回 null
      */
-    public byte[] compressToTargetSize(Bitmap bitmap, int targetSizeKB) {
+    public EncodedImage compressToTargetSize(Bitmap bitmap, int targetSizeKB, int cameraCount) {
         if (bitmap == null) {
             return null;
         }
@@ -156,54 +233,98 @@ public class HeartbeatImageProcessor {
         // 不压缩：使用 95% 质量
         if (targetSizeKB <= 0) {
             AppLog.d(TAG, "不压缩模式，使用 95% 质量");
-            return compressWithQuality(bitmap, 95);
+            return new EncodedImage(compressWithQuality(bitmap, 95),
+                    bitmap.getWidth(), bitmap.getHeight(), 95, 1);
         }
         
+        String key = modelKey(cameraCount);
         int targetSizeBytes = targetSizeKB * 1024;
-        int minQualityLimit = 10;  // 最低质量限制
-        int minQuality = minQualityLimit;
-        int maxQuality = 95;
-        int quality = 70; // 初始质量
-        byte[] result = null;
-        int iterations = 0;
-        int maxIterations = 6;  // 最多6次迭代，足够覆盖10-95范围
-        
-        // 二分法查找最佳质量
-        while (minQuality <= maxQuality && iterations < maxIterations) {
-            iterations++;
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            bitmap.compress(Bitmap.CompressFormat.JPEG, quality, baos);
-            result = baos.toByteArray();
-            
-            int currentSize = result.length;
-            int currentSizeKB = currentSize / 1024;
-            
-            // 容差：目标的 20% 或 20KB，取较大值，让它更早收敛
-            int tolerance = Math.max(20, targetSizeKB / 5);
-            if (Math.abs(currentSizeKB - targetSizeKB) <= tolerance) {
-                AppLog.d(TAG, "压缩完成: 质量=" + quality + ", 大小=" + currentSizeKB + "KB (目标=" + targetSizeKB + "KB), 迭代=" + iterations);
-                break;
+        // 容差：目标的 20% 或 20KB，取较大值
+        int toleranceBytes = Math.max(20 * 1024, targetSizeBytes / 5);
+        
+        Bitmap source = bitmap;
+        long pixels = (long) bitmap.getWidth() * bitmap.getHeight();
+        int quality = sizeModel.predictQuality(key, pixels, targetSizeBytes);
+        
+        // 可接受质量下无法达到目标：先缩小分辨率
+        if (quality < MIN_ACCEPTABLE_QUALITY) {
+            double bytesAtMin = sizeModel.predictBytes(key, MIN_ACCEPTABLE_QUALITY, pixels);
+            double scale = Math.max(MIN_SCALE, Math.min(1.0, Math.sqrt(targetSizeBytes / bytesAtMin)));
+            if (scale < 0.95) {
+                source = downscale(bitmap, scale);
+                pixels = (long) source.getWidth() * source.getHeight();
+                quality = sizeModel.predictQuality(key, pixels, targetSizeBytes);
+                AppLog.d(TAG, "预测质量过低，先缩放到 " + source.getWidth() + "x" + source.getHeight());
             }
-            
-            // 如果已经到最低质量，就不再降了
-            if (quality <= minQualityLimit) {
-                AppLog.d(TAG, "已达最低质量 " + minQualityLimit + "%, 大小=" + currentSizeKB + "KB (目标=" + targetSizeKB + "KB)");
-                break;
+        }
+        
+        byte[] best = null;
+        int bestQuality = quality;
+        int passes = 0;
+        try {
+            while (passes < MAX_PASSES) {
+                passes++;
+                byte[] data = compressWithQuality(source, quality);
+                sizeModel.record(key, quality, pixels, data.length);
+                
+                if (isBetter(data, best, targetSizeBytes, toleranceBytes)) {
+                    best = data;
+                    bestQuality = quality;
+                }
+                
+                int diff = data.length - targetSizeBytes;
+                if (Math.abs(diff) <= toleranceBytes
+                        || (diff < 0 && quality >= JpegSizeModel.MAX_QUALITY)
+                        || (diff > 0 && quality <= JpegSizeModel.MIN_QUALITY)) {
+                    break;
+                }
+                
+                // 用刚得到的观测修正模型后重新预测
+                int next = sizeModel.predictQuality(key, pixels, targetSizeBytes);
+                if (next == quality) {
+                    next = diff > 0 ? quality - 5 : quality + 5;
+                }
+                quality = Math.max(JpegSizeModel.MIN_QUALITY, Math.min(JpegSizeModel.MAX_QUALITY, next));
             }
             
-            if (currentSize > targetSizeBytes) {
-                maxQuality = quality - 1;
-            } else {
-                minQuality = quality + 1;
+            AppLog.d(TAG, "压缩完成: 质量=" + bestQuality + ", 大小=" + (best.length / 1024) + "KB (目标="
+                    + targetSizeKB + "KB), 尺寸=" + source.getWidth() + "x" + source.getHeight() + ", 编码次数=" + passes);
+            return new EncodedImage(best, source.getWidth(), source.getHeight(), bestQuality, passes);
+        } finally {
+            if (source != bitmap) {
+                BitmapPool.getInstance().release(source);
             }
-            quality = Math.max(minQualityLimit, (minQuality + maxQuality) / 2);
         }
-        
-        if (result != null) {
-            AppLog.d(TAG, "最终压缩结果: " + (result.length / 1024) + "KB, 迭代次数: " + iterations);
+    }
+    
+    /**
+     * 候选结果是否优于当前最佳：优先选不超过目标+容差的最大结果，都超出时选最小的
+     */
+    private static boolean isBetter(byte[] candidate, byte[] best, int target, int tolerance) {
+        if (best == null) {
+            return true;
         }
-        
-        return result;
+        int limit = target + tolerance;
+        boolean candidateFits = candidate.length <= limit;
+        boolean bestFits = best.length <= limit;
+        if (candidateFits != bestFits) {
+            return candidateFits;
+        }
+        return candidateFits ? candidate.length > best.length : candidate.length < best.length;
+    }
+    
+    /**
+     * 按比例缩小（目标 Bitmap 借自 BitmapPool）
+     */
+    private static Bitmap downscale(Bitmap bitmap, double scale) {
+        int width = Math.max(1, (int) Math.round(bitmap.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(bitmap.getHeight() * scale));
+        Bitmap.Config config = bitmap.getConfig() == Bitmap.Config.RGB_565
+                ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        Bitmap scaled = BitmapPool.getInstance().acquire(width, height, config, "heartbeatScale");
+        Canvas canvas = new Canvas(scaled);
+        canvas.drawBitmap(bitmap, null, new Rect(0, 0, width, height), new Paint(Paint.FILTER_BITMAP_FLAG));
+        return scaled;
     }
     
     /**
@@ -2,13 +2,19 @@ package com.kooo.evcam.heartbeat;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.PowerManager;
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.camera.BitmapPool;
+import com.kooo.evcam.camera.SceneChangeDetector;
 import com.kooo.evcam.camera.SingleCamera;
+import com.kooo.evcam.remote.core.HttpStatusException;
 
+import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -32,6 +38,15 @@ public class HeartbeatManager {
     private final Handler mainHandler;
     private final ExecutorService executor;
     
+    // 画面变化检测（驻车画面不变时只发送状态，不重复上传图片）
+    private static final String SCENE_KEY = "heartbeat";
+    private static final long SCENE_FORCE_REFRESH_MS = 30 * 60 * 1000;  // 至少每30分钟上传一次图片
+    private final SceneChangeDetector sceneDetector = new SceneChangeDetector(SCENE_FORCE_REFRESH_MS);
+    
+    // 持久化发件箱（离线时缓存心跳，网络恢复后补发）
+    private final HeartbeatOutbox outbox;
+    private ConnectivityManager.NetworkCallback networkCallback;
+    
     // 状态
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
     private final AtomicBoolean isForeground = new AtomicBoolean(false);
@@ -107,9 +122,40 @@ public class HeartbeatManager {
         this.apiClient = new HeartbeatApiClient();
         this.mainHandler = new Handler(Looper.getMainLooper());
         this.executor = Executors.newSingleThreadExecutor();
+        this.outbox = new HeartbeatOutbox(this.context);
         
         // 检测当前屏幕状态（开机时可能是息屏状态）
         detectInitialScreenState();
+        registerNetworkCallback();
+    }
+    
+    /**
+     * 监听网络恢复：清除退避并立即补发缓存的心跳
+     */
+    private void registerNetworkCallback() {
+        try {
+            ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (cm == null) {
+                return;
+            }
+            networkCallback = new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    executor.execute(() -> {
+                        if (!outbox.hasPending() || !config.isConfigured()) {
+                            return;
+                        }
+                        AppLog.d(TAG, "网络已连接，补发缓存的心跳");
+                        outbox.resetBackoff();
+                        deliverOutbox(System.currentTimeMillis());
+                    });
+                }
+            };
+            cm.registerDefaultNetworkCallback(networkCallback);
+        } catch (Exception e) {
+            AppLog.e(TAG, "注册网络监听失败", e);
+            networkCallback = null;
+        }
     }
     
     /**
@@ -327,6 +373,21 @@ public class HeartbeatManager {
             return;
         }
         
+        // 网络已持续不可用：不唤醒相机，只记录状态
+        if (outbox.shouldSkipCapture(System.currentTimeMillis())) {
+            AppLog.d(TAG, "息屏推图：网络持续不可用，跳过唤醒");
+            if (!isExecuting.getAndSet(true)) {
+                executor.execute(() -> {
+                    try {
+                        doOfflineHeartbeat();
+                    } finally {
+                        isExecuting.set(false);
+                    }
+                });
+            }
+            return;
+        }
+        
         boolean inBackground = activityController.isInBackground();
         boolean hasCameras = activityController.hasCamerasConnected();
         
@@ -563,6 +624,17 @@ public class HeartbeatManager {
     public void destroy() {
         stop();
         stopScreenOffHeartbeat();
+        if (networkCallback != null) {
+            try {
+                ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+                if (cm != null) {
+                    cm.unregisterNetworkCallback(networkCallback);
+                }
+            } catch (Exception e) {
+                AppLog.w(TAG, "注销网络监听失败: " + e.getMessage());
+            }
+            networkCallback = null;
+        }
         executor.shutdown();
     }
     
@@ -650,6 +722,12 @@ public class HeartbeatManager {
         long startTime = System.currentTimeMillis();
         AppLog.d(TAG, "开始执行心跳...");
         
+        // 网络已持续不可用：跳过抓图和压缩
+        if (outbox.shouldSkipCapture(startTime)) {
+            doOfflineHeartbeat();
+            return;
+        }
+        
         try {
             // 1. 获取相机列表
             List<SingleCamera> cameras = camerasList;
@@ -679,7 +757,7 @@ public class HeartbeatManager {
             mainHandler.post(() -> {
                 synchronized (mergedHolder) {
                     try {
-                        mergedHolder[0] = imageProcessor.captureAndMerge(finalCameras);
+                        mergedHolder[0] = imageProcessor.captureAndMerge(finalCameras, config.getTargetSizeKB());
                     } catch (Exception e) {
                         AppLog.e(TAG, "捕获图片异常: " + e.getMessage());
                     }
@@ -708,19 +786,33 @@ public class HeartbeatManager {
                 return;
             }
             
-            int imageWidth = merged.getWidth();
-            int imageHeight = merged.getHeight();
             int cameraCount = cameras.size();
             
-            // 3. 压缩图片
-            byte[] imageBytes = imageProcessor.compressToTargetSize(merged, config.getTargetSizeKB());
-            merged.recycle();
-            
-            if (imageBytes == null || imageBytes.length == 0) {
-                AppLog.w(TAG, "图片压缩失败");
-                notifyFailed("图片压缩失败");
-                return;
+            // 3. 画面无变化时跳过压缩，只发送状态
+            boolean sceneChanged = sceneDetector.shouldSend(SCENE_KEY, SceneChangeDetector.computeLuma(merged));
+            byte[] imageBytes = null;
+            int imageWidth = merged.getWidth();
+            int imageHeight = merged.getHeight();
+            if (sceneChanged) {
+                // 压缩图片（可能先缩小分辨率，尺寸以编码结果为准）
+                HeartbeatImageProcessor.EncodedImage encoded =
+                        imageProcessor.compressToTargetSize(merged, config.getTargetSizeKB(), cameraCount);
+                BitmapPool.getInstance().release(merged);
+                
+                if (encoded == null || encoded.data == null || encoded.data.length == 0) {
+                    sceneDetector.invalidate(SCENE_KEY);
+                    AppLog.w(TAG, "图片压缩失败");
+                    notifyFailed("图片压缩失败");
+                    return;
+                }
+                imageBytes = encoded.data;
+                imageWidth = encoded.width;
+                imageHeight = encoded.height;
+            } else {
+                BitmapPool.getInstance().release(merged);
+                AppLog.d(TAG, "画面无明显变化，本次心跳仅发送状态");
             }
+            AppLog.d(TAG, "Bitmap 复用池: " + BitmapPool.getInstance().getStatsSummary());
             
             // 4. 获取 App 状态
             String appStatus = null;
@@ -728,39 +820,86 @@ public class HeartbeatManager {
                 appStatus = statusProvider.getAppStatusJson();
             }
             
-            // 5. 发送请求
+            // 5. 写入发件箱后发送（连同之前未送达的记录一起按顺序补发）
+            outbox.enqueue(startTime, imageBytes, imageWidth, imageHeight, cameraCount, appStatus);
+            AppLog.d(TAG, "心跳已入队, 图片: "
+                    + (imageBytes != null ? (imageBytes.length / 1024) + "KB" : "无变化"));
+            deliverOutbox(startTime);
+            
+        } catch (Exception e) {
+            config.incrementFailCount();
+            config.setLastError(e.getMessage());
+            AppLog.e(TAG, "心跳执行异常: " + e.getMessage(), e);
+            notifyFailed(e.getMessage());
+        }
+    }
+    
+    /**
+     * 离线心跳：网络已持续不可用时不抓图，只记录状态，到了退避时间再尝试补发
+     */
+    private void doOfflineHeartbeat() {
+        long now = System.currentTimeMillis();
+        String appStatus = statusProvider != null ? statusProvider.getAppStatusJson() : null;
+        outbox.enqueue(now, null, 0, 0, 0, appStatus);
+        
+        if (outbox.isAttemptDue(now)) {
+            deliverOutbox(now);
+        } else {
+            AppLog.d(TAG, "网络不可用，心跳已缓存（待发 " + outbox.getPendingCount() + " 条）");
+            notifyFailed("网络不可用，已缓存 " + outbox.getPendingCount() + " 条");
+        }
+    }
+    
+    /**
+     * 按顺序发送发件箱中的心跳（仍处于退避期时不发送）
+     */
+    private void deliverOutbox(long startTime) {
+        if (!outbox.isAttemptDue(System.currentTimeMillis())) {
+            AppLog.d(TAG, "心跳发送处于退避期，待发 " + outbox.getPendingCount() + " 条");
+            notifyFailed("网络不可用，已缓存 " + outbox.getPendingCount() + " 条");
+            return;
+        }
+        
+        final String[] lastError = new String[1];
+        int pending = outbox.getPendingCount();
+        int delivered = outbox.flush((record, imageBytes) -> {
             HeartbeatApiClient.HeartbeatResult result = apiClient.sendHeartbeat(
                     config.getServerUrl(),
                     config.getVehicleId(),
                     config.getSecretKey(),
                     imageBytes,
-                    imageWidth,
-                    imageHeight,
-                    cameraCount,
-                    appStatus
+                    record.imageWidth,
+                    record.imageHeight,
+                    record.cameraCount,
+                    record.appStatus,
+                    record.capturedAt
             );
-            
-            // 6. 更新统计
-            long now = System.currentTimeMillis();
-            config.setLastUploadTime(now);
-            
-            if (result.success) {
-                config.incrementSuccessCount();
-                long duration = now - startTime;
-                AppLog.i(TAG, "心跳成功，耗时: " + duration + "ms, 图片: " + (imageBytes.length / 1024) + "KB");
-                notifySuccess(now);
-            } else {
-                config.incrementFailCount();
-                config.setLastError(result.message);
-                AppLog.w(TAG, "心跳失败: " + result.message);
-                notifyFailed(result.message);
+            if (!result.success) {
+                lastError[0] = result.message;
+                if (result.httpCode != 0) {
+                    throw new HttpStatusException(result.httpCode, result.message);
+                }
+                throw new IOException(result.message);
             }
-            
-        } catch (Exception e) {
+        });
+        
+        // 更新统计
+        long now = System.currentTimeMillis();
+        if (delivered > 0) {
+            config.setLastUploadTime(now);
+        }
+        
+        if (delivered >= pending) {
+            config.incrementSuccessCount();
+            AppLog.i(TAG, "心跳成功，耗时: " + (now - startTime) + "ms, 送达 " + delivered + " 条");
+            notifySuccess(now);
+        } else {
+            String error = (lastError[0] != null ? lastError[0] : "发送失败")
+                    + "，已缓存 " + outbox.getPendingCount() + " 条";
             config.incrementFailCount();
-            config.setLastError(e.getMessage());
-            AppLog.e(TAG, "心跳执行异常: " + e.getMessage(), e);
-            notifyFailed(e.getMessage());
+            config.setLastError(error);
+            AppLog.w(TAG, "心跳失败: " + error);
+            notifyFailed(error);
         }
     }
     
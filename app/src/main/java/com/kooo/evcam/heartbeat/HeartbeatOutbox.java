@@ -0,0 +1,445 @@
+package com.kooo.evcam.heartbeat;
+
+import android.content.Context;
+
+import com.kooo.evcam.AppLog;
+import com.kooo.evcam.remote.core.HttpStatusException;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 心跳发件箱（持久化、有界）
+ * 每次心跳先写入磁盘再发送，网络不通时（如地下车库）记录保留下来，恢复后按时间顺序批量补发。
+ *
+ * - 记录为小 JSON 文件，图片按 SHA-1 去重存放，多条记录可引用同一张图片；
+ *   补发时与上一条已送达记录图片相同的，只发送状态（sceneUnchanged）
+ * - 条数和图片总大小有上限，超出时丢弃最旧的记录
+ * - 网络错误、408/429/5xx 按指数退避 + 随机抖动推迟下一次尝试；连续失败一段时间后判定为离线，
+ *   心跳跳过唤醒相机和压缩，只记录状态
+ * - 服务器明确拒绝的记录（400、401/403 等其他状态码）重发也不会成功，直接丢弃并继续发送后面的记录，
+ *   不计入退避和离线判断
+ *
+ * 除 {@link #shouldSkipCapture} 外，所有方法在心跳单线程执行器中调用。
+ */
+public class HeartbeatOutbox {
+    private static final String TAG = "HeartbeatOutbox";
+
+    private static final String DIR_NAME = "heartbeat_outbox";
+    private static final String RECORD_SUFFIX = ".hb";
+    private static final String IMAGE_SUFFIX = ".jpg";
+
+    /** 最多保留的记录数 */
+    private static final int MAX_RECORDS = 96;
+
+    /** 图片总大小上限 */
+    private static final long MAX_IMAGE_BYTES = 10L * 1024 * 1024;
+
+    /** 退避基础间隔与上限 */
+    private static final long BACKOFF_BASE_MS = 30 * 1000;
+    private static final long BACKOFF_MAX_MS = 30 * 60 * 1000;
+
+    /** 连续失败达到此次数且持续超过 OFFLINE_AFTER_MS，判定为离线 */
+    private static final int OFFLINE_FAILURES = 3;
+    private static final long OFFLINE_AFTER_MS = 5 * 60 * 1000;
+
+    /**
+     * 一条待发送的心跳
+     */
+    public static class Record {
+        final File file;
+        public final long capturedAt;
+        public final int imageWidth;
+        public final int imageHeight;
+        public final int cameraCount;
+        public final String imageHash;  // null 表示仅状态
+        public final String appStatus;
+
+        Record(File file, long capturedAt, int imageWidth, int imageHeight, int cameraCount,
+               String imageHash, String appStatus) {
+            this.file = file;
+            this.capturedAt = capturedAt;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+            this.cameraCount = cameraCount;
+            this.imageHash = imageHash;
+            this.appStatus = appStatus;
+        }
+    }
+
+    /**
+     * 实际发送（imageBytes 为 null 表示只发送状态）
+     */
+    public interface Sender {
+        /**
+         * @throws HttpStatusException 服务器返回非 2xx，按状态码判断重试还是丢弃
+         * @throws IOException 网络错误，稍后重试
+         */
+        void send(Record record, byte[] imageBytes) throws IOException;
+    }
+
+    private final File dir;
+    private final Random random = new Random();
+
+    // 退避状态：在执行器线程更新，主线程可读取（息屏推图前判断是否离线）
+    private volatile int consecutiveFailures = 0;
+    private volatile long firstFailureAt = 0;
+    private volatile long nextAttemptAt = 0;
+
+    /** 最近一次送达的图片哈希（本进程内），用于补发时去重 */
+    private String lastDeliveredHash;
+
+    private long sequence = 0;
+
+    public HeartbeatOutbox(Context context) {
+        this(new File(context.getFilesDir(), DIR_NAME));
+    }
+
+    HeartbeatOutbox(File dir) {
+        this.dir = dir;
+        if (!dir.exists() && !dir.mkdirs()) {
+            AppLog.w(TAG, "无法创建发件箱目录: " + dir);
+        }
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 写入一条心跳
+     * @param imageBytes JPEG 数据，null 表示仅状态
+     */
+    public void enqueue(long capturedAt, byte[] imageBytes, int imageWidth, int imageHeight,
+                        int cameraCount, String appStatus) {
+        String hash = null;
+        try {
+            if (imageBytes != null) {
+                hash = sha1(imageBytes);
+                File image = new File(dir, hash + IMAGE_SUFFIX);
+                if (!image.exists()) {
+                    writeAtomically(image, imageBytes);
+                }
+            }
+            JSONObject json = new JSONObject();
+            json.put("capturedAt", capturedAt);
+            json.put("width", imageWidth);
+            json.put("height", imageHeight);
+            json.put("cameras", cameraCount);
+            if (hash != null) json.put("image", hash);
+            if (appStatus != null) json.put("status", appStatus);
+
+            // 文件名按时间 + 序号排序，保证补发顺序
+            String name = String.format(java.util.Locale.US, "%013d_%04d", capturedAt, (sequence++) % 10000);
+            writeAtomically(new File(dir, name + RECORD_SUFFIX), json.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            AppLog.e(TAG, "写入发件箱失败: " + e.getMessage());
+        }
+        trim();
+    }
+
+    // ==================== 发送 ====================
+
+    /**
+     * 按时间顺序补发所有记录，遇到第一条可重试的失败即停止并进入退避；被服务器拒绝的记录丢弃后继续
+     * @return 本次送达的条数
+     */
+    public int flush(Sender sender) {
+        List<Record> records = loadRecords();
+        int delivered = 0;
+        int rejected = 0;
+        boolean retryLater = false;
+        for (Record record : records) {
+            byte[] image = null;
+            if (record.imageHash != null && !record.imageHash.equals(lastDeliveredHash)) {
+                image = readImage(record.imageHash);
+                if (image == null) {
+                    AppLog.w(TAG, "记录引用的图片已丢失，按仅状态发送");
+                }
+            }
+            try {
+                sender.send(record, image);
+            } catch (Exception e) {
+                if (isRetryable(e)) {
+                    AppLog.e(TAG, "发送心跳失败: " + e.getMessage());
+                    retryLater = true;
+                    onFailure();
+                    break;
+                }
+                AppLog.w(TAG, "心跳被服务器拒绝，丢弃该记录: " + e.getMessage());
+                if (!record.file.delete()) {
+                    AppLog.w(TAG, "删除被拒绝的记录失败: " + record.file.getName());
+                }
+                rejected++;
+                continue;
+            }
+            if (image != null) {
+                lastDeliveredHash = record.imageHash;
+            }
+            if (!record.file.delete()) {
+                AppLog.w(TAG, "删除已送达记录失败: " + record.file.getName());
+            }
+            delivered++;
+        }
+        if (!retryLater) {
+            // 包括全部被拒绝的情况：服务器可达，网络正常
+            onSuccess();
+        }
+        if (delivered > 0 || rejected > 0) {
+            removeOrphanImages();
+            if (delivered > 1) {
+                AppLog.i(TAG, "补发心跳 " + delivered + " 条");
+            }
+        }
+        return delivered;
+    }
+
+    // ==================== 退避与离线判断 ====================
+
+    /**
+     * 是否值得稍后重发：网络错误和 408/429/5xx；其他状态码（400 数据错误、401/403 配置错误等）重发也不会成功
+     */
+    static boolean isRetryable(Exception e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof HttpStatusException) {
+                int code = ((HttpStatusException) t).getStatusCode();
+                return code == 408 || code == 429 || code >= 500;
+            }
+        }
+        return e instanceof IOException;
+    }
+
+    /**
+     * 是否已到下一次发送尝试的时间
+     */
+    public boolean isAttemptDue(long now) {
+        return now >= nextAttemptAt;
+    }
+
+    /**
+     * 网络已持续不可用：跳过相机唤醒和压缩
+     */
+    public boolean shouldSkipCapture(long now) {
+        return consecutiveFailures >= OFFLINE_FAILURES && now - firstFailureAt >= OFFLINE_AFTER_MS;
+    }
+
+    /**
+     * 网络恢复时调用：清除退避，立即允许发送
+     */
+    public void resetBackoff() {
+        nextAttemptAt = 0;
+    }
+
+    public boolean hasPending() {
+        String[] names = dir.list((d, name) -> name.endsWith(RECORD_SUFFIX));
+        return names != null && names.length > 0;
+    }
+
+    public int getPendingCount() {
+        String[] names = dir.list((d, name) -> name.endsWith(RECORD_SUFFIX));
+        return names != null ? names.length : 0;
+    }
+
+    private void onFailure() {
+        long now = System.currentTimeMillis();
+        if (consecutiveFailures == 0) {
+            firstFailureAt = now;
+        }
+        consecutiveFailures++;
+        long backoff = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(consecutiveFailures - 1, 10));
+        // 抖动：0.5x ~ 1.5x，避免多车同时恢复时集中重连
+        long jittered = (long) (backoff * (0.5 + random.nextDouble()));
+        nextAttemptAt = now + jittered;
+        AppLog.w(TAG, "心跳发送失败 " + consecutiveFailures + " 次，" + (jittered / 1000) + " 秒后重试，待发 "
+                + getPendingCount() + " 条");
+    }
+
+    private void onSuccess() {
+        if (consecutiveFailures > 0) {
+            AppLog.i(TAG, "网络恢复，离线 " + ((System.currentTimeMillis() - firstFailureAt) / 1000) + " 秒");
+        }
+        consecutiveFailures = 0;
+        firstFailureAt = 0;
+        nextAttemptAt = 0;
+    }
+
+    // ==================== 存储 ====================
+
+    private List<Record> loadRecords() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(RECORD_SUFFIX));
+        List<Record> records = new ArrayList<>();
+        if (files == null) {
+            return records;
+        }
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        for (File file : files) {
+            try {
+                byte[] data = readFile(file);
+                JSONObject json = new JSONObject(new String(data, StandardCharsets.UTF_8));
+                records.add(new Record(file,
+                        json.getLong("capturedAt"),
+                        json.optInt("width"),
+                        json.optInt("height"),
+                        json.optInt("cameras"),
+                        json.has("image") ? json.getString("image") : null,
+                        json.has("status") ? json.getString("status") : null));
+            } catch (Exception e) {
+                AppLog.w(TAG, "丢弃损坏的记录: " + file.getName());
+                file.delete();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 超出条数或图片总大小上限时丢弃最旧的记录
+     * 记录只读取一次，按图片引用计数判断丢弃记录后哪些图片可以删除
+     */
+    private void trim() {
+        List<Record> records = loadRecords();
+        Map<String, Integer> refs = new HashMap<>();
+        for (Record record : records) {
+            if (record.imageHash != null) {
+                Integer count = refs.get(record.imageHash);
+                refs.put(record.imageHash, count == null ? 1 : count + 1);
+            }
+        }
+
+        int first = 0;
+        int excess = records.size() - MAX_RECORDS;
+        for (; first < excess; first++) {
+            dropRecord(records.get(first), refs);
+        }
+
+        // 删除孤立图片并统计剩余图片总量
+        long imageBytes = 0;
+        Map<String, Long> imageSizes = new HashMap<>();
+        File[] images = dir.listFiles((d, name) -> name.endsWith(IMAGE_SUFFIX));
+        if (images != null) {
+            for (File image : images) {
+                String hash = image.getName().substring(0, image.getName().length() - IMAGE_SUFFIX.length());
+                if (refs.containsKey(hash)) {
+                    imageSizes.put(hash, image.length());
+                    imageBytes += image.length();
+                } else {
+                    image.delete();
+                }
+            }
+        }
+        if (imageBytes <= MAX_IMAGE_BYTES) {
+            return;
+        }
+        // 从最旧的记录开始丢弃，直到图片总量回到上限以内
+        for (int i = first; i < records.size() && imageBytes > MAX_IMAGE_BYTES; i++) {
+            String hash = dropRecord(records.get(i), refs);
+            if (hash != null) {
+                Long size = imageSizes.remove(hash);
+                if (size != null) {
+                    imageBytes -= size;
+                    new File(dir, hash + IMAGE_SUFFIX).delete();
+                }
+            }
+        }
+        AppLog.w(TAG, "发件箱超出容量，已丢弃最旧的记录");
+    }
+
+    /**
+     * 删除一条记录并减少其图片的引用计数
+     * @return 不再被引用的图片哈希，没有返回 null
+     */
+    private static String dropRecord(Record record, Map<String, Integer> refs) {
+        record.file.delete();
+        if (record.imageHash == null) {
+            return null;
+        }
+        Integer count = refs.get(record.imageHash);
+        if (count == null || count <= 1) {
+            refs.remove(record.imageHash);
+            return record.imageHash;
+        }
+        refs.put(record.imageHash, count - 1);
+        return null;
+    }
+
+    /**
+     * 删除不再被任何记录引用的图片
+     * @return 释放的字节数
+     */
+    private long removeOrphanImages() {
+        Set<String> referenced = new HashSet<>();
+        for (Record record : loadRecords()) {
+            if (record.imageHash != null) {
+                referenced.add(record.imageHash + IMAGE_SUFFIX);
+            }
+        }
+        long freed = 0;
+        File[] images = dir.listFiles((d, name) -> name.endsWith(IMAGE_SUFFIX));
+        if (images != null) {
+            for (File image : images) {
+                if (!referenced.contains(image.getName())) {
+                    freed += image.length();
+                    image.delete();
+                }
+            }
+        }
+        return freed;
+    }
+
+    private byte[] readImage(String hash) {
+        File file = new File(dir, hash + IMAGE_SUFFIX);
+        try {
+            return file.exists() ? readFile(file) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int n = in.read(data, offset, data.length - offset);
+                if (n < 0) throw new IOException("unexpected EOF");
+                offset += n;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * 先写临时文件再重命名，断电时不会留下半截记录
+     */
+    private static void writeAtomically(File target, byte[] data) throws IOException {
+        File tmp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("rename failed: " + target.getName());
+        }
+    }
+
+    private static String sha1(byte[] data) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,165 @@
+package com.kooo.evcam.heartbeat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JPEG 质量 → 体积预测模型
+ * 按分组键（心跳按拼接路数分组，如 "tiles:4"）分别记录最近几次心跳的 (质量, 每像素字节数) 观测，
+ * 观测按像素归一化，格子尺寸随目标体积调整后仍可复用，
+ * 用于直接预测命中目标体积所需的质量，代替每次从 70% 开始的二分搜索。
+ *
+ * - 有两个以上观测：在 (质量, ln 体积) 上分段线性插值/外推
+ * - 只有一个观测：用通用 JPEG 体积曲线的形状，按该观测缩放
+ * - 没有观测：用通用曲线和默认每像素字节数
+ *
+ * 纯 Java 实现，不依赖 Android，便于在 JVM 上回放记录下来的体积曲线。
+ * 非线程安全，由调用方（心跳单线程执行器）串行使用。
+ */
+public class JpegSizeModel {
+
+    public static final int MIN_QUALITY = 10;
+    public static final int MAX_QUALITY = 95;
+
+    /** 每个布局保留的观测数（画面内容随时间变化，旧观测逐渐失效） */
+    private static final int MAX_SAMPLES = 6;
+
+    /** 无任何观测时，质量 75 下的每像素字节数（车机摄像头画面的经验值） */
+    private static final double DEFAULT_BPP_AT_75 = 0.12;
+
+    /**
+     * 通用 JPEG 体积曲线：质量 → 相对体积（以质量 75 为 1.0）
+     */
+    private static final int[] CURVE_QUALITY = {10, 20, 30, 40, 50, 60, 70, 75, 80, 85, 90, 95};
+    private static final double[] CURVE_RELATIVE = {0.25, 0.36, 0.45, 0.52, 0.60, 0.70, 0.85, 1.0, 1.15, 1.40, 1.90, 2.80};
+
+    private static final class Sample {
+        final int quality;
+        final double bytesPerPixel;
+
+        Sample(int quality, double bytesPerPixel) {
+            this.quality = quality;
+            this.bytesPerPixel = bytesPerPixel;
+        }
+    }
+
+    private final Map<String, List<Sample>> samples = new HashMap<>();
+
+    /**
+     * 记录一次实际编码结果
+     */
+    public void record(String key, int quality, long pixels, int bytes) {
+        if (pixels <= 0 || bytes <= 0) {
+            return;
+        }
+        List<Sample> list = samples.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            samples.put(key, list);
+        }
+        double bytesPerPixel = (double) bytes / pixels;
+        // 同一质量只保留最新观测；画面内容变化（如天黑）后与新观测矛盾的旧观测
+        // （质量更低体积却不更小，或质量更高体积却不更大）一并丢弃，
+        // 否则它们不会因同质量替换而淘汰，体积曲线不再单调，预测会一直偏离目标
+        for (int i = list.size() - 1; i >= 0; i--) {
+            Sample s = list.get(i);
+            if (s.quality == quality
+                    || (s.quality < quality && s.bytesPerPixel >= bytesPerPixel)
+                    || (s.quality > quality && s.bytesPerPixel <= bytesPerPixel)) {
+                list.remove(i);
+            }
+        }
+        list.add(new Sample(quality, bytesPerPixel));
+        while (list.size() > MAX_SAMPLES) {
+            list.remove(0);
+        }
+    }
+
+    /**
+     * 预测某质量下的编码体积（字节）
+     */
+    public double predictBytes(String key, int quality, long pixels) {
+        return predictBytesPerPixel(key, quality) * pixels;
+    }
+
+    /**
+     * 预测某质量下的每像素字节数
+     */
+    public double predictBytesPerPixel(String key, int quality) {
+        List<Sample> list = samples.get(key);
+        if (list == null || list.isEmpty()) {
+            return DEFAULT_BPP_AT_75 * relativeSize(quality);
+        }
+        if (list.size() == 1) {
+            Sample only = list.get(0);
+            return only.bytesPerPixel * relativeSize(quality) / relativeSize(only.quality);
+        }
+        // 取质量最接近的两个观测，在 ln(bpp) 上线性插值/外推
+        Sample a = null;
+        Sample b = null;
+        for (Sample s : list) {
+            if (a == null || Math.abs(s.quality - quality) < Math.abs(a.quality - quality)) {
+                b = a;
+                a = s;
+            } else if (b == null || Math.abs(s.quality - quality) < Math.abs(b.quality - quality)) {
+                b = s;
+            }
+        }
+        if (a.quality == b.quality) {
+            return a.bytesPerPixel * relativeSize(quality) / relativeSize(a.quality);
+        }
+        double la = Math.log(a.bytesPerPixel);
+        double lb = Math.log(b.bytesPerPixel);
+        double slope = (lb - la) / (b.quality - a.quality);
+        if (slope <= 0) {
+            // 观测噪声导致非单调：退回曲线形状
+            return a.bytesPerPixel * relativeSize(quality) / relativeSize(a.quality);
+        }
+        return Math.exp(la + slope * (quality - a.quality));
+    }
+
+    /**
+     * 预测命中目标体积的最高质量
+     * @return 质量（已限制在 MIN_QUALITY ~ MAX_QUALITY）
+     */
+    public int predictQuality(String key, long pixels, int targetBytes) {
+        // 体积随质量单调递增：二分查找满足 predicted <= target 的最高质量（只做浮点运算，不编码）
+        int lo = MIN_QUALITY;
+        int hi = MAX_QUALITY;
+        if (predictBytes(key, lo, pixels) > targetBytes) {
+            return MIN_QUALITY;
+        }
+        while (lo < hi) {
+            int mid = (lo + hi + 1) / 2;
+            if (predictBytes(key, mid, pixels) <= targetBytes) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    public boolean hasSamples(String key) {
+        List<Sample> list = samples.get(key);
+        return list != null && !list.isEmpty();
+    }
+
+    /**
+     * 通用曲线上的相对体积（分段线性）
+     */
+    static double relativeSize(int quality) {
+        if (quality <= CURVE_QUALITY[0]) {
+            return CURVE_RELATIVE[0];
+        }
+        for (int i = 1; i < CURVE_QUALITY.length; i++) {
+            if (quality <= CURVE_QUALITY[i]) {
+                double t = (double) (quality - CURVE_QUALITY[i - 1]) / (CURVE_QUALITY[i] - CURVE_QUALITY[i - 1]);
+                return CURVE_RELATIVE[i - 1] + t * (CURVE_RELATIVE[i] - CURVE_RELATIVE[i - 1]);
+            }
+        }
+        return CURVE_RELATIVE[CURVE_RELATIVE.length - 1];
+    }
+}
@@ -0,0 +1,262 @@
+package com.kooo.evcam.lan;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * 局域网文件服务：手机连车机热点后批量下载录像和照片，不用拔 U 盘、不受聊天机器人文件大小限制
+ *
+ * - /api/library              文件索引（JSON，按修改时间倒序）
+ * - /files/{目录}/{文件名}      下载文件，支持 Range（断点续传、浏览器内拖动播放）
+ *
+ * 文件正文用 FileChannel.transferTo 直接发往 SocketChannel（内核零拷贝），
+ * 每块发送前向 {@link TransferThrottle} 申请额度，录制中不会抢占存储带宽。
+ *
+ * 不依赖 Android，可以在 JVM 上用本地 HTTP 客户端直接测试。
+ */
+public class LanFileServer {
+
+    /** 每次 transferTo 的块大小（也是限速申请的粒度） */
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * 可下载的目录（每次请求时获取，存储位置切换后立即生效）
+     */
+    public interface Library {
+        /**
+         * @return 目录名 → 目录，如 "videos" → EVCam_Video
+         */
+        Map<String, File> getRoots();
+    }
+
+    private final Library library;
+    private final TransferThrottle throttle;
+
+    public LanFileServer(Library library, TransferThrottle throttle) {
+        this.library = library;
+        this.throttle = throttle;
+    }
+
+    /**
+     * 注册到局域网服务器
+     */
+    public void register(LanHttpServer server) {
+        server.route("/api/library", (request, socket, out) -> serveIndex(request, out));
+        server.route("/files/", this::serveFile);
+    }
+
+    // ==================== 文件索引 ====================
+
+    private void serveIndex(LanHttpServer.Request request, OutputStream out) throws IOException {
+        StringBuilder json = new StringBuilder(4096);
+        json.append('{');
+        boolean firstRoot = true;
+        for (Map.Entry<String, File> root : library.getRoots().entrySet()) {
+            if (!firstRoot) {
+                json.append(',');
+            }
+            firstRoot = false;
+            appendString(json, root.getKey());
+            json.append(":[");
+            File[] files = listDownloadable(root.getValue());
+            Arrays.sort(files, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+            for (int i = 0; i < files.length; i++) {
+                File file = files[i];
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"name\":");
+                appendString(json, file.getName());
+                json.append(",\"size\":").append(file.length());
+                json.append(",\"modified\":").append(file.lastModified());
+                json.append(",\"url\":");
+                appendString(json, "/files/" + root.getKey() + "/" + file.getName());
+                json.append('}');
+            }
+            json.append(']');
+        }
+        json.append('}');
+        LanHttpServer.sendResponse(out, 200, "application/json; charset=utf-8",
+                json.toString().getBytes(StandardCharsets.UTF_8), request.isHead());
+    }
+
+    private static File[] listDownloadable(File dir) {
+        File[] files = dir != null ? dir.listFiles(file -> file.isFile() && !file.getName().startsWith(".")
+                && contentType(file.getName()) != null) : null;
+        return files != null ? files : new File[0];
+    }
+
+    // ==================== 文件下载 ====================
+
+    private void serveFile(LanHttpServer.Request request, Socket socket, OutputStream out) throws IOException {
+        File file = resolve(request.path);
+        if (file == null || !file.isFile()) {
+            LanHttpServer.sendError(out, 404, "not found");
+            return;
+        }
+        long length = file.length();
+        String etag = "\"" + Long.toHexString(file.lastModified()) + "-" + Long.toHexString(length) + "\"";
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Accept-Ranges", "bytes");
+        headers.put("ETag", etag);
+        headers.put("Last-Modified", httpDate(file.lastModified()));
+
+        // If-Range 不匹配（文件已变化）时忽略 Range，返回整个文件
+        String rangeHeader = request.getHeader("range");
+        String ifRange = request.getHeader("if-range");
+        if (ifRange != null && !ifRange.equals(etag)) {
+            rangeHeader = null;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        int status = 200;
+        if (rangeHeader != null) {
+            long[] range = parseRange(rangeHeader, length);
+            if (range != null && range.length == 0) {
+                headers.put("Content-Range", "bytes */" + length);
+                LanHttpServer.writeHeaders(out, 416, "text/plain", 0, headers);
+                out.flush();
+                return;
+            }
+            if (range != null) {
+                start = range[0];
+                end = range[1];
+                status = 206;
+                headers.put("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        long count = length == 0 ? 0 : end - start + 1;
+        LanHttpServer.writeHeaders(out, status, contentType(file.getName()), count, headers);
+        out.flush();
+        if (request.isHead() || count == 0) {
+            return;
+        }
+
+        // SocketChannel 可用时 transferTo 走 sendfile，数据不经过用户态缓冲
+        WritableByteChannel target = socket.getChannel() != null ? socket.getChannel() : Channels.newChannel(out);
+        try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long chunk = Math.min(CHUNK_SIZE, remaining);
+                throttle.acquire(chunk);
+                long sent = channel.transferTo(position, chunk, target);
+                if (sent <= 0) {
+                    // 文件在发送过程中被截断（如存储清理）
+                    throw new IOException("file truncated: " + file.getName());
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        } catch (InterruptedException e) {
+            // 服务停止
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 把 /files/{目录}/{文件名} 解析为文件，拒绝路径穿越
+     */
+    private File resolve(String path) {
+        String rest = path.substring("/files/".length());
+        int slash = rest.indexOf('/');
+        if (slash <= 0) {
+            return null;
+        }
+        File root = library.getRoots().get(rest.substring(0, slash));
+        String name = rest.substring(slash + 1);
+        if (root == null || name.isEmpty() || name.contains("/") || name.contains("\\")
+                || name.startsWith(".") || contentType(name) == null) {
+            return null;
+        }
+        return new File(root, name);
+    }
+
+    /**
+     * 解析单段 Range 请求头
+     * @return {起始, 结束}（含）；null 表示忽略 Range 返回整个文件；空数组表示范围不可满足（416）
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = header.substring(6).trim();
+        if (spec.contains(",")) {
+            // 多段请求不常见，直接返回整个文件
+            return null;
+        }
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // bytes=-N：最后 N 字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) {
+                return new long[0];
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String contentType(String name) {
+        String lower = name.toLowerCase(Locale.US);
+        if (lower.endsWith(".mp4")) return "video/mp4";
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) return "image/jpeg";
+        if (lower.endsWith(".png")) return "image/png";
+        return null;
+    }
+
+    private static String httpDate(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(millis));
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,439 @@
+package com.kooo.evcam.lan;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 局域网 HTTP 服务器（极简实现，只支持 GET/HEAD）
+ * 手机连接车机热点后直接访问，不经过云端中转。
+ *
+ * - 每个连接一个线程，线程池有上限，满了直接返回 503
+ * - 每个连接只处理一个请求（Connection: close），长连接的推流由处理器自己持有 Socket
+ * - 所有请求都要带配对口令：查询参数 token=... 或请求头 Authorization: Bearer ...
+ * - 只接受局域网连接：热点地址因机型而异，监听所有网卡，但对端和本端地址都必须是
+ *   私有、链路本地或回环地址，经蜂窝网络等公网地址进来的连接直接关闭（口令以明文传输，不能暴露到公网）
+ * - 连接基于 SocketChannel，处理器可以通过 socket.getChannel() 做零拷贝发送
+ *
+ * 不依赖 Android，可以在 JVM 上用本地 HTTP 客户端直接测试。
+ */
+public class LanHttpServer {
+
+    /** 同时处理的连接数上限 */
+    private static final int MAX_CONNECTIONS = 16;
+
+    /** 读取请求头的超时与大小上限 */
+    private static final int HEADER_TIMEOUT_MS = 10000;
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+    /**
+     * 请求处理器（在连接线程中调用，返回后连接关闭）
+     */
+    public interface Handler {
+        void handle(Request request, Socket socket, OutputStream out) throws IOException;
+    }
+
+    /**
+     * 日志输出（JVM 上测试时可以不接 AppLog）
+     */
+    public interface Logger {
+        void log(String message);
+    }
+
+    /**
+     * 已解析的请求
+     */
+    public static final class Request {
+        public final String method;
+        public final String path;
+        private final Map<String, String> query;
+        private final Map<String, String> headers;
+
+        Request(String method, String path, Map<String, String> query, Map<String, String> headers) {
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.headers = headers;
+        }
+
+        public String getQuery(String name) {
+            return query.get(name);
+        }
+
+        /**
+         * @param name 请求头名称（不区分大小写）
+         */
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase(Locale.US));
+        }
+
+        public boolean isHead() {
+            return "HEAD".equals(method);
+        }
+    }
+
+    private static final class Route {
+        final String prefix;
+        final Handler handler;
+
+        Route(String prefix, Handler handler) {
+            this.prefix = prefix;
+            this.handler = handler;
+        }
+    }
+
+    private final int requestedPort;
+    private final byte[] token;
+    private final Logger logger;
+    private final List<Route> routes = Collections.synchronizedList(new ArrayList<>());
+
+    private ServerSocketChannel serverChannel;
+    private ThreadPoolExecutor connectionPool;
+    private Thread acceptThread;
+    private volatile boolean running = false;
+
+    /**
+     * @param port 监听端口，0 表示由系统分配（测试用）
+     * @param token 配对口令，不能为空
+     */
+    public LanHttpServer(int port, String token, Logger logger) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("token is required");
+        }
+        this.requestedPort = port;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.logger = logger != null ? logger : message -> { };
+    }
+
+    /**
+     * 注册路由：按最长前缀匹配
+     */
+    public void route(String prefix, Handler handler) {
+        synchronized (routes) {
+            routes.add(new Route(prefix, handler));
+            Collections.sort(routes, (a, b) -> b.prefix.length() - a.prefix.length());
+        }
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(new InetSocketAddress(requestedPort));
+        connectionPool = new ThreadPoolExecutor(0, MAX_CONNECTIONS, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "LanHttpConnection");
+                    t.setDaemon(true);
+                    return t;
+                });
+        running = true;
+        acceptThread = new Thread(this::acceptLoop, "LanHttpAccept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        logger.log("局域网服务已启动，端口 " + getPort());
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        closeQuietly(serverChannel);
+        serverChannel = null;
+        if (connectionPool != null) {
+            // 推流连接阻塞在写 Socket 上，中断后由处理器自行退出
+            connectionPool.shutdownNow();
+            connectionPool = null;
+        }
+        acceptThread = null;
+        logger.log("局域网服务已停止");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 实际监听的端口（未启动时返回 -1）
+     */
+    public synchronized int getPort() {
+        return serverChannel != null ? serverChannel.socket().getLocalPort() : -1;
+    }
+
+    // ==================== 连接处理 ====================
+
+    private void acceptLoop() {
+        ServerSocketChannel server = serverChannel;
+        while (running && server != null) {
+            Socket socket;
+            try {
+                SocketChannel channel = server.accept();
+                socket = channel.socket();
+            } catch (IOException e) {
+                if (running) {
+                    logger.log("接受连接失败: " + e.getMessage());
+                }
+                continue;
+            }
+            if (!isLocalAddress(socket.getInetAddress()) || !isLocalAddress(socket.getLocalAddress())) {
+                logger.log("拒绝非局域网连接: " + socket.getRemoteSocketAddress());
+                closeQuietly(socket);
+                continue;
+            }
+            ThreadPoolExecutor pool = connectionPool;
+            try {
+                if (pool == null) {
+                    throw new RejectedExecutionException();
+                }
+                pool.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                // 连接数已满：直接拒绝，不排队
+                try {
+                    sendError(socket.getOutputStream(), 503, "too many connections");
+                } catch (IOException ignored) {
+                }
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setSoTimeout(HEADER_TIMEOUT_MS);
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            Request request = parseRequest(in);
+            if (request == null) {
+                sendError(out, 400, "bad request");
+                return;
+            }
+            if (!"GET".equals(request.method) && !"HEAD".equals(request.method)) {
+                sendError(out, 405, "method not allowed");
+                return;
+            }
+            if (!isAuthorized(request)) {
+                sendError(out, 401, "unauthorized");
+                return;
+            }
+            Handler handler = findHandler(request.path);
+            if (handler == null) {
+                sendError(out, 404, "not found");
+                return;
+            }
+            // 请求头已读完，之后只写不读
+            socket.setSoTimeout(0);
+            handler.handle(request, socket, out);
+            out.flush();
+        } catch (SocketException e) {
+            // 客户端断开，属于正常情况
+        } catch (IOException e) {
+            logger.log("处理请求失败: " + e.getMessage());
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * 是否为局域网地址：IPv4 私有网段、链路本地、回环，以及 IPv6 唯一本地地址（fc00::/7）
+     */
+    static boolean isLocalAddress(InetAddress address) {
+        if (address == null) {
+            return false;
+        }
+        if (address.isLoopbackAddress() || address.isSiteLocalAddress() || address.isLinkLocalAddress()) {
+            return true;
+        }
+        return address instanceof Inet6Address && (address.getAddress()[0] & 0xFE) == 0xFC;
+    }
+
+    private Handler findHandler(String path) {
+        synchronized (routes) {
+            for (Route route : routes) {
+                if (path.startsWith(route.prefix)) {
+                    return route.handler;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 校验配对口令（定长比较，不泄露前缀匹配长度）
+     */
+    private boolean isAuthorized(Request request) {
+        String provided = request.getQuery("token");
+        if (provided == null) {
+            String auth = request.getHeader("authorization");
+            if (auth != null && auth.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                provided = auth.substring(7).trim();
+            }
+        }
+        return provided != null && MessageDigest.isEqual(token, provided.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // ==================== 请求解析 ====================
+
+    static Request parseRequest(InputStream in) throws IOException {
+        String requestLine = readLine(in);
+        if (requestLine == null) {
+            return null;
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length < 2) {
+            return null;
+        }
+        String method = parts[0].toUpperCase(Locale.US);
+        String target = parts[1];
+
+        Map<String, String> headers = new HashMap<>();
+        int headerBytes = requestLine.length();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            headerBytes += line.length();
+            if (headerBytes > MAX_HEADER_BYTES) {
+                return null;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US), line.substring(colon + 1).trim());
+            }
+        }
+
+        String path = target;
+        Map<String, String> query = new HashMap<>();
+        int q = target.indexOf('?');
+        if (q >= 0) {
+            path = target.substring(0, q);
+            for (String pair : target.substring(q + 1).split("&")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+                int eq = pair.indexOf('=');
+                String key = eq >= 0 ? pair.substring(0, eq) : pair;
+                String value = eq >= 0 ? pair.substring(eq + 1) : "";
+                query.put(urlDecode(key), urlDecode(value));
+            }
+        }
+        return new Request(method, urlDecode(path), query, headers);
+    }
+
+    /**
+     * 读取一行（以 LF 结尾，去掉 CR），超过上限返回 null
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+            if (line.size() > MAX_HEADER_BYTES) {
+                return null;
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static String urlDecode(String s) {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (Exception e) {
+            return s;
+        }
+    }
+
+    // ==================== 响应辅助方法 ====================
+
+    /**
+     * 写响应头（调用方随后写入正文）
+     * @param contentLength 正文长度，-1 表示不写 Content-Length
+     */
+    public static void writeHeaders(OutputStream out, int status, String contentType, long contentLength,
+                                    Map<String, String> extraHeaders) throws IOException {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("HTTP/1.1 ").append(status).append(' ').append(reasonPhrase(status)).append("\r\n");
+        if (contentType != null) {
+            sb.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        if (contentLength >= 0) {
+            sb.append("Content-Length: ").append(contentLength).append("\r\n");
+        }
+        if (extraHeaders != null) {
+            for (Map.Entry<String, String> header : extraHeaders.entrySet()) {
+                sb.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+            }
+        }
+        sb.append("Connection: close\r\n\r\n");
+        out.write(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    public static void sendResponse(OutputStream out, int status, String contentType, byte[] body,
+                                    boolean headOnly) throws IOException {
+        writeHeaders(out, status, contentType, body.length, null);
+        if (!headOnly) {
+            out.write(body);
+        }
+        out.flush();
+    }
+
+    public static void sendError(OutputStream out, int status, String message) throws IOException {
+        sendResponse(out, status, "text/plain; charset=utf-8", (message + "\n").getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    static String reasonPhrase(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 206: return "Partial Content";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 401: return "Unauthorized";
+            case 403: return "Forbidden";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 416: return "Range Not Satisfiable";
+            case 503: return "Service Unavailable";
+            default: return "Error";
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
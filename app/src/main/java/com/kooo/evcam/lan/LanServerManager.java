@@ -0,0 +1,330 @@
+package com.kooo.evcam.lan;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import com.kooo.evcam.AppConfig;
+import com.kooo.evcam.AppLog;
+import com.kooo.evcam.StorageHelper;
+import com.kooo.evcam.camera.BitmapPool;
+import com.kooo.evcam.camera.CameraManagerHolder;
+import com.kooo.evcam.camera.MultiCameraManager;
+import com.kooo.evcam.camera.SingleCamera;
+import com.kooo.evcam.wechat.WechatMiniConfig;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 局域网直播服务管理（由 CameraForegroundService 启停）
+ * 手机连上车机热点后，用浏览器或小程序直接访问 http://车机IP:端口/?token=设备ID 观看各路实时画面，
+ * 不经过云端轮询和 COS 上传。
+ *
+ * 接口（都需要 token，与小程序扫码绑定的设备ID相同）：
+ * - /                     简单的网页，平铺所有摄像头
+ * - /api/cameras          摄像头列表（JSON）
+ * - /live/{位置}.mjpg      MJPEG 实时流（multipart/x-mixed-replace）
+ * - /snapshot/{位置}.jpg   单帧快照
+ * - /api/library、/files/  录像和照片下载（见 {@link LanFileServer}）
+ */
+public class LanServerManager {
+    private static final String TAG = "LanServerManager";
+
+    private static final String[] POSITIONS = {"front", "back", "left", "right"};
+
+    /** 直播帧率与画面尺寸 */
+    private static final long FRAME_INTERVAL_MS = 125;
+    private static final int FRAME_MAX_EDGE = 960;
+    private static final int JPEG_QUALITY = 70;
+
+    /**
+     * 观看者等待新帧的超时：超时后写一次保活数据（重发上一帧），
+     * 客户端已断开时写入失败，结束推流并释放订阅
+     */
+    private static final long FRAME_WAIT_MS = 5000;
+    private static final long SNAPSHOT_WAIT_MS = 3000;
+
+    private static final String BOUNDARY = "evcamframe";
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /** 录制中的下载限速（字节/秒），空闲时不限速 */
+    private static final long RECORDING_DOWNLOAD_RATE = 4L * 1024 * 1024;
+
+    private static LanServerManager instance;
+
+    private LanHttpServer server;
+    private final Map<String, LiveFrameHub> hubs = new HashMap<>();
+
+    private LanServerManager() {}
+
+    public static synchronized LanServerManager getInstance() {
+        if (instance == null) {
+            instance = new LanServerManager();
+        }
+        return instance;
+    }
+
+    /**
+     * 按配置启动（未启用或未生成设备ID时不启动）
+     */
+    public synchronized void startIfEnabled(Context context) {
+        AppConfig appConfig = new AppConfig(context);
+        if (!appConfig.isLanLiveViewEnabled()) {
+            return;
+        }
+        if (server != null && server.isRunning()) {
+            return;
+        }
+        String token = new WechatMiniConfig(context).getDeviceId();
+        if (token == null || token.isEmpty()) {
+            AppLog.w(TAG, "设备ID未生成，局域网直播无法启动");
+            return;
+        }
+        LanHttpServer newServer = new LanHttpServer(appConfig.getLanServerPort(), token,
+                message -> AppLog.d(TAG, message));
+        registerRoutes(newServer, context.getApplicationContext());
+        try {
+            newServer.start();
+            server = newServer;
+        } catch (IOException e) {
+            AppLog.e(TAG, "局域网直播启动失败: " + e.getMessage());
+        }
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+        for (LiveFrameHub hub : hubs.values()) {
+            hub.shutdown();
+        }
+        hubs.clear();
+    }
+
+    public synchronized boolean isRunning() {
+        return server != null && server.isRunning();
+    }
+
+    private void registerRoutes(LanHttpServer target, Context appContext) {
+        target.route("/live/", (request, socket, out) -> serveMjpeg(request, socket, out));
+        target.route("/snapshot/", (request, socket, out) -> serveSnapshot(request, out));
+        target.route("/api/cameras", (request, socket, out) -> serveCameraList(request, out));
+        target.route("/", (request, socket, out) -> serveIndex(request, out));
+
+        TransferThrottle throttle = new TransferThrottle(() -> {
+            MultiCameraManager cameraManager = CameraManagerHolder.getInstance().getCameraManager();
+            return cameraManager != null && cameraManager.isRecording() ? RECORDING_DOWNLOAD_RATE : 0;
+        });
+        new LanFileServer(() -> {
+            Map<String, File> roots = new LinkedHashMap<>();
+            roots.put("videos", StorageHelper.getFinalVideoDir(appContext));
+            roots.put("photos", StorageHelper.getPhotoDir(appContext));
+            return roots;
+        }, throttle).register(target);
+    }
+
+    // ==================== 画面分发 ====================
+
+    /**
+     * 获取某路摄像头的分发器（按需创建）
+     */
+    private synchronized LiveFrameHub getHub(String position) {
+        LiveFrameHub hub = hubs.get(position);
+        if (hub == null) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(128 * 1024);
+            hub = new LiveFrameHub(position, () -> captureJpeg(position, buffer), FRAME_INTERVAL_MS);
+            hubs.put(position, hub);
+        }
+        return hub;
+    }
+
+    /**
+     * 抓取一帧并编码（分发器的编码线程调用，buffer 由该线程独占复用）
+     */
+    private static byte[] captureJpeg(String position, ByteArrayOutputStream buffer) {
+        MultiCameraManager cameraManager = CameraManagerHolder.getInstance().getCameraManager();
+        SingleCamera camera = cameraManager != null ? cameraManager.getCamera(position) : null;
+        if (camera == null) {
+            return null;
+        }
+        Bitmap bitmap = camera.captureLiveFrame(FRAME_MAX_EDGE);
+        if (bitmap == null) {
+            return null;
+        }
+        try {
+            buffer.reset();
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, buffer);
+            return buffer.toByteArray();
+        } finally {
+            BitmapPool.getInstance().release(bitmap);
+        }
+    }
+
+    private static String parsePosition(String path, String prefix, String suffix) {
+        if (!path.endsWith(suffix)) {
+            return null;
+        }
+        String position = path.substring(prefix.length(), path.length() - suffix.length());
+        for (String known : POSITIONS) {
+            if (known.equals(position)) {
+                return position;
+            }
+        }
+        return null;
+    }
+
+    // ==================== 请求处理 ====================
+
+    private void serveMjpeg(LanHttpServer.Request request, Socket socket, OutputStream out) throws IOException {
+        String position = parsePosition(request.path, "/live/", ".mjpg");
+        if (position == null) {
+            LanHttpServer.sendError(out, 404, "unknown camera");
+            return;
+        }
+        streamMjpeg(getHub(position), position, request, socket, out, FRAME_WAIT_MS);
+    }
+
+    /**
+     * 向一个观看者推送 MJPEG 流，直到客户端断开或服务停止
+     */
+    static void streamMjpeg(LiveFrameHub hub, String position, LanHttpServer.Request request, Socket socket,
+                            OutputStream out, long frameWaitMs) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Cache-Control", "no-cache, no-store");
+        headers.put("Pragma", "no-cache");
+        LanHttpServer.writeHeaders(out, 200, "multipart/x-mixed-replace; boundary=" + BOUNDARY, -1, headers);
+        out.flush();
+        if (request.isHead()) {
+            return;
+        }
+
+        String client = String.valueOf(socket.getRemoteSocketAddress());
+        AppLog.d(TAG, "观看者接入 " + position + ": " + client);
+        int sent = 0;
+        byte[] last = null;
+        try (LiveFrameHub.Subscription subscription = hub.subscribe()) {
+            while (!socket.isClosed() && !subscription.isClosed()) {
+                byte[] jpeg = subscription.take(frameWaitMs);
+                if (jpeg == null) {
+                    // 预览暂不可用：只有写入才能发现客户端已断开（否则订阅和编码线程一直保留），
+                    // 重发上一帧作为保活；还没发过帧时写空行（位于第一个分隔符之前，客户端忽略）
+                    if (last == null) {
+                        out.write(CRLF);
+                        out.flush();
+                        continue;
+                    }
+                    jpeg = last;
+                } else {
+                    sent++;
+                }
+                writePart(out, jpeg);
+                last = jpeg;
+            }
+        } catch (InterruptedException e) {
+            // 服务停止
+        } finally {
+            AppLog.d(TAG, "观看者断开 " + position + ": " + client + "，已发送 " + sent + " 帧");
+        }
+    }
+
+    private static void writePart(OutputStream out, byte[] jpeg) throws IOException {
+        String partHeader = "--" + BOUNDARY + "\r\nContent-Type: image/jpeg\r\nContent-Length: "
+                + jpeg.length + "\r\n\r\n";
+        out.write(partHeader.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(jpeg);
+        out.write(CRLF);
+        out.flush();
+    }
+
+    private void serveSnapshot(LanHttpServer.Request request, OutputStream out) throws IOException {
+        String position = parsePosition(request.path, "/snapshot/", ".jpg");
+        if (position == null) {
+            LanHttpServer.sendError(out, 404, "unknown camera");
+            return;
+        }
+        sendSnapshot(getHub(position), request, out, SNAPSHOT_WAIT_MS);
+    }
+
+    /**
+     * 返回一帧快照，等待超时返回 503
+     */
+    static void sendSnapshot(LiveFrameHub hub, LanHttpServer.Request request, OutputStream out,
+                             long waitMs) throws IOException {
+        byte[] jpeg;
+        try (LiveFrameHub.Subscription subscription = hub.subscribe()) {
+            jpeg = subscription.take(waitMs);
+        } catch (InterruptedException e) {
+            jpeg = null;
+        }
+        if (jpeg == null) {
+            LanHttpServer.sendError(out, 503, "preview not available");
+            return;
+        }
+        LanHttpServer.sendResponse(out, 200, "image/jpeg", jpeg, request.isHead());
+    }
+
+    private void serveCameraList(LanHttpServer.Request request, OutputStream out) throws IOException {
+        MultiCameraManager cameraManager = CameraManagerHolder.getInstance().getCameraManager();
+        JSONArray cameras = new JSONArray();
+        try {
+            for (String position : POSITIONS) {
+                SingleCamera camera = cameraManager != null ? cameraManager.getCamera(position) : null;
+                if (camera == null) {
+                    continue;
+                }
+                JSONObject item = new JSONObject();
+                item.put("position", position);
+                item.put("connected", camera.isConnected());
+                item.put("live", "/live/" + position + ".mjpg");
+                item.put("snapshot", "/snapshot/" + position + ".jpg");
+                LiveFrameHub hub;
+                synchronized (this) {
+                    hub = hubs.get(position);
+                }
+                item.put("viewers", hub != null ? hub.getSubscriberCount() : 0);
+                cameras.put(item);
+            }
+        } catch (Exception e) {
+            LanHttpServer.sendError(out, 500, "error");
+            return;
+        }
+        LanHttpServer.sendResponse(out, 200, "application/json; charset=utf-8",
+                cameras.toString().getBytes(StandardCharsets.UTF_8), request.isHead());
+    }
+
+    private void serveIndex(LanHttpServer.Request request, OutputStream out) throws IOException {
+        if (!"/".equals(request.path)) {
+            LanHttpServer.sendError(out, 404, "not found");
+            return;
+        }
+        MultiCameraManager cameraManager = CameraManagerHolder.getInstance().getCameraManager();
+        String token = request.getQuery("token");
+        String tokenParam = token != null ? "?token=" + java.net.URLEncoder.encode(token, "UTF-8") : "";
+        StringBuilder html = new StringBuilder(1024);
+        html.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\">")
+                .append("<meta name=\"viewport\" content=\"width=device-width,initial-scale=1\">")
+                .append("<title>EVCam</title><style>body{margin:0;background:#000;color:#ccc;font-family:sans-serif}")
+                .append("figure{margin:4px}img{width:100%;display:block}figcaption{padding:2px 4px}</style></head><body>");
+        for (String position : POSITIONS) {
+            if (cameraManager == null || cameraManager.getCamera(position) == null) {
+                continue;
+            }
+            html.append("<figure><img src=\"/live/").append(position).append(".mjpg").append(tokenParam)
+                    .append("\"><figcaption>").append(position).append("</figcaption></figure>");
+        }
+        html.append("</body></html>");
+        LanHttpServer.sendResponse(out, 200, "text/html; charset=utf-8",
+                html.toString().getBytes(StandardCharsets.UTF_8), request.isHead());
+    }
+}
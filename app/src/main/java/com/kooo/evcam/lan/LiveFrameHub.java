@@ -0,0 +1,209 @@
+package com.kooo.evcam.lan;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 单路实时画面分发器
+ * 一路摄像头只编码一次：编码线程按节拍抓取 JPEG，分发给所有观看者各自的单槽信箱。
+ * 信箱只保留最新帧，某个观看者网络慢时只会丢掉它自己的旧帧，不会拖慢编码或其他观看者。
+ *
+ * - 第一个观看者订阅时启动编码线程，最后一个退出后编码线程自动结束（无人观看时不占用 GPU/CPU）
+ * - 帧数据在观看者之间共享，约定为只读
+ *
+ * 不依赖 Android，线程安全。
+ */
+public class LiveFrameHub {
+
+    /**
+     * 抓取并编码一帧（在编码线程调用，失败返回 null）
+     */
+    public interface FrameSource {
+        byte[] capture();
+    }
+
+    /**
+     * 一个观看者的订阅
+     */
+    public final class Subscription implements AutoCloseable {
+        private byte[] frame;
+        private long frameSeq = 0;
+        private long deliveredSeq = 0;
+        private int dropped = 0;
+        private boolean closed = false;
+
+        synchronized void offer(byte[] jpeg, long seq) {
+            if (frame != null) {
+                dropped++;
+            }
+            frame = jpeg;
+            frameSeq = seq;
+            notifyAll();
+        }
+
+        /**
+         * 取走最新帧，没有新帧时最多等待 timeoutMs
+         * @return 新帧；超时或订阅已关闭返回 null
+         */
+        public synchronized byte[] take(long timeoutMs) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            while (!closed && frame == null) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                wait(remaining);
+            }
+            byte[] result = frame;
+            frame = null;
+            if (result != null) {
+                deliveredSeq = frameSeq;
+            }
+            return result;
+        }
+
+        /**
+         * 因观看者跟不上而被覆盖的帧数
+         */
+        public synchronized int getDroppedCount() {
+            return dropped;
+        }
+
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        public synchronized long getDeliveredSeq() {
+            return deliveredSeq;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                frame = null;
+                notifyAll();
+            }
+            unsubscribe(this);
+        }
+    }
+
+    private final String name;
+    private final FrameSource source;
+    private final long frameIntervalMs;
+    private final CopyOnWriteArrayList<Subscription> subscribers = new CopyOnWriteArrayList<>();
+
+    private final Object encoderLock = new Object();
+    private Thread encoderThread;
+    private volatile boolean shutdown = false;
+
+    private volatile byte[] latestFrame;
+    private long sequence = 0;
+    private volatile long framesEncoded = 0;
+
+    /**
+     * @param name 画面名称（线程名用）
+     * @param frameIntervalMs 抓帧间隔
+     */
+    public LiveFrameHub(String name, FrameSource source, long frameIntervalMs) {
+        this.name = name;
+        this.source = source;
+        this.frameIntervalMs = frameIntervalMs;
+    }
+
+    /**
+     * 新增观看者；最近一帧（如果有）会立即放入信箱，首屏不用等下一次编码
+     */
+    public Subscription subscribe() {
+        Subscription subscription = new Subscription();
+        byte[] latest = latestFrame;
+        if (latest != null) {
+            subscription.offer(latest, sequence);
+        }
+        subscribers.add(subscription);
+        synchronized (encoderLock) {
+            if (!shutdown && encoderThread == null) {
+                encoderThread = new Thread(this::encodeLoop, "LiveFrameHub-" + name);
+                encoderThread.setDaemon(true);
+                encoderThread.start();
+            }
+        }
+        return subscription;
+    }
+
+    void unsubscribe(Subscription subscription) {
+        subscribers.remove(subscription);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getFramesEncoded() {
+        return framesEncoded;
+    }
+
+    /**
+     * 关闭：断开所有观看者并结束编码线程
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Subscription subscription : subscribers) {
+            subscription.close();
+        }
+        synchronized (encoderLock) {
+            if (encoderThread != null) {
+                encoderThread.interrupt();
+            }
+        }
+    }
+
+    private void encodeLoop() {
+        try {
+            while (!shutdown) {
+                synchronized (encoderLock) {
+                    // 在锁内判断并退出，避免与 subscribe 竞争导致新观看者没有编码线程
+                    if (subscribers.isEmpty()) {
+                        encoderThread = null;
+                        latestFrame = null;
+                        return;
+                    }
+                }
+                long start = System.currentTimeMillis();
+                byte[] jpeg = null;
+                try {
+                    jpeg = source.capture();
+                } catch (RuntimeException ignored) {
+                    // 摄像头暂不可用：下个节拍重试
+                }
+                if (jpeg != null && jpeg.length > 0) {
+                    publish(jpeg);
+                }
+                long elapsed = System.currentTimeMillis() - start;
+                Thread.sleep(Math.max(1, frameIntervalMs - elapsed));
+            }
+        } catch (InterruptedException e) {
+            // 关闭
+        } finally {
+            synchronized (encoderLock) {
+                if (encoderThread == Thread.currentThread()) {
+                    encoderThread = null;
+                }
+            }
+        }
+    }
+
+    private void publish(byte[] jpeg) {
+        long seq;
+        synchronized (encoderLock) {
+            seq = ++sequence;
+        }
+        latestFrame = jpeg;
+        framesEncoded++;
+        for (Subscription subscription : subscribers) {
+            subscription.offer(jpeg, seq);
+        }
+    }
+}
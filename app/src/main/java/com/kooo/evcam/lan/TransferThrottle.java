@@ -0,0 +1,53 @@
+package com.kooo.evcam.lan;
+
+/**
+ * 局域网下载限速（令牌桶，所有下载共享）
+ * 录制中读取存储会和录像写入抢 U 盘/eMMC 带宽，下载速度按录制状态动态限制；
+ * 空闲时不限速。多个手机同时下载时合计速率不超过上限。
+ *
+ * 不依赖 Android，线程安全。
+ */
+public class TransferThrottle {
+
+    /** 允许的突发量（按当前速率折算的时间） */
+    private static final long BURST_NANOS = 250_000_000L;
+
+    /**
+     * 当前允许的速率（字节/秒），小于等于 0 表示不限速
+     */
+    public interface RateProvider {
+        long bytesPerSecond();
+    }
+
+    private final RateProvider rateProvider;
+
+    /** 下一个字节可以发送的时间点（纳秒） */
+    private long nextFreeNanos = System.nanoTime();
+
+    public TransferThrottle(RateProvider rateProvider) {
+        this.rateProvider = rateProvider;
+    }
+
+    /**
+     * 申请发送 bytes 字节，超出速率时阻塞等待
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        long rate = rateProvider.bytesPerSecond();
+        if (rate <= 0 || bytes <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            // 空闲一段时间后只保留有限的突发额度
+            if (nextFreeNanos < now - BURST_NANOS) {
+                nextFreeNanos = now - BURST_NANOS;
+            }
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += bytes * 1_000_000_000L / rate;
+        }
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.kooo.evcam.mp4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MP4 元数据探测（纯 Java，无 Android 依赖）
+ * 只读取顶层 box 头和一次 moov，提取时长、是否有音频和视频样本数，不展开逐样本表。
+ * 用于替代上传、播放等路径上为取时长而创建的 MediaMetadataRetriever。
+ *
+ * 结果按「路径 + 大小 + 修改时间」缓存，文件变化后自动重新解析。
+ */
+public class Mp4Info {
+    /** moov 大小上限，与 Mp4Movie 一致 */
+    private static final long MAX_MOOV_SIZE = 32L * 1024 * 1024;
+    private static final int CACHE_SIZE = 64;
+
+    private static final Map<String, Mp4Info> cache = new LinkedHashMap<String, Mp4Info>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Mp4Info> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private long durationMs;
+    private boolean hasVideo;
+    private boolean hasAudio;
+    private int videoSampleCount;
+
+    private Mp4Info() {
+    }
+
+    /** 时长（毫秒），取 mvhd，缺失时取最长轨道 */
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    /** 时长（秒，向下取整） */
+    public int getDurationSeconds() {
+        return (int) (durationMs / 1000);
+    }
+
+    public boolean hasAudio() {
+        return hasAudio;
+    }
+
+    /** 第一条视频轨道的样本数，无视频轨道时为 0 */
+    public int getVideoSampleCount() {
+        return videoSampleCount;
+    }
+
+    /**
+     * 探测文件（带缓存）
+     * @throws IOException 文件不完整（例如录制中断未写 moov）或结构不受支持
+     */
+    public static Mp4Info get(File file) throws IOException {
+        String key = file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+        synchronized (cache) {
+            Mp4Info cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Mp4Info info = probe(file);
+        synchronized (cache) {
+            cache.put(key, info);
+        }
+        return info;
+    }
+
+    /**
+     * 探测文件（不使用缓存）
+     */
+    public static Mp4Info probe(File file) throws IOException {
+        byte[] moov;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            moov = readMoov(channel, file);
+        }
+        Mp4Info info = new Mp4Info();
+        info.parseMoov(moov);
+        return info;
+    }
+
+    /**
+     * 跳读顶层 box 头找到 moov，一次读入
+     */
+    private static byte[] readMoov(FileChannel channel, File file) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(16);
+        long pos = 0;
+        while (pos + 8 <= fileSize) {
+            int headerLength = (int) Math.min(16, fileSize - pos);
+            readFully(channel, header, pos, headerLength);
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int headerSize = 8;
+            if (size == 1) {
+                if (headerLength < 16) {
+                    break;
+                }
+                size = header.getLong(8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = fileSize - pos;
+            }
+            if (size < headerSize || pos + size > fileSize) {
+                break;
+            }
+            if ("moov".equals(Mp4Movie.fourCC(header.array(), 4))) {
+                if (size > MAX_MOOV_SIZE) {
+                    throw new IOException("moov 过大: " + size);
+                }
+                ByteBuffer moov = ByteBuffer.allocate((int) size);
+                readFully(channel, moov, pos, (int) size);
+                return moov.array();
+            }
+            pos += size;
+        }
+        throw new IOException("缺少 moov: " + file.getName());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long pos, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, pos + buffer.position());
+            if (n < 0) {
+                throw new IOException("文件意外结束");
+            }
+        }
+    }
+
+    // ==================== moov 解析 ====================
+
+    private void parseMoov(byte[] buf) throws IOException {
+        int end = buf.length;
+        long movieTimescale = 0;
+        long movieDuration = 0;
+        long longestTrackMs = 0;
+        for (int p = 8; p + 8 <= end; p = next(buf, p, end)) {
+            String type = Mp4Movie.fourCC(buf, p + 4);
+            if ("mvhd".equals(type)) {
+                int version = buf[p + 8] & 0xFF;
+                movieTimescale = Mp4Movie.readU32(buf, p + (version == 1 ? 28 : 20));
+                movieDuration = version == 1 ? Mp4Movie.readU64(buf, p + 32) : Mp4Movie.readU32(buf, p + 24);
+            } else if ("trak".equals(type)) {
+                long trackMs = parseTrak(buf, p, p + Mp4Movie.boxSize(buf, p));
+                if (trackMs >= 0) {
+                    longestTrackMs = Math.max(longestTrackMs, trackMs);
+                }
+            }
+        }
+        if (movieTimescale <= 0) {
+            throw new IOException("缺少 mvhd");
+        }
+        durationMs = movieDuration > 0 ? movieDuration * 1000 / movieTimescale : longestTrackMs;
+    }
+
+    /**
+     * 解析一条轨道，返回轨道时长（毫秒），结构不完整时返回 -1
+     */
+    private long parseTrak(byte[] buf, int start, int end) {
+        int mdia = find(buf, start, end, "mdia");
+        if (mdia < 0) {
+            return -1;
+        }
+        int mdiaEnd = mdia + Mp4Movie.boxSize(buf, mdia);
+        int mdhd = find(buf, mdia, mdiaEnd, "mdhd");
+        int hdlr = find(buf, mdia, mdiaEnd, "hdlr");
+        if (mdhd < 0 || hdlr < 0) {
+            return -1;
+        }
+        int version = buf[mdhd + 8] & 0xFF;
+        long timescale = Mp4Movie.readU32(buf, mdhd + (version == 1 ? 28 : 20));
+        long duration = version == 1 ? Mp4Movie.readU64(buf, mdhd + 32) : Mp4Movie.readU32(buf, mdhd + 24);
+        if (timescale <= 0) {
+            return -1;
+        }
+        String handler = Mp4Movie.fourCC(buf, hdlr + 16);
+        if (Mp4Track.HANDLER_SOUND.equals(handler)) {
+            hasAudio = true;
+        } else if (Mp4Track.HANDLER_VIDEO.equals(handler) && !hasVideo) {
+            // 只取第一条视频轨道的样本数
+            hasVideo = true;
+            int minf = find(buf, mdia, mdiaEnd, "minf");
+            int stbl = minf < 0 ? -1 : find(buf, minf, minf + Mp4Movie.boxSize(buf, minf), "stbl");
+            if (stbl >= 0) {
+                videoSampleCount = readSampleCount(buf, stbl, stbl + Mp4Movie.boxSize(buf, stbl));
+            }
+        }
+        return duration * 1000 / timescale;
+    }
+
+    /**
+     * 视频样本数（stsz / stz2 的 sample_count），缺失时为 0
+     */
+    private static int readSampleCount(byte[] buf, int start, int end) {
+        int stsz = find(buf, start, end, "stsz");
+        if (stsz < 0) {
+            stsz = find(buf, start, end, "stz2");
+        }
+        return stsz >= 0 ? (int) Mp4Movie.readU32(buf, stsz + 16) : 0;
+    }
+
+    /**
+     * 在 [start + 8, end) 的直接子 box 中查找指定类型
+     */
+    private static int find(byte[] buf, int start, int end, String type) {
+        for (int p = start + 8; p + 8 <= end; p = next(buf, p, end)) {
+            if (type.equals(Mp4Movie.fourCC(buf, p + 4))) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private static int next(byte[] buf, int p, int end) {
+        long size = Mp4Movie.readU32(buf, p);
+        if (size < 8 || p + size > end) {
+            return end;
+        }
+        return (int) (p + size);
+    }
+}
@@ -0,0 +1,375 @@
+package com.kooo.evcam.mp4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MP4 文件结构（纯 Java，无 Android 依赖）
+ * 只读取 ftyp / moov，样本数据留在源文件中按偏移引用，不会读入内存
+ */
+public class Mp4Movie {
+    /** moov 大小上限，防止损坏文件导致超大分配 */
+    private static final long MAX_MOOV_SIZE = 32L * 1024 * 1024;
+
+    private final File file;
+    byte[] ftyp;
+    byte[] mvhd;
+    byte[] udta;
+    long timescale;
+    final List<Mp4Track> tracks = new ArrayList<>();
+
+    private Mp4Movie(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getTimescale() {
+        return timescale;
+    }
+
+    public List<Mp4Track> getTracks() {
+        return tracks;
+    }
+
+    /**
+     * 第一条视频轨道（作为切分基准），没有视频轨道时返回第一条轨道
+     */
+    public Mp4Track getPrimaryTrack() {
+        for (Mp4Track track : tracks) {
+            if (track.isVideo()) {
+                return track;
+            }
+        }
+        return tracks.isEmpty() ? null : tracks.get(0);
+    }
+
+    /**
+     * 两个文件能否无损拼接：轨道数量、类型、时间刻度与编码参数均一致
+     */
+    public boolean isConcatCompatible(Mp4Movie other) {
+        if (tracks.size() != other.tracks.size()) {
+            return false;
+        }
+        for (int i = 0; i < tracks.size(); i++) {
+            if (!tracks.get(i).isConcatCompatible(other.tracks.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ==================== 解析 ====================
+
+    /**
+     * 解析 MP4 文件
+     * @throws IOException 文件不完整（例如录制中断未写 moov）或结构不受支持
+     */
+    public static Mp4Movie parse(File file) throws IOException {
+        Mp4Movie movie = new Mp4Movie(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long fileSize = channel.size();
+            long pos = 0;
+            ByteBuffer header = ByteBuffer.allocate(16);
+            byte[] moov = null;
+            while (pos + 8 <= fileSize) {
+                header.clear();
+                header.limit(16);
+                readFully(channel, header, pos, (int) Math.min(16, fileSize - pos));
+                long size = header.getInt(0) & 0xFFFFFFFFL;
+                String type = fourCC(header.array(), 4);
+                int headerSize = 8;
+                if (size == 1) {
+                    size = header.getLong(8);
+                    headerSize = 16;
+                } else if (size == 0) {
+                    size = fileSize - pos;
+                }
+                if (size < headerSize || pos + size > fileSize) {
+                    break;
+                }
+                if ("ftyp".equals(type) && size <= 4096) {
+                    movie.ftyp = readBox(channel, pos, (int) size);
+                } else if ("moov".equals(type)) {
+                    if (size > MAX_MOOV_SIZE) {
+                        throw new IOException("moov 过大: " + size);
+                    }
+                    moov = readBox(channel, pos, (int) size);
+                }
+                pos += size;
+            }
+            if (moov == null) {
+                throw new IOException("缺少 moov: " + file.getName());
+            }
+            movie.parseMoov(moov);
+        }
+        if (movie.tracks.isEmpty()) {
+            throw new IOException("没有可用轨道: " + file.getName());
+        }
+        return movie;
+    }
+
+    private void parseMoov(byte[] moov) throws IOException {
+        int end = moov.length;
+        for (int p = 8; p + 8 <= end; p = next(moov, p, end)) {
+            String type = fourCC(moov, p + 4);
+            if ("mvhd".equals(type)) {
+                mvhd = copyBox(moov, p);
+                int version = moov[p + 8] & 0xFF;
+                timescale = readU32(moov, p + (version == 1 ? 28 : 20));
+            } else if ("udta".equals(type)) {
+                udta = copyBox(moov, p);
+            } else if ("trak".equals(type)) {
+                Mp4Track track = parseTrak(moov, p, p + boxSize(moov, p));
+                if (track != null) {
+                    tracks.add(track);
+                }
+            }
+        }
+        if (mvhd == null || timescale <= 0) {
+            throw new IOException("缺少 mvhd");
+        }
+    }
+
+    private static Mp4Track parseTrak(byte[] buf, int start, int end) throws IOException {
+        Mp4Track track = new Mp4Track();
+        int mdia = -1;
+        for (int p = start + 8; p + 8 <= end; p = next(buf, p, end)) {
+            String type = fourCC(buf, p + 4);
+            if ("tkhd".equals(type)) {
+                track.tkhd = copyBox(buf, p);
+            } else if ("mdia".equals(type)) {
+                mdia = p;
+            }
+        }
+        if (track.tkhd == null || mdia < 0) {
+            return null;
+        }
+
+        int mdiaEnd = mdia + boxSize(buf, mdia);
+        int minf = -1;
+        for (int p = mdia + 8; p + 8 <= mdiaEnd; p = next(buf, p, mdiaEnd)) {
+            String type = fourCC(buf, p + 4);
+            if ("mdhd".equals(type)) {
+                track.mdhd = copyBox(buf, p);
+                int version = buf[p + 8] & 0xFF;
+                track.timescale = readU32(buf, p + (version == 1 ? 28 : 20));
+            } else if ("hdlr".equals(type)) {
+                track.hdlr = copyBox(buf, p);
+                track.handlerType = fourCC(buf, p + 16);
+            } else if ("minf".equals(type)) {
+                minf = p;
+            }
+        }
+        if (track.mdhd == null || track.hdlr == null || minf < 0 || track.timescale <= 0) {
+            return null;
+        }
+
+        int minfEnd = minf + boxSize(buf, minf);
+        int stbl = -1;
+        for (int p = minf + 8; p + 8 <= minfEnd; p = next(buf, p, minfEnd)) {
+            String type = fourCC(buf, p + 4);
+            if ("vmhd".equals(type) || "smhd".equals(type) || "nmhd".equals(type)
+                    || "sthd".equals(type) || "hmhd".equals(type)) {
+                track.mediaHeader = copyBox(buf, p);
+            } else if ("dinf".equals(type)) {
+                track.dinf = copyBox(buf, p);
+            } else if ("stbl".equals(type)) {
+                stbl = p;
+            }
+        }
+        if (stbl < 0) {
+            return null;
+        }
+        parseStbl(track, buf, stbl, stbl + boxSize(buf, stbl));
+        return track;
+    }
+
+    private static void parseStbl(Mp4Track track, byte[] buf, int start, int end) throws IOException {
+        int stts = -1, ctts = -1, stss = -1, stsz = -1, stz2 = -1, stsc = -1, stco = -1, co64 = -1;
+        for (int p = start + 8; p + 8 <= end; p = next(buf, p, end)) {
+            switch (fourCC(buf, p + 4)) {
+                case "stsd": track.stsd = copyBox(buf, p); break;
+                case "stts": stts = p; break;
+                case "ctts": ctts = p; break;
+                case "stss": stss = p; break;
+                case "stsz": stsz = p; break;
+                case "stz2": stz2 = p; break;
+                case "stsc": stsc = p; break;
+                case "stco": stco = p; break;
+                case "co64": co64 = p; break;
+                default: break;
+            }
+        }
+        if (track.stsd == null || stts < 0 || stsc < 0 || (stsz < 0 && stz2 < 0) || (stco < 0 && co64 < 0)) {
+            throw new IOException("样本表不完整");
+        }
+
+        // 样本大小
+        int count;
+        int[] sizes;
+        if (stsz >= 0) {
+            int fixed = (int) readU32(buf, stsz + 12);
+            count = checkCount(readU32(buf, stsz + 16), buf.length);
+            sizes = new int[count];
+            for (int i = 0; i < count; i++) {
+                sizes[i] = fixed != 0 ? fixed : (int) readU32(buf, stsz + 20 + i * 4);
+            }
+        } else {
+            int fieldSize = buf[stz2 + 15] & 0xFF;
+            count = checkCount(readU32(buf, stz2 + 16), buf.length * 2L);
+            sizes = new int[count];
+            int base = stz2 + 20;
+            for (int i = 0; i < count; i++) {
+                if (fieldSize == 4) {
+                    int b = buf[base + i / 2] & 0xFF;
+                    sizes[i] = (i % 2 == 0) ? (b >> 4) : (b & 0x0F);
+                } else if (fieldSize == 8) {
+                    sizes[i] = buf[base + i] & 0xFF;
+                } else if (fieldSize == 16) {
+                    sizes[i] = ((buf[base + i * 2] & 0xFF) << 8) | (buf[base + i * 2 + 1] & 0xFF);
+                } else {
+                    throw new IOException("不支持的 stz2 字段长度: " + fieldSize);
+                }
+            }
+        }
+        track.sampleCount = count;
+        track.sizes = sizes;
+
+        // 解码时长
+        track.durations = new int[count];
+        int entries = (int) readU32(buf, stts + 12);
+        int s = 0;
+        for (int e = 0; e < entries && s < count; e++) {
+            long n = readU32(buf, stts + 16 + e * 8);
+            int delta = (int) readU32(buf, stts + 20 + e * 8);
+            for (long k = 0; k < n && s < count; k++) {
+                track.durations[s++] = delta;
+            }
+        }
+
+        // 合成时间偏移
+        if (ctts >= 0) {
+            track.ctsOffsets = new int[count];
+            entries = (int) readU32(buf, ctts + 12);
+            s = 0;
+            for (int e = 0; e < entries && s < count; e++) {
+                long n = readU32(buf, ctts + 16 + e * 8);
+                int offset = (int) readU32(buf, ctts + 20 + e * 8);
+                for (long k = 0; k < n && s < count; k++) {
+                    track.ctsOffsets[s++] = offset;
+                }
+            }
+        }
+
+        // 关键帧
+        if (stss >= 0) {
+            track.sync = new boolean[count];
+            entries = (int) readU32(buf, stss + 12);
+            for (int e = 0; e < entries; e++) {
+                long n = readU32(buf, stss + 16 + e * 4);
+                if (n >= 1 && n <= count) {
+                    track.sync[(int) n - 1] = true;
+                }
+            }
+        }
+
+        // 块偏移 + 样本到块映射 → 每个样本的绝对偏移
+        boolean wide = stco < 0;
+        int chunkBox = wide ? co64 : stco;
+        int chunkCount = (int) readU32(buf, chunkBox + 12);
+        int stscEntries = (int) readU32(buf, stsc + 12);
+        track.offsets = new long[count];
+        s = 0;
+        for (int e = 0; e < stscEntries && s < count; e++) {
+            int base = stsc + 16 + e * 12;
+            long firstChunk = readU32(buf, base);
+            long perChunk = readU32(buf, base + 4);
+            if (readU32(buf, base + 8) != 1) {
+                throw new IOException("不支持多个样本描述");
+            }
+            long lastChunk = e + 1 < stscEntries ? readU32(buf, base + 12) - 1 : chunkCount;
+            for (long c = firstChunk; c <= lastChunk && c <= chunkCount && s < count; c++) {
+                int idx = (int) c - 1;
+                long offset = wide ? readU64(buf, chunkBox + 16 + idx * 8) : readU32(buf, chunkBox + 16 + idx * 4);
+                for (long k = 0; k < perChunk && s < count; k++) {
+                    track.offsets[s] = offset;
+                    offset += sizes[s];
+                    s++;
+                }
+            }
+        }
+        if (s != count) {
+            throw new IOException("样本表不一致: " + s + "/" + count);
+        }
+    }
+
+    // ==================== 字节工具 ====================
+
+    private static int checkCount(long count, long limit) throws IOException {
+        if (count < 0 || count > limit) {
+            throw new IOException("样本数异常: " + count);
+        }
+        return (int) count;
+    }
+
+    private static byte[] readBox(FileChannel channel, long pos, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        readFully(channel, buffer, pos, size);
+        return buffer.array();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long pos, int length) throws IOException {
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, pos + buffer.position());
+            if (n < 0) {
+                throw new IOException("文件意外结束");
+            }
+        }
+    }
+
+    static int boxSize(byte[] buf, int p) {
+        return (int) readU32(buf, p);
+    }
+
+    /**
+     * 下一个兄弟 box 的位置；大小非法时直接跳到末尾
+     */
+    private static int next(byte[] buf, int p, int end) {
+        long size = readU32(buf, p);
+        if (size < 8 || p + size > end) {
+            return end;
+        }
+        return (int) (p + size);
+    }
+
+    private static byte[] copyBox(byte[] buf, int p) {
+        int size = boxSize(buf, p);
+        byte[] copy = new byte[size];
+        System.arraycopy(buf, p, copy, 0, size);
+        return copy;
+    }
+
+    static String fourCC(byte[] buf, int p) {
+        return new String(buf, p, 4, StandardCharsets.ISO_8859_1);
+    }
+
+    static long readU32(byte[] buf, int p) {
+        return ((buf[p] & 0xFFL) << 24) | ((buf[p + 1] & 0xFFL) << 16)
+                | ((buf[p + 2] & 0xFFL) << 8) | (buf[p + 3] & 0xFFL);
+    }
+
+    static long readU64(byte[] buf, int p) {
+        return (readU32(buf, p) << 32) | readU32(buf, p + 4);
+    }
+}
@@ -0,0 +1,637 @@
+package com.kooo.evcam.mp4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MP4 无损重新封装（纯 Java，无 Android 依赖，不重新编码）
+ *
+ * 把多个编码参数一致的分段首尾拼接成一条时间线，再在关键帧处切分，
+ * 使每个输出文件不超过给定大小。输出为 ftyp + moov + mdat（moov 前置，便于边下边播），
+ * 样本数据通过 FileChannel.transferTo 直接从源文件复制。
+ *
+ * 源文件的编辑列表（edts）不会保留，输出从第一个样本开始播放。
+ */
+public final class Mp4Remuxer {
+    /** 单个样本在 moov 中的大致开销（stsz + stts/ctts 游程 + stco），用于估算输出大小 */
+    private static final int PER_SAMPLE_OVERHEAD = 16;
+    private static final int FIXED_OVERHEAD = 4096;
+    /** 估算偏小导致某段超限时收紧余量重新规划的次数上限 */
+    private static final int MAX_PLAN_ATTEMPTS = 8;
+
+    private Mp4Remuxer() {
+    }
+
+    /**
+     * 拼接并按大小切分
+     * @param sources 按时间顺序排列、彼此 {@link Mp4Movie#isConcatCompatible 兼容} 的分段
+     * @param maxBytes 单个输出文件的大小上限（按生成的 moov 精确计算；单个 GOP 超限时仍会单独输出）
+     * @param outDir 输出目录
+     * @param baseName 输出文件名（不含扩展名）；切分为多段时追加 _partN
+     * @return 输出文件列表（按时间顺序）
+     */
+    public static List<File> concatAndSplit(List<Mp4Movie> sources, long maxBytes, File outDir, String baseName)
+            throws IOException {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("没有输入文件");
+        }
+        Mp4Movie first = sources.get(0);
+        for (int i = 1; i < sources.size(); i++) {
+            if (!first.isConcatCompatible(sources.get(i))) {
+                throw new IllegalArgumentException("分段编码参数不一致: " + sources.get(i).getFile().getName());
+            }
+        }
+
+        int trackCount = first.tracks.size();
+        Timeline[] timelines = new Timeline[trackCount];
+        for (int t = 0; t < trackCount; t++) {
+            timelines[t] = Timeline.merge(sources, t);
+        }
+        int primary = first.tracks.indexOf(first.getPrimaryTrack());
+
+        // 按估算规划后逐段生成 moov 得到精确大小；含多个 GOP 的段超限时按超出量收紧余量重新规划
+        List<Layout> layouts;
+        long margin = 0;
+        for (int attempt = 1; ; attempt++) {
+            layouts = new ArrayList<>();
+            long overshoot = 0;
+            for (int[][] part : planParts(first, timelines, primary, maxBytes, margin)) {
+                Layout layout = layoutPart(first, timelines, part);
+                layouts.add(layout);
+                if (layout.size() > maxBytes && countSync(timelines[primary], part[primary]) > 1) {
+                    overshoot = Math.max(overshoot, layout.size() - maxBytes);
+                }
+            }
+            if (overshoot == 0) {
+                break;
+            }
+            if (attempt >= MAX_PLAN_ATTEMPTS) {
+                throw new IOException("无法把输出文件控制在 " + maxBytes + " 字节以内");
+            }
+            margin += overshoot;
+        }
+
+        List<File> outputs = new ArrayList<>();
+        RandomAccessFile[] inputs = new RandomAccessFile[sources.size()];
+        try {
+            for (int i = 0; i < sources.size(); i++) {
+                inputs[i] = new RandomAccessFile(sources.get(i).getFile(), "r");
+            }
+            for (int p = 0; p < layouts.size(); p++) {
+                String name = layouts.size() == 1 ? baseName + ".mp4" : baseName + "_part" + (p + 1) + ".mp4";
+                File out = new File(outDir, name);
+                outputs.add(out);
+                Layout layout = layouts.get(p);
+                writePart(timelines, layout, inputs, out);
+                if (out.length() != layout.size()) {
+                    throw new IOException("输出大小与预期不符: " + out.length() + " != " + layout.size());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (File out : outputs) {
+                out.delete();
+            }
+            throw e;
+        } finally {
+            for (RandomAccessFile in : inputs) {
+                if (in != null) {
+                    try {
+                        in.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+        return outputs;
+    }
+
+    // ==================== 切分规划 ====================
+
+    /**
+     * 以基准轨道的关键帧为切点，贪心地把尽量多的 GOP 放进同一个输出文件
+     * @param margin 在固定开销之外额外预留的字节数
+     * @return 每个输出文件中各轨道的样本范围 [track][from, to)
+     */
+    private static List<int[][]> planParts(Mp4Movie movie, Timeline[] timelines, int primary, long maxBytes,
+                                           long margin) {
+        Timeline base = timelines[primary];
+        long baseScale = base.timescale;
+        long fixed = FIXED_OVERHEAD + margin + length(movie.ftyp) + length(movie.mvhd) + length(movie.udta);
+        for (Mp4Track track : movie.tracks) {
+            fixed += length(track.tkhd) + length(track.mdhd) + length(track.hdlr)
+                    + length(track.mediaHeader) + length(track.dinf) + length(track.stsd);
+        }
+
+        // 各轨道当前游标
+        int[] cursor = new int[timelines.length];
+        long[] cursorDts = new long[timelines.length];
+
+        List<int[][]> parts = new ArrayList<>();
+        int[] partStart = new int[timelines.length];
+        long partBytes = fixed;
+        boolean partEmpty = true;
+
+        int gopStart = 0;
+        long baseDts = 0;
+        while (gopStart < base.count) {
+            // 找到下一个关键帧，确定 GOP 的结束位置与结束时间
+            int gopEnd = gopStart + 1;
+            long gopEndDts = baseDts + base.durations[gopStart];
+            while (gopEnd < base.count && !base.isSync(gopEnd)) {
+                gopEndDts += base.durations[gopEnd];
+                gopEnd++;
+            }
+            boolean last = gopEnd >= base.count;
+
+            // 统计该 GOP 时间范围内所有轨道的样本字节数
+            long gopBytes = 0;
+            int[] gopTo = new int[timelines.length];
+            for (int t = 0; t < timelines.length; t++) {
+                Timeline tl = timelines[t];
+                int i = cursor[t];
+                long dts = cursorDts[t];
+                if (t == primary) {
+                    for (; i < gopEnd; i++) {
+                        gopBytes += tl.sizes[i] + PER_SAMPLE_OVERHEAD;
+                        dts += tl.durations[i];
+                    }
+                } else {
+                    // dts / tl.timescale < gopEndDts / baseScale（最后一个 GOP 收下剩余全部样本）
+                    while (i < tl.count && (last || dts * baseScale < gopEndDts * tl.timescale)) {
+                        gopBytes += tl.sizes[i] + PER_SAMPLE_OVERHEAD;
+                        dts += tl.durations[i];
+                        i++;
+                    }
+                }
+                gopTo[t] = i;
+                cursorDts[t] = dts;
+            }
+
+            if (!partEmpty && partBytes + gopBytes > maxBytes) {
+                parts.add(range(partStart, cursor));
+                partStart = cursor.clone();
+                partBytes = fixed;
+            }
+            partBytes += gopBytes;
+            partEmpty = false;
+            cursor = gopTo;
+            gopStart = gopEnd;
+            baseDts = gopEndDts;
+        }
+        if (base.count == 0) {
+            // 基准轨道为空时其余轨道整体输出
+            for (int t = 0; t < timelines.length; t++) {
+                cursor[t] = timelines[t].count;
+            }
+        }
+        parts.add(range(partStart, cursor));
+        return parts;
+    }
+
+    private static int[][] range(int[] from, int[] to) {
+        int[][] r = new int[from.length][];
+        for (int t = 0; t < from.length; t++) {
+            r[t] = new int[]{from[t], to[t]};
+        }
+        return r;
+    }
+
+    private static int countSync(Timeline tl, int[] range) {
+        int count = 0;
+        for (int i = range[0]; i < range[1]; i++) {
+            if (tl.isSync(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int length(byte[] box) {
+        return box == null ? 0 : box.length;
+    }
+
+    // ==================== 写出 ====================
+
+    /**
+     * 一个输出文件的布局：文件头、moov 与样本写出顺序
+     */
+    private static final class Layout {
+        final byte[] ftyp;
+        final byte[] moov;
+        final int mdatHeader;
+        final long payload;
+        final List<int[]> order;
+
+        Layout(byte[] ftyp, byte[] moov, int mdatHeader, long payload, List<int[]> order) {
+            this.ftyp = ftyp;
+            this.moov = moov;
+            this.mdatHeader = mdatHeader;
+            this.payload = payload;
+            this.order = order;
+        }
+
+        /** 输出文件的精确大小 */
+        long size() {
+            return ftyp.length + moov.length + mdatHeader + payload;
+        }
+    }
+
+    private static Layout layoutPart(Mp4Movie movie, Timeline[] timelines, int[][] range) throws IOException {
+        // 1. 按解码时间交织各轨道样本，相邻同轨道样本合并为一个 chunk
+        List<int[]> order = interleave(timelines, range);   // {track, sampleIndex}
+        long payload = 0;
+        for (int[] s : order) {
+            payload += timelines[s[0]].sizes[s[1]];
+        }
+
+        byte[] ftyp = movie.ftyp != null ? movie.ftyp : defaultFtyp();
+        int mdatHeader = payload + 8 > 0xFFFFFFFFL ? 16 : 8;
+        long estimate = ftyp.length + mdatHeader + payload + FIXED_OVERHEAD
+                + (long) order.size() * PER_SAMPLE_OVERHEAD;
+        boolean wideOffsets = estimate > 0xFFFFFFFFL;
+
+        // 2. 先以 0 为基址生成 moov 得到其大小，再用真实基址重新生成（大小不变）
+        byte[] moov = buildMoov(movie, timelines, range, order, 0, wideOffsets);
+        long base = ftyp.length + moov.length + mdatHeader;
+        moov = buildMoov(movie, timelines, range, order, base, wideOffsets);
+        return new Layout(ftyp, moov, mdatHeader, payload, order);
+    }
+
+    private static void writePart(Timeline[] timelines, Layout layout, RandomAccessFile[] inputs, File out)
+            throws IOException {
+        List<int[]> order = layout.order;
+        // 写出 ftyp + moov + mdat
+        try (FileOutputStream fos = new FileOutputStream(out);
+             FileChannel channel = fos.getChannel()) {
+            writeAll(channel, ByteBuffer.wrap(layout.ftyp));
+            writeAll(channel, ByteBuffer.wrap(layout.moov));
+            ByteBuffer header = ByteBuffer.allocate(layout.mdatHeader);
+            if (layout.mdatHeader == 16) {
+                header.putInt(1).put(fourCC("mdat")).putLong(layout.payload + 16);
+            } else {
+                header.putInt((int) (layout.payload + 8)).put(fourCC("mdat"));
+            }
+            header.flip();
+            writeAll(channel, header);
+
+            // 源文件中连续的样本合并为一次 transferTo
+            int i = 0;
+            while (i < order.size()) {
+                Timeline tl = timelines[order.get(i)[0]];
+                int idx = order.get(i)[1];
+                int src = tl.sources[idx];
+                long start = tl.offsets[idx];
+                long length = tl.sizes[idx];
+                int j = i + 1;
+                while (j < order.size()) {
+                    Timeline nt = timelines[order.get(j)[0]];
+                    int nidx = order.get(j)[1];
+                    if (nt.sources[nidx] != src || nt.offsets[nidx] != start + length) {
+                        break;
+                    }
+                    length += nt.sizes[nidx];
+                    j++;
+                }
+                transfer(inputs[src].getChannel(), start, length, channel);
+                i = j;
+            }
+        }
+    }
+
+    private static List<int[]> interleave(Timeline[] timelines, int[][] range) {
+        List<int[]> order = new ArrayList<>();
+        int[] next = new int[timelines.length];
+        long[] dts = new long[timelines.length];
+        for (int t = 0; t < timelines.length; t++) {
+            next[t] = range[t][0];
+        }
+        while (true) {
+            int pick = -1;
+            for (int t = 0; t < timelines.length; t++) {
+                if (next[t] >= range[t][1]) {
+                    continue;
+                }
+                if (pick < 0 || dts[t] * timelines[pick].timescale < dts[pick] * timelines[t].timescale) {
+                    pick = t;
+                }
+            }
+            if (pick < 0) {
+                return order;
+            }
+            int idx = next[pick]++;
+            order.add(new int[]{pick, idx});
+            dts[pick] += timelines[pick].durations[idx];
+        }
+    }
+
+    private static byte[] buildMoov(Mp4Movie movie, Timeline[] timelines, int[][] range,
+                                    List<int[]> order, long base, boolean wideOffsets) throws IOException {
+        int trackCount = timelines.length;
+
+        // 每条轨道的 chunk：{首样本序号（轨道内，1 起）, 样本数, 文件偏移}
+        List<List<long[]>> chunks = new ArrayList<>();
+        for (int t = 0; t < trackCount; t++) {
+            chunks.add(new ArrayList<>());
+        }
+        long offset = base;
+        int prevTrack = -1;
+        for (int[] s : order) {
+            int t = s[0];
+            List<long[]> list = chunks.get(t);
+            if (t != prevTrack) {
+                list.add(new long[]{0, 0, offset});
+            }
+            list.get(list.size() - 1)[1]++;
+            offset += timelines[t].sizes[s[1]];
+            prevTrack = t;
+        }
+
+        long movieDuration = 0;
+        ByteArrayOutputStream traks = new ByteArrayOutputStream();
+        for (int t = 0; t < trackCount; t++) {
+            Mp4Track track = movie.tracks.get(t);
+            Timeline tl = timelines[t];
+            int from = range[t][0];
+            int to = range[t][1];
+            long mediaDuration = 0;
+            for (int i = from; i < to; i++) {
+                mediaDuration += tl.durations[i];
+            }
+            long trackDuration = mediaDuration * movie.timescale / tl.timescale;
+            movieDuration = Math.max(movieDuration, trackDuration);
+
+            byte[] stbl = box("stbl",
+                    track.stsd,
+                    buildStts(tl, from, to),
+                    tl.ctsOffsets != null ? buildCtts(tl, from, to) : null,
+                    tl.hasNonSync(from, to) ? buildStss(tl, from, to) : null,
+                    buildStsc(chunks.get(t)),
+                    buildStsz(tl, from, to),
+                    buildChunkOffsets(chunks.get(t), wideOffsets));
+            byte[] minf = box("minf", track.mediaHeader, track.dinf, stbl);
+            byte[] mdia = box("mdia", patchDuration(track.mdhd, 24, 32, mediaDuration), track.hdlr, minf);
+            traks.write(box("trak", patchDuration(track.tkhd, 28, 36, trackDuration), mdia));
+        }
+
+        return box("moov", patchDuration(movie.mvhd, 24, 32, movieDuration), traks.toByteArray(), movie.udta);
+    }
+
+    private static byte[] buildStts(Timeline tl, int from, int to) throws IOException {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(entries);
+        int count = 0;
+        int i = from;
+        while (i < to) {
+            int delta = tl.durations[i];
+            int j = i + 1;
+            while (j < to && tl.durations[j] == delta) {
+                j++;
+            }
+            out.writeInt(j - i);
+            out.writeInt(delta);
+            count++;
+            i = j;
+        }
+        return fullBox("stts", 0, count, entries.toByteArray());
+    }
+
+    private static byte[] buildCtts(Timeline tl, int from, int to) throws IOException {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(entries);
+        int count = 0;
+        boolean negative = false;
+        int i = from;
+        while (i < to) {
+            int value = tl.ctsOffsets[i];
+            negative |= value < 0;
+            int j = i + 1;
+            while (j < to && tl.ctsOffsets[j] == value) {
+                j++;
+            }
+            out.writeInt(j - i);
+            out.writeInt(value);
+            count++;
+            i = j;
+        }
+        return fullBox("ctts", negative ? 1 : 0, count, entries.toByteArray());
+    }
+
+    private static byte[] buildStss(Timeline tl, int from, int to) throws IOException {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(entries);
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (tl.isSync(i)) {
+                out.writeInt(i - from + 1);
+                count++;
+            }
+        }
+        return fullBox("stss", 0, count, entries.toByteArray());
+    }
+
+    private static byte[] buildStsc(List<long[]> chunks) throws IOException {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(entries);
+        int count = 0;
+        long prev = -1;
+        for (int c = 0; c < chunks.size(); c++) {
+            long perChunk = chunks.get(c)[1];
+            if (perChunk != prev) {
+                out.writeInt(c + 1);
+                out.writeInt((int) perChunk);
+                out.writeInt(1);
+                count++;
+                prev = perChunk;
+            }
+        }
+        return fullBox("stsc", 0, count, entries.toByteArray());
+    }
+
+    private static byte[] buildStsz(Timeline tl, int from, int to) throws IOException {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(entries);
+        out.writeInt(0);            // sample_size = 0，逐个列出
+        out.writeInt(to - from);
+        for (int i = from; i < to; i++) {
+            out.writeInt(tl.sizes[i]);
+        }
+        ByteArrayOutputStream box = new ByteArrayOutputStream();
+        DataOutputStream b = new DataOutputStream(box);
+        b.writeInt(12 + entries.size());
+        b.write(fourCC("stsz"));
+        b.writeInt(0);
+        entries.writeTo(b);
+        return box.toByteArray();
+    }
+
+    private static byte[] buildChunkOffsets(List<long[]> chunks, boolean wide) throws IOException {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(entries);
+        for (long[] chunk : chunks) {
+            if (wide) {
+                out.writeLong(chunk[2]);
+            } else {
+                out.writeInt((int) chunk[2]);
+            }
+        }
+        return fullBox(wide ? "co64" : "stco", 0, chunks.size(), entries.toByteArray());
+    }
+
+    /**
+     * 复制 mvhd / tkhd / mdhd 并修补 duration 字段
+     * @param v0Offset version 0 时 duration 在 box 中的偏移
+     * @param v1Offset version 1 时 duration 在 box 中的偏移
+     */
+    private static byte[] patchDuration(byte[] src, int v0Offset, int v1Offset, long duration) {
+        byte[] box = src.clone();
+        ByteBuffer buffer = ByteBuffer.wrap(box);
+        if ((box[8] & 0xFF) == 1) {
+            buffer.putLong(v1Offset, duration);
+        } else {
+            buffer.putInt(v0Offset, (int) Math.min(duration, 0xFFFFFFFFL));
+        }
+        return box;
+    }
+
+    // ==================== box 工具 ====================
+
+    private static byte[] box(String type, byte[]... children) throws IOException {
+        int size = 8;
+        for (byte[] child : children) {
+            size += length(child);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(size);
+        data.write(fourCC(type));
+        for (byte[] child : children) {
+            if (child != null) {
+                data.write(child);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] fullBox(String type, int version, int entryCount, byte[] entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + entries.length);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(16 + entries.length);
+        data.write(fourCC(type));
+        data.writeInt(version << 24);
+        data.writeInt(entryCount);
+        data.write(entries);
+        return out.toByteArray();
+    }
+
+    private static byte[] defaultFtyp() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(24);
+        data.write(fourCC("ftyp"));
+        data.write(fourCC("isom"));
+        data.writeInt(0);
+        data.write(fourCC("isom"));
+        data.write(fourCC("mp41"));
+        return out.toByteArray();
+    }
+
+    private static byte[] fourCC(String type) {
+        return type.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static void writeAll(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void transfer(FileChannel in, long position, long length, FileChannel out) throws IOException {
+        while (length > 0) {
+            long n = in.transferTo(position, length, out);
+            if (n <= 0) {
+                throw new IOException("源文件意外结束");
+            }
+            position += n;
+            length -= n;
+        }
+    }
+
+    // ==================== 拼接后的轨道时间线 ====================
+
+    /**
+     * 同一轨道在所有分段中的样本依次拼接后的表
+     */
+    private static final class Timeline {
+        long timescale;
+        int count;
+        int[] sources;
+        long[] offsets;
+        int[] sizes;
+        int[] durations;
+        int[] ctsOffsets;
+        boolean[] sync;
+
+        static Timeline merge(List<Mp4Movie> movies, int trackIndex) {
+            Timeline tl = new Timeline();
+            boolean anyCtts = false;
+            boolean anyStss = false;
+            for (Mp4Movie movie : movies) {
+                Mp4Track track = movie.tracks.get(trackIndex);
+                tl.count += track.sampleCount;
+                anyCtts |= track.ctsOffsets != null;
+                anyStss |= track.sync != null;
+            }
+            tl.timescale = movies.get(0).tracks.get(trackIndex).timescale;
+            tl.sources = new int[tl.count];
+            tl.offsets = new long[tl.count];
+            tl.sizes = new int[tl.count];
+            tl.durations = new int[tl.count];
+            tl.ctsOffsets = anyCtts ? new int[tl.count] : null;
+            tl.sync = anyStss ? new boolean[tl.count] : null;
+
+            int pos = 0;
+            for (int m = 0; m < movies.size(); m++) {
+                Mp4Track track = movies.get(m).tracks.get(trackIndex);
+                int n = track.sampleCount;
+                java.util.Arrays.fill(tl.sources, pos, pos + n, m);
+                System.arraycopy(track.offsets, 0, tl.offsets, pos, n);
+                System.arraycopy(track.sizes, 0, tl.sizes, pos, n);
+                System.arraycopy(track.durations, 0, tl.durations, pos, n);
+                if (anyCtts && track.ctsOffsets != null) {
+                    System.arraycopy(track.ctsOffsets, 0, tl.ctsOffsets, pos, n);
+                }
+                if (anyStss) {
+                    if (track.sync != null) {
+                        System.arraycopy(track.sync, 0, tl.sync, pos, n);
+                    } else {
+                        java.util.Arrays.fill(tl.sync, pos, pos + n, true);
+                    }
+                }
+                pos += n;
+            }
+            return tl;
+        }
+
+        boolean isSync(int index) {
+            return sync == null || sync[index];
+        }
+
+        boolean hasNonSync(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (!isSync(i)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.kooo.evcam.mp4;
+
+/**
+ * MP4 轨道（纯 Java，无 Android 依赖）
+ * 保存重新封装所需的原始描述 box 和展开后的逐样本表
+ */
+public class Mp4Track {
+    public static final String HANDLER_VIDEO = "vide";
+    public static final String HANDLER_SOUND = "soun";
+
+    // 原始 box（含 8 字节头），写出时原样复制或仅修补时长字段
+    byte[] tkhd;
+    byte[] mdhd;
+    byte[] hdlr;
+    byte[] mediaHeader;   // vmhd / smhd / nmhd 等
+    byte[] dinf;
+    byte[] stsd;
+
+    String handlerType = "";
+    long timescale;
+
+    // 逐样本表（下标即样本序号）
+    int sampleCount;
+    long[] offsets;       // 样本在源文件中的绝对偏移
+    int[] sizes;
+    int[] durations;      // 解码时长（媒体时间刻度）
+    int[] ctsOffsets;     // 合成时间偏移，无 ctts 时为 null
+    boolean[] sync;       // 关键帧标记，无 stss 时为 null（全部为关键帧）
+
+    public String getHandlerType() {
+        return handlerType;
+    }
+
+    public boolean isVideo() {
+        return HANDLER_VIDEO.equals(handlerType);
+    }
+
+    public long getTimescale() {
+        return timescale;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public int getSampleSize(int index) {
+        return sizes[index];
+    }
+
+    public long getSampleOffset(int index) {
+        return offsets[index];
+    }
+
+    public int getSampleDuration(int index) {
+        return durations[index];
+    }
+
+    public boolean isSyncSample(int index) {
+        return sync == null || sync[index];
+    }
+
+    /**
+     * 媒体时长（媒体时间刻度）
+     */
+    public long getMediaDuration() {
+        long total = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            total += durations[i];
+        }
+        return total;
+    }
+
+    public long getTotalBytes() {
+        long total = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            total += sizes[i];
+        }
+        return total;
+    }
+
+    /**
+     * 两条轨道的样本能否直接首尾拼接（编码参数完全相同）
+     */
+    public boolean isConcatCompatible(Mp4Track other) {
+        return handlerType.equals(other.handlerType)
+                && timescale == other.timescale
+                && java.util.Arrays.equals(stsd, other.stsd);
+    }
+}
@@ -0,0 +1,229 @@
+package com.kooo.evcam.net;
+
+import com.kooo.evcam.AppLog;
+
+import java.io.InterruptedIOException;
+
+/**
+ * 全局上行带宽整形器（单例）
+ *
+ * 所有 API 客户端的请求体都经过同一个令牌桶：
+ * - 控制、长轮询、心跳不排队，但会消耗令牌（记账），让限速流量相应让出带宽
+ * - 预览和大文件上传按令牌放行，预览优先；有控制/心跳请求在途时限速流量速率减半
+ * - 限速流量传输期间，用控制/心跳请求的耗时估计 RTT：RTT 明显膨胀（基站缓冲区被灌满）时
+ *   乘性降速，恢复后加性提速，上限为用户配置的上传速率
+ */
+public final class BandwidthShaper {
+    private static final String TAG = "BandwidthShaper";
+
+    /** 单次放行的最大字节数（请求体按此切块写出） */
+    static final int CHUNK_BYTES = 16 * 1024;
+
+    /** 未配置上限时的速率上限 8MB/s（相当于不限速，只靠 RTT 自适应收敛） */
+    private static final long AUTO_MAX_RATE = 8L * 1024 * 1024;
+    /** 自适应速率下限 32KB/s */
+    private static final long MIN_RATE = 32 * 1024;
+    /** 每次加性提速的步长 */
+    private static final long RATE_STEP = 32 * 1024;
+    private static final double DECREASE_FACTOR = 0.7;
+    /** 两次速率调整的最小间隔 */
+    private static final long ADJUST_INTERVAL_MS = 1000;
+    /** 超过该耗时的样本视为服务端处理慢，不计入 RTT */
+    private static final long MAX_RTT_SAMPLE_MS = 5000;
+    /** 基准 RTT（最小值）的有效期，过期后以新样本重新建立 */
+    private static final long BASE_RTT_WINDOW_MS = 5 * 60 * 1000;
+    /** 令牌桶容量（秒） */
+    private static final double BURST_SECONDS = 0.25;
+
+    private static final BandwidthShaper INSTANCE = new BandwidthShaper(System::nanoTime);
+
+    /**
+     * 单调时间源（纳秒），测试时替换
+     */
+    interface Clock {
+        long nanoTime();
+    }
+
+    private final Clock clock;
+    private final Object lock = new Object();
+    private final int[] waiting = new int[TrafficClass.values().length];
+    private final int[] inFlight = new int[TrafficClass.values().length];
+    private final long[] bytesSent = new long[TrafficClass.values().length];
+
+    private long ceiling = 0;                   // 0 表示自动
+    private double rate = AUTO_MAX_RATE;        // 当前限速流量速率（字节/秒）
+    private double tokens = 0;
+    private long lastRefillNanos;
+
+    private long baseRttMs = -1;
+    private long baseRttAt = 0;
+    private long lastAdjustAt;
+
+    public static BandwidthShaper getInstance() {
+        return INSTANCE;
+    }
+
+    BandwidthShaper(Clock clock) {
+        this.clock = clock;
+        lastRefillNanos = clock.nanoTime();
+        lastAdjustAt = nowMs() - ADJUST_INTERVAL_MS;
+    }
+
+    /**
+     * 设置上传速率上限
+     * @param bytesPerSecond 字节/秒，0 表示自动（仅按 RTT 自适应）
+     */
+    public void setCeiling(long bytesPerSecond) {
+        synchronized (lock) {
+            ceiling = Math.max(0, bytesPerSecond);
+            rate = Math.min(Math.max(rate, MIN_RATE), maxRate());
+            lock.notifyAll();
+        }
+        AppLog.d(TAG, "上传速率上限: " + (bytesPerSecond > 0 ? (bytesPerSecond / 1024) + "KB/s" : "自动"));
+    }
+
+    /**
+     * 当前限速流量速率（字节/秒）
+     */
+    public long getCurrentRate() {
+        synchronized (lock) {
+            return (long) rate;
+        }
+    }
+
+    /**
+     * 各优先级累计发送字节数
+     */
+    public long getBytesSent(TrafficClass cls) {
+        synchronized (lock) {
+            return bytesSent[cls.ordinal()];
+        }
+    }
+
+    // ==================== 令牌桶 ====================
+
+    /**
+     * 发送 bytes 字节前调用，必要时阻塞直到获得令牌
+     * @throws InterruptedIOException 等待期间线程被中断（请求被取消）
+     */
+    public void acquire(TrafficClass cls, int bytes) throws InterruptedIOException {
+        synchronized (lock) {
+            bytesSent[cls.ordinal()] += bytes;
+            if (!cls.isShaped()) {
+                // 高优先级流量不等待，只记账
+                refill();
+                tokens -= bytes;
+                return;
+            }
+
+            waiting[cls.ordinal()]++;
+            try {
+                while (true) {
+                    refill();
+                    if (!hasHigherPriorityWaiting(cls) && tokens >= Math.min(bytes, burst())) {
+                        tokens -= bytes;
+                        return;
+                    }
+                    double deficit = Math.max(Math.min(bytes, burst()) - tokens, 1);
+                    long waitMs = (long) Math.ceil(deficit * 1000 / effectiveRate());
+                    lock.wait(Math.max(1, Math.min(waitMs, 1000)));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("带宽等待被中断");
+            } finally {
+                waiting[cls.ordinal()]--;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void refill() {
+        long now = clock.nanoTime();
+        tokens = Math.min(burst(), tokens + effectiveRate() * (now - lastRefillNanos) / 1e9);
+        lastRefillNanos = now;
+    }
+
+    private double burst() {
+        return Math.max(CHUNK_BYTES, rate * BURST_SECONDS);
+    }
+
+    /**
+     * 有控制/心跳请求在途时，限速流量让出一半带宽
+     */
+    private double effectiveRate() {
+        boolean interactive = false;
+        for (TrafficClass c : TrafficClass.values()) {
+            if (!c.isShaped() && c != TrafficClass.POLL && inFlight[c.ordinal()] > 0) {
+                interactive = true;
+                break;
+            }
+        }
+        return interactive ? rate / 2 : rate;
+    }
+
+    private boolean hasHigherPriorityWaiting(TrafficClass cls) {
+        for (TrafficClass c : TrafficClass.values()) {
+            if (c.isShaped() && c.getPriority() < cls.getPriority() && waiting[c.ordinal()] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long maxRate() {
+        return ceiling > 0 ? ceiling : AUTO_MAX_RATE;
+    }
+
+    private long nowMs() {
+        return clock.nanoTime() / 1_000_000;
+    }
+
+    // ==================== 在途请求与 RTT 自适应 ====================
+
+    void beginRequest(TrafficClass cls) {
+        synchronized (lock) {
+            inFlight[cls.ordinal()]++;
+        }
+    }
+
+    void endRequest(TrafficClass cls) {
+        synchronized (lock) {
+            inFlight[cls.ordinal()]--;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 记录一次小请求的耗时（发出请求到收到响应头）
+     */
+    void onRttSample(long rttMs) {
+        if (rttMs <= 0 || rttMs > MAX_RTT_SAMPLE_MS) {
+            return;
+        }
+        long now = nowMs();
+        synchronized (lock) {
+            if (baseRttMs < 0 || rttMs < baseRttMs || now - baseRttAt > BASE_RTT_WINDOW_MS) {
+                baseRttMs = rttMs;
+                baseRttAt = now;
+            }
+
+            // 只在限速流量传输期间调整：空闲时的 RTT 不反映排队情况
+            boolean loaded = inFlight[TrafficClass.PREVIEW.ordinal()] > 0 || inFlight[TrafficClass.BULK.ordinal()] > 0;
+            if (!loaded || now - lastAdjustAt < ADJUST_INTERVAL_MS) {
+                return;
+            }
+            lastAdjustAt = now;
+
+            double old = rate;
+            if (rttMs > baseRttMs * 2 + 100) {
+                rate = Math.max(MIN_RATE, rate * DECREASE_FACTOR);
+            } else if (rttMs < baseRttMs * 3 / 2 + 50) {
+                rate = Math.min(maxRate(), rate + RATE_STEP);
+            }
+            if (rate < old) {
+                AppLog.d(TAG, "RTT " + rttMs + "ms（基准 " + baseRttMs + "ms），上传降速至 " + (long) (rate / 1024) + "KB/s");
+            }
+        }
+    }
+}
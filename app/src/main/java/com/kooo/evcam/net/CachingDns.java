@@ -0,0 +1,72 @@
+package com.kooo.evcam.net;
+
+import com.kooo.evcam.AppLog;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Dns;
+
+/**
+ * 适合车机 4G 模块的 DNS 缓存
+ * - 成功结果缓存 {@link #FRESH_TTL_MS}，期间不再查询
+ * - 过期后重新查询；查询失败（信号差、DNS 服务器超时）时继续使用旧结果，最长 {@link #STALE_TTL_MS}
+ */
+public class CachingDns implements Dns {
+    private static final String TAG = "CachingDns";
+
+    private static final long FRESH_TTL_MS = 10 * 60 * 1000L;
+    private static final long STALE_TTL_MS = 24 * 60 * 60 * 1000L;
+
+    private final Dns delegate;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+        final List<InetAddress> addresses;
+        final long resolvedAt;
+
+        Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    public CachingDns(Dns delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(hostname);
+        if (entry != null && now - entry.resolvedAt < FRESH_TTL_MS) {
+            return entry.addresses;
+        }
+
+        try {
+            List<InetAddress> addresses = delegate.lookup(hostname);
+            if (!addresses.isEmpty()) {
+                cache.put(hostname, new Entry(addresses, now));
+            }
+            return addresses;
+        } catch (UnknownHostException e) {
+            if (entry != null && now - entry.resolvedAt < STALE_TTL_MS) {
+                AppLog.w(TAG, "DNS 查询失败，使用缓存结果: " + hostname);
+                return entry.addresses;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 清除某个主机的缓存（连接缓存的地址失败时，服务端可能已更换地址），下次请求重新查询
+     * 未经 DNS 解析的主机（如 IP 地址）不在缓存中，调用无影响
+     */
+    public void invalidate(String hostname) {
+        if (cache.remove(hostname) != null) {
+            AppLog.d(TAG, "连接失败，清除 DNS 缓存: " + hostname);
+        }
+    }
+}
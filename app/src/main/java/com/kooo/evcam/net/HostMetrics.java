@@ -0,0 +1,152 @@
+package com.kooo.evcam.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * 按主机统计的网络指标（请求数、失败数、首字节延迟、上下行字节）
+ * 作为 OkHttp EventListener 挂在共享客户端上，所有平台的请求都会被统计；
+ * 连接失败时同时清除该主机的 DNS 缓存
+ */
+public class HostMetrics {
+
+    /**
+     * 单个主机的累计指标
+     */
+    public static final class Stats {
+        private final String host;
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong latencyTotalMs = new AtomicLong();
+        final AtomicLong latencySamples = new AtomicLong();
+        final AtomicLong bytesSent = new AtomicLong();
+        final AtomicLong bytesReceived = new AtomicLong();
+
+        Stats(String host) {
+            this.host = host;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public long getCalls() {
+            return calls.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        /** 平均首字节延迟（毫秒，从发起请求到收到响应头） */
+        public long getAverageLatencyMs() {
+            long samples = latencySamples.get();
+            return samples > 0 ? latencyTotalMs.get() / samples : 0;
+        }
+
+        public long getBytesSent() {
+            return bytesSent.get();
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived.get();
+        }
+
+        @Override
+        public String toString() {
+            return host + ": " + calls.get() + " 次, 失败 " + failures.get()
+                    + ", 延迟 " + getAverageLatencyMs() + "ms"
+                    + ", 上行 " + (bytesSent.get() / 1024) + "KB"
+                    + ", 下行 " + (bytesReceived.get() / 1024) + "KB";
+        }
+    }
+
+    private final ConcurrentHashMap<String, Stats> stats = new ConcurrentHashMap<>();
+    private final CachingDns dns;
+
+    HostMetrics(CachingDns dns) {
+        this.dns = dns;
+    }
+
+    /**
+     * 所有主机的指标快照
+     */
+    public List<Stats> snapshot() {
+        return new ArrayList<>(stats.values());
+    }
+
+    private Stats statsFor(Call call) {
+        String host = call.request().url().host();
+        Stats s = stats.get(host);
+        if (s == null) {
+            s = new Stats(host);
+            Stats existing = stats.putIfAbsent(host, s);
+            if (existing != null) {
+                s = existing;
+            }
+        }
+        return s;
+    }
+
+    EventListener.Factory listenerFactory() {
+        return call -> new Listener(statsFor(call), dns);
+    }
+
+    /**
+     * 每个请求一个监听器实例，记录该请求的起始时间
+     */
+    private static final class Listener extends EventListener {
+        private final Stats stats;
+        private final CachingDns dns;
+        private long startNanos;
+
+        Listener(Stats stats, CachingDns dns) {
+            this.stats = stats;
+            this.dns = dns;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            startNanos = System.nanoTime();
+            stats.calls.incrementAndGet();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            stats.bytesSent.addAndGet(byteCount);
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            stats.latencyTotalMs.addAndGet((System.nanoTime() - startNanos) / 1_000_000);
+            stats.latencySamples.incrementAndGet();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            stats.bytesReceived.addAndGet(byteCount);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                                  Protocol protocol, IOException ioe) {
+            // 只在建立连接失败时清除：读写超时等不说明地址失效，DNS 查询失败时仍可用旧地址
+            dns.invalidate(call.request().url().host());
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            stats.failures.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.kooo.evcam.net;
+
+import com.kooo.evcam.AppLog;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.OkHttpClient;
+
+/**
+ * 全局共享网络栈（单例）
+ *
+ * 所有平台的 API 客户端都从同一个基础 OkHttpClient 派生（newBuilder），共享：
+ * - 连接池（同一主机的 TLS 连接可复用，减少握手）
+ * - 调度器线程池（异步请求）
+ * - DNS 缓存（4G 信号差时可使用旧结果）
+ * - 按主机的网络指标
+ * 派生客户端只覆盖超时等参数，并挂上带宽整形拦截器。
+ */
+public final class NetworkStack {
+    private static final String TAG = "NetworkStack";
+
+    /** 空闲连接数上限与保活时间：车机同时连接的服务端不超过十来个 */
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static volatile NetworkStack instance;
+
+    private final OkHttpClient baseClient;
+    private final CachingDns dns;
+    private final HostMetrics metrics;
+
+    public static NetworkStack getInstance() {
+        if (instance == null) {
+            synchronized (NetworkStack.class) {
+                if (instance == null) {
+                    instance = new NetworkStack();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private NetworkStack() {
+        dns = new CachingDns(Dns.SYSTEM);
+        metrics = new HostMetrics(dns);
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "NetworkStack-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        baseClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(new Dispatcher(executor))
+                .dns(dns)
+                .eventListenerFactory(metrics.listenerFactory())
+                .retryOnConnectionFailure(true)
+                .build();
+        AppLog.d(TAG, "共享网络栈已创建");
+    }
+
+    /**
+     * 派生一个客户端构建器（共享连接池、调度器、DNS 缓存和指标）
+     * @param defaultClass 该客户端请求的默认带宽优先级
+     */
+    public OkHttpClient.Builder newBuilder(TrafficClass defaultClass) {
+        return baseClient.newBuilder()
+                .addInterceptor(new ShapingInterceptor(defaultClass));
+    }
+
+    /**
+     * 输出各主机网络指标到日志
+     */
+    public void logMetrics() {
+        for (HostMetrics.Stats stats : metrics.snapshot()) {
+            AppLog.d(TAG, stats.toString());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.kooo.evcam.net;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+
+/**
+ * OkHttp 带宽整形拦截器
+ * 请求体经 {@link BandwidthShaper} 分块放行；请求的优先级取自 tag(TrafficClass.class)，
+ * 未设置时使用客户端的默认优先级。默认优先级为控制类的客户端发出大请求体时自动降为 BULK。
+ */
+public class ShapingInterceptor implements Interceptor {
+    /** 超过该大小的控制类请求体视为大文件上传 */
+    private static final long BULK_PROMOTE_BYTES = 256 * 1024;
+    /** 请求体超过该大小时耗时主要是上传时间，不作为 RTT 样本 */
+    private static final long RTT_PROBE_MAX_BYTES = 16 * 1024;
+
+    private final TrafficClass defaultClass;
+    private final BandwidthShaper shaper = BandwidthShaper.getInstance();
+
+    public ShapingInterceptor(TrafficClass defaultClass) {
+        this.defaultClass = defaultClass;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        TrafficClass cls = request.tag(TrafficClass.class);
+        if (cls == null) {
+            cls = defaultClass;
+        }
+
+        RequestBody body = request.body();
+        long contentLength = body != null ? body.contentLength() : 0;
+        if (body != null && cls == TrafficClass.CONTROL && contentLength > BULK_PROMOTE_BYTES) {
+            cls = TrafficClass.BULK;
+        }
+        if (body != null) {
+            request = request.newBuilder()
+                    .method(request.method(), new ShapedRequestBody(body, cls, shaper))
+                    .build();
+        }
+
+        shaper.beginRequest(cls);
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(request);
+            if (cls.isRttProbe() && contentLength >= 0 && contentLength <= RTT_PROBE_MAX_BYTES) {
+                shaper.onRttSample((System.nanoTime() - start) / 1_000_000);
+            }
+            return response;
+        } finally {
+            shaper.endRequest(cls);
+        }
+    }
+
+    /**
+     * 分块向整形器申请令牌后再写出的请求体
+     */
+    private static final class ShapedRequestBody extends RequestBody {
+        private final RequestBody delegate;
+        private final TrafficClass cls;
+        private final BandwidthShaper shaper;
+
+        ShapedRequestBody(RequestBody delegate, TrafficClass cls, BandwidthShaper shaper) {
+            this.delegate = delegate;
+            this.cls = cls;
+            this.shaper = shaper;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return delegate.isOneShot();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            BufferedSink shaped = Okio.buffer(new ForwardingSink(sink) {
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    while (byteCount > 0) {
+                        long n = Math.min(byteCount, BandwidthShaper.CHUNK_BYTES);
+                        shaper.acquire(cls, (int) n);
+                        super.write(source, n);
+                        byteCount -= n;
+                    }
+                }
+            });
+            delegate.writeTo(shaped);
+            shaped.emit();
+        }
+    }
+}
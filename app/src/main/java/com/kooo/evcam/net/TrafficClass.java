@@ -0,0 +1,43 @@
+package com.kooo.evcam.net;
+
+/**
+ * 网络流量优先级
+ * 4G 上行带宽有限时，按以下顺序保证：控制/命令 → 心跳 → 预览 → 大文件上传
+ */
+public enum TrafficClass {
+    /** 控制与命令（发消息、回执、取 token 等小请求），不限速，同时作为 RTT 探测样本 */
+    CONTROL(0, false, true),
+    /** 长轮询（如 Telegram getUpdates），不限速；服务端会挂起请求，不能作为 RTT 样本 */
+    POLL(0, false, false),
+    /** 心跳上报，不限速 */
+    HEARTBEAT(1, false, true),
+    /** 实时预览帧，限速，但优先于大文件上传 */
+    PREVIEW(2, true, false),
+    /** 视频/照片等大文件上传，限速，最低优先级 */
+    BULK(3, true, false);
+
+    private final int priority;
+    private final boolean shaped;
+    private final boolean rttProbe;
+
+    TrafficClass(int priority, boolean shaped, boolean rttProbe) {
+        this.priority = priority;
+        this.shaped = shaped;
+        this.rttProbe = rttProbe;
+    }
+
+    /** 数值越小优先级越高 */
+    public int getPriority() {
+        return priority;
+    }
+
+    /** 是否受令牌桶限速 */
+    public boolean isShaped() {
+        return shaped;
+    }
+
+    /** 请求耗时能否作为链路 RTT 样本 */
+    public boolean isRttProbe() {
+        return rttProbe;
+    }
+}
@@ -0,0 +1,84 @@
+package com.kooo.evcam.playback;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ExifInterface;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.Option;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceDecoder;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.BitmapResource;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 优先使用 JPEG 内嵌 EXIF 缩略图的 Glide 解码器
+ * 只在请求显式设置 {@link #USE_EXIF_THUMBNAIL} 时生效（网格缩略图），
+ * ExifInterface 只读取文件头部，几 KB 即可得到缩略图。
+ * 没有内嵌缩略图或缩略图明显小于目标尺寸时返回 null，Glide 自动回退到原图解码。
+ */
+public class ExifThumbnailDecoder implements ResourceDecoder<File, Bitmap> {
+
+    /** 网格缩略图请求开启此选项 */
+    public static final Option<Boolean> USE_EXIF_THUMBNAIL =
+            Option.memory("com.kooo.evcam.playback.ExifThumbnailDecoder.UseExifThumbnail", false);
+
+    private final BitmapPool bitmapPool;
+
+    public ExifThumbnailDecoder(BitmapPool bitmapPool) {
+        this.bitmapPool = bitmapPool;
+    }
+
+    @Override
+    public boolean handles(@NonNull File source, @NonNull Options options) {
+        if (!Boolean.TRUE.equals(options.get(USE_EXIF_THUMBNAIL))) {
+            return false;
+        }
+        String name = source.getName().toLowerCase();
+        return name.endsWith(".jpg") || name.endsWith(".jpeg");
+    }
+
+    @Nullable
+    @Override
+    public Resource<Bitmap> decode(@NonNull File source, int width, int height, @NonNull Options options)
+            throws IOException {
+        ExifInterface exif = new ExifInterface(source.getAbsolutePath());
+        byte[] thumbnail = exif.getThumbnailBytes();
+        if (thumbnail == null) {
+            return null;
+        }
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(thumbnail, 0, thumbnail.length, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null;
+        }
+        // 缩略图不足目标尺寸一半时放大会明显模糊，交给原图解码
+        if (width > 0 && height > 0 && bounds.outWidth * 2 < width && bounds.outHeight * 2 < height) {
+            return null;
+        }
+
+        BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+        decodeOptions.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        decodeOptions.inMutable = true;
+        Bitmap reusable = bitmapPool.getDirty(bounds.outWidth, bounds.outHeight, Bitmap.Config.ARGB_8888);
+        decodeOptions.inBitmap = reusable;
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeByteArray(thumbnail, 0, thumbnail.length, decodeOptions);
+        } catch (IllegalArgumentException e) {
+            // inBitmap 不可复用时重新分配
+            bitmapPool.put(reusable);
+            decodeOptions.inBitmap = null;
+            bitmap = BitmapFactory.decodeByteArray(thumbnail, 0, thumbnail.length, decodeOptions);
+        }
+        return BitmapResource.obtain(bitmap, bitmapPool);
+    }
+}
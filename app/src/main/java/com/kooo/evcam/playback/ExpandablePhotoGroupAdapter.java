@@ -8,6 +8,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
@@ -18,24 +19,42 @@ import com.kooo.evcam.R;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * 可展开的图片分组适配器
  * 支持按日期分组显示，点击日期头部可展开/收起
+ * 列表更新通过 AsyncListDiffer 在后台线程计算差异，只重新绑定变化的行；
+ * 日期分组按页加载，滚动到底部时再追加后续日期
  */
 public class ExpandablePhotoGroupAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-    private static final int VIEW_TYPE_DATE_HEADER = 0;
-    private static final int VIEW_TYPE_PHOTO_GROUP = 1;
+    private static final int VIEW_TYPE_DATE_HEADER = PlaybackListItem.TYPE_DATE_HEADER;
+    private static final int VIEW_TYPE_PHOTO_GROUP = PlaybackListItem.TYPE_GROUP;
+
+    /** 每页加载的日期分组数量 */
+    private static final int SECTION_PAGE_SIZE = 7;
 
     private final Context context;
     private final List<DateSection<PhotoGroup>> dateSections;
     
-    /** 扁平化后的列表项（用于 RecyclerView 显示） */
-    private final List<Object> flattenedItems = new ArrayList<>();
+    /** 扁平化后的列表项（后台差分后提交给 RecyclerView 显示） */
+    private final AsyncListDiffer<PlaybackListItem> differ =
+            new AsyncListDiffer<>(this, PlaybackListItem.DIFF_CALLBACK);
+
+    /** 稳定 ID 映射（按行键分配，刷新后同一行保持相同 ID；每次提交后只保留当前列表中的行键） */
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private long nextStableId = 1;
+
+    /** 差分结果提交到 RecyclerView 后的回调 */
+    private Runnable onListCommittedListener;
+
+    /** 当前已加载的日期分组数量 */
+    private int loadedSectionCount = SECTION_PAGE_SIZE;
     
     /** 多选模式下选中的 PhotoGroup */
     private Set<PhotoGroup> selectedGroups = new HashSet<>();
@@ -62,21 +81,69 @@ public class ExpandablePhotoGroupAdapter extends RecyclerView.Adapter<RecyclerVi
     public ExpandablePhotoGroupAdapter(Context context, List<DateSection<PhotoGroup>> dateSections) {
         this.context = context;
         this.dateSections = dateSections;
+        setHasStableIds(true);
         buildFlattenedList();
     }
 
     /**
-     * 构建扁平化列表
-     * 根据展开状态将日期头部和图片项转换为扁平列表
+     * 构建扁平化列表并提交差分
+     * 根据展开、选中状态将已加载的日期头部和图片项转换为行快照，
+     * 差异在后台线程计算，完成后只通知变化的行
      */
     public void buildFlattenedList() {
-        flattenedItems.clear();
-        for (DateSection<PhotoGroup> section : dateSections) {
-            flattenedItems.add(section);
+        List<PlaybackListItem> items = new ArrayList<>();
+        int sectionCount = Math.min(loadedSectionCount, dateSections.size());
+        for (int i = 0; i < sectionCount; i++) {
+            DateSection<PhotoGroup> section = dateSections.get(i);
+            items.add(PlaybackListItem.header(section));
             if (section.isExpanded()) {
-                flattenedItems.addAll(section.getItems());
+                for (PhotoGroup group : section.getItems()) {
+                    items.add(PlaybackListItem.group(group.getTimestampPrefix(), group,
+                            group.getPhotoCount(), group.getTotalSize(),
+                            selectedGroups.contains(group), isMultiSelectMode));
+                }
             }
         }
+        differ.submitList(items, this::onListCommitted);
+    }
+
+    private void onListCommitted() {
+        // 已删除的文件或日期不再占用稳定 ID 映射
+        Set<String> keys = new HashSet<>();
+        for (PlaybackListItem item : differ.getCurrentList()) {
+            keys.add(item.key);
+        }
+        stableIds.keySet().retainAll(keys);
+        if (onListCommittedListener != null) {
+            onListCommittedListener.run();
+        }
+    }
+
+    /**
+     * 设置列表提交回调（主线程调用，此时 RecyclerView 已收到变化通知，尚未重新布局）
+     */
+    public void setOnListCommittedListener(Runnable listener) {
+        this.onListCommittedListener = listener;
+    }
+
+    /**
+     * 是否还有未加载的日期分组
+     */
+    public boolean hasMoreSections() {
+        return loadedSectionCount < dateSections.size();
+    }
+
+    /**
+     * 加载下一页日期分组
+     * @return 是否有新内容被追加
+     */
+    public boolean loadNextPage() {
+        if (!hasMoreSections()) {
+            return false;
+        }
+        loadedSectionCount += SECTION_PAGE_SIZE;
+        buildFlattenedList();
+        return true;
     }
 
     public void setOnItemClickListener(OnItemClickListener listener) {
@@ -96,6 +163,7 @@ public class ExpandablePhotoGroupAdapter extends RecyclerView.Adapter<RecyclerVi
         if (!multiSelectMode) {
             selectedGroups.clear();
         }
+        buildFlattenedList();
     }
 
     public boolean isMultiSelectMode() {
@@ -116,6 +184,7 @@ public class ExpandablePhotoGroupAdapter extends RecyclerView.Adapter<RecyclerVi
 
     public void clearSelection() {
         selectedGroups.clear();
+        buildFlattenedList();
     }
 
     /**
@@ -126,6 +195,7 @@ public class ExpandablePhotoGroupAdapter extends RecyclerView.Adapter<RecyclerVi
         for (DateSection<PhotoGroup> section : dateSections) {
             selectedGroups.addAll(section.getItems());
         }
+        buildFlattenedList();
     }
 
     /**
@@ -141,12 +211,18 @@ public class ExpandablePhotoGroupAdapter extends RecyclerView.Adapter<RecyclerVi
 
     @Override
     public int getItemViewType(int position) {
-        Object item = flattenedItems.get(position);
-        if (item instanceof DateSection) {
-            return VIEW_TYPE_DATE_HEADER;
-        } else {
-            return VIEW_TYPE_PHOTO_GROUP;
+        return differ.getCurrentList().get(position).type;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String key = differ.getCurrentList().get(position).key;
+        Long id = stableIds.get(key);
+        if (id == null) {
+            id = nextStableId++;
+            stableIds.put(key, id);
         }
+        return id;
     }
 
     @NonNull
@@ -163,19 +239,40 @@ public class ExpandablePhotoGroupAdapter extends RecyclerView.Adapter<RecyclerVi
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        Object item = flattenedItems.get(position);
+        Object item = differ.getCurrentList().get(position).data;
 
         if (holder instanceof DateHeaderViewHolder) {
             @SuppressWarnings("unchecked")
             DateSection<PhotoGroup> section = (DateSection<PhotoGroup>) item;
-            bindDateHeader((DateHeaderViewHolder) holder, section, position);
+            bindDateHeader((DateHeaderViewHolder) holder, section);
         } else if (holder instanceof PhotoGroupViewHolder) {
             PhotoGroup group = (PhotoGroup) item;
-            bindPhotoGroup((PhotoGroupViewHolder) holder, group, position);
+            bindPhotoGroup((PhotoGroupViewHolder) holder, group);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (holder instanceof PhotoGroupViewHolder && payloads.contains(PlaybackListItem.PAYLOAD_SELECTION)) {
+            // 只有选中状态变化：更新样式，不重新加载缩略图
+            bindSelectionState((PhotoGroupViewHolder) holder, (PhotoGroup) differ.getCurrentList().get(position).data);
+            return;
         }
+        super.onBindViewHolder(holder, position, payloads);
     }
 
-    private void bindDateHeader(DateHeaderViewHolder holder, DateSection<PhotoGroup> section, int position) {
+    /**
+     * 获取 holder 当前对应的数据（刷新后内容未变的行不会重新绑定，点击时按位置取最新对象）
+     */
+    private Object getItemData(RecyclerView.ViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) {
+            return null;
+        }
+        return differ.getCurrentList().get(position).data;
+    }
+
+    private void bindDateHeader(DateHeaderViewHolder holder, DateSection<PhotoGroup> section) {
         // 设置日期文字
         holder.dateText.setText(section.getFullDateDisplay());
         
@@ -188,17 +285,22 @@ public class ExpandablePhotoGroupAdapter extends RecyclerView.Adapter<RecyclerVi
         
         // 点击切换展开状态
         holder.itemView.setOnClickListener(v -> {
-            section.toggleExpanded();
+            Object data = getItemData(holder);
+            if (!(data instanceof DateSection)) {
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            DateSection<PhotoGroup> current = (DateSection<PhotoGroup>) data;
+            current.toggleExpanded();
             buildFlattenedList();
-            notifyDataSetChanged();
             
             if (dateHeaderClickListener != null) {
-                dateHeaderClickListener.onDateHeaderClick(section, position);
+                dateHeaderClickListener.onDateHeaderClick(current, holder.getBindingAdapterPosition());
             }
         });
     }
 
-    private void bindPhotoGroup(PhotoGroupViewHolder holder, PhotoGroup group, int position) {
+    private void bindPhotoGroup(PhotoGroupViewHolder holder, PhotoGroup group) {
         // 设置日期时间（只显示时间，因为日期已在头部显示）
         holder.videoDate.setVisibility(View.GONE);
         holder.videoTime.setText(group.getFormattedTime());
@@ -214,40 +316,49 @@ public class ExpandablePhotoGroupAdapter extends RecyclerView.Adapter<RecyclerVi
         loadThumbnail(group.getLeftPhoto(), holder.thumbLeft);
         loadThumbnail(group.getRightPhoto(), holder.thumbRight);
 
-        // 选中状态样式
-        boolean isSelected = selectedGroups.contains(group);
-        updateSelectionStyle(holder, isSelected);
-
-        // 多选模式的选中指示器
-        if (isMultiSelectMode) {
-            holder.checkIndicator.setVisibility(View.VISIBLE);
-            holder.checkIndicator.setChecked(isSelected);
-        } else {
-            holder.checkIndicator.setVisibility(View.GONE);
-        }
+        bindSelectionState(holder, group);
 
         // 点击事件
         holder.itemView.setOnClickListener(v -> {
+            Object data = getItemData(holder);
+            if (!(data instanceof PhotoGroup)) {
+                return;
+            }
+            PhotoGroup current = (PhotoGroup) data;
             if (isMultiSelectMode) {
-                // 多选模式：切换选中状态
-                if (selectedGroups.contains(group)) {
-                    selectedGroups.remove(group);
+                // 多选模式：切换选中状态（差分后只刷新这一行）
+                if (selectedGroups.contains(current)) {
+                    selectedGroups.remove(current);
                 } else {
-                    selectedGroups.add(group);
+                    selectedGroups.add(current);
                 }
-                notifyItemChanged(position);
+                buildFlattenedList();
                 if (itemSelectedListener != null) {
-                    itemSelectedListener.onItemSelected(group);
+                    itemSelectedListener.onItemSelected(current);
                 }
             } else {
                 // 单选模式：选中并显示
                 if (itemClickListener != null) {
-                    itemClickListener.onItemClick(group, position);
+                    itemClickListener.onItemClick(current, holder.getBindingAdapterPosition());
                 }
             }
         });
     }
 
+    private void bindSelectionState(PhotoGroupViewHolder holder, PhotoGroup group) {
+        // 选中状态样式
+        boolean isSelected = selectedGroups.contains(group);
+        updateSelectionStyle(holder, isSelected);
+
+        // 多选模式的选中指示器
+        if (isMultiSelectMode) {
+            holder.checkIndicator.setVisibility(View.VISIBLE);
+            holder.checkIndicator.setChecked(isSelected);
+        } else {
+            holder.checkIndicator.setVisibility(View.GONE);
+        }
+    }
+
     private void updateSelectionStyle(PhotoGroupViewHolder holder, boolean isSelected) {
         if (isSelected) {
             holder.itemView.setBackgroundColor(context.getResources().getColor(R.color.item_selected_background));
@@ -267,6 +378,7 @@ public class ExpandablePhotoGroupAdapter extends RecyclerView.Adapter<RecyclerVi
                 .centerCrop()
                 .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
                 .signature(new ObjectKey(photoFile.lastModified()))
+                .set(ExifThumbnailDecoder.USE_EXIF_THUMBNAIL, true)  // 优先读取内嵌 EXIF 缩略图
                 .placeholder(android.R.color.black)
                 .error(android.R.color.black);
 
@@ -278,7 +390,7 @@ public class ExpandablePhotoGroupAdapter extends RecyclerView.Adapter<RecyclerVi
 
     @Override
     public int getItemCount() {
-        return flattenedItems.size();
+        return differ.getCurrentList().size();
     }
 
     /**
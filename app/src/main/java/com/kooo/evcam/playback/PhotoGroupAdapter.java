@@ -147,6 +147,7 @@ public class PhotoGroupAdapter extends RecyclerView.Adapter<PhotoGroupAdapter.Vi
                 .centerCrop()
                 .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
                 .signature(new ObjectKey(photoFile.lastModified()))
+                .set(ExifThumbnailDecoder.USE_EXIF_THUMBNAIL, true)  // 优先读取内嵌 EXIF 缩略图
                 .placeholder(android.R.color.black)
                 .error(android.R.color.black);
 
@@ -163,12 +163,45 @@ public class PhotoPlaybackFragmentNew extends Fragment {
         }
         photoList.setAdapter(adapter);
 
+        // 分页加载：滚动接近底部时追加下一页日期分组
+        photoList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || !adapter.hasMoreSections()) {
+                    return;
+                }
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null
+                        && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - 4) {
+                    adapter.loadNextPage();
+                }
+            }
+        });
+        // 只展开当天、其余日期收起时一页内容可能不满一屏，无法滚动触发加载：
+        // 列表提交或尺寸变化后继续追加，直到填满或全部加载
+        adapter.setOnListCommittedListener(() -> photoList.post(this::fillViewportIfNeeded));
+        photoList.addOnLayoutChangeListener((v, left, top, right, bottom,
+                oldLeft, oldTop, oldRight, oldBottom) -> photoList.post(this::fillViewportIfNeeded));
+
         // 初始状态：隐藏四宫格，显示提示
         multiViewLayout.setVisibility(View.GONE);
         singleViewLayout.setVisibility(View.GONE);
         noSelectionHint.setVisibility(View.VISIBLE);
     }
 
+    /**
+     * 列表未填满可见区域时加载下一页
+     * 通过 post 调用，在 RecyclerView 重新布局之后执行，canScrollVertically 反映最新内容
+     */
+    private void fillViewportIfNeeded() {
+        if (getView() == null || adapter == null || photoList.getHeight() == 0) {
+            return;
+        }
+        if (adapter.hasMoreSections() && !photoList.canScrollVertically(1)) {
+            adapter.loadNextPage();
+        }
+    }
+
     private void setupListeners() {
         // 菜单按钮
         btnMenu.setOnClickListener(v -> {
@@ -433,6 +466,11 @@ public class PhotoPlaybackFragmentNew extends Fragment {
      * 更新图片列表（按日期分组，然后按时间戳分组）
      */
     private void updatePhotoList() {
+        // 记录刷新前的展开状态，刷新后保持不变（差分时未变化的行不会重新绑定）
+        Map<String, Boolean> expandedStates = new HashMap<>();
+        for (DateSection<PhotoGroup> section : dateSections) {
+            expandedStates.put(section.getDateString(), section.isExpanded());
+        }
         dateSections.clear();
 
         File saveDir = StorageHelper.getPhotoDir(getContext());
@@ -477,6 +515,10 @@ public class PhotoPlaybackFragmentNew extends Fragment {
             if (section == null) {
                 section = new DateSection<>(dateString, group.getCaptureTime());
                 dateSectionMap.put(dateString, section);
+                Boolean expanded = expandedStates.get(dateString);
+                if (expanded != null) {
+                    section.setExpanded(expanded);
+                }
             }
             section.addItem(group);
         }
@@ -493,7 +535,6 @@ public class PhotoPlaybackFragmentNew extends Fragment {
         }
 
         adapter.buildFlattenedList();
-        adapter.notifyDataSetChanged();
     }
 
     private void showEmptyState() {
@@ -505,7 +546,6 @@ public class PhotoPlaybackFragmentNew extends Fragment {
         isMultiSelectMode = !isMultiSelectMode;
         adapter.clearSelection();
         adapter.setMultiSelectMode(isMultiSelectMode);
-        adapter.notifyDataSetChanged();
 
         if (isMultiSelectMode) {
             toolbar.setVisibility(View.GONE);
@@ -521,14 +561,12 @@ public class PhotoPlaybackFragmentNew extends Fragment {
         isMultiSelectMode = false;
         adapter.clearSelection();
         adapter.setMultiSelectMode(false);
-        adapter.notifyDataSetChanged();
         toolbar.setVisibility(View.VISIBLE);
         multiSelectToolbar.setVisibility(View.GONE);
     }
 
     private void selectAll() {
         adapter.selectAll();
-        adapter.notifyDataSetChanged();
         updateSelectedCount();
     }
 
@@ -562,8 +600,6 @@ public class PhotoPlaybackFragmentNew extends Fragment {
                     dateSections.removeIf(section -> section.getItemCount() == 0);
 
                     adapter.clearSelection();
-                    adapter.buildFlattenedList();
-                    adapter.notifyDataSetChanged();
                     updateSelectedCount();
 
                     if (getContext() != null) {
@@ -173,6 +173,26 @@ public class PlaybackFragmentNew extends Fragment {
         }
         videoList.setAdapter(adapter);
 
+        // 分页加载：滚动接近底部时追加下一页日期分组
+        videoList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || !adapter.hasMoreSections()) {
+                    return;
+                }
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null
+                        && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - 4) {
+                    adapter.loadNextPage();
+                }
+            }
+        });
+        // 只展开当天、其余日期收起时一页内容可能不满一屏，无法滚动触发加载：
+        // 列表提交或尺寸变化后继续追加，直到填满或全部加载
+        adapter.setOnListCommittedListener(() -> videoList.post(this::fillViewportIfNeeded));
+        videoList.addOnLayoutChangeListener((v, left, top, right, bottom,
+                oldLeft, oldTop, oldRight, oldBottom) -> videoList.post(this::fillViewportIfNeeded));
+
         // 初始状态：隐藏四宫格，显示提示
         multiViewLayout.setVisibility(View.GONE);
         singleViewLayout.setVisibility(View.GONE);
@@ -238,6 +258,19 @@ public class PlaybackFragmentNew extends Fragment {
         });
     }
 
+    /**
+     * 列表未填满可见区域时加载下一页
+     * 通过 post 调用，在 RecyclerView 重新布局之后执行，canScrollVertically 反映最新内容
+     */
+    private void fillViewportIfNeeded() {
+        if (getView() == null || adapter == null || videoList.getHeight() == 0) {
+            return;
+        }
+        if (adapter.hasMoreSections() && !videoList.canScrollVertically(1)) {
+            adapter.loadNextPage();
+        }
+    }
+
     private void setupListeners() {
         // 菜单按钮
         btnMenu.setOnClickListener(v -> {
@@ -569,6 +602,11 @@ public class PlaybackFragmentNew extends Fragment {
      * 更新视频列表（按日期分组，然后按时间戳分组）
      */
     private void updateVideoList() {
+        // 记录刷新前的展开状态，刷新后保持不变（差分时未变化的行不会重新绑定）
+        Map<String, Boolean> expandedStates = new HashMap<>();
+        for (DateSection<VideoGroup> section : dateSections) {
+            expandedStates.put(section.getDateString(), section.isExpanded());
+        }
         dateSections.clear();
 
         File saveDir = StorageHelper.getVideoDir(getContext());
@@ -609,6 +647,10 @@ public class PlaybackFragmentNew extends Fragment {
             if (section == null) {
                 section = new DateSection<>(dateString, group.getRecordTime());
                 dateSectionMap.put(dateString, section);
+                Boolean expanded = expandedStates.get(dateString);
+                if (expanded != null) {
+                    section.setExpanded(expanded);
+                }
             }
             section.addItem(group);
         }
@@ -625,7 +667,6 @@ public class PlaybackFragmentNew extends Fragment {
         }
 
         adapter.buildFlattenedList();
-        adapter.notifyDataSetChanged();
     }
 
     private void showEmptyState() {
@@ -637,7 +678,6 @@ public class PlaybackFragmentNew extends Fragment {
         isMultiSelectMode = !isMultiSelectMode;
         adapter.clearSelection();
         adapter.setMultiSelectMode(isMultiSelectMode);
-        adapter.notifyDataSetChanged();
 
         if (isMultiSelectMode) {
             toolbar.setVisibility(View.GONE);
@@ -653,14 +693,12 @@ public class PlaybackFragmentNew extends Fragment {
         isMultiSelectMode = false;
         adapter.clearSelection();
         adapter.setMultiSelectMode(false);
-        adapter.notifyDataSetChanged();
         toolbar.setVisibility(View.VISIBLE);
         multiSelectToolbar.setVisibility(View.GONE);
     }
 
     private void selectAll() {
         adapter.selectAll();
-        adapter.notifyDataSetChanged();
         updateSelectedCount();
     }
 
@@ -694,8 +732,6 @@ public class PlaybackFragmentNew extends Fragment {
                     dateSections.removeIf(section -> section.getItemCount() == 0);
 
                     adapter.clearSelection();
-                    adapter.buildFlattenedList();
-                    adapter.notifyDataSetChanged();
                     updateSelectedCount();
 
                     if (getContext() != null) {
@@ -0,0 +1,83 @@
+package com.kooo.evcam.playback;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+/**
+ * 回放列表的扁平化行快照
+ * 构建时冻结展开/选中等显示状态，AsyncListDiffer 在后台线程比对新旧快照，
+ * 只有真正变化的行才会重新绑定（避免 notifyDataSetChanged 导致所有缩略图重新加载）
+ */
+final class PlaybackListItem {
+
+    static final int TYPE_DATE_HEADER = 0;
+    static final int TYPE_GROUP = 1;
+
+    /** 仅选中状态变化时的局部刷新标记（不重新加载缩略图） */
+    static final Object PAYLOAD_SELECTION = new Object();
+
+    final int type;
+
+    /** 稳定键：日期头部为 "d:yyyy-MM-dd"，分组为 "g:时间戳前缀" */
+    final String key;
+
+    /** DateSection 或 VideoGroup / PhotoGroup */
+    final Object data;
+
+    /** 内容签名（文件数量、大小等），签名相同则无需重新绑定 */
+    final long contentSignature;
+
+    final boolean expanded;
+    final boolean selected;
+    final boolean multiSelectMode;
+
+    private PlaybackListItem(int type, String key, Object data, long contentSignature,
+                             boolean expanded, boolean selected, boolean multiSelectMode) {
+        this.type = type;
+        this.key = key;
+        this.data = data;
+        this.contentSignature = contentSignature;
+        this.expanded = expanded;
+        this.selected = selected;
+        this.multiSelectMode = multiSelectMode;
+    }
+
+    static PlaybackListItem header(DateSection<?> section) {
+        return new PlaybackListItem(TYPE_DATE_HEADER, "d:" + section.getDateString(), section,
+                section.getItemCount(), section.isExpanded(), false, false);
+    }
+
+    static PlaybackListItem group(String timestampPrefix, Object group, int fileCount, long totalSize,
+                                  boolean selected, boolean multiSelectMode) {
+        long signature = totalSize * 31 + fileCount;
+        return new PlaybackListItem(TYPE_GROUP, "g:" + timestampPrefix, group,
+                signature, false, selected, multiSelectMode);
+    }
+
+    static final DiffUtil.ItemCallback<PlaybackListItem> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<PlaybackListItem>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull PlaybackListItem oldItem, @NonNull PlaybackListItem newItem) {
+                    return oldItem.key.equals(newItem.key);
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull PlaybackListItem oldItem, @NonNull PlaybackListItem newItem) {
+                    return oldItem.contentSignature == newItem.contentSignature
+                            && oldItem.expanded == newItem.expanded
+                            && oldItem.selected == newItem.selected
+                            && oldItem.multiSelectMode == newItem.multiSelectMode;
+                }
+
+                @Nullable
+                @Override
+                public Object getChangePayload(@NonNull PlaybackListItem oldItem, @NonNull PlaybackListItem newItem) {
+                    // 分组内容未变、只是选中/多选状态变化：只刷新选中样式
+                    if (oldItem.type == TYPE_GROUP && oldItem.contentSignature == newItem.contentSignature) {
+                        return PAYLOAD_SELECTION;
+                    }
+                    return null;
+                }
+            };
+}
@@ -0,0 +1,26 @@
+package com.kooo.evcam.remote.core;
+
+import java.io.IOException;
+
+/**
+ * 平台接口返回非 2xx 状态码
+ * 携带 HTTP 状态码，上传引擎据此判断是否重试（408/429/5xx 重试，其余 4xx 直接失败）
+ */
+public class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public HttpStatusException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * HTTP 状态码
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -10,6 +10,7 @@ import com.kooo.evcam.remote.core.ChatIdentifier;
 import com.kooo.evcam.remote.core.RemotePlatform;
 import com.kooo.evcam.remote.core.RemoteUploadCallback;
 import com.kooo.evcam.remote.upload.MediaUploadService;
+import com.kooo.evcam.remote.upload.UploadEngine;
 
 import java.io.File;
 import java.util.List;
@@ -21,6 +22,9 @@ import java.util.List;
 public class DingTalkHandler extends RemoteCommandHandler {
     private static final String TAG = "DingTalkHandler";
     
+    // 钉钉媒体文件大小限制
+    private static final long MAX_FILE_SIZE_BYTES = 20 * 1024 * 1024; // 20MB
+    
     private DingTalkApiClient apiClient;
     
     public DingTalkHandler(Context context) {
@@ -29,6 +33,12 @@ public class DingTalkHandler extends RemoteCommandHandler {
     
     public void setApiClient(DingTalkApiClient apiClient) {
         this.apiClient = apiClient;
+        if (apiClient != null) {
+            // 注册上传器，恢复上次未完成的上传任务
+            UploadEngine engine = UploadEngine.getInstance(context);
+            engine.register(new VideoUploadService(context, apiClient));
+            engine.register(new PhotoUploadService(context, apiClient));
+        }
     }
     
     @Override
@@ -72,6 +82,11 @@ public class DingTalkHandler extends RemoteCommandHandler {
         sendMessage(chatId, "❌ " + error);
     }
     
+    @Override
+    protected long getMaxUploadBytes() {
+        return MAX_FILE_SIZE_BYTES;
+    }
+    
     @Override
     protected MediaUploadService createVideoUploadService() {
         return new DingTalkVideoUploadAdapter(context, apiClient);
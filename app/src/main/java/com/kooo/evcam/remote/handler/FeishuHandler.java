@@ -10,6 +10,7 @@ import com.kooo.evcam.remote.core.ChatIdentifier;
 import com.kooo.evcam.remote.core.RemotePlatform;
 import com.kooo.evcam.remote.core.RemoteUploadCallback;
 import com.kooo.evcam.remote.upload.MediaUploadService;
+import com.kooo.evcam.remote.upload.UploadEngine;
 
 import java.io.File;
 import java.util.List;
@@ -32,6 +33,12 @@ public class FeishuHandler extends RemoteCommandHandler {
     
     public void setApiClient(FeishuApiClient apiClient) {
         this.apiClient = apiClient;
+        if (apiClient != null) {
+            // 注册上传器，恢复上次未完成的上传任务
+            UploadEngine engine = UploadEngine.getInstance(context);
+            engine.register(new FeishuVideoUploadService(context, apiClient));
+            engine.register(new FeishuPhotoUploadService(context, apiClient));
+        }
     }
     
     @Override
@@ -81,6 +88,11 @@ public class FeishuHandler extends RemoteCommandHandler {
         return new FeishuPhotoUploadAdapter(context, apiClient);
     }
     
+    @Override
+    protected long getMaxUploadBytes() {
+        return MAX_FILE_SIZE_BYTES;
+    }
+    
     /**
      * 处理上传错误 - 飞书特有的文件大小限制提示
      */
@@ -9,12 +9,15 @@ import com.kooo.evcam.AppLog;
 import com.kooo.evcam.CameraForegroundService;
 import com.kooo.evcam.FloatingWindowService;
 import com.kooo.evcam.WakeUpHelper;
+import com.kooo.evcam.camera.PhotoPipeline;
 import com.kooo.evcam.remote.core.ChatIdentifier;
 import com.kooo.evcam.remote.core.RecordingContext;
 import com.kooo.evcam.remote.core.RemotePlatform;
 import com.kooo.evcam.remote.core.RemoteUploadCallback;
+import com.kooo.evcam.remote.upload.ClipPackager;
 import com.kooo.evcam.remote.upload.MediaFileFinder;
 import com.kooo.evcam.remote.upload.MediaUploadService;
+import com.kooo.evcam.remote.upload.UploadEngine;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
@@ -33,6 +36,7 @@ public abstract class RemoteCommandHandler {
     protected final Context context;
     protected final AppConfig appConfig;
     protected final MediaFileFinder mediaFileFinder;
+    protected final ClipPackager clipPackager;
     protected final Handler mainHandler;
     
     // 状态管理
@@ -85,6 +89,7 @@ public abstract class RemoteCommandHandler {
         this.context = context.getApplicationContext();
         this.appConfig = new AppConfig(context);
         this.mediaFileFinder = new MediaFileFinder(context);
+        this.clipPackager = new ClipPackager(context);
         this.mainHandler = new Handler(Looper.getMainLooper());
         this.autoStopHandler = new Handler(Looper.getMainLooper());
     }
@@ -353,11 +358,12 @@ public abstract class RemoteCommandHandler {
         cameraController.takePicture(timestamp);
         AppLog.d(TAG, platformName + " 远程拍照已执行");
         
-        // 5. 等待拍照完成后上传（5秒延迟）
-        final String finalTimestamp = timestamp;
-        mainHandler.postDelayed(() -> {
-            uploadPhotos(chatId, finalTimestamp);
-        }, 5000);
+        // 5. 等待本批次所有摄像头写盘完成后上传（超时则上传已完成的部分）
+        PhotoPipeline.getInstance().whenBatchComplete(timestamp, PhotoPipeline.DEFAULT_BATCH_TIMEOUT_MS,
+                result -> {
+                    AppLog.d(TAG, platformName + " 拍照批次完成: " + result.getSummary());
+                    uploadPhotos(chatId, timestamp);
+                });
     }
     
     // ==================== 上传逻辑 ====================
@@ -388,36 +394,44 @@ public abstract class RemoteCommandHandler {
         
         AppLog.d(TAG, "找到 " + videoFiles.size() + " 个视频文件，开始上传到" + platformName);
         
-        // 创建上传服务并上传
-        MediaUploadService uploadService = createVideoUploadService();
-        uploadService.uploadVideos(videoFiles, chatId, new RemoteUploadCallback() {
-            @Override
-            public void onProgress(String message) {
-                AppLog.d(TAG, platformName + " 视频上传进度: " + message);
-            }
-            
-            @Override
-            public void onSuccess(String message) {
-                AppLog.d(TAG, platformName + " 视频上传成功: " + message);
-                
-                // 传输临时文件到最终目录
-                mediaFileFinder.transferToFinalDir(videoFiles);
-                
-                returnToBackgroundIfNeeded();
-            }
+        // 打包涉及文件复制，放到上传引擎的工作线程
+        UploadEngine.getInstance(context).execute(() -> {
+            // 同一摄像头的分段拼接为一个文件，并按平台上限在关键帧处切分
+            ClipPackager.Result packed = clipPackager.pack(videoFiles, getMaxUploadBytes());
             
-            @Override
-            public void onError(String error) {
-                AppLog.e(TAG, platformName + " 视频上传失败: " + error);
-                
-                // 即使上传失败，也要传输文件到最终存储位置（保留视频）
-                mediaFileFinder.transferToFinalDir(videoFiles);
+            // 创建上传服务并上传
+            MediaUploadService uploadService = createVideoUploadService();
+            uploadService.uploadVideos(packed.getFiles(), chatId, new RemoteUploadCallback() {
+                @Override
+                public void onProgress(String message) {
+                    AppLog.d(TAG, platformName + " 视频上传进度: " + message);
+                }
                 
-                // 平台特定的错误处理（如文件大小限制提示）
-                handleUploadError(chatId, error);
+                @Override
+                public void onSuccess(String message) {
+                    AppLog.d(TAG, platformName + " 视频上传成功: " + message);
+                    packed.cleanup();
+                    
+                    // 传输临时文件到最终目录
+                    mediaFileFinder.transferToFinalDir(videoFiles);
+                    
+                    returnToBackgroundIfNeeded();
+                }
                 
-                returnToBackgroundIfNeeded();
-            }
+                @Override
+                public void onError(String error) {
+                    AppLog.e(TAG, platformName + " 视频上传失败: " + error);
+                    packed.cleanup();
+                    
+                    // 即使上传失败，也要传输文件到最终存储位置（保留视频）
+                    mediaFileFinder.transferToFinalDir(videoFiles);
+                    
+                    // 平台特定的错误处理（如文件大小限制提示）
+                    handleUploadError(chatId, error);
+                    
+                    returnToBackgroundIfNeeded();
+                }
+            });
         });
     }
     
@@ -542,4 +556,12 @@ public abstract class RemoteCommandHandler {
     protected void handleUploadError(ChatIdentifier chatId, String error) {
         // 默认不做额外处理，子类可重写
     }
+    
+    /**
+     * 平台单文件上传上限（视频打包时按此切分）
+     * 默认不限制，子类可重写
+     */
+    protected long getMaxUploadBytes() {
+        return Long.MAX_VALUE;
+    }
 }
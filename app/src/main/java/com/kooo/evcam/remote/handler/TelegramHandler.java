@@ -7,6 +7,7 @@ import com.kooo.evcam.remote.core.ChatIdentifier;
 import com.kooo.evcam.remote.core.RemotePlatform;
 import com.kooo.evcam.remote.core.RemoteUploadCallback;
 import com.kooo.evcam.remote.upload.MediaUploadService;
+import com.kooo.evcam.remote.upload.UploadEngine;
 import com.kooo.evcam.telegram.TelegramApiClient;
 import com.kooo.evcam.telegram.TelegramPhotoUploadService;
 import com.kooo.evcam.telegram.TelegramVideoUploadService;
@@ -32,6 +33,12 @@ public class TelegramHandler extends RemoteCommandHandler {
     
     public void setApiClient(TelegramApiClient apiClient) {
         this.apiClient = apiClient;
+        if (apiClient != null) {
+            // 注册上传器，恢复上次未完成的上传任务
+            UploadEngine engine = UploadEngine.getInstance(context);
+            engine.register(new TelegramVideoUploadService(context, apiClient));
+            engine.register(new TelegramPhotoUploadService(context, apiClient));
+        }
     }
     
     @Override
@@ -81,6 +88,11 @@ public class TelegramHandler extends RemoteCommandHandler {
         return new TelegramPhotoUploadAdapter(context, apiClient);
     }
     
+    @Override
+    protected long getMaxUploadBytes() {
+        return MAX_FILE_SIZE_BYTES;
+    }
+    
     /**
      * 处理上传错误 - Telegram 特有的文件大小限制提示
      */
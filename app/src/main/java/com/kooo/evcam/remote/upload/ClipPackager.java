@@ -0,0 +1,178 @@
+package com.kooo.evcam.remote.upload;
+
+import android.content.Context;
+
+import com.kooo.evcam.AppLog;
+import com.kooo.evcam.mp4.Mp4Movie;
+import com.kooo.evcam.mp4.Mp4Remuxer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 远程录制视频打包工具
+ * 把同一摄像头跨分段录制的多个文件无损拼接为一个，再按平台上传大小上限在关键帧处切分，
+ * 使每个接收方拿到能成功上传的最少文件数。打包失败时回退为原始文件。
+ *
+ * 耗时操作（文件复制），必须在后台线程调用。
+ */
+public class ClipPackager {
+    private static final String TAG = "ClipPackager";
+
+    /** 打包输出目录（位于应用缓存目录下） */
+    private static final String OUTPUT_DIR = "clip_pack";
+    /** 超过该时间的打包产物视为残留（例如进程在上传中被杀），下次打包时清理 */
+    private static final long STALE_OUTPUT_MS = 24 * 60 * 60 * 1000L;
+
+    /** 录制文件名：yyyyMMdd_HHmmss_{摄像头位置}.mp4 */
+    private static final Pattern NAME_PATTERN = Pattern.compile("^(\\d{8}_\\d{6})_(.+)\\.mp4$");
+
+    private final File outputDir;
+
+    /**
+     * 打包结果
+     */
+    public static class Result {
+        private final List<File> files;
+        private final List<File> generated;
+
+        Result(List<File> files, List<File> generated) {
+            this.files = files;
+            this.generated = generated;
+        }
+
+        /** 需要上传的文件（原始文件或打包产物） */
+        public List<File> getFiles() {
+            return files;
+        }
+
+        /** 上传结束后删除打包产物（原始文件不受影响） */
+        public void cleanup() {
+            for (File file : generated) {
+                if (file.exists() && !file.delete()) {
+                    AppLog.w(TAG, "删除打包文件失败: " + file.getName());
+                }
+            }
+        }
+    }
+
+    public ClipPackager(Context context) {
+        this.outputDir = new File(context.getCacheDir(), OUTPUT_DIR);
+    }
+
+    /**
+     * 打包视频文件
+     * @param videoFiles 远程录制产生的视频文件（可包含多个摄像头、多个分段）
+     * @param maxBytes 平台单文件上传上限，无限制时传 Long.MAX_VALUE
+     */
+    public Result pack(List<File> videoFiles, long maxBytes) {
+        cleanStaleOutputs();
+
+        // 按摄像头分组（保持首次出现的顺序），组内按时间戳排序
+        Map<String, List<File>> groups = new LinkedHashMap<>();
+        List<File> passthrough = new ArrayList<>();
+        for (File file : videoFiles) {
+            Matcher m = NAME_PATTERN.matcher(file.getName());
+            if (!m.matches()) {
+                passthrough.add(file);
+                continue;
+            }
+            List<File> group = groups.get(m.group(2));
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(m.group(2), group);
+            }
+            group.add(file);
+        }
+
+        List<File> result = new ArrayList<>();
+        List<File> generated = new ArrayList<>();
+        for (Map.Entry<String, List<File>> entry : groups.entrySet()) {
+            List<File> group = entry.getValue();
+            Collections.sort(group, (a, b) -> a.getName().compareTo(b.getName()));
+            packGroup(entry.getKey(), group, maxBytes, result, generated);
+        }
+        result.addAll(passthrough);
+
+        if (!generated.isEmpty()) {
+            AppLog.d(TAG, "打包完成: " + videoFiles.size() + " 个分段 -> " + result.size() + " 个文件");
+        }
+        return new Result(result, generated);
+    }
+
+    /**
+     * 打包同一摄像头的分段：连续且编码参数一致的分段拼接为一组，每组按大小切分
+     */
+    private void packGroup(String position, List<File> group, long maxBytes,
+                           List<File> result, List<File> generated) {
+        List<Mp4Movie> run = new ArrayList<>();
+        for (File file : group) {
+            Mp4Movie movie;
+            try {
+                movie = Mp4Movie.parse(file);
+            } catch (Exception e) {
+                // 文件不完整（例如录制被中断）时原样上传
+                AppLog.w(TAG, "无法解析，原样上传: " + file.getName() + " (" + e.getMessage() + ")");
+                flushRun(position, run, maxBytes, result, generated);
+                result.add(file);
+                continue;
+            }
+            if (!run.isEmpty() && !run.get(0).isConcatCompatible(movie)) {
+                flushRun(position, run, maxBytes, result, generated);
+            }
+            run.add(movie);
+        }
+        flushRun(position, run, maxBytes, result, generated);
+    }
+
+    private void flushRun(String position, List<Mp4Movie> run, long maxBytes,
+                          List<File> result, List<File> generated) {
+        if (run.isEmpty()) {
+            return;
+        }
+        List<File> sources = new ArrayList<>();
+        for (Mp4Movie movie : run) {
+            sources.add(movie.getFile());
+        }
+        try {
+            // 单个文件且未超限时无需处理
+            if (run.size() == 1 && sources.get(0).length() <= maxBytes) {
+                result.addAll(sources);
+                return;
+            }
+            if (!outputDir.exists() && !outputDir.mkdirs()) {
+                throw new IllegalStateException("无法创建输出目录");
+            }
+            Matcher m = NAME_PATTERN.matcher(sources.get(0).getName());
+            String baseName = m.matches() ? m.group(1) + "_" + position : "clip_" + position;
+            List<File> outputs = Mp4Remuxer.concatAndSplit(run, maxBytes, outputDir, baseName);
+            AppLog.d(TAG, position + ": " + run.size() + " 个分段 -> " + outputs.size() + " 个文件");
+            result.addAll(outputs);
+            generated.addAll(outputs);
+        } catch (Exception e) {
+            AppLog.e(TAG, position + " 打包失败，改为上传原始分段", e);
+            result.addAll(sources);
+        } finally {
+            run.clear();
+        }
+    }
+
+    private void cleanStaleOutputs() {
+        File[] files = outputDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            if (now - file.lastModified() > STALE_OUTPUT_MS) {
+                file.delete();
+            }
+        }
+    }
+}
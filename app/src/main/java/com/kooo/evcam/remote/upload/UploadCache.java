@@ -0,0 +1,289 @@
+package com.kooo.evcam.remote.upload;
+
+import android.content.Context;
+
+import com.kooo.evcam.AppLog;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 内容寻址的上传缓存（单例）
+ *
+ * 以「文件内容 SHA-256 + 句柄类型」为键，记录平台返回的媒体句柄（Telegram file_id、钉钉 mediaId、
+ * 飞书 file_key/image_key、微信云存储 fileID）及有效期。同一段视频或照片被多次请求、发给多个接收方时，
+ * 直接复用句柄发送，不再重复上传。
+ *
+ * 文件哈希按「文件名 + 大小 + 修改时间」记忆，每个文件只计算一次（临时目录转存到最终目录后仍可命中）。
+ */
+public class UploadCache {
+    private static final String TAG = "UploadCache";
+
+    private static final String CACHE_FILE = "upload_cache.json";
+    private static final int MAX_HANDLES = 512;
+    private static final int MAX_HASHES = 1024;
+    private static final int HASH_BUFFER_SIZE = 256 * 1024;
+
+    // 句柄类型（同一平台上传视频、图片、封面得到的句柄互不通用）
+    public static final String KIND_TELEGRAM_VIDEO = "telegram.video";
+    public static final String KIND_TELEGRAM_PHOTO = "telegram.photo";
+    public static final String KIND_DINGTALK_FILE = "dingtalk.file";
+    public static final String KIND_DINGTALK_IMAGE = "dingtalk.image";
+    public static final String KIND_DINGTALK_THUMB = "dingtalk.thumb";
+    public static final String KIND_FEISHU_FILE = "feishu.file";
+    public static final String KIND_FEISHU_IMAGE = "feishu.image";
+    public static final String KIND_FEISHU_THUMB = "feishu.thumb";
+    public static final String KIND_WECHAT_CLOUD = "wechat.cloud";
+
+    private static volatile UploadCache instance;
+
+    private final File cacheFile;
+    private final Object lock = new Object();
+    /** 句柄：kind + ":" + sha256 → {handle, expiresAt}（按访问顺序，超出上限淘汰最久未用） */
+    private final LinkedHashMap<String, Entry> handles = new LinkedHashMap<>(64, 0.75f, true);
+    /** 文件哈希记忆：name|size|mtime → sha256 */
+    private final LinkedHashMap<String, String> hashes = new LinkedHashMap<>(64, 0.75f, true);
+
+    private static final class Entry {
+        final String handle;
+        final long expiresAt;
+
+        Entry(String handle, long expiresAt) {
+            this.handle = handle;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static UploadCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (UploadCache.class) {
+                if (instance == null) {
+                    instance = new UploadCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private UploadCache(Context context) {
+        this.cacheFile = new File(context.getFilesDir(), CACHE_FILE);
+        load();
+    }
+
+    /**
+     * 句柄有效期（各平台媒体句柄的保留时长不同，取保守值）
+     */
+    private static long ttlFor(String kind) {
+        if (kind.startsWith("telegram.")) {
+            return 30L * 24 * 60 * 60 * 1000;     // file_id 长期有效
+        } else if (kind.startsWith("feishu.")) {
+            return 7L * 24 * 60 * 60 * 1000;
+        } else if (kind.startsWith("dingtalk.")) {
+            return 24L * 60 * 60 * 1000;          // 临时素材
+        }
+        return 24L * 60 * 60 * 1000;
+    }
+
+    // ==================== 查询与记录 ====================
+
+    /**
+     * 查询文件内容对应的有效句柄
+     * @return 句柄，未命中或已过期时返回 null
+     */
+    public String lookup(String kind, File file) {
+        String hash = hashOf(file);
+        if (hash == null) {
+            return null;
+        }
+        synchronized (lock) {
+            Entry entry = handles.get(kind + ":" + hash);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt < System.currentTimeMillis()) {
+                handles.remove(kind + ":" + hash);
+                return null;
+            }
+            AppLog.d(TAG, "命中上传缓存: " + kind + " " + file.getName());
+            return entry.handle;
+        }
+    }
+
+    /**
+     * 记录上传得到的句柄
+     */
+    public void store(String kind, File file, String handle) {
+        if (handle == null || handle.isEmpty()) {
+            return;
+        }
+        String hash = hashOf(file);
+        if (hash == null) {
+            return;
+        }
+        synchronized (lock) {
+            handles.put(kind + ":" + hash, new Entry(handle, System.currentTimeMillis() + ttlFor(kind)));
+            trim(handles, MAX_HANDLES);
+            save();
+        }
+    }
+
+    /**
+     * 句柄被平台拒绝（已过期或被删除）时移除
+     */
+    public void invalidate(String kind, File file) {
+        String hash = hashOf(file);
+        if (hash == null) {
+            return;
+        }
+        synchronized (lock) {
+            if (handles.remove(kind + ":" + hash) != null) {
+                AppLog.w(TAG, "句柄已失效: " + kind + " " + file.getName());
+                save();
+            }
+        }
+    }
+
+    // ==================== 内容哈希 ====================
+
+    /**
+     * 文件内容的 SHA-256（十六进制），读取失败返回 null
+     */
+    public String hashOf(File file) {
+        String identity = file.getName() + "|" + file.length() + "|" + file.lastModified();
+        synchronized (lock) {
+            String cached = hashes.get(identity);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        String hash;
+        try {
+            hash = computeSha256(file);
+        } catch (IOException e) {
+            AppLog.w(TAG, "计算文件哈希失败: " + file.getName() + " (" + e.getMessage() + ")");
+            return null;
+        }
+
+        synchronized (lock) {
+            hashes.put(identity, hash);
+            trim(hashes, MAX_HASHES);
+        }
+        return hash;
+    }
+
+    private static String computeSha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        byte[] bytes = digest.digest();
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    // ==================== 持久化 ====================
+
+    private static <K, V> void trim(LinkedHashMap<K, V> map, int max) {
+        Iterator<K> it = map.keySet().iterator();
+        while (map.size() > max && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private void load() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try {
+            String text = new String(Files.readAllBytes(cacheFile.toPath()), StandardCharsets.UTF_8);
+            JSONObject root = new JSONObject(text);
+            long now = System.currentTimeMillis();
+            JSONArray array = root.optJSONArray("handles");
+            if (array != null) {
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject item = array.getJSONObject(i);
+                    long expiresAt = item.getLong("expiresAt");
+                    if (expiresAt > now) {
+                        handles.put(item.getString("key"), new Entry(item.getString("handle"), expiresAt));
+                    }
+                }
+            }
+            JSONObject hashObj = root.optJSONObject("hashes");
+            if (hashObj != null) {
+                for (Iterator<String> it = hashObj.keys(); it.hasNext(); ) {
+                    String identity = it.next();
+                    hashes.put(identity, hashObj.getString(identity));
+                }
+            }
+            AppLog.d(TAG, "上传缓存已加载: " + handles.size() + " 个句柄");
+        } catch (Exception e) {
+            AppLog.w(TAG, "上传缓存损坏，已重置: " + e.getMessage());
+            handles.clear();
+            hashes.clear();
+        }
+    }
+
+    /**
+     * 写入缓存文件（调用方持有 lock）
+     */
+    private void save() {
+        try {
+            JSONArray array = new JSONArray();
+            for (Map.Entry<String, Entry> e : handles.entrySet()) {
+                JSONObject item = new JSONObject();
+                item.put("key", e.getKey());
+                item.put("handle", e.getValue().handle);
+                item.put("expiresAt", e.getValue().expiresAt);
+                array.put(item);
+            }
+            JSONObject hashObj = new JSONObject();
+            for (Map.Entry<String, String> e : hashes.entrySet()) {
+                hashObj.put(e.getKey(), e.getValue());
+            }
+            JSONObject root = new JSONObject();
+            root.put("handles", array);
+            root.put("hashes", hashObj);
+
+            File tmp = new File(cacheFile.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                out.write(root.toString().getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+            if (!tmp.renameTo(cacheFile)) {
+                AppLog.w(TAG, "保存上传缓存失败");
+            }
+        } catch (Exception e) {
+            AppLog.w(TAG, "保存上传缓存失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.kooo.evcam.remote.upload;
+
+import android.content.Context;
+
+import com.kooo.evcam.AppLog;
+import com.kooo.evcam.StorageHelper;
+import com.kooo.evcam.remote.core.HttpStatusException;
+import com.kooo.evcam.remote.core.RemoteUploadCallback;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 统一上传引擎（钉钉/Telegram/飞书/微信共用）
+ * 各平台的上传服务只负责"上传并发送一个文件"，排队、并发、限速、重试和持久化都在这里。
+ *
+ * - 任务写入 files/upload_queue，每传完一个文件更新一次；进程被杀后，
+ *   对应平台的上传器重新注册时从未完成的文件继续（超过 24 小时的任务直接丢弃）
+ * - 每个平台有独立的并发上限和两次上传之间的最小间隔（代替原来固定的 Thread.sleep(2000)）
+ * - 网络错误、408/429/5xx 按指数退避 + 抖动重试；413 等其他 4xx 直接判定失败
+ *   （状态码来自 ApiClient 抛出的 {@link HttpStatusException}）
+ *
+ * 单例，线程安全。
+ */
+public class UploadEngine {
+    private static final String TAG = "UploadEngine";
+
+    private static final String DIR_NAME = "upload_queue";
+    private static final String JOB_SUFFIX = ".job";
+
+    /** 超过此时间的遗留任务不再续传（聊天上下文已过期） */
+    private static final long MAX_JOB_AGE_MS = 24 * 60 * 60 * 1000L;
+
+    /** 重试退避基础间隔与上限 */
+    private static final long RETRY_BASE_MS = 2000;
+    private static final long RETRY_MAX_MS = 60 * 1000;
+
+    /**
+     * 平台上传器（各平台的上传服务实现）
+     */
+    public interface Uploader {
+        /**
+         * 上传器标识，格式 "平台.类型"，如 "telegram.video"；持久化的任务按此找回上传器
+         */
+        String getKey();
+
+        /**
+         * 上传并发送一个文件（在引擎工作线程调用，阻塞）
+         * @return 远端标识（如微信云 fileId），不需要时返回 null
+         * @throws Exception 失败；由引擎判断是否重试
+         */
+        String uploadFile(UploadJob job, File file, int index) throws Exception;
+
+        /**
+         * 任务结束（所有文件都已成功或最终失败），通常用于向聊天发送汇总消息
+         * 在释放平台并发许可之后调用，可以阻塞（如等待前面的消息投递完成），不会挡住同平台的下一个任务
+         */
+        void onJobFinished(UploadJob job);
+    }
+
+    /**
+     * 平台策略
+     */
+    static final class Policy {
+        final int maxConcurrent;
+        final long minIntervalMs;
+        final int maxAttempts;
+
+        Policy(int maxConcurrent, long minIntervalMs, int maxAttempts) {
+            this.maxConcurrent = maxConcurrent;
+            this.minIntervalMs = minIntervalMs;
+            this.maxAttempts = maxAttempts;
+        }
+    }
+
+    /**
+     * 平台闸门：并发许可 + 上传起始时间间隔
+     */
+    private static final class PlatformGate {
+        final Policy policy;
+        final Semaphore permits;
+        private long nextStartAt = 0;
+
+        PlatformGate(Policy policy) {
+            this.policy = policy;
+            this.permits = new Semaphore(policy.maxConcurrent, true);
+        }
+
+        /**
+         * 等待到本平台允许开始下一次上传的时间
+         */
+        void awaitSlot() throws InterruptedException {
+            long wait;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                long start = Math.max(now, nextStartAt);
+                nextStartAt = start + policy.minIntervalMs;
+                wait = start - now;
+            }
+            if (wait > 0) {
+                Thread.sleep(wait);
+            }
+        }
+    }
+
+    private static UploadEngine instance;
+
+    private final Context context;
+    private final File dir;
+    private final long retryBaseMs;
+    private final ExecutorService executor;
+    private final Random random = new Random();
+    private final Map<String, Uploader> uploaders = new ConcurrentHashMap<>();
+    private final Map<String, PlatformGate> gates = new HashMap<>();
+    private final Set<String> activeJobs = ConcurrentHashMap.newKeySet();
+
+    private UploadEngine(Context context) {
+        this(context, new File(context.getFilesDir(), DIR_NAME), RETRY_BASE_MS);
+    }
+
+    /**
+     * @param context 为 null 时不在录像/照片目录中查找被移动的文件（JVM 测试用）
+     * @param dir 任务持久化目录
+     * @param retryBaseMs 重试退避基础间隔
+     */
+    UploadEngine(Context context, File dir, long retryBaseMs) {
+        this.context = context;
+        this.dir = dir;
+        this.retryBaseMs = retryBaseMs;
+        if (!dir.exists() && !dir.mkdirs()) {
+            AppLog.w(TAG, "无法创建上传队列目录: " + dir);
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "UploadEngine-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static synchronized UploadEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new UploadEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * 平台策略：Telegram/飞书/钉钉按聊天顺序逐个发送，微信云存储可以并行
+     */
+    static Policy policyFor(String platform) {
+        switch (platform) {
+            case "telegram":
+                return new Policy(1, 1000, 3);
+            case "feishu":
+                return new Policy(1, 1000, 3);
+            case "dingtalk":
+                return new Policy(1, 2000, 3);
+            case "wechat":
+                return new Policy(2, 0, 3);
+            default:
+                return new Policy(1, 1000, 3);
+        }
+    }
+
+    // ==================== 注册与提交 ====================
+
+    /**
+     * 注册（或更新）上传器，并续传该上传器遗留的任务
+     * API 客户端重建后再次注册即可，任务执行时总是使用最新注册的上传器
+     */
+    public void register(Uploader uploader) {
+        boolean firstTime = uploaders.put(uploader.getKey(), uploader) == null;
+        if (firstTime) {
+            resumePending(uploader.getKey());
+        }
+    }
+
+    /**
+     * 提交任务（立即返回，在工作线程中执行）
+     * @param callback 进度与结果回调（在工作线程调用），可为 null
+     */
+    public void submit(UploadJob job, RemoteUploadCallback callback) {
+        if (job.getTotal() == 0) {
+            if (callback != null) {
+                callback.onError("没有文件可上传");
+            }
+            return;
+        }
+        persist(job);
+        start(job, callback);
+    }
+
+    /**
+     * 在引擎工作线程执行上传前的准备工作（如视频打包），不占用平台并发许可
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    private void start(UploadJob job, RemoteUploadCallback callback) {
+        if (!activeJobs.add(job.getId())) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                run(job, callback);
+            } finally {
+                activeJobs.remove(job.getId());
+            }
+        });
+    }
+
+    // ==================== 执行 ====================
+
+    private void run(UploadJob job, RemoteUploadCallback callback) {
+        PlatformGate gate = gateFor(job.getPlatform());
+        try {
+            gate.permits.acquire();
+        } catch (InterruptedException e) {
+            return;
+        }
+        boolean finished = false;
+        try {
+            int total = job.getTotal();
+            progress(callback, "开始上传 " + total + " 个文件...");
+            for (int i = 0; i < total; i++) {
+                if (job.getState(i) != UploadJob.STATE_PENDING) {
+                    continue;  // 续传：跳过已完成的文件
+                }
+                File file = resolveFile(job.getPath(i));
+                if (file == null) {
+                    AppLog.w(TAG, "文件不存在: " + job.getPath(i));
+                    job.markFailed(i, "文件不存在");
+                    persist(job);
+                    continue;
+                }
+                progress(callback, "正在上传 (" + (i + 1) + "/" + total + "): " + file.getName());
+                uploadWithRetry(job, gate, file, i, callback);
+                persist(job);
+            }
+            finish(job, callback);
+            finished = true;
+        } catch (InterruptedException e) {
+            AppLog.w(TAG, "上传任务被中断，保留待续传: " + job.getId());
+        } finally {
+            gate.permits.release();
+        }
+        if (finished) {
+            notifyFinished(job);
+        }
+    }
+
+    private void uploadWithRetry(UploadJob job, PlatformGate gate, File file, int index,
+                                 RemoteUploadCallback callback) throws InterruptedException {
+        int maxAttempts = gate.policy.maxAttempts;
+        for (int attempt = 1; ; attempt++) {
+            gate.awaitSlot();
+            Uploader uploader = uploaders.get(job.getUploaderKey());
+            if (uploader == null) {
+                job.markFailed(index, "上传器未注册");
+                return;
+            }
+            try {
+                String result = uploader.uploadFile(job, file, index);
+                job.markDone(index, result);
+                AppLog.d(TAG, job.getUploaderKey() + " 上传成功: " + file.getName());
+                return;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                boolean retry = attempt < maxAttempts && isTransient(e);
+                AppLog.e(TAG, job.getUploaderKey() + " 上传失败 (尝试 " + attempt + "/" + maxAttempts + "): "
+                        + file.getName() + " - " + message);
+                if (!retry) {
+                    job.markFailed(index, message);
+                    return;
+                }
+                long backoff = Math.min(RETRY_MAX_MS, retryBaseMs << (attempt - 1));
+                long delay = (long) (backoff * (0.5 + random.nextDouble()));
+                progress(callback, (delay / 1000) + " 秒后重试: " + file.getName());
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    private void finish(UploadJob job, RemoteUploadCallback callback) {
+        String summary = job.getSummary();
+        AppLog.d(TAG, job.getUploaderKey() + " 任务结束: 成功 " + job.getUploadedCount()
+                + "，失败 " + job.getFailedCount());
+        deleteJobFile(job);
+        if (callback != null) {
+            if (job.getUploadedCount() > 0) {
+                callback.onSuccess(summary);
+            } else {
+                callback.onError(summary);
+            }
+        }
+    }
+
+    private void notifyFinished(UploadJob job) {
+        Uploader uploader = uploaders.get(job.getUploaderKey());
+        if (uploader != null) {
+            try {
+                uploader.onJobFinished(job);
+            } catch (Exception e) {
+                AppLog.e(TAG, "发送上传汇总失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private synchronized PlatformGate gateFor(String platform) {
+        PlatformGate gate = gates.get(platform);
+        if (gate == null) {
+            gate = new PlatformGate(policyFor(platform));
+            gates.put(platform, gate);
+        }
+        return gate;
+    }
+
+    /**
+     * 是否为可重试的临时错误：408/429/5xx，或不带状态码的 IO 异常（断网、超时、连接重置）
+     */
+    static boolean isTransient(Exception e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof HttpStatusException) {
+                int code = ((HttpStatusException) t).getStatusCode();
+                return code == 408 || code == 429 || code >= 500;
+            }
+        }
+        return e instanceof IOException;
+    }
+
+    private static void progress(RemoteUploadCallback callback, String message) {
+        if (callback != null) {
+            callback.onProgress(message);
+        }
+    }
+
+    /**
+     * 找到要上传的文件：录制中转文件上传前可能已被移动到最终目录，按文件名再找一次
+     */
+    private File resolveFile(String path) {
+        File file = new File(path);
+        if (file.exists() && file.length() > 0) {
+            return file;
+        }
+        if (context == null) {
+            return null;
+        }
+        for (File dir : new File[]{StorageHelper.getVideoDir(context), StorageHelper.getPhotoDir(context)}) {
+            File moved = dir != null ? new File(dir, file.getName()) : null;
+            if (moved != null && moved.exists() && moved.length() > 0) {
+                return moved;
+            }
+        }
+        return null;
+    }
+
+    // ==================== 持久化 ====================
+
+    private void resumePending(String uploaderKey) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(JOB_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            try {
+                UploadJob job = UploadJob.fromJson(new JSONObject(
+                        new String(readFile(file), StandardCharsets.UTF_8)));
+                if (!uploaderKey.equals(job.getUploaderKey())) {
+                    continue;
+                }
+                if (now - job.getCreatedAt() > MAX_JOB_AGE_MS) {
+                    AppLog.w(TAG, "丢弃过期的上传任务: " + job.getId());
+                    file.delete();
+                    continue;
+                }
+                AppLog.i(TAG, "续传上次未完成的任务: " + uploaderKey + "，已完成 "
+                        + (job.getUploadedCount() + job.getFailedCount()) + "/" + job.getTotal());
+                start(job, null);
+            } catch (Exception e) {
+                AppLog.w(TAG, "丢弃损坏的上传任务: " + file.getName());
+                file.delete();
+            }
+        }
+    }
+
+    private void persist(UploadJob job) {
+        File target = new File(dir, job.getId() + JOB_SUFFIX);
+        File tmp = new File(dir, job.getId() + JOB_SUFFIX + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(job.toJson().toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        } catch (Exception e) {
+            AppLog.w(TAG, "保存上传任务失败: " + e.getMessage());
+            return;
+        }
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+        }
+    }
+
+    private void deleteJobFile(UploadJob job) {
+        new File(dir, job.getId() + JOB_SUFFIX).delete();
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int n = in.read(data, offset, data.length - offset);
+                if (n < 0) throw new IOException("unexpected EOF");
+                offset += n;
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,214 @@
+package com.kooo.evcam.remote.upload;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 上传任务：一次远程命令要发送的一组文件
+ * 逐个文件记录状态，写入磁盘后进程被杀也能从未完成的文件继续。
+ */
+public class UploadJob {
+
+    static final int STATE_PENDING = 0;
+    static final int STATE_DONE = 1;
+    static final int STATE_FAILED = 2;
+
+    public static final String KIND_VIDEO = "video";
+    public static final String KIND_PHOTO = "photo";
+
+    private final String id;
+    private final String uploaderKey;
+    private final String target;
+    private final long createdAt;
+    private final List<String> paths;
+    private final int[] states;
+    private final String[] results;
+    private final String[] errors;
+
+    private UploadJob(String id, String uploaderKey, String target, long createdAt, List<String> paths) {
+        this.id = id;
+        this.uploaderKey = uploaderKey;
+        this.target = target;
+        this.createdAt = createdAt;
+        this.paths = paths;
+        this.states = new int[paths.size()];
+        this.results = new String[paths.size()];
+        this.errors = new String[paths.size()];
+    }
+
+    /**
+     * 创建任务
+     * @param uploaderKey 上传器标识，格式 "平台.类型"，如 "telegram.video"
+     * @param target 发送目标（由上传器自行编码，如聊天 ID）
+     */
+    public static UploadJob create(String uploaderKey, String target, List<File> files) {
+        List<String> paths = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                paths.add(file.getAbsolutePath());
+            }
+        }
+        return new UploadJob(UUID.randomUUID().toString(), uploaderKey, target, System.currentTimeMillis(), paths);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUploaderKey() {
+        return uploaderKey;
+    }
+
+    /**
+     * 平台部分（"telegram.video" → "telegram"）
+     */
+    public String getPlatform() {
+        int dot = uploaderKey.indexOf('.');
+        return dot > 0 ? uploaderKey.substring(0, dot) : uploaderKey;
+    }
+
+    /**
+     * 类型部分（"telegram.video" → "video"）
+     */
+    public String getKind() {
+        int dot = uploaderKey.indexOf('.');
+        return dot > 0 ? uploaderKey.substring(dot + 1) : "";
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getTotal() {
+        return paths.size();
+    }
+
+    String getPath(int index) {
+        return paths.get(index);
+    }
+
+    synchronized int getState(int index) {
+        return states[index];
+    }
+
+    synchronized void markDone(int index, String result) {
+        states[index] = STATE_DONE;
+        results[index] = result;
+    }
+
+    synchronized void markFailed(int index, String error) {
+        states[index] = STATE_FAILED;
+        errors[index] = error != null ? error : "未知错误";
+    }
+
+    public synchronized int getUploadedCount() {
+        int count = 0;
+        for (int state : states) {
+            if (state == STATE_DONE) count++;
+        }
+        return count;
+    }
+
+    public synchronized int getFailedCount() {
+        int count = 0;
+        for (int state : states) {
+            if (state == STATE_FAILED) count++;
+        }
+        return count;
+    }
+
+    /**
+     * 各文件上传后返回的远端标识（如微信云 fileId），按文件顺序，只含成功的
+     */
+    public synchronized List<String> getResults() {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < states.length; i++) {
+            if (states[i] == STATE_DONE && results[i] != null) {
+                list.add(results[i]);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 失败列表，每项为 "文件名 (原因)"
+     */
+    public synchronized List<String> getFailures() {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < states.length; i++) {
+            if (states[i] == STATE_FAILED) {
+                list.add(new File(paths.get(i)).getName() + " (" + errors[i] + ")");
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 结果汇总（发到聊天和回调使用同一段文字）
+     */
+    public String getSummary() {
+        boolean video = KIND_VIDEO.equals(getKind());
+        String noun = video ? "视频" : "图片";
+        String unit = video ? " 个" : " 张";
+        int uploaded = getUploadedCount();
+        List<String> failures = getFailures();
+        if (uploaded == 0) {
+            return "❌ 所有" + noun + "上传失败\n失败列表:\n" + String.join("\n", failures);
+        }
+        if (failures.isEmpty()) {
+            return "✅ " + noun + "上传完成！共上传 " + uploaded + (video ? " 个文件" : " 张照片");
+        }
+        return "⚠️ 上传完成（部分失败）\n" +
+                "成功: " + uploaded + unit + "\n" +
+                "失败: " + failures.size() + unit + "\n\n" +
+                "失败列表:\n" + String.join("\n", failures);
+    }
+
+    // ==================== 持久化 ====================
+
+    synchronized JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("uploader", uploaderKey);
+        json.put("target", target);
+        json.put("createdAt", createdAt);
+        JSONArray files = new JSONArray();
+        for (int i = 0; i < paths.size(); i++) {
+            JSONObject file = new JSONObject();
+            file.put("path", paths.get(i));
+            file.put("state", states[i]);
+            if (results[i] != null) file.put("result", results[i]);
+            if (errors[i] != null) file.put("error", errors[i]);
+            files.put(file);
+        }
+        json.put("files", files);
+        return json;
+    }
+
+    static UploadJob fromJson(JSONObject json) throws JSONException {
+        JSONArray files = json.getJSONArray("files");
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < files.length(); i++) {
+            paths.add(files.getJSONObject(i).getString("path"));
+        }
+        UploadJob job = new UploadJob(json.getString("id"), json.getString("uploader"),
+                json.optString("target", ""), json.getLong("createdAt"), paths);
+        for (int i = 0; i < files.length(); i++) {
+            JSONObject file = files.getJSONObject(i);
+            job.states[i] = file.optInt("state", STATE_PENDING);
+            job.results[i] = file.has("result") ? file.getString("result") : null;
+            job.errors[i] = file.has("error") ? file.getString("error") : null;
+        }
+        return job;
+    }
+}
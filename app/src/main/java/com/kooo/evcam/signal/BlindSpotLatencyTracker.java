@@ -0,0 +1,104 @@
+package com.kooo.evcam.signal;
+
+/**
+ * 补盲端到端延迟统计（单例）
+ *
+ * 信号到达 → 补盲窗口加入 WindowManager → 首帧画面渲染，分别记录到两个直方图。
+ * 信号源（VhalSignalObserver）用事件的接收时间标记起点；其他信号源由 BlindSpotService
+ * 在切换摄像头时补记。没有待匹配的信号时窗口和首帧标记被忽略（如普通主屏悬浮窗）。
+ */
+public class BlindSpotLatencyTracker {
+    /** 超过该时长仍未出窗口的信号视为没有触发补盲（如方向未变化） */
+    private static final long PENDING_TIMEOUT_NS = 5_000_000_000L;
+
+    private static volatile BlindSpotLatencyTracker instance;
+
+    private final LatencyHistogram signalToWindow = new LatencyHistogram("signal→window");
+    private final LatencyHistogram signalToFirstFrame = new LatencyHistogram("signal→firstFrame");
+
+    // 只在主线程访问
+    private long signalNanos;
+    private boolean windowPending;
+    private boolean framePending;
+
+    public static BlindSpotLatencyTracker getInstance() {
+        if (instance == null) {
+            synchronized (BlindSpotLatencyTracker.class) {
+                if (instance == null) {
+                    instance = new BlindSpotLatencyTracker();
+                }
+            }
+        }
+        return instance;
+    }
+
+    BlindSpotLatencyTracker() {
+    }
+
+    /**
+     * 标记信号到达（覆盖之前未完成的标记）
+     * @param timestampNanos System.nanoTime
+     */
+    public void markSignal(long timestampNanos) {
+        signalNanos = timestampNanos;
+        windowPending = true;
+        framePending = true;
+    }
+
+    /**
+     * 没有未完成的标记时才标记（上游信号源已标记更精确的起点时不覆盖）
+     */
+    public void markSignalIfIdle(long timestampNanos) {
+        if (!isPending(timestampNanos)) {
+            markSignal(timestampNanos);
+        }
+    }
+
+    /** 补盲窗口已加入 WindowManager */
+    public void markWindowShown() {
+        markWindowShown(System.nanoTime());
+    }
+
+    void markWindowShown(long now) {
+        if (windowPending && isPending(now)) {
+            signalToWindow.record(now - signalNanos);
+        }
+        windowPending = false;
+    }
+
+    /** 补盲窗口渲染出首帧 */
+    public void markFirstFrame() {
+        markFirstFrame(System.nanoTime());
+    }
+
+    void markFirstFrame(long now) {
+        if (framePending && isPending(now)) {
+            signalToFirstFrame.record(now - signalNanos);
+        }
+        windowPending = false;
+        framePending = false;
+    }
+
+    public LatencyHistogram getSignalToWindow() {
+        return signalToWindow;
+    }
+
+    public LatencyHistogram getSignalToFirstFrame() {
+        return signalToFirstFrame;
+    }
+
+    public void reset() {
+        signalToWindow.reset();
+        signalToFirstFrame.reset();
+        windowPending = false;
+        framePending = false;
+    }
+
+    public String summary() {
+        return signalToWindow.summary() + "\n" + signalToFirstFrame.summary();
+    }
+
+    private boolean isPending(long now) {
+        return framePending && now - signalNanos < PENDING_TIMEOUT_NS;
+    }
+}
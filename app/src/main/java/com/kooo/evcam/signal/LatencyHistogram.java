@@ -0,0 +1,112 @@
+package com.kooo.evcam.signal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁延迟直方图（记录过程不分配内存）
+ *
+ * 与 HdrHistogram 相同的分桶方式：微秒数的每个 2 的幂区间 [2^e, 2^(e+1)) 再线性划分为 32 个子桶，
+ * 64 微秒以下每个桶 1 微秒。百分位取所在子桶的上界（不超过最大值），相对误差不超过 1/32。
+ * 超过约 16.7 秒（2^24 微秒）的样本归入最后一个桶，百分位落在其中时取最大值。
+ */
+public class LatencyHistogram {
+    /** 每个 2 的幂区间的子桶数 = 2^SUB_BUCKET_BITS */
+    private static final int SUB_BUCKET_BITS = 5;
+    /** 可分桶的最大微秒数（不含） */
+    private static final long MAX_TRACKABLE_MICROS = 1L << 24;
+    /** 最后一个桶收纳超出范围的样本 */
+    private static final int OVERFLOW_BUCKET = bucketIndex(MAX_TRACKABLE_MICROS - 1) + 1;
+    private static final int BUCKETS = OVERFLOW_BUCKET + 1;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 记录一次延迟
+     * @param latencyNs 纳秒（System.nanoTime 差值）
+     */
+    public void record(long latencyNs) {
+        long micros = Math.max(0, latencyNs / 1000);
+        int bucket = micros < MAX_TRACKABLE_MICROS ? bucketIndex(micros) : OVERFLOW_BUCKET;
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // 重试
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * 百分位延迟（微秒，取子桶上界）
+     * @param percentile 0~100
+     */
+    public long getPercentileMicros(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(1, target)) {
+                return i == OVERFLOW_BUCKET ? maxMicros.get() : Math.min(bucketUpperMicros(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    /**
+     * 子桶下标：shift = max(0, e - 5)，下标 = shift * 32 + (micros >>> shift)，
+     * 64 微秒以下下标即微秒数，之后每个 2 的幂区间占 32 个连续下标
+     */
+    static int bucketIndex(long micros) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (micros >>> shift);
+    }
+
+    /** 子桶覆盖的最大微秒数（含） */
+    static long bucketUpperMicros(int index) {
+        int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        long lower = (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * 摘要，例如 "turnSignal: n=42 avg=180us p50<=175us p90<=415us p99<=950us max=950us"
+     */
+    public String summary() {
+        long n = count.get();
+        if (n == 0) {
+            return name + ": n=0";
+        }
+        return name + ": n=" + n
+                + " avg=" + (totalMicros.get() / n) + "us"
+                + " p50<=" + getPercentileMicros(50) + "us"
+                + " p90<=" + getPercentileMicros(90) + "us"
+                + " p99<=" + getPercentileMicros(99) + "us"
+                + " max=" + maxMicros.get() + "us";
+    }
+}
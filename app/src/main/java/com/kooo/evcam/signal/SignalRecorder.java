@@ -0,0 +1,142 @@
+package com.kooo.evcam.signal;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import com.kooo.evcam.AppLog;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 车辆信号录制（同一时间只有一个录制在进行）
+ *
+ * VHAL 属性通过 VehicleSignalHub 订阅获得；logcat 行和 CarSignalManager 读数由对应的观察者
+ * 调用 recordLogLine / recordCarSignal 写入，未在录制时这两个方法只读一次 volatile 字段。
+ * 所有写文件操作都在录制线程上进行。
+ */
+public class SignalRecorder {
+    private static final String TAG = "SignalRecorder";
+
+    private static volatile SignalRecorder active;
+
+    private final File file;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final SignalTrace.Writer writer;
+    private final VehicleSignalHub.Subscription subscription;
+    private boolean writeFailed = false;
+
+    /**
+     * 开始录制（已有录制时先停止）
+     * @param vhalPropIds 需要录制的 VHAL 属性
+     */
+    public static synchronized SignalRecorder start(File file, int... vhalPropIds) throws IOException {
+        SignalRecorder previous = active;
+        if (previous != null) {
+            previous.stop();
+        }
+        SignalRecorder recorder = new SignalRecorder(file, vhalPropIds);
+        active = recorder;
+        AppLog.i(TAG, "开始录制车辆信号: " + file.getAbsolutePath());
+        return recorder;
+    }
+
+    /** 当前录制，没有返回 null */
+    public static SignalRecorder getActive() {
+        return active;
+    }
+
+    /**
+     * 录制一行 logcat（LogcatSignalObserver 调用）
+     */
+    public static void recordLogLine(String line, int data1) {
+        SignalRecorder recorder = active;
+        if (recorder == null) return;
+        long now = System.nanoTime();
+        recorder.handler.post(() -> {
+            try {
+                recorder.writer.writeLogLine(now, line, data1);
+            } catch (IOException e) {
+                recorder.onWriteError(e);
+            }
+        });
+    }
+
+    /**
+     * 录制一次 CarSignalManager 读数变化（CarSignalManagerObserver / DoorSignalObserver 调用）
+     * @param name getter 方法名，如 getIndcrSts
+     */
+    public static void recordCarSignal(String name, int value) {
+        SignalRecorder recorder = active;
+        if (recorder == null) return;
+        long now = System.nanoTime();
+        recorder.handler.post(() -> {
+            try {
+                recorder.writer.writeCarSignal(now, name, value);
+            } catch (IOException e) {
+                recorder.onWriteError(e);
+            }
+        });
+    }
+
+    private SignalRecorder(File file, int[] vhalPropIds) throws IOException {
+        this.file = file;
+        this.writer = new SignalTrace.Writer(file, System.nanoTime());
+        this.thread = new HandlerThread(TAG);
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+        this.subscription = vhalPropIds == null || vhalPropIds.length == 0 ? null
+                : VehicleSignalHub.getInstance().subscribe(new VehicleSignalHub.Subscriber() {
+                    @Override
+                    public void onSignal(VehicleSignalEvent event) {
+                        try {
+                            writer.writeVhal(event);
+                        } catch (IOException e) {
+                            onWriteError(e);
+                        }
+                    }
+
+                    @Override
+                    public void onOverrun(long lostEvents) {
+                        AppLog.w(TAG, "录制线程落后，丢失 " + lostEvents + " 条 VHAL 事件");
+                    }
+                }, handler, vhalPropIds);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 停止录制并关闭文件
+     */
+    public void stop() {
+        synchronized (SignalRecorder.class) {
+            if (active == this) {
+                active = null;
+            }
+        }
+        if (subscription != null) {
+            subscription.close();
+        }
+        handler.post(() -> {
+            try {
+                writer.close();
+                AppLog.i(TAG, "录制结束: " + file.getAbsolutePath() + ", " + writer.getRecordCount()
+                        + " 条记录, " + file.length() + " 字节");
+            } catch (IOException e) {
+                AppLog.e(TAG, "关闭录制文件失败: " + e.getMessage());
+            }
+        });
+        thread.quitSafely();
+    }
+
+    private void onWriteError(IOException e) {
+        // 只记录第一次失败，避免刷屏
+        if (!writeFailed) {
+            writeFailed = true;
+            AppLog.e(TAG, "写入录制文件失败: " + e.getMessage());
+        }
+    }
+}
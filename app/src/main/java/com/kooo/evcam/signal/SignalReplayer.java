@@ -0,0 +1,117 @@
+package com.kooo.evcam.signal;
+
+import com.kooo.evcam.AppLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 车辆信号回放
+ *
+ * 按录制时的时间间隔（可加速）在后台线程重放 SignalTrace 文件：
+ * VHAL 记录注入 VehicleSignalHub，事件时间取注入时刻，下游延迟统计与真车一致；
+ * logcat 和 CarSignalManager 记录交给 Listener，由调用方送入对应的处理逻辑。
+ */
+public class SignalReplayer {
+    private static final String TAG = "SignalReplayer";
+
+    /**
+     * 回放回调（在回放线程调用）
+     */
+    public interface Listener {
+        default void onLogLine(String line, int data1) {
+        }
+
+        default void onCarSignal(String name, int value) {
+        }
+
+        /** 回放结束（正常结束或被停止） */
+        default void onFinished(int records) {
+        }
+    }
+
+    private final File file;
+    private final float speed;
+    private final Listener listener;
+    private final VehicleSignalHub hub;
+    private volatile boolean running = false;
+    private Thread thread;
+
+    /**
+     * @param speed 回放倍速，1 为原速；小于等于 0 时不等待，尽快回放
+     */
+    public SignalReplayer(File file, float speed, Listener listener) {
+        this(file, speed, listener, VehicleSignalHub.getInstance());
+    }
+
+    SignalReplayer(File file, float speed, Listener listener, VehicleSignalHub hub) {
+        this.file = file;
+        this.speed = speed;
+        this.listener = listener;
+        this.hub = hub;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::replay, TAG);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void replay() {
+        int records = 0;
+        SignalTrace.Record record = new SignalTrace.Record();
+        try (SignalTrace.Reader reader = new SignalTrace.Reader(file)) {
+            AppLog.i(TAG, "开始回放: " + file.getAbsolutePath() + ", 倍速=" + speed
+                    + (hub.getSubscriberCount() == 0 ? "（信号总线当前没有订阅者）" : ""));
+            long startNanos = System.nanoTime();
+            while (running && reader.next(record)) {
+                if (speed > 0) {
+                    long due = startNanos + (long) (record.getTimeMicros() * 1000 / speed);
+                    long wait;
+                    while (running && (wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    if (!running) break;
+                }
+                switch (record.getKind()) {
+                    case SignalTrace.KIND_VHAL: {
+                        VehicleSignalEvent e = record.getEvent();
+                        hub.inject(e.getPropId(), e.getAreaId(), e.hasIntValue(), e.getIntValue(),
+                                e.hasFloatValue(), e.getFloatValue(), System.nanoTime());
+                        break;
+                    }
+                    case SignalTrace.KIND_LOGCAT:
+                        if (listener != null) listener.onLogLine(record.getText(), record.getValue());
+                        break;
+                    case SignalTrace.KIND_CAR_SIGNAL:
+                        if (listener != null) listener.onCarSignal(record.getText(), record.getValue());
+                        break;
+                }
+                records++;
+            }
+            AppLog.i(TAG, "回放结束: " + records + " 条记录, 用时 "
+                    + (System.nanoTime() - startNanos) / 1_000_000 + "ms");
+        } catch (IOException e) {
+            AppLog.e(TAG, "回放失败: " + e.getMessage());
+        } finally {
+            running = false;
+            if (listener != null) {
+                listener.onFinished(records);
+            }
+        }
+    }
+}
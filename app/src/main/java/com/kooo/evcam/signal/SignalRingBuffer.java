@@ -0,0 +1,112 @@
+package com.kooo.evcam.signal;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单生产者、多消费者的无锁环形缓冲区（多个来源写入时由调用方串行化 publish）
+ *
+ * 槽位按字段预先分配并循环复用，发布和读取都不分配内存。每个消费者自己维护读取序号，
+ * 互不影响；消费者落后超过容量时，被覆盖的事件计为丢失，由 read 返回 false 告知。
+ *
+ * 每个槽位有一个序号戳（与 AppLogRing 相同）：生产者先把戳置为 WRITING，再用 lazySet 写字段，
+ * 最后写入新序号；消费者复制字段前后各读一次戳，两次都等于期望序号才采用。
+ * 字段读写都经过原子数组，读到新一圈的字段时第二次读戳一定能看到 WRITING 或更新的序号。
+ */
+class SignalRingBuffer {
+    private static final long WRITING = -1;
+
+    private static final int FLAG_INT = 1;
+    private static final int FLAG_FLOAT = 2;
+
+    private final int capacity;
+    private final int mask;
+    /** 最后一个已发布事件的序号，-1 表示尚无事件 */
+    private final AtomicLong published = new AtomicLong(-1);
+    private final AtomicLongArray stamps;
+    private final AtomicIntegerArray propIds;
+    private final AtomicIntegerArray areaIds;
+    private final AtomicIntegerArray flags;
+    private final AtomicIntegerArray intValues;
+    private final AtomicIntegerArray floatBits;
+    private final AtomicLongArray timestamps;
+
+    /**
+     * @param capacity 容量，向上取整为 2 的幂
+     */
+    SignalRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        stamps = new AtomicLongArray(size);
+        propIds = new AtomicIntegerArray(size);
+        areaIds = new AtomicIntegerArray(size);
+        flags = new AtomicIntegerArray(size);
+        intValues = new AtomicIntegerArray(size);
+        floatBits = new AtomicIntegerArray(size);
+        timestamps = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            stamps.set(i, WRITING);
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /** 最后一个已发布事件的序号 */
+    long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * 发布一个事件（仅生产者线程调用）
+     * @return 事件序号
+     */
+    long publish(int propId, int areaId, boolean hasIntValue, int intValue,
+                 boolean hasFloatValue, float floatValue, long timestampNanos) {
+        long seq = published.get() + 1;
+        int index = (int) (seq & mask);
+        stamps.set(index, WRITING);
+        propIds.lazySet(index, propId);
+        areaIds.lazySet(index, areaId);
+        flags.lazySet(index, (hasIntValue ? FLAG_INT : 0) | (hasFloatValue ? FLAG_FLOAT : 0));
+        intValues.lazySet(index, intValue);
+        floatBits.lazySet(index, Float.floatToRawIntBits(floatValue));
+        timestamps.lazySet(index, timestampNanos);
+        stamps.set(index, seq);
+        published.set(seq);
+        return seq;
+    }
+
+    /**
+     * 读取指定序号的事件到 out
+     * @return 事件仍在缓冲区中时返回 true；已被覆盖（消费者落后太多）返回 false
+     */
+    boolean read(long seq, VehicleSignalEvent out) {
+        int index = (int) (seq & mask);
+        if (stamps.get(index) != seq) {
+            return false;
+        }
+        int propId = propIds.get(index);
+        int areaId = areaIds.get(index);
+        int flag = flags.get(index);
+        int intValue = intValues.get(index);
+        int bits = floatBits.get(index);
+        long timestampNanos = timestamps.get(index);
+        if (stamps.get(index) != seq) {
+            return false;  // 读取期间被覆盖
+        }
+        out.sequence = seq;
+        out.propId = propId;
+        out.areaId = areaId;
+        out.hasIntValue = (flag & FLAG_INT) != 0;
+        out.intValue = intValue;
+        out.hasFloatValue = (flag & FLAG_FLOAT) != 0;
+        out.floatValue = Float.intBitsToFloat(bits);
+        out.timestampNanos = timestampNanos;
+        out.replayed = false;
+        return true;
+    }
+}
@@ -0,0 +1,248 @@
+package com.kooo.evcam.signal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 车辆信号录制文件格式
+ *
+ * 文件头: magic "EVST" + 版本号 + 录制开始的墙钟时间（毫秒）
+ * 每条记录: 类型(1 字节) + 距上一条记录的微秒数(varint) + 负载
+ * - VHAL: propId、areaId(varint) + 标志位(1 字节) + int 值(zigzag varint，可选) + float 值(4 字节，可选)
+ * - LOGCAT: 日志行(UTF) + data1(zigzag varint)
+ * - CAR_SIGNAL: CarSignalManager 方法名(UTF) + 值(zigzag varint)
+ *
+ * 一条转向灯 VHAL 记录约 8 字节，长时间录制文件也很小。
+ */
+public final class SignalTrace {
+    private static final int MAGIC = 0x45565354; // "EVST"
+    private static final int VERSION = 1;
+    /** DataOutputStream.writeUTF 的上限之内，logcat 单行远小于此值 */
+    private static final int MAX_TEXT_CHARS = 16 * 1024;
+
+    public static final int KIND_VHAL = 1;
+    public static final int KIND_LOGCAT = 2;
+    public static final int KIND_CAR_SIGNAL = 3;
+
+    private static final int FLAG_INT = 1;
+    private static final int FLAG_FLOAT = 2;
+
+    private SignalTrace() {
+    }
+
+    /**
+     * 一条记录（Reader 复用同一实例）
+     */
+    public static final class Record {
+        int kind;
+        /** 距录制开始的微秒数 */
+        long timeMicros;
+        final VehicleSignalEvent event = new VehicleSignalEvent();
+        String text;
+        int value;
+
+        public int getKind() {
+            return kind;
+        }
+
+        public long getTimeMicros() {
+            return timeMicros;
+        }
+
+        /** KIND_VHAL 的属性值（timestampNanos 无意义） */
+        public VehicleSignalEvent getEvent() {
+            return event;
+        }
+
+        /** KIND_LOGCAT 的日志行 / KIND_CAR_SIGNAL 的方法名 */
+        public String getText() {
+            return text;
+        }
+
+        /** KIND_LOGCAT 的 data1 / KIND_CAR_SIGNAL 的值 */
+        public int getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * 录制写入（非线程安全，由调用方保证单线程写入）
+     */
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final long startNanos;
+        private long lastMicros;
+        private int recordCount;
+
+        public Writer(File file, long startNanos) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 8192));
+            this.startNanos = startNanos;
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(System.currentTimeMillis());
+        }
+
+        public void writeVhal(VehicleSignalEvent event) throws IOException {
+            writeHeader(KIND_VHAL, event.getTimestampNanos());
+            writeVarint(event.getPropId() & 0xFFFFFFFFL);
+            writeVarint(event.getAreaId() & 0xFFFFFFFFL);
+            int flags = (event.hasIntValue() ? FLAG_INT : 0) | (event.hasFloatValue() ? FLAG_FLOAT : 0);
+            out.writeByte(flags);
+            if (event.hasIntValue()) {
+                writeZigzag(event.getIntValue());
+            }
+            if (event.hasFloatValue()) {
+                out.writeFloat(event.getFloatValue());
+            }
+        }
+
+        public void writeLogLine(long timestampNanos, String line, int data1) throws IOException {
+            writeHeader(KIND_LOGCAT, timestampNanos);
+            out.writeUTF(truncate(line));
+            writeZigzag(data1);
+        }
+
+        public void writeCarSignal(long timestampNanos, String name, int value) throws IOException {
+            writeHeader(KIND_CAR_SIGNAL, timestampNanos);
+            out.writeUTF(truncate(name));
+            writeZigzag(value);
+        }
+
+        public int getRecordCount() {
+            return recordCount;
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private void writeHeader(int kind, long timestampNanos) throws IOException {
+            // 时间戳来自不同线程，可能略有倒序，按 0 处理
+            long micros = Math.max(lastMicros, (timestampNanos - startNanos) / 1000);
+            out.writeByte(kind);
+            writeVarint(micros - lastMicros);
+            lastMicros = micros;
+            recordCount++;
+        }
+
+        private void writeZigzag(int value) throws IOException {
+            writeVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        private static String truncate(String text) {
+            if (text == null) return "";
+            return text.length() > MAX_TEXT_CHARS ? text.substring(0, MAX_TEXT_CHARS) : text;
+        }
+    }
+
+    /**
+     * 顺序读取录制文件
+     */
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final long startWallTimeMs;
+        private long timeMicros;
+
+        public Reader(File file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 8192));
+            if (in.readInt() != MAGIC) {
+                in.close();
+                throw new IOException("不是信号录制文件: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                in.close();
+                throw new IOException("不支持的录制文件版本: " + version);
+            }
+            startWallTimeMs = in.readLong();
+        }
+
+        /** 录制开始的墙钟时间 */
+        public long getStartWallTimeMs() {
+            return startWallTimeMs;
+        }
+
+        /**
+         * 读取下一条记录到 record
+         * @return 文件结束返回 false
+         */
+        public boolean next(Record record) throws IOException {
+            int kind = in.read();
+            if (kind < 0) {
+                return false;
+            }
+            try {
+                timeMicros += readVarint();
+                record.kind = kind;
+                record.timeMicros = timeMicros;
+                switch (kind) {
+                    case KIND_VHAL: {
+                        VehicleSignalEvent event = record.event;
+                        event.propId = (int) readVarint();
+                        event.areaId = (int) readVarint();
+                        int flags = in.readUnsignedByte();
+                        event.hasIntValue = (flags & FLAG_INT) != 0;
+                        event.intValue = event.hasIntValue ? readZigzag() : 0;
+                        event.hasFloatValue = (flags & FLAG_FLOAT) != 0;
+                        event.floatValue = event.hasFloatValue ? in.readFloat() : 0f;
+                        record.text = null;
+                        record.value = 0;
+                        break;
+                    }
+                    case KIND_LOGCAT:
+                    case KIND_CAR_SIGNAL:
+                        record.text = in.readUTF();
+                        record.value = readZigzag();
+                        break;
+                    default:
+                        throw new IOException("未知记录类型: " + kind);
+                }
+                return true;
+            } catch (EOFException e) {
+                // 录制中断时最后一条记录可能不完整
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private int readZigzag() throws IOException {
+            int raw = (int) readVarint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        private long readVarint() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IOException("Malformed varint");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.kooo.evcam.signal;
+
+/**
+ * 车辆信号事件（一次 VHAL 属性值更新）
+ *
+ * 环形缓冲区中的槽位和订阅者的读取副本都复用同一个对象，
+ * 回调中拿到的实例只在回调期间有效，需要保留时请调用 copyFrom 复制到自己的实例。
+ */
+public class VehicleSignalEvent {
+    long sequence;
+    int propId;
+    int areaId;
+    boolean hasIntValue;
+    int intValue;
+    boolean hasFloatValue;
+    float floatValue;
+    long timestampNanos;
+    boolean replayed;
+
+    public VehicleSignalEvent() {
+    }
+
+    /** 在总线中的序号（单调递增） */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getPropId() {
+        return propId;
+    }
+
+    public int getAreaId() {
+        return areaId;
+    }
+
+    public boolean hasIntValue() {
+        return hasIntValue;
+    }
+
+    /** int32_values 的首个值，没有时为 0 */
+    public int getIntValue() {
+        return intValue;
+    }
+
+    public boolean hasFloatValue() {
+        return hasFloatValue;
+    }
+
+    /** float 值（优先 vendor 属性使用的 field 7，其次标准 field 6），没有时为 0 */
+    public float getFloatValue() {
+        return floatValue;
+    }
+
+    /** 收到属性值的时间（System.nanoTime） */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * 是否为订阅时补发的最新值（订阅前已收到的事件，时间戳是当时的接收时间，不应计入延迟统计）
+     */
+    public boolean isReplayed() {
+        return replayed;
+    }
+
+    public void copyFrom(VehicleSignalEvent other) {
+        sequence = other.sequence;
+        propId = other.propId;
+        areaId = other.areaId;
+        hasIntValue = other.hasIntValue;
+        intValue = other.intValue;
+        hasFloatValue = other.hasFloatValue;
+        floatValue = other.floatValue;
+        timestampNanos = other.timestampNanos;
+        replayed = other.replayed;
+    }
+
+    @Override
+    public String toString() {
+        return "VehicleSignalEvent{#" + sequence
+                + " prop=" + propId
+                + " area=" + areaId
+                + (hasIntValue ? " int=" + intValue : "")
+                + (hasFloatValue ? " float=" + floatValue : "")
+                + (replayed ? " replayed" : "")
+                + "}";
+    }
+}
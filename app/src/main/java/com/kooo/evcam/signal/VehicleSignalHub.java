@@ -0,0 +1,382 @@
+package com.kooo.evcam.signal;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.kooo.evcam.AppLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 车辆信号总线（单例）
+ *
+ * 进程内只保持一条 VHAL gRPC 属性流，订阅集合为所有订阅者关心的属性 ID 的并集。
+ * 解码后的属性值作为带时间戳的 VehicleSignalEvent 发布到无锁环形缓冲区，
+ * 每个订阅者按自己的读取序号在自己的 Handler 线程上依次消费，所有订阅者看到的顺序一致。
+ *
+ * 总线为每个 (propId, areaId) 保留最新值，新订阅者先收到这些值（isReplayed 为 true），
+ * 再按顺序收到订阅之后发布的事件，因此订阅时就能拿到当前的转向灯、车门状态；
+ * 订阅集合新增了属性时，还会请求 VHAL 重新推送全部当前值。
+ *
+ * 第一个订阅者加入时建立连接，最后一个订阅者退出时断开。
+ * 信号回放（SignalReplayer）通过 inject 走同一条发布路径。
+ */
+public class VehicleSignalHub {
+    private static final String TAG = "VehicleSignalHub";
+
+    private static final int RING_CAPACITY = 256;
+
+    private static volatile VehicleSignalHub instance;
+
+    /**
+     * 订阅者回调（在订阅时指定的 Handler 线程上调用）
+     */
+    public interface Subscriber {
+        /**
+         * 属性值更新（订阅时先补发关心属性的最新值，见 VehicleSignalEvent.isReplayed）
+         * @param event 复用对象，只在回调期间有效
+         */
+        void onSignal(VehicleSignalEvent event);
+
+        /** 连接状态变化 */
+        default void onConnectionStateChanged(boolean connected) {
+        }
+
+        /** 消费过慢，有事件在读取前被覆盖 */
+        default void onOverrun(long lostEvents) {
+        }
+    }
+
+    private final SignalRingBuffer ring = new SignalRingBuffer(RING_CAPACITY);
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    /** 环形缓冲区只允许单生产者：gRPC 回调与回放注入互斥 */
+    private final Object publishLock = new Object();
+    /** 每个 (propId, areaId) 的最新值（publishLock 保护） */
+    private final Map<Long, VehicleSignalEvent> latestValues = new HashMap<>();
+    /** 当前订阅属性的并集（this 锁保护） */
+    private int[] propFilter = new int[0];
+    private final VhalPropertyStream stream;
+    /** false 时不连接 VHAL，只转发 inject 注入的事件（JVM 测试用） */
+    private final boolean connectVhal;
+    private volatile boolean connected = false;
+
+    public static VehicleSignalHub getInstance() {
+        if (instance == null) {
+            synchronized (VehicleSignalHub.class) {
+                if (instance == null) {
+                    instance = new VehicleSignalHub(true);
+                }
+            }
+        }
+        return instance;
+    }
+
+    VehicleSignalHub(boolean connectVhal) {
+        this.connectVhal = connectVhal;
+        stream = new VhalPropertyStream(new VhalPropertyStream.Sink() {
+            @Override
+            public void onPropertyValue(VhalPropertyStream.PropValueDecoder value, long receivedAt) {
+                publish(value, receivedAt);
+            }
+
+            @Override
+            public void onConnectionStateChanged(boolean isConnected) {
+                connected = isConnected;
+                for (Subscription s : subscriptions) {
+                    s.postConnectionState(isConnected);
+                }
+            }
+        });
+    }
+
+    /**
+     * 订阅属性
+     * @param handler 回调线程，传 null 时使用主线程
+     * @param propIds 关心的属性 ID
+     */
+    public Subscription subscribe(Subscriber subscriber, Handler handler, int... propIds) {
+        Handler target = handler != null ? handler : new Handler(Looper.getMainLooper());
+        return subscribe(subscriber, target::post, propIds);
+    }
+
+    /**
+     * 订阅属性
+     * @param executor 回调执行器，须按提交顺序串行执行
+     */
+    Subscription subscribe(Subscriber subscriber, Executor executor, int... propIds) {
+        Subscription subscription = new Subscription(subscriber, executor, propIds);
+        // 读取起点与最新值快照在同一把锁内取得：补发的值之后紧接着就是起点处的事件，不重不漏
+        List<VehicleSignalEvent> replay;
+        synchronized (publishLock) {
+            subscription.nextSeq = ring.getPublished() + 1;
+            replay = latestValuesFor(subscription);
+        }
+        // 此时订阅尚未加入列表，补发一定排在任何 drain 之前
+        subscription.postReplay(replay);
+        boolean first;
+        boolean newProps;
+        synchronized (this) {
+            first = subscriptions.isEmpty();
+            subscriptions.add(subscription);
+            newProps = updateFilter();
+        }
+        // 取得起点到加入列表之间发布的事件不会触发本订阅的 drain，这里补一次
+        subscription.schedule();
+        if (!connectVhal) {
+            return subscription;
+        }
+        if (first) {
+            AppLog.d(TAG, "First subscriber, starting VHAL property stream");
+            stream.start();
+        } else if (connected) {
+            subscription.postConnectionState(true);
+            if (newProps) {
+                // 新增属性此前没有解码，最新值里没有它们，请 VHAL 重新推送当前值
+                stream.requestSendAll();
+            }
+        }
+        return subscription;
+    }
+
+    /**
+     * 当前是否已连接 VHAL 服务
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * 一次性连接测试（阻塞调用，用于 UI 状态检查）
+     */
+    public static boolean testConnection() {
+        return VhalPropertyStream.testConnection();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * 注入一个属性值（信号回放用），订阅者收到的与真实 VHAL 数据无区别
+     * @param timestampNanos 事件时间（System.nanoTime），延迟统计以此为起点
+     */
+    public void inject(int propId, int areaId, boolean hasIntValue, int intValue,
+                       boolean hasFloatValue, float floatValue, long timestampNanos) {
+        publish(propId, areaId, hasIntValue, intValue, hasFloatValue, floatValue, timestampNanos);
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        boolean last;
+        synchronized (this) {
+            if (!subscriptions.remove(subscription)) {
+                return;
+            }
+            last = subscriptions.isEmpty();
+            updateFilter();
+        }
+        if (last) {
+            if (connectVhal) {
+                AppLog.d(TAG, "Last subscriber left, stopping VHAL property stream");
+                stream.stop();
+            }
+            connected = false;
+            // 断开后的最新值不再可信，下次连接由 SendAll 重新获取
+            synchronized (publishLock) {
+                latestValues.clear();
+            }
+        }
+    }
+
+    /**
+     * 重新计算订阅属性的并集（调用方持有 this 锁）
+     * @return 并集中是否有之前没有订阅的属性
+     */
+    private boolean updateFilter() {
+        int total = 0;
+        for (Subscription s : subscriptions) {
+            total += s.propIds.length;
+        }
+        int[] union = new int[total];
+        int n = 0;
+        for (Subscription s : subscriptions) {
+            System.arraycopy(s.propIds, 0, union, n, s.propIds.length);
+            n += s.propIds.length;
+        }
+        Arrays.sort(union);
+        int unique = 0;
+        for (int i = 0; i < union.length; i++) {
+            if (i == 0 || union[i] != union[i - 1]) {
+                union[unique++] = union[i];
+            }
+        }
+        int[] filter = Arrays.copyOf(union, unique);
+        boolean added = false;
+        for (int propId : filter) {
+            if (Arrays.binarySearch(propFilter, propId) < 0) {
+                added = true;
+                break;
+            }
+        }
+        propFilter = filter;
+        stream.setPropFilter(filter);
+        return added;
+    }
+
+    /**
+     * 发布一个属性值（gRPC 回调线程，单生产者）
+     */
+    private void publish(VhalPropertyStream.PropValueDecoder value, long receivedAt) {
+        // 部分 vendor 属性的 float 值存在 field 7（非标准 field 6）
+        publish(value.propId, value.areaId, value.hasInt32, value.int32Value,
+                value.hasFloat7 || value.hasFloat6,
+                value.hasFloat7 ? value.float7 : value.hasFloat6 ? value.float6 : 0f,
+                receivedAt);
+    }
+
+    private void publish(int propId, int areaId, boolean hasIntValue, int intValue,
+                         boolean hasFloatValue, float floatValue, long timestampNanos) {
+        synchronized (publishLock) {
+            long seq = ring.publish(propId, areaId, hasIntValue, intValue, hasFloatValue, floatValue, timestampNanos);
+            Long key = ((long) propId << 32) | (areaId & 0xFFFFFFFFL);
+            VehicleSignalEvent latest = latestValues.get(key);
+            if (latest == null) {
+                latest = new VehicleSignalEvent();
+                latestValues.put(key, latest);
+            }
+            latest.sequence = seq;
+            latest.propId = propId;
+            latest.areaId = areaId;
+            latest.hasIntValue = hasIntValue;
+            latest.intValue = intValue;
+            latest.hasFloatValue = hasFloatValue;
+            latest.floatValue = floatValue;
+            latest.timestampNanos = timestampNanos;
+        }
+        dispatch(propId);
+    }
+
+    /**
+     * 订阅者关心的属性的最新值副本，按发布顺序排列（调用方持有 publishLock）
+     */
+    private List<VehicleSignalEvent> latestValuesFor(Subscription subscription) {
+        List<VehicleSignalEvent> values = new ArrayList<>();
+        for (VehicleSignalEvent latest : latestValues.values()) {
+            if (subscription.accepts(latest.propId)) {
+                VehicleSignalEvent copy = new VehicleSignalEvent();
+                copy.copyFrom(latest);
+                copy.replayed = true;
+                values.add(copy);
+            }
+        }
+        values.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+        return values;
+    }
+
+    private void dispatch(int propId) {
+        for (Subscription s : subscriptions) {
+            if (s.accepts(propId)) {
+                s.schedule();
+            }
+        }
+    }
+
+    /**
+     * 订阅句柄
+     */
+    public final class Subscription {
+        private final Subscriber subscriber;
+        private final Executor executor;
+        /** 升序，用于二分查找 */
+        private final int[] propIds;
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private final VehicleSignalEvent readEvent = new VehicleSignalEvent();
+        private final Runnable drainRunnable = this::drain;
+        private volatile boolean closed = false;
+        /** 下一个要读取的序号（订阅时设置一次，之后只在回调线程访问） */
+        private long nextSeq;
+
+        Subscription(Subscriber subscriber, Executor executor, int[] propIds) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.propIds = propIds.clone();
+            Arrays.sort(this.propIds);
+        }
+
+        /**
+         * 取消订阅（可重复调用）
+         */
+        public void close() {
+            if (closed) return;
+            closed = true;
+            // 已入队的 drain 与补发检查 closed 后直接返回
+            unsubscribe(this);
+        }
+
+        boolean accepts(int propId) {
+            return Arrays.binarySearch(propIds, propId) >= 0;
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(drainRunnable);
+            }
+        }
+
+        /**
+         * 在回调线程上补发订阅前的最新值（先于任何 drain 入队）
+         */
+        void postReplay(List<VehicleSignalEvent> values) {
+            if (values.isEmpty()) return;
+            executor.execute(() -> {
+                for (VehicleSignalEvent value : values) {
+                    if (closed) return;
+                    subscriber.onSignal(value);
+                }
+            });
+        }
+
+        void postConnectionState(boolean isConnected) {
+            executor.execute(() -> {
+                if (!closed) {
+                    subscriber.onConnectionStateChanged(isConnected);
+                }
+            });
+        }
+
+        /**
+         * 在回调线程上消费积压的事件
+         */
+        private void drain() {
+            scheduled.set(false);
+            long published = ring.getPublished();
+            long lost = 0;
+            // 落后超过容量的部分已被覆盖
+            long oldest = published - ring.capacity() + 1;
+            if (nextSeq < oldest) {
+                lost += oldest - nextSeq;
+                nextSeq = oldest;
+            }
+            while (!closed && nextSeq <= published) {
+                long seq = nextSeq++;
+                if (!ring.read(seq, readEvent)) {
+                    lost++;
+                    continue;
+                }
+                if (accepts(readEvent.propId)) {
+                    subscriber.onSignal(readEvent);
+                }
+            }
+            if (lost > 0 && !closed) {
+                AppLog.w(TAG, "Subscriber overrun, lost " + lost + " events");
+                subscriber.onOverrun(lost);
+            }
+        }
+    }
+}
@@ -0,0 +1,597 @@
+package com.kooo.evcam.signal;
+
+import com.kooo.evcam.AppLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import io.grpc.CallOptions;
+import io.grpc.KnownLength;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.okhttp.OkHttpChannelBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * VHAL gRPC 属性流（vendor.ecarx.automotive.vehicle，localhost:40004）
+ *
+ * 整个进程只保持一条连接和一条属性流，由 VehicleSignalHub 持有。
+ * 收到的属性批次在 gRPC 回调线程上原地解码，只有属性 ID 在订阅集合中的值才会完整解码并交给 sink。
+ */
+class VhalPropertyStream {
+    private static final String TAG = "VhalPropertyStream";
+
+    static final String GRPC_HOST = "localhost";
+    static final int GRPC_PORT = 40004;
+
+    // 重连参数
+    private static final long RECONNECT_DELAY_MS = 3000;
+
+    /**
+     * 解码结果的接收方（在 gRPC 回调线程调用）
+     */
+    interface Sink {
+        /** 订阅集合中的属性值 */
+        void onPropertyValue(PropValueDecoder value, long receivedAt);
+
+        void onConnectionStateChanged(boolean connected);
+    }
+
+    // gRPC method descriptors (使用 ByteMarshaller，手动编解码 protobuf)
+    private static final MethodDescriptor<byte[], byte[]> START_STREAM_METHOD =
+            MethodDescriptor.<byte[], byte[]>newBuilder()
+                    .setType(MethodDescriptor.MethodType.SERVER_STREAMING)
+                    .setFullMethodName("vhal_proto.VehicleServer/StartPropertyValuesStream")
+                    .setRequestMarshaller(ByteMarshaller.INSTANCE)
+                    .setResponseMarshaller(ByteMarshaller.INSTANCE)
+                    .build();
+
+    private static final MethodDescriptor<byte[], byte[]> SEND_ALL_METHOD =
+            MethodDescriptor.<byte[], byte[]>newBuilder()
+                    .setType(MethodDescriptor.MethodType.UNARY)
+                    .setFullMethodName("vhal_proto.VehicleServer/SendAllPropertyValuesToStream")
+                    .setRequestMarshaller(ByteMarshaller.INSTANCE)
+                    .setResponseMarshaller(ByteMarshaller.INSTANCE)
+                    .build();
+
+    private final Sink sink;
+
+    private volatile ManagedChannel grpcChannel;
+    private Thread connectThread;
+    private volatile boolean running = false;
+    private volatile boolean connected = false;
+
+    /** 订阅的属性 ID（升序，由 hub 整体替换） */
+    private volatile int[] propFilter = new int[0];
+
+    // 属性流解码器（只在 gRPC 回调线程使用，onNext 串行调用，可复用）
+    private final ProtoCursor batchCursor = new ProtoCursor();
+    private final ProtoCursor wrappedCursor = new ProtoCursor();
+    private final PropValueDecoder propValue = new PropValueDecoder();
+
+    VhalPropertyStream(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * 设置订阅的属性 ID（升序数组，调用方不再修改）
+     */
+    void setPropFilter(int[] sortedPropIds) {
+        this.propFilter = sortedPropIds;
+    }
+
+    void start() {
+        if (running) return;
+        running = true;
+        connectThread = new Thread(this::connectLoop, "VhalGrpcConnect");
+        connectThread.setDaemon(true);
+        connectThread.start();
+    }
+
+    void stop() {
+        running = false;
+        disconnect();
+        if (connectThread != null) {
+            connectThread.interrupt();
+            connectThread = null;
+        }
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * 请求服务器把所有属性的当前值推送到属性流（订阅集合新增属性时用于获取其当前值）
+     * 服务器通过 channel metadata 中的 session_id 关联此请求和 stream
+     */
+    void requestSendAll() {
+        ManagedChannel channel = grpcChannel;
+        if (channel == null) return;
+        new Thread(() -> {
+            try {
+                var sendCall = channel.newCall(SEND_ALL_METHOD, CallOptions.DEFAULT);
+                ClientCalls.blockingUnaryCall(sendCall, new byte[0]);
+                AppLog.d(TAG, "Requested all property values to stream");
+            } catch (Exception e) {
+                AppLog.w(TAG, "SendAll failed (non-fatal): " + e.getMessage());
+            }
+        }, "VhalSendAll").start();
+    }
+
+    /**
+     * 一次性连接测试（阻塞调用，用于 UI 状态检查）
+     */
+    static boolean testConnection() {
+        try {
+            java.net.Socket s = new java.net.Socket();
+            s.connect(new java.net.InetSocketAddress("127.0.0.1", GRPC_PORT), 2000);
+            s.close();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // ==================== Internal ====================
+
+    private void connectLoop() {
+        while (running) {
+            try {
+                AppLog.d(TAG, "Connecting to VHAL gRPC service...");
+                boolean ok = connect();
+                if (ok) {
+                    AppLog.d(TAG, "gRPC connected, starting property stream");
+                    sink.onConnectionStateChanged(true);
+                    streamProperties(); // blocks until disconnected
+                }
+            } catch (Exception e) {
+                AppLog.e(TAG, "gRPC connection error: " + e.getMessage());
+            }
+
+            if (connected) {
+                connected = false;
+                sink.onConnectionStateChanged(false);
+            }
+            disconnect();
+
+            if (!running) break;
+
+            try {
+                AppLog.d(TAG, "Reconnecting in " + RECONNECT_DELAY_MS + "ms...");
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private boolean connect() {
+        try {
+            // 构建 gRPC channel，附带 session_id 和 client_id metadata
+            // Ecarx VHAL 服务器要求 session_id 非空
+            String sessionId = UUID.randomUUID().toString();
+            Metadata headers = new Metadata();
+            headers.put(
+                    Metadata.Key.of("session_id", Metadata.ASCII_STRING_MARSHALLER),
+                    sessionId
+            );
+            headers.put(
+                    Metadata.Key.of("client_id", Metadata.ASCII_STRING_MARSHALLER),
+                    "evcam_signal"
+            );
+
+            grpcChannel = OkHttpChannelBuilder.forAddress(GRPC_HOST, GRPC_PORT)
+                    .usePlaintext()
+                    .intercept(MetadataUtils.newAttachHeadersInterceptor(headers))
+                    .build();
+
+            connected = true;
+            AppLog.d(TAG, "gRPC channel created, session_id=" + sessionId);
+            return true;
+        } catch (Exception e) {
+            AppLog.e(TAG, "gRPC connect failed: " + e.getMessage());
+            disconnect();
+            return false;
+        }
+    }
+
+    private void disconnect() {
+        connected = false;
+        if (grpcChannel != null) {
+            try {
+                grpcChannel.shutdown();
+                if (!grpcChannel.awaitTermination(2, TimeUnit.SECONDS)) {
+                    grpcChannel.shutdownNow();
+                }
+            } catch (Exception ignored) {
+                try { grpcChannel.shutdownNow(); } catch (Exception ignored2) {}
+            }
+            grpcChannel = null;
+        }
+    }
+
+    /**
+     * 开始属性流监听（阻塞直到断开或出错）
+     */
+    private void streamProperties() {
+        if (grpcChannel == null) return;
+
+        // 使用 CountDownLatch 等待流结束
+        final java.util.concurrent.CountDownLatch latch = new java.util.concurrent.CountDownLatch(1);
+        final boolean[] streamError = {false};
+
+        try {
+            var call = grpcChannel.newCall(START_STREAM_METHOD, CallOptions.DEFAULT);
+
+            ClientCalls.asyncServerStreamingCall(call, new byte[0], new StreamObserver<byte[]>() {
+                @Override
+                public void onNext(byte[] value) {
+                    try {
+                        processPropertyBatch(value, System.nanoTime());
+                    } catch (Exception e) {
+                        AppLog.e(TAG, "Failed to process property batch: " + e.getMessage());
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    AppLog.e(TAG, "Property stream error: " + t.getMessage());
+                    streamError[0] = true;
+                    latch.countDown();
+                }
+
+                @Override
+                public void onCompleted() {
+                    AppLog.d(TAG, "Property stream completed");
+                    latch.countDown();
+                }
+            });
+
+            // 请求服务器推送所有当前属性值（与 EVCC 一致，立即调用无延迟）
+            requestSendAll();
+
+            // 等待流结束
+            latch.await();
+
+        } catch (Exception e) {
+            AppLog.e(TAG, "Stream setup failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 处理一批属性值更新（protobuf 手动解码）
+     *
+     * Wire format: WrappedVehiclePropValues → repeated WrappedVehiclePropValue → VehiclePropValue
+     * 游标直接在原始字节上遍历，不复制子消息，只对订阅的属性 ID 做完整解码。
+     */
+    void processPropertyBatch(byte[] data, long receivedAt) {
+        int[] filter = propFilter;
+        // 解码 WrappedVehiclePropValues: field 1 = repeated WrappedVehiclePropValue (message)
+        ProtoCursor batch = batchCursor.reset(data, 0, data.length);
+        while (batch.nextField()) {
+            if (batch.field != 1 || batch.wireType != ProtoCursor.WIRE_LENGTH_DELIMITED) {
+                batch.skipValue();
+                continue;
+            }
+            int wrappedEnd = batch.readLengthDelimited();
+            int wrappedStart = batch.pos;
+            batch.pos = wrappedEnd;
+
+            // 解码 WrappedVehiclePropValue: field 1 = VehiclePropValue (message)
+            ProtoCursor wrapped = wrappedCursor.reset(data, wrappedStart, wrappedEnd);
+            while (wrapped.nextField()) {
+                if (wrapped.field == 1 && wrapped.wireType == ProtoCursor.WIRE_LENGTH_DELIMITED) {
+                    int valueEnd = wrapped.readLengthDelimited();
+                    int valueStart = wrapped.pos;
+                    // 先只读属性 ID，不在订阅集合中的属性直接跳过
+                    int propId = propValue.readPropId(data, valueStart, valueEnd);
+                    if (Arrays.binarySearch(filter, propId) >= 0) {
+                        sink.onPropertyValue(propValue.decode(data, valueStart, valueEnd), receivedAt);
+                    }
+                    break;
+                }
+                wrapped.skipValue();
+            }
+        }
+    }
+
+    // ==================== ByteMarshaller ====================
+
+    /** gRPC marshaller that passes raw bytes (same as EVCC's approach) */
+    private enum ByteMarshaller implements MethodDescriptor.Marshaller<byte[]> {
+        INSTANCE;
+
+        /** 长度未知时使用的复用读缓冲区（每个 gRPC 线程一个） */
+        private static final ThreadLocal<byte[]> READ_BUFFER = ThreadLocal.withInitial(() -> new byte[4096]);
+
+        @Override
+        public InputStream stream(byte[] value) {
+            return new ByteArrayInputStream(value);
+        }
+
+        @Override
+        public byte[] parse(InputStream stream) {
+            try {
+                // gRPC 的消息流实现 KnownLength，available() 即剩余长度，直接一次分配到位
+                if (stream instanceof KnownLength) {
+                    int size = stream.available();
+                    byte[] message = new byte[size];
+                    int pos = 0;
+                    int len;
+                    while (pos < size && (len = stream.read(message, pos, size - pos)) != -1) {
+                        pos += len;
+                    }
+                    if (pos == size && stream.available() == 0) {
+                        return message;
+                    }
+                    // 长度与声明不符时退回通用路径（极少发生）
+                    return readAll(stream, message, pos);
+                }
+                return readAll(stream, null, 0);
+            } catch (Exception e) {
+                return new byte[0];
+            }
+        }
+
+        /**
+         * 读入复用缓冲区，最后按实际长度复制一次
+         * （不使用 readAllBytes()，Android 11 (API 30) 不支持该方法）
+         */
+        private static byte[] readAll(InputStream stream, byte[] prefix, int prefixLength) throws java.io.IOException {
+            byte[] buf = READ_BUFFER.get();
+            if (buf.length < prefixLength + 1) {
+                buf = new byte[Math.max(buf.length * 2, prefixLength + 1)];
+            }
+            if (prefixLength > 0) {
+                System.arraycopy(prefix, 0, buf, 0, prefixLength);
+            }
+            int pos = prefixLength;
+            int len;
+            while ((len = stream.read(buf, pos, buf.length - pos)) != -1) {
+                pos += len;
+                if (pos == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+            }
+            READ_BUFFER.set(buf);
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    // ==================== Lightweight Protobuf Decoder ====================
+
+    /**
+     * 最小化 protobuf 游标，仅处理 VHAL 属性流所需的字段类型。
+     * 直接在原始字节的 [pos, end) 区间上前进，不复制子消息、不分配对象，实例可复用。
+     * 避免引入 Wire/protobuf-java 等重依赖。
+     */
+    static final class ProtoCursor {
+        static final int WIRE_VARINT = 0;
+        static final int WIRE_64BIT = 1;
+        static final int WIRE_LENGTH_DELIMITED = 2;
+        static final int WIRE_32BIT = 5;
+
+        byte[] data;
+        int pos;
+        int end;
+        /** 当前字段号与 wire type（nextField 之后有效） */
+        int field;
+        int wireType;
+
+        ProtoCursor reset(byte[] data, int start, int end) {
+            this.data = data;
+            this.pos = start;
+            this.end = Math.min(end, data.length);
+            return this;
+        }
+
+        /**
+         * 读取下一个字段的 tag
+         * @return 还有字段时返回 true；到达末尾或数据损坏时返回 false
+         */
+        boolean nextField() {
+            if (pos >= end) return false;
+            long tag = readVarint();
+            if (pos > end) return false;
+            field = (int) (tag >>> 3);
+            wireType = (int) (tag & 0x07);
+            return true;
+        }
+
+        /** 读取 varint（越界时把 pos 置为 end + 1 作为损坏标记） */
+        long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64 && pos < end; shift += 7) {
+                byte b = data[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            pos = end + 1;
+            return 0;
+        }
+
+        /** 读取 little-endian fixed32 */
+        int readFixed32() {
+            if (pos + 4 > end) {
+                pos = end + 1;
+                return 0;
+            }
+            int bits = (data[pos] & 0xFF)
+                    | ((data[pos + 1] & 0xFF) << 8)
+                    | ((data[pos + 2] & 0xFF) << 16)
+                    | ((data[pos + 3] & 0xFF) << 24);
+            pos += 4;
+            return bits;
+        }
+
+        /**
+         * 读取 length-delimited 字段的长度，pos 停在内容起点
+         * @return 内容结束位置；数据损坏时返回 end 并终止遍历
+         */
+        int readLengthDelimited() {
+            long len = readVarint();
+            if (pos > end || len < 0 || len > end - pos) {
+                pos = end;
+                return end;
+            }
+            return pos + (int) len;
+        }
+
+        /** 跳过当前字段的值 */
+        void skipValue() {
+            switch (wireType) {
+                case WIRE_VARINT:
+                    readVarint();
+                    break;
+                case WIRE_64BIT:
+                    pos += 8;
+                    break;
+                case WIRE_LENGTH_DELIMITED:
+                    pos = readLengthDelimited();
+                    break;
+                case WIRE_32BIT:
+                    pos += 4;
+                    break;
+                default:
+                    pos = end; // unknown wire type
+                    break;
+            }
+        }
+
+        static int zigzag(long n) {
+            int v = (int) n;
+            return (v >>> 1) ^ -(v & 1);
+        }
+    }
+
+    /**
+     * VehiclePropValue 解码结果（复用实例，只保留首个值）
+     *
+     * 字段: 1 = prop, 4 = area_id, 5 = int32_values (packed sint32),
+     *       6 = float_values (packed float), 7 = 部分 vendor 属性的 float 值
+     */
+    static final class PropValueDecoder {
+        private final ProtoCursor cursor = new ProtoCursor();
+
+        int propId;
+        int areaId;
+        boolean hasInt32;
+        int int32Value;
+        boolean hasFloat6;
+        float float6;
+        boolean hasFloat7;
+        float float7;
+
+        /** 只读取属性 ID（field 1），找不到时返回 0 */
+        int readPropId(byte[] data, int start, int end) {
+            ProtoCursor c = cursor.reset(data, start, end);
+            while (c.nextField()) {
+                if (c.field == 1 && c.wireType == ProtoCursor.WIRE_VARINT) {
+                    return (int) c.readVarint();
+                }
+                c.skipValue();
+            }
+            return 0;
+        }
+
+        PropValueDecoder decode(byte[] data, int start, int end) {
+            propId = 0;
+            areaId = 0;
+            hasInt32 = false;
+            int32Value = 0;
+            hasFloat6 = false;
+            float6 = 0f;
+            hasFloat7 = false;
+            float7 = 0f;
+
+            ProtoCursor c = cursor.reset(data, start, end);
+            boolean hasProp = false;
+            boolean hasArea = false;
+            while (c.nextField()) {
+                switch (c.field) {
+                    case 1:
+                    case 4:
+                        if (c.wireType != ProtoCursor.WIRE_VARINT) {
+                            c.skipValue();
+                        } else if (c.field == 1 && !hasProp) {
+                            propId = (int) c.readVarint();
+                            hasProp = true;
+                        } else if (c.field == 4 && !hasArea) {
+                            areaId = (int) c.readVarint();
+                            hasArea = true;
+                        } else {
+                            c.readVarint();
+                        }
+                        break;
+                    case 5:
+                        readFirstSint32(c);
+                        break;
+                    case 6:
+                    case 7:
+                        readFirstFloat(c, c.field);
+                        break;
+                    default:
+                        c.skipValue();
+                        break;
+                }
+            }
+            return this;
+        }
+
+        /** int32_values：兼容 packed 与逐个 varint 编码 */
+        private void readFirstSint32(ProtoCursor c) {
+            if (c.wireType == ProtoCursor.WIRE_LENGTH_DELIMITED) {
+                int contentEnd = c.readLengthDelimited();
+                if (!hasInt32 && c.pos < contentEnd) {
+                    int32Value = ProtoCursor.zigzag(c.readVarint());
+                    hasInt32 = c.pos <= contentEnd;
+                }
+                c.pos = contentEnd;
+            } else if (c.wireType == ProtoCursor.WIRE_VARINT) {
+                long raw = c.readVarint();
+                if (!hasInt32) {
+                    int32Value = ProtoCursor.zigzag(raw);
+                    hasInt32 = true;
+                }
+            } else {
+                c.skipValue();
+            }
+        }
+
+        /** float_values：兼容 packed 与逐个 fixed32 编码 */
+        private void readFirstFloat(ProtoCursor c, int field) {
+            boolean has = field == 6 ? hasFloat6 : hasFloat7;
+            float value;
+            if (c.wireType == ProtoCursor.WIRE_LENGTH_DELIMITED) {
+                int contentEnd = c.readLengthDelimited();
+                if (has || c.pos + 4 > contentEnd) {
+                    c.pos = contentEnd;
+                    return;
+                }
+                value = Float.intBitsToFloat(c.readFixed32());
+                c.pos = contentEnd;
+            } else if (c.wireType == ProtoCursor.WIRE_32BIT) {
+                int bits = c.readFixed32();
+                if (has || c.pos > c.end) return;
+                value = Float.intBitsToFloat(bits);
+            } else {
+                c.skipValue();
+                return;
+            }
+            if (field == 6) {
+                float6 = value;
+                hasFloat6 = true;
+            } else {
+                float7 = value;
+                hasFloat7 = true;
+            }
+        }
+    }
+}
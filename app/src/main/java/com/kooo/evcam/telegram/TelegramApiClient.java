@@ -1,6 +1,9 @@
 package com.kooo.evcam.telegram;
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.net.NetworkStack;
+import com.kooo.evcam.net.TrafficClass;
+import com.kooo.evcam.remote.core.HttpStatusException;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
@@ -31,7 +34,7 @@ public class TelegramApiClient {
     public TelegramApiClient(TelegramConfig config) {
         this.config = config;
         this.gson = new Gson();
-        this.httpClient = new OkHttpClient.Builder()
+        this.httpClient = NetworkStack.getInstance().newBuilder(TrafficClass.CONTROL)
                 .connectTimeout(15, TimeUnit.SECONDS)  // 连接超时15秒
                 .readTimeout(45, TimeUnit.SECONDS)     // 读取超时45秒
                 .writeTimeout(60, TimeUnit.SECONDS)    // 写入超时60秒（文件上传）
@@ -62,7 +65,7 @@ public class TelegramApiClient {
             AppLog.d(TAG, "getMe 响应: " + responseBody);
 
             if (!response.isSuccessful()) {
-                throw new IOException("getMe 失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "getMe 失败: " + response.code() + ", " + responseBody);
             }
 
             JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
@@ -90,6 +93,7 @@ public class TelegramApiClient {
         Request request = new Request.Builder()
                 .url(url)
                 .get()
+                .tag(TrafficClass.class, TrafficClass.POLL)
                 .build();
 
         // 为 Long Polling 创建特殊的客户端，超时时间更长
@@ -101,7 +105,7 @@ public class TelegramApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
 
             if (!response.isSuccessful()) {
-                throw new IOException("getUpdates 失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "getUpdates 失败: " + response.code() + ", " + responseBody);
             }
 
             JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
@@ -139,7 +143,7 @@ public class TelegramApiClient {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送消息失败，响应: " + responseBody);
-                throw new IOException("发送消息失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送消息失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "消息发送成功");
         }
@@ -154,8 +158,9 @@ public class TelegramApiClient {
 
     /**
      * 发送图片（带说明文字）
+     * @return Telegram file_id（可用于再次发送同一张图片），解析失败返回 null
      */
-    public void sendPhoto(long chatId, File photoFile, String caption) throws IOException {
+    public String sendPhoto(long chatId, File photoFile, String caption) throws IOException {
         String url = buildUrl("sendPhoto");
 
         RequestBody fileBody = RequestBody.create(
@@ -175,18 +180,33 @@ public class TelegramApiClient {
         Request request = new Request.Builder()
                 .url(url)
                 .post(builder.build())
+                .tag(TrafficClass.class, TrafficClass.BULK)
                 .build();
 
         try (Response response = httpClient.newCall(request).execute()) {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送图片失败，响应: " + responseBody);
-                throw new IOException("发送图片失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送图片失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "图片发送成功: " + photoFile.getName());
+            return extractFileId(responseBody, "photo");
         }
     }
 
+    /**
+     * 按 file_id 发送已上传过的图片（不重新上传）
+     */
+    public void sendPhotoByFileId(long chatId, String fileId, String caption) throws IOException {
+        JsonObject body = new JsonObject();
+        body.addProperty("chat_id", chatId);
+        body.addProperty("photo", fileId);
+        if (caption != null && !caption.isEmpty()) {
+            body.addProperty("caption", caption);
+        }
+        postJson("sendPhoto", body, "发送图片");
+    }
+
     /**
      * 发送视频
      */
@@ -196,8 +216,9 @@ public class TelegramApiClient {
 
     /**
      * 发送视频（带说明文字）
+     * @return Telegram file_id（可用于再次发送同一段视频），解析失败返回 null
      */
-    public void sendVideo(long chatId, File videoFile, File thumbnailFile, int duration, String caption) throws IOException {
+    public String sendVideo(long chatId, File videoFile, File thumbnailFile, int duration, String caption) throws IOException {
         String url = buildUrl("sendVideo");
 
         RequestBody videoBody = RequestBody.create(
@@ -227,16 +248,72 @@ public class TelegramApiClient {
         Request request = new Request.Builder()
                 .url(url)
                 .post(builder.build())
+                .tag(TrafficClass.class, TrafficClass.BULK)
                 .build();
 
         try (Response response = httpClient.newCall(request).execute()) {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送视频失败，响应: " + responseBody);
-                throw new IOException("发送视频失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送视频失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "视频发送成功: " + videoFile.getName());
+            return extractFileId(responseBody, "video");
+        }
+    }
+
+    /**
+     * 按 file_id 发送已上传过的视频（不重新上传）
+     */
+    public void sendVideoByFileId(long chatId, String fileId, String caption) throws IOException {
+        JsonObject body = new JsonObject();
+        body.addProperty("chat_id", chatId);
+        body.addProperty("video", fileId);
+        body.addProperty("supports_streaming", true);
+        if (caption != null && !caption.isEmpty()) {
+            body.addProperty("caption", caption);
+        }
+        postJson("sendVideo", body, "发送视频");
+    }
+
+    private void postJson(String method, JsonObject body, String action) throws IOException {
+        Request request = new Request.Builder()
+                .url(buildUrl(method))
+                .post(RequestBody.create(
+                        MediaType.parse("application/json"),
+                        gson.toJson(body)
+                ))
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            String responseBody = response.body() != null ? response.body().string() : "";
+            if (!response.isSuccessful()) {
+                AppLog.e(TAG, action + "失败，响应: " + responseBody);
+                throw new HttpStatusException(response.code(), action + "失败: " + response.code() + ", " + responseBody);
+            }
+        }
+    }
+
+    /**
+     * 从发送结果中取出媒体的 file_id
+     * 图片返回多个尺寸，取最大的一个；视频可能被 Telegram 识别为 animation/document
+     */
+    private String extractFileId(String responseBody, String field) {
+        try {
+            JsonObject result = gson.fromJson(responseBody, JsonObject.class).getAsJsonObject("result");
+            if ("photo".equals(field)) {
+                JsonArray sizes = result.getAsJsonArray("photo");
+                return sizes.get(sizes.size() - 1).getAsJsonObject().get("file_id").getAsString();
+            }
+            for (String key : new String[]{field, "animation", "document"}) {
+                if (result.has(key)) {
+                    return result.getAsJsonObject(key).get("file_id").getAsString();
+                }
+            }
+        } catch (Exception e) {
+            AppLog.w(TAG, "解析 file_id 失败: " + e.getMessage());
         }
+        return null;
     }
 
     /**
@@ -269,13 +346,14 @@ public class TelegramApiClient {
         Request request = new Request.Builder()
                 .url(url)
                 .post(builder.build())
+                .tag(TrafficClass.class, TrafficClass.BULK)
                 .build();
 
         try (Response response = httpClient.newCall(request).execute()) {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
                 AppLog.e(TAG, "发送文件失败，响应: " + responseBody);
-                throw new IOException("发送文件失败: " + response.code() + ", " + responseBody);
+                throw new HttpStatusException(response.code(), "发送文件失败: " + response.code() + ", " + responseBody);
             }
             AppLog.d(TAG, "文件发送成功: " + file.getName());
         }
@@ -0,0 +1,218 @@
+package com.kooo.evcam.wechat;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import com.kooo.evcam.AppLog;
+import com.kooo.evcam.camera.SceneChangeDetector;
+
+/**
+ * 微信小程序实时预览推流器
+ * 常驻的两级流水线：抓帧线程按节拍抓取 JPEG 放入单槽信箱，上传线程取出最新一帧直接从内存上传。
+ * 信箱只保留最新帧（新帧覆盖未上传的旧帧），上传慢时不会积压过期画面；
+ * 抓帧间隔跟随实测上传往返时间自适应，网络慢时自动降帧。
+ *
+ * 整个推流期间只有两条线程，不再每帧新建线程、写临时文件。
+ */
+class PreviewStreamer {
+    private static final String TAG = "PreviewStreamer";
+
+    /** 抓帧间隔上下限 */
+    private static final long MIN_INTERVAL_MS = 1000;
+    private static final long MAX_INTERVAL_MS = 8000;
+
+    /** 画面不变时至少每10秒上传一帧 */
+    private static final long FORCE_REFRESH_MS = 10000;
+    private static final String SCENE_KEY = "wechatPreview";
+
+    /** 上传往返时间平滑系数 */
+    private static final double RTT_ALPHA = 0.3;
+
+    /**
+     * 抓帧（在抓帧线程调用）
+     */
+    interface FrameSource {
+        byte[] capture();
+    }
+
+    /**
+     * 上传一帧（在上传线程调用，阻塞直到完成）
+     */
+    interface FrameSink {
+        boolean upload(byte[] jpeg);
+    }
+
+    private final FrameSource source;
+    private final FrameSink sink;
+    private final SceneChangeDetector sceneDetector = new SceneChangeDetector(FORCE_REFRESH_MS);
+
+    private final Object mailboxLock = new Object();
+    private byte[] mailbox;
+
+    private volatile boolean running = false;
+    /**
+     * 每次 start 递增：快速 stop/start 时旧线程可能还没看到停止（如阻塞在上传中），
+     * 只按 running 判断会与新线程同时消费信箱，因此各线程只在自己的代号仍是当前代号时继续
+     */
+    private volatile int generation = 0;
+    private volatile double rttEwmaMs = MIN_INTERVAL_MS;
+
+    private HandlerThread captureThread;
+    private Handler captureHandler;
+    private Thread uploadThread;
+
+    private int framesCaptured = 0;
+    private int framesReplaced = 0;
+    private int framesUploaded = 0;
+
+    PreviewStreamer(FrameSource source, FrameSink sink) {
+        this.source = source;
+        this.sink = sink;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        int gen = ++generation;
+        sceneDetector.invalidate(SCENE_KEY);  // 新观看者：首帧必定上传
+        rttEwmaMs = MIN_INTERVAL_MS;
+        framesCaptured = 0;
+        framesReplaced = 0;
+        framesUploaded = 0;
+
+        captureThread = new HandlerThread("WechatPreviewCapture");
+        captureThread.start();
+        captureHandler = new Handler(captureThread.getLooper());
+        captureHandler.post(() -> captureTick(gen));
+
+        uploadThread = new Thread(() -> uploadLoop(gen), "WechatPreviewUpload");
+        uploadThread.start();
+        AppLog.d(TAG, "预览推流已启动");
+    }
+
+    synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        generation++;
+        if (captureHandler != null) {
+            captureHandler.removeCallbacksAndMessages(null);
+        }
+        if (captureThread != null) {
+            captureThread.quitSafely();
+            captureThread = null;
+        }
+        captureHandler = null;
+        synchronized (mailboxLock) {
+            mailbox = null;
+            mailboxLock.notifyAll();
+        }
+        if (uploadThread != null) {
+            uploadThread.interrupt();
+            uploadThread = null;
+        }
+        AppLog.d(TAG, "预览推流已停止: 抓帧 " + framesCaptured + "，覆盖 " + framesReplaced
+                + "，上传 " + framesUploaded + "，平均往返 " + Math.round(rttEwmaMs) + "ms");
+    }
+
+    private boolean isCurrent(int gen) {
+        return running && generation == gen;
+    }
+
+    // ==================== 抓帧阶段 ====================
+
+    private void captureTick(int gen) {
+        if (!isCurrent(gen)) {
+            return;
+        }
+        long start = SystemClock.elapsedRealtime();
+        try {
+            byte[] jpeg = source.capture();
+            if (jpeg != null && jpeg.length > 0
+                    && sceneDetector.shouldSend(SCENE_KEY, SceneChangeDetector.computeLuma(jpeg))) {
+                offer(jpeg);
+            }
+        } catch (Exception e) {
+            AppLog.e(TAG, "捕获预览帧失败", e);
+        }
+        Handler handler = captureHandler;
+        if (isCurrent(gen) && handler != null) {
+            long elapsed = SystemClock.elapsedRealtime() - start;
+            handler.postDelayed(() -> captureTick(gen), Math.max(0, currentIntervalMs() - elapsed));
+        }
+    }
+
+    /**
+     * 放入信箱：未取走的旧帧直接被覆盖
+     */
+    private void offer(byte[] jpeg) {
+        synchronized (mailboxLock) {
+            framesCaptured++;
+            if (mailbox != null) {
+                framesReplaced++;
+            }
+            mailbox = jpeg;
+            mailboxLock.notifyAll();
+        }
+    }
+
+    /**
+     * 抓帧间隔：与上传往返时间匹配，限制在 1~8 秒之间
+     */
+    private long currentIntervalMs() {
+        return Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, Math.round(rttEwmaMs)));
+    }
+
+    // ==================== 上传阶段 ====================
+
+    private void uploadLoop(int gen) {
+        while (isCurrent(gen)) {
+            byte[] jpeg;
+            synchronized (mailboxLock) {
+                while (isCurrent(gen) && mailbox == null) {
+                    try {
+                        mailboxLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!isCurrent(gen)) {
+                    return;  // 旧一轮的线程不取走新一轮的帧
+                }
+                jpeg = mailbox;
+                mailbox = null;
+            }
+            if (jpeg == null) {
+                return;
+            }
+
+            long start = SystemClock.elapsedRealtime();
+            boolean ok;
+            try {
+                ok = sink.upload(jpeg);
+            } catch (Exception e) {
+                AppLog.e(TAG, "上传预览帧失败", e);
+                ok = false;
+            }
+            if (!isCurrent(gen)) {
+                return;  // 上传期间已停止或重启，不再影响新一轮的统计
+            }
+            long rtt = SystemClock.elapsedRealtime() - start;
+            rttEwmaMs = rttEwmaMs * (1 - RTT_ALPHA) + rtt * RTT_ALPHA;
+            if (ok) {
+                framesUploaded++;
+            } else {
+                // 上传失败：下一帧无论画面是否变化都要上传
+                sceneDetector.invalidate(SCENE_KEY);
+            }
+        }
+    }
+}
@@ -5,12 +5,13 @@ import android.os.Handler;
 import android.os.Looper;
 
 import com.kooo.evcam.AppLog;
+import com.kooo.evcam.net.NetworkStack;
+import com.kooo.evcam.net.TrafficClass;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -104,7 +105,7 @@ public class WechatCloudManager {
         this.appSecret = config.getAppSecret();
         this.cloudEnv = config.getCloudEnv();
         
-        this.httpClient = new OkHttpClient.Builder()
+        this.httpClient = NetworkStack.getInstance().newBuilder(TrafficClass.CONTROL)
                 .connectTimeout(15, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(60, TimeUnit.SECONDS)
@@ -680,6 +681,24 @@ public class WechatCloudManager {
      * @return 云存储 fileID，失败返回 null
      */
     public String uploadFileToCloud(File file, String cloudPath) {
+        String mimeType = cloudPath.endsWith(".jpg") || cloudPath.endsWith(".jpeg") 
+                ? "image/jpeg" 
+                : cloudPath.endsWith(".png") ? "image/png" 
+                : cloudPath.endsWith(".mp4") ? "video/mp4" 
+                : "application/octet-stream";
+        return uploadToCloud(cloudPath, file.getName(), RequestBody.create(MediaType.parse(mimeType), file),
+                TrafficClass.BULK);
+    }
+    
+    /**
+     * 上传内容到微信云存储（获取上传凭证 + 表单上传）
+     * @param cloudPath 云存储路径
+     * @param fileName 表单中的文件名
+     * @param content 文件内容
+     * @param trafficClass 上传内容的带宽优先级
+     * @return 云存储 fileID，失败返回 null
+     */
+    private String uploadToCloud(String cloudPath, String fileName, RequestBody content, TrafficClass trafficClass) {
         try {
             if (!refreshAccessToken()) {
                 AppLog.e(TAG, "刷新token失败，无法上传文件");
@@ -732,13 +751,7 @@ public class WechatCloudManager {
             }
             
             // 第二步：上传文件
-            AppLog.d(TAG, "开始上传文件: " + file.getName() + " -> " + cloudPath);
-            
-            String mimeType = cloudPath.endsWith(".jpg") || cloudPath.endsWith(".jpeg") 
-                    ? "image/jpeg" 
-                    : cloudPath.endsWith(".png") ? "image/png" 
-                    : cloudPath.endsWith(".mp4") ? "video/mp4" 
-                    : "application/octet-stream";
+            AppLog.d(TAG, "开始上传文件: " + fileName + " -> " + cloudPath);
             
             MultipartBody.Builder multipartBuilder = new MultipartBody.Builder()
                     .setType(MultipartBody.FORM)
@@ -746,12 +759,12 @@ public class WechatCloudManager {
                     .addFormDataPart("Signature", authorization)
                     .addFormDataPart("x-cos-security-token", token)
                     .addFormDataPart("x-cos-meta-fileid", cosFileId)
-                    .addFormDataPart("file", file.getName(),
-                            RequestBody.create(MediaType.parse(mimeType), file));
+                    .addFormDataPart("file", fileName, content);
             
             Request uploadRequest = new Request.Builder()
                     .url(uploadUrl)
                     .post(multipartBuilder.build())
+                    .tag(TrafficClass.class, trafficClass)
                     .build();
             
             try (Response uploadResponse = httpClient.newCall(uploadRequest).execute()) {
@@ -772,47 +785,28 @@ public class WechatCloudManager {
     }
     
     /**
-     * 上传预览帧
+     * 上传预览帧（阻塞，由预览推流的上传线程调用）
+     * 直接从内存上传，固定覆盖同一个云端路径
+     * @return 是否上传成功
      */
-    public void uploadPreviewFrame(byte[] jpegData, PreviewCallback callback) {
-        new Thread(() -> {
-            try {
-                if (!refreshAccessToken()) {
-                    return;
-                }
-                
-                String deviceId = config.getDeviceId();
-                long now = System.currentTimeMillis();
-                String cloudPath = "preview/" + deviceId + "/frame.jpg";
-                
-                // 创建临时文件
-                File tempFile = new File(context.getCacheDir(), "preview_frame.jpg");
-                try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-                    fos.write(jpegData);
-                }
-                
-                // 上传
-                String fileId = uploadFileToCloud(tempFile, cloudPath);
-                
-                // 删除临时文件
-                tempFile.delete();
-                
-                if (fileId != null) {
-                    // 更新设备的预览信息
-                    String query = "db.collection(\"devices\").where({deviceId:\"" + deviceId + "\"}).update({data:{" +
-                            "previewFileId:\"" + escapeString(fileId) + "\"," +
-                            "previewTime:" + now +
-                            "}})";
-                    executeDbUpdate(query);
-                    
-                    if (callback != null) {
-                        mainHandler.post(() -> callback.onPreviewUploaded(fileId));
-                    }
-                }
-            } catch (Exception e) {
-                AppLog.e(TAG, "上传预览帧失败", e);
-            }
-        }).start();
+    public boolean uploadPreviewFrame(byte[] jpegData) {
+        String deviceId = config.getDeviceId();
+        long now = System.currentTimeMillis();
+        String cloudPath = "preview/" + deviceId + "/frame.jpg";
+        
+        String fileId = uploadToCloud(cloudPath, "frame.jpg",
+                RequestBody.create(MediaType.parse("image/jpeg"), jpegData), TrafficClass.PREVIEW);
+        if (fileId == null) {
+            return false;
+        }
+        
+        // 更新设备的预览信息
+        String query = "db.collection(\"devices\").where({deviceId:\"" + deviceId + "\"}).update({data:{" +
+                "previewFileId:\"" + escapeString(fileId) + "\"," +
+                "previewTime:" + now +
+                "}})";
+        executeDbUpdate(query);
+        return true;
     }
     
     /**
@@ -963,10 +957,6 @@ public class WechatCloudManager {
     }
     
     // 回调接口
-    public interface PreviewCallback {
-        void onPreviewUploaded(String fileId);
-    }
-    
     public interface BatchUploadCallback {
         void onComplete(int successCount, int failCount, List<String> fileIds);
     }
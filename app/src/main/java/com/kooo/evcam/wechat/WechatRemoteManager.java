@@ -8,10 +8,16 @@ import android.widget.Toast;
 
 import com.kooo.evcam.AppLog;
 import com.kooo.evcam.WakeUpHelper;
+import com.kooo.evcam.camera.PhotoPipeline;
+import com.kooo.evcam.remote.core.RemoteUploadCallback;
 import com.kooo.evcam.remote.upload.MediaFileFinder;
+import com.kooo.evcam.remote.upload.UploadCache;
+import com.kooo.evcam.remote.upload.UploadEngine;
+import com.kooo.evcam.remote.upload.UploadJob;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.List;
 
@@ -22,18 +28,14 @@ import java.util.List;
 public class WechatRemoteManager {
     private static final String TAG = "WechatRemoteManager";
     
-    // 预览流间隔
-    private static final long PREVIEW_INTERVAL = 2000; // 2秒
-    
     private final Context context;
+    private final WechatVideoUploader videoUploader = new WechatVideoUploader();
     private final WechatMiniConfig config;
     private WechatCloudManager cloudManager;
     private MediaFileFinder mediaFileFinder;
     
     // 预览流相关
-    private boolean isPreviewStreaming = false;
-    private Handler previewHandler;
-    private Runnable previewRunnable;
+    private PreviewStreamer previewStreamer;
     
     // 当前命令ID
     private String currentCommandId;
@@ -111,7 +113,6 @@ public class WechatRemoteManager {
     public WechatRemoteManager(Context context, WechatMiniConfig config) {
         this.context = context;
         this.config = config;
-        this.previewHandler = new Handler(Looper.getMainLooper());
     }
 
     /**
@@ -221,6 +222,9 @@ public class WechatRemoteManager {
         // 创建并启动云管理器
         cloudManager = new WechatCloudManager(context, config, connectionCallback);
         cloudManager.start(commandCallback);
+
+        // 注册视频上传器，恢复上次未完成的上传任务
+        UploadEngine.getInstance(context).register(videoUploader);
     }
 
     /**
@@ -389,8 +393,9 @@ public class WechatRemoteManager {
                 java.util.Locale.getDefault()).format(new java.util.Date());
         executor.takePicture(timestamp);
         
-        // 延迟后上传
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
+        // 本批次所有摄像头写盘完成后上传（超时则上传已完成的部分）
+        PhotoPipeline.getInstance().whenBatchComplete(timestamp, PhotoPipeline.DEFAULT_BATCH_TIMEOUT_MS, result -> {
+            AppLog.d(TAG, "拍照批次完成: " + result.getSummary());
             java.io.File photoDir = executor.getPhotoDir();
             if (photoDir == null || !photoDir.exists()) {
                 AppLog.e(TAG, "照片目录不存在");
@@ -416,7 +421,7 @@ public class WechatRemoteManager {
                             success > 0 ? "已上传" + success + "张" : "上传失败");
                     executor.scheduleReturnToBackground("WeChat photo");
                 });
-        }, 5000);
+        });
     }
     
     /**
@@ -509,69 +514,49 @@ public class WechatRemoteManager {
      * 启动预览流
      */
     public void startPreviewStream() {
-        if (isPreviewStreaming) {
+        if (previewStreamer != null && previewStreamer.isRunning()) {
             AppLog.d(TAG, "预览流已在运行");
             return;
         }
         
         AppLog.d(TAG, "启动预览流");
-        isPreviewStreaming = true;
-        
-        previewRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if (!isPreviewStreaming) return;
-                
-                captureAndUploadPreviewFrame();
-                previewHandler.postDelayed(this, PREVIEW_INTERVAL);
-            }
-        };
-        
-        previewHandler.post(previewRunnable);
+        previewStreamer = new PreviewStreamer(this::capturePreviewFrame, this::uploadPreviewFrame);
+        previewStreamer.start();
     }
 
     /**
      * 停止预览流
      */
     public void stopPreviewStream() {
-        if (!isPreviewStreaming) return;
+        if (previewStreamer == null) return;
         
         AppLog.d(TAG, "停止预览流");
-        isPreviewStreaming = false;
-        
-        if (previewRunnable != null) {
-            previewHandler.removeCallbacks(previewRunnable);
-            previewRunnable = null;
-        }
+        previewStreamer.stop();
+        previewStreamer = null;
     }
 
     /**
-     * 捕获并上传预览帧
+     * 捕获预览帧（预览推流的抓帧线程调用）
      */
-    private void captureAndUploadPreviewFrame() {
+    private byte[] capturePreviewFrame() {
         if (cloudManager == null || !cloudManager.isRunning()) {
-            return;
+            return null;
         }
         
         CommandExecutor executor = commandExecutorRef != null ? commandExecutorRef.get() : null;
         if (executor == null) {
             AppLog.w(TAG, "命令执行器未设置，无法捕获预览帧");
-            return;
+            return null;
         }
-        
-        // 在后台线程执行
-        new Thread(() -> {
-            try {
-                byte[] jpegData = executor.capturePreviewFrame();
-                if (jpegData != null && jpegData.length > 0) {
-                    cloudManager.uploadPreviewFrame(jpegData, fileId -> {
-                        AppLog.d(TAG, "预览帧上传成功");
-                    });
-                }
-            } catch (Exception e) {
-                AppLog.e(TAG, "捕获预览帧失败", e);
-            }
-        }).start();
+        return executor.capturePreviewFrame();
+    }
+
+    /**
+     * 上传预览帧（预览推流的上传线程调用）
+     */
+    private boolean uploadPreviewFrame(byte[] jpegData) {
+        WechatCloudManager manager = cloudManager;
+        return manager != null && manager.uploadPreviewFrame(jpegData);
     }
 
     /**
@@ -596,44 +581,77 @@ public class WechatRemoteManager {
             return;
         }
         
-        new Thread(() -> {
-            int successCount = 0;
-            int failCount = 0;
-            java.util.List<String> fileIds = new java.util.ArrayList<>();
-            
-            for (File file : videos) {
-                try {
-                    String deviceId = config.getDeviceId();
-                    String fileName = file.getName();
-                    String cloudPath = "videos/" + deviceId + "/" + fileName;
-                    
-                    String fileId = cloudManager.uploadFileToCloud(file, cloudPath);
-                    
-                    if (fileId != null) {
-                        fileIds.add(fileId);
-                        successCount++;
-                        
-                        // 记录到数据库
-                        cloudManager.addFileRecord(fileId, deviceId, fileName, "video", 
-                                file.length(), cloudPath, commandId);
-                        
-                        AppLog.d(TAG, "视频 " + successCount + "/" + videos.size() + " 上传成功");
-                    } else {
-                        failCount++;
-                    }
-                } catch (Exception e) {
-                    failCount++;
-                    AppLog.e(TAG, "上传视频异常: " + file.getName(), e);
+        UploadEngine engine = UploadEngine.getInstance(context);
+        engine.register(videoUploader);
+        UploadJob job = UploadJob.create(WechatVideoUploader.UPLOADER_KEY, commandId, videos);
+        engine.submit(job, new RemoteUploadCallback() {
+            @Override
+            public void onProgress(String message) {
+            }
+
+            @Override
+            public void onSuccess(String message) {
+                notifyComplete();
+            }
+
+            @Override
+            public void onError(String error) {
+                notifyComplete();
+            }
+
+            private void notifyComplete() {
+                if (callback != null) {
+                    new Handler(Looper.getMainLooper()).post(() ->
+                            callback.onComplete(job.getUploadedCount(), job.getFailedCount(), job.getResults()));
                 }
             }
-            
-            final int finalSuccess = successCount;
-            final int finalFail = failCount;
-            if (callback != null) {
-                new Handler(Looper.getMainLooper()).post(() -> 
-                        callback.onComplete(finalSuccess, finalFail, fileIds));
+        });
+    }
+    
+    /**
+     * 微信视频上传器（上传到云存储并写入文件记录）
+     * 任务的 target 为命令 ID
+     */
+    private class WechatVideoUploader implements UploadEngine.Uploader {
+        static final String UPLOADER_KEY = "wechat." + UploadJob.KIND_VIDEO;
+
+        @Override
+        public String getKey() {
+            return UPLOADER_KEY;
+        }
+
+        @Override
+        public String uploadFile(UploadJob job, File file, int index) throws Exception {
+            WechatCloudManager cloud = cloudManager;
+            if (cloud == null) {
+                throw new IllegalStateException("微信云服务未启动");
             }
-        }).start();
+            String deviceId = config.getDeviceId();
+            String fileName = file.getName();
+            String cloudPath = "videos/" + deviceId + "/" + fileName;
+
+            // 相同内容的视频已在云存储中时直接复用 fileID，只补一条记录
+            UploadCache uploadCache = UploadCache.getInstance(context);
+            String fileId = uploadCache.lookup(UploadCache.KIND_WECHAT_CLOUD, file);
+            if (fileId == null) {
+                fileId = cloud.uploadFileToCloud(file, cloudPath);
+                if (fileId == null) {
+                    throw new IOException("云存储上传失败: " + fileName);
+                }
+                uploadCache.store(UploadCache.KIND_WECHAT_CLOUD, file, fileId);
+            }
+
+            // 记录到数据库
+            cloud.addFileRecord(fileId, deviceId, fileName, "video",
+                    file.length(), cloudPath, job.getTarget());
+            AppLog.d(TAG, "视频 " + (index + 1) + "/" + job.getTotal() + " 上传成功");
+            return fileId;
+        }
+
+        @Override
+        public void onJobFinished(UploadJob job) {
+            // 结果通过命令回执上报，无需额外消息
+        }
     }
     
     /**
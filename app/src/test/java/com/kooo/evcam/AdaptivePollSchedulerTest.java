@@ -0,0 +1,172 @@
+package com.kooo.evcam;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * AdaptivePollScheduler 测试
+ * 用假时钟按返回的延迟推进时间，参数与 CarSignalManagerObserver / DoorSignalObserver 相同，
+ * 检查变化后的保持窗口、回调可信/不可信的切换，以及活跃与静止时的轮询间隔。
+ * 活跃提示取自两个观察者的实现，车速经 CarSignalManagerAccess 从 FakeCarSignalManager 读取。
+ */
+public class AdaptivePollSchedulerTest {
+
+    private static final long FAST = 200;
+    private static final long SLOW = 1000;
+    private static final long HOLD = 5000;
+    private static final long PARKED_AFTER = CarSignalManagerObserver.PARKED_AFTER_MS;
+
+    private final AdaptivePollScheduler scheduler = new AdaptivePollScheduler(FAST, SLOW, HOLD);
+    /** 假时钟（elapsedRealtime 毫秒） */
+    private long now = 1_000_000;
+
+    @Test
+    public void activityHintSelectsIntervalWithoutChanges() {
+        assertEquals(FAST, poll(false, false, true));
+        assertEquals(SLOW, poll(false, false, false));
+        assertEquals(FAST, poll(false, false, true));
+        assertFalse(scheduler.isCallbackTrusted());
+    }
+
+    @Test
+    public void changeHoldsFastPollingForHoldWindow() {
+        long changedAt = now;
+        assertEquals(FAST, poll(false, true, false));
+        // 不活跃也保持快速，直到保持窗口结束
+        while (now + FAST - changedAt < HOLD) {
+            now += FAST;
+            assertEquals(FAST, poll(false, false, false));
+        }
+        now = changedAt + HOLD;
+        assertEquals(SLOW, poll(false, false, false));
+    }
+
+    @Test
+    public void newChangeRestartsHoldWindow() {
+        assertEquals(FAST, poll(false, true, false));
+        now += HOLD - 1;
+        assertEquals(FAST, poll(false, true, false));
+        now += HOLD - 1;
+        assertEquals(FAST, poll(false, false, false));
+        now += 1;
+        assertEquals(SLOW, poll(false, false, false));
+    }
+
+    @Test
+    public void callbackCaughtChangeTrustsCallback() {
+        assertEquals(FAST, poll(true, true, true));
+        assertTrue(scheduler.isCallbackTrusted());
+        now += HOLD;
+        // 回调可信后，即使活跃也只做慢速兜底
+        assertEquals(SLOW, poll(false, false, true));
+        // 没有变化的读取（无论来源）不改变信任状态
+        now += SLOW;
+        assertEquals(SLOW, poll(true, false, true));
+        assertTrue(scheduler.isCallbackTrusted());
+    }
+
+    @Test
+    public void timerCaughtChangeDistrustsCallback() {
+        poll(true, true, true);
+        now += HOLD;
+        assertEquals(SLOW, poll(false, false, true));
+
+        // 定时轮询先发现变化：回调没有覆盖该信号
+        now += SLOW;
+        assertEquals(FAST, poll(false, true, false));
+        assertFalse(scheduler.isCallbackTrusted());
+        now += HOLD;
+        assertEquals(FAST, poll(false, false, true));
+        assertEquals(SLOW, poll(false, false, false));
+
+        // 回调再次先发现变化时恢复信任
+        now += SLOW;
+        poll(true, true, true);
+        assertTrue(scheduler.isCallbackTrusted());
+    }
+
+    @Test
+    public void resetClearsHoldAndTrust() {
+        poll(true, true, true);
+        scheduler.reset();
+        assertFalse(scheduler.isCallbackTrusted());
+        assertEquals(SLOW, poll(false, false, false));
+        assertEquals(FAST, poll(false, false, true));
+    }
+
+    @Test
+    public void drivingThenParkingSwitchesToSlowAfterParkedWindow() {
+        // 模拟 CarSignalManagerObserver 的轮询循环：行驶 60 秒，然后停车 10 分钟
+        FakeCarSignalManager manager = new FakeCarSignalManager();
+        manager.speed = 40f;
+        CarSignalManagerObserver.ActivityHint hint =
+                new CarSignalManagerObserver.ActivityHint(CarSignalManagerAccess.speedAccessor(manager), now);
+        long start = now;
+        long parkedAt = start + 60_000;
+        long end = parkedAt + 10 * 60_000;
+        int fastWhileActive = 0;
+        int slowWhileParked = 0;
+        while (now < end) {
+            manager.speed = now < parkedAt ? 40f : 0f;
+            boolean active = hint.isActive(now);
+            long delay = poll(false, false, active);
+            if (active) {
+                assertEquals("at " + (now - start), FAST, delay);
+                fastWhileActive++;
+            } else {
+                assertTrue("parked at " + (now - start), now - parkedAt >= PARKED_AFTER - FAST);
+                assertEquals(SLOW, delay);
+                slowWhileParked++;
+            }
+            now += delay;
+        }
+        // 行驶和等红灯的 4 分钟内每 200ms 一次，之后每秒一次
+        assertEquals((60_000 + PARKED_AFTER) / FAST, fastWhileActive, 1);
+        assertEquals((10 * 60_000 - PARKED_AFTER) / SLOW, slowWhileParked, 1);
+    }
+
+    @Test
+    public void unknownSpeedKeepsVehicleActive() {
+        // 没有车速 getter：始终按活跃处理
+        CarSignalManagerObserver.ActivityHint noSpeed =
+                new CarSignalManagerObserver.ActivityHint(CarSignalManagerAccess.speedAccessor(new Object()), now);
+        assertTrue(noSpeed.isActive(now + 10 * PARKED_AFTER));
+
+        // 车速读取失败时也按活跃处理，恢复后从最后一次行驶开始计时
+        FakeCarSignalManager manager = new FakeCarSignalManager();
+        CarSignalManagerObserver.ActivityHint hint =
+                new CarSignalManagerObserver.ActivityHint(CarSignalManagerAccess.speedAccessor(manager), now);
+        assertTrue(hint.isActive(now + PARKED_AFTER - 1));
+        manager.speed = null;
+        assertTrue(hint.isActive(now + 2 * PARKED_AFTER));
+        manager.speed = 0.4f;
+        assertFalse(hint.isActive(now + 2 * PARKED_AFTER));
+        manager.speed = -20f;
+        assertTrue(hint.isActive(now + 2 * PARKED_AFTER));
+        manager.speed = 0f;
+        assertTrue(hint.isActive(now + 3 * PARKED_AFTER - 1));
+        assertFalse(hint.isActive(now + 3 * PARKED_AFTER));
+    }
+
+    @Test
+    public void doorPollingIsActiveOnlyAtLowSpeed() {
+        FakeCarSignalManager manager = new FakeCarSignalManager();
+        CarSignalManagerAccess.Accessor speed = CarSignalManagerAccess.speedAccessor(manager);
+        assertTrue(DoorSignalObserver.isDoorActive(speed));
+        manager.speed = 9.5f;
+        assertTrue(DoorSignalObserver.isDoorActive(speed));
+        manager.speed = 60f;
+        assertFalse(DoorSignalObserver.isDoorActive(speed));
+        assertEquals(SLOW, poll(false, false, DoorSignalObserver.isDoorActive(speed)));
+        manager.speed = null;
+        assertTrue(DoorSignalObserver.isDoorActive(speed));
+        assertTrue(DoorSignalObserver.isDoorActive(null));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private long poll(boolean fromCallback, boolean changed, boolean active) {
+        return scheduler.onPolled(now, changed, fromCallback, active);
+    }
+}
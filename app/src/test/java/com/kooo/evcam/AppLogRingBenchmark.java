@@ -0,0 +1,57 @@
+package com.kooo.evcam;
+
+import android.util.Log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AppLog 内存缓冲写入基准（运行方式见 JmhBenchmarks）
+ *
+ * 8 个线程同时写入同一个 5000 行的缓冲区（与 AppLog.MAX_BUFFER_LINES 相同），不含 Log.println。
+ * legacyAdd 复现改造前的写入：每次新建 SimpleDateFormat 拼好整行，加锁追加到 ArrayList 并裁掉最早的行。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class AppLogRingBenchmark {
+
+    private static final int MAX_BUFFER_LINES = 5000;
+    private static final String TAG = "BlindSpotService";
+    private static final String MESSAGE = "Camera 2 first frame rendered, latency=183ms";
+
+    private final AppLogRing ring = new AppLogRing(MAX_BUFFER_LINES);
+    private final Object legacyLock = new Object();
+    private final List<String> legacyBuffer = new ArrayList<>();
+
+    @Benchmark
+    public void add() {
+        ring.add(System.currentTimeMillis(), Log.INFO, TAG, MESSAGE);
+    }
+
+    @Benchmark
+    public void legacyAdd() {
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US).format(new Date());
+        String line = timestamp + " " + AppLog.levelToLabel(Log.INFO) + "/" + TAG + ": " + MESSAGE;
+        synchronized (legacyLock) {
+            legacyBuffer.add(line);
+            if (legacyBuffer.size() > MAX_BUFFER_LINES) {
+                int removeCount = legacyBuffer.size() - MAX_BUFFER_LINES;
+                legacyBuffer.subList(0, removeCount).clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.kooo.evcam;
+
+import android.util.Log;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * AppLogRing 测试
+ * 8 个线程并发写入、另一线程反复 snapshot，检查每行的时间、级别、tag 和消息属于同一次写入（没有撕裂），
+ * 同一线程的日志按写入顺序出现，行数不超过容量。
+ */
+public class AppLogRingTest {
+
+    private static final int[] LEVELS = {Log.DEBUG, Log.INFO, Log.WARN, Log.ERROR};
+    /** 2026-01-01 00:00:00 UTC */
+    private static final long BASE_TIME = 1_767_225_600_000L;
+    /** tag 和消息都带上线程号和序号，时间和级别也由序号决定 */
+    private static final Pattern LINE = Pattern.compile(
+            "(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3}) ([A-Z0-9])/Writer-(\\d+): #(\\d+) from (\\d+)");
+
+    @Test
+    public void snapshotKeepsWriteOrderAndDropsOldest() {
+        AppLogRing ring = new AppLogRing(4);
+        assertTrue(ring.snapshot().isEmpty());
+        for (int i = 0; i < 3; i++) {
+            add(ring, 0, i);
+        }
+        assertLines(ring.snapshot(), 0, 0, 1, 2);
+        for (int i = 3; i < 10; i++) {
+            add(ring, 0, i);
+        }
+        assertLines(ring.snapshot(), 0, 6, 7, 8, 9);
+    }
+
+    @Test
+    public void formatMatchesLegacyLine() {
+        AppLogRing ring = new AppLogRing(8);
+        long time = BASE_TIME + 12_345;
+        ring.add(time, Log.WARN, "Camera", "open failed: 2");
+        ring.add(time, Log.VERBOSE, "Camera", "");
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US).format(new Date(time));
+        List<String> lines = ring.snapshot();
+        assertEquals(timestamp + " W/Camera: open failed: 2", lines.get(0));
+        assertEquals(timestamp + " 2/Camera: ", lines.get(1));
+    }
+
+    @Test
+    public void concurrentWritersNeverProduceTornOrReorderedLines() throws Exception {
+        final int threads = 8;
+        final int perThread = 100_000;
+        final int capacity = 1024;
+        AppLogRing ring = new AppLogRing(capacity);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            writers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        add(ring, id, i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            writers[t].start();
+        }
+        Thread reader = new Thread(() -> {
+            try {
+                start.await();
+                do {
+                    checkSnapshot(ring.snapshot(), threads, capacity);
+                } while (writing.get());
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        reader.start();
+
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        reader.join();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        // 全部写完后缓冲区正好是最后 capacity 条
+        List<String> lines = ring.snapshot();
+        assertEquals(capacity, lines.size());
+        checkSnapshot(lines, threads, capacity);
+        int[] last = lastIndexes(lines, threads);
+        for (int t = 0; t < threads; t++) {
+            assertTrue("writer " + t + " 的最后一条应在缓冲区内", last[t] == -1 || last[t] == perThread - 1);
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static void add(AppLogRing ring, int writer, int index) {
+        ring.add(BASE_TIME + index, LEVELS[index % LEVELS.length], "Writer-" + writer,
+                "#" + index + " from " + writer);
+    }
+
+    /** 每行字段一致，同一写入方序号递增，行数不超过容量 */
+    private static void checkSnapshot(List<String> lines, int threads, int capacity) {
+        assertTrue("lines " + lines.size(), lines.size() <= capacity);
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        int[] previous = new int[threads];
+        Arrays.fill(previous, -1);
+        for (String line : lines) {
+            Matcher matcher = LINE.matcher(line);
+            assertTrue(line, matcher.matches());
+            int writer = Integer.parseInt(matcher.group(3));
+            int index = Integer.parseInt(matcher.group(4));
+            assertEquals(line, writer, Integer.parseInt(matcher.group(5)));
+            assertEquals(line, AppLog.levelToLabel(LEVELS[index % LEVELS.length]), matcher.group(2));
+            assertEquals(line, format.format(new Date(BASE_TIME + index)), matcher.group(1));
+            assertTrue(line + " after #" + previous[writer], index > previous[writer]);
+            previous[writer] = index;
+        }
+    }
+
+    private static int[] lastIndexes(List<String> lines, int threads) {
+        int[] last = new int[threads];
+        Arrays.fill(last, -1);
+        for (String line : lines) {
+            Matcher matcher = LINE.matcher(line);
+            assertTrue(matcher.matches());
+            last[Integer.parseInt(matcher.group(3))] = Integer.parseInt(matcher.group(4));
+        }
+        return last;
+    }
+
+    private static void assertLines(List<String> lines, int writer, int... indexes) {
+        assertEquals(indexes.length, lines.size());
+        for (int i = 0; i < indexes.length; i++) {
+            Matcher matcher = LINE.matcher(lines.get(i));
+            assertTrue(lines.get(i), matcher.matches());
+            assertEquals(writer, Integer.parseInt(matcher.group(3)));
+            assertEquals(indexes[i], Integer.parseInt(matcher.group(4)));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.kooo.evcam;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * CarSignalManagerAccess 测试
+ * 用 FakeCarSignalManager 代替车机管理器，检查 getter 解析（绑定的 MethodHandle 与反射回退）、
+ * Number / toString() 取值、车速 getter 查找，以及动态代理回调的注册与注销。
+ */
+public class CarSignalManagerAccessTest {
+
+    private final FakeCarSignalManager manager = new FakeCarSignalManager();
+
+    @Test
+    public void accessorReadsThroughBoundHandle() throws Exception {
+        CarSignalManagerAccess.Accessor accessor = CarSignalManagerAccess.accessor(manager, "getIndcrSts");
+        assertEquals("getIndcrSts", accessor.getName());
+        assertEquals(0, accessor.getInt());
+        // 绑定的是管理器实例，之后的状态变化直接可见
+        manager.indcrSts = 2;
+        assertEquals(2, accessor.getInt());
+        assertEquals(2f, accessor.getFloat(), 0f);
+    }
+
+    @Test
+    public void accessorFallsBackToReflection() throws Exception {
+        Method method = FakeCarSignalManager.class.getMethod("getIndcrSts");
+        CarSignalManagerAccess.Accessor accessor =
+                new CarSignalManagerAccess.Accessor("getIndcrSts", manager, method, null);
+        manager.indcrSts = 3;
+        assertEquals(3, accessor.getInt());
+    }
+
+    @Test
+    public void accessorParsesStringValues() throws Exception {
+        manager.speed = 12.5f;
+        CarSignalManagerAccess.Accessor speed = CarSignalManagerAccess.accessor(manager, "getVehSpd");
+        assertEquals(12.5f, speed.getFloat(), 0f);
+        manager.speed = 40f;
+        assertEquals(40f, speed.getFloat(), 0f);
+    }
+
+    @Test
+    public void accessorPropagatesGetterFailures() throws Exception {
+        manager.speed = null;
+        CarSignalManagerAccess.Accessor speed = CarSignalManagerAccess.accessor(manager, "getVehSpd");
+        try {
+            speed.getFloat();
+            fail();
+        } catch (IllegalStateException expected) {
+            // MethodHandle 直接抛出 getter 的异常
+        }
+        Method method = FakeCarSignalManager.class.getMethod("getVehSpd");
+        try {
+            new CarSignalManagerAccess.Accessor("getVehSpd", manager, method, null).getFloat();
+            fail();
+        } catch (Exception expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test(expected = NoSuchMethodException.class)
+    public void missingGetterIsReported() throws Exception {
+        CarSignalManagerAccess.accessor(manager, "getDoorDrvrSts");
+    }
+
+    @Test
+    public void speedAccessorFindsAvailableGetter() throws Exception {
+        manager.speed = 30f;
+        CarSignalManagerAccess.Accessor speed = CarSignalManagerAccess.speedAccessor(manager);
+        assertNotNull(speed);
+        assertEquals("getVehSpd", speed.getName());
+        assertEquals(30f, speed.getFloat(), 0f);
+
+        // getter 存在但读取失败、或没有车速 getter 时按固定间隔轮询
+        manager.speed = null;
+        assertNull(CarSignalManagerAccess.speedAccessor(manager));
+        assertNull(CarSignalManagerAccess.speedAccessor(new Object()));
+    }
+
+    @Test
+    public void registerCallbackUsesDynamicProxy() {
+        AtomicInteger events = new AtomicInteger();
+        CarSignalManagerAccess.CallbackRegistration registration =
+                CarSignalManagerAccess.registerCallback(manager, events::incrementAndGet);
+        assertNotNull(registration);
+        assertEquals(1, manager.listeners.size());
+
+        FakeCarSignalManager.Listener listener = manager.listeners.get(0);
+        manager.fire(0x11400408);
+        manager.fire(0x16400b00);
+        assertEquals(2, events.get());
+        // 有返回值的回调方法返回默认值，Object 方法不触发读取
+        assertFalse(listener.isInterested(0x11400408));
+        assertEquals(3, events.get());
+        assertTrue(listener.equals(listener));
+        assertEquals(System.identityHashCode(listener), listener.hashCode());
+        assertTrue(listener.toString().startsWith("CarSignalCallback@"));
+        assertEquals(3, events.get());
+
+        registration.unregister();
+        assertTrue(manager.listeners.isEmpty());
+        manager.fire(0x11400408);
+        assertEquals(3, events.get());
+    }
+
+    @Test
+    public void registerCallbackWithoutSupportReturnsNull() {
+        assertNull(CarSignalManagerAccess.registerCallback(new Object(), () -> { }));
+        // 参数不是接口类型时无法生成代理
+        assertNull(CarSignalManagerAccess.registerCallback(new ClassCallbackManager(), () -> { }));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    public static class ClassCallbackManager {
+        public void registerListener(Object listener) {
+        }
+    }
+}
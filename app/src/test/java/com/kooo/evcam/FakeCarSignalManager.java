@@ -0,0 +1,52 @@
+package com.kooo.evcam;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 假的 CarSignalManager：方法名与车机上的管理器一致，供 CarSignalManagerAccess 反射访问
+ * 转向灯和车速由测试直接设置，车速按字符串返回以覆盖 toString() 解析。
+ */
+public class FakeCarSignalManager {
+
+    /**
+     * 信号变化回调（参数为单个接口类型，与车机回调的注册方式相同）
+     */
+    public interface Listener {
+        void onSignalChanged(int propId);
+
+        boolean isInterested(int propId);
+    }
+
+    public volatile int indcrSts;
+    /** 车速（km/h），null 时 getter 抛异常 */
+    public volatile Float speed = 0f;
+    public final List<Listener> listeners = new ArrayList<>();
+
+    public int getIndcrSts() {
+        return indcrSts;
+    }
+
+    public String getVehSpd() {
+        Float value = speed;
+        if (value == null) {
+            throw new IllegalStateException("speed unavailable");
+        }
+        return " " + value + " ";
+    }
+
+    public void registerCallback(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void unregisterCallback(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** 模拟系统推送信号变化 */
+    public void fire(int propId) {
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onSignalChanged(propId);
+        }
+    }
+}
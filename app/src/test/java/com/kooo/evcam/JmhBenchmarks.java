@@ -0,0 +1,43 @@
+package com.kooo.evcam;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+import static org.junit.Assert.*;
+
+/**
+ * JMH 基准测试入口
+ *
+ * 基准类与被测代码放在同一个包的 src/test 下（类名以 Benchmark 结尾），普通单元测试时跳过。
+ * 指定 -Pjmh=<基准类名正则> 时在测试进程内运行（不 fork），附带 GC 分配统计，结果输出到测试日志：
+ *
+ *   ./gradlew :app:testDebugUnitTest --tests com.kooo.evcam.JmhBenchmarks -Pjmh=Pbbp2Benchmark -i
+ */
+public class JmhBenchmarks {
+
+    @Test
+    public void run() throws RunnerException {
+        String include = System.getProperty("jmh.include", "");
+        Assume.assumeFalse("未指定 -Pjmh，跳过基准测试", include.isEmpty());
+        Options options = new OptionsBuilder()
+                .include(include)
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+        assertFalse("没有匹配的基准: " + include, results.isEmpty());
+    }
+}
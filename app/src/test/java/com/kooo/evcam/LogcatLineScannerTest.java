@@ -0,0 +1,223 @@
+package com.kooo.evcam;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * LogcatLineScanner 测试
+ * 与改造前的读取方式（BufferedReader.readLine + String.contains + "data1 = (\d+)" 正则）逐行比对，
+ * 输入在任意位置被拆成多次 read，覆盖 CRLF、多字节 UTF-8、长行与末尾无换行的情况。
+ */
+public class LogcatLineScannerTest {
+
+    /** 与 LogcatSignalObserver 默认配置相同的关键字 */
+    static final String[] KEYWORDS = {"front turn signal:", "left front turn signal:1", "right front turn signal:1"};
+
+    private static final Pattern SIGNAL_PATTERN = Pattern.compile("data1 = (\\d+)");
+
+    private static final String[] FRAGMENTS = {
+            "I/VehicleSignal( 1532): ", "D/BodyControl( 1605): ", "W/AudioFlinger(  631): ",
+            "data1 = ", "data1 =", "data1 = 0", "data1 = 1", "data1 = 2", "data1 = 4294967296", "data1 = 007",
+            "data1", "data", " ", "  ", "=", "1", "42", "front turn signal:", "left front turn signal:1",
+            "right front turn signal:1", "left front turn signal:0", "front turn", "转向灯", "信号 ", "😀",
+            "TurnSignalProcess ", "data2 = 0", "prop=0x11400400", "\t"};
+
+    @Test
+    public void randomizedSplitReadsMatchReaderPath() throws IOException {
+        Random random = new Random(48);
+        for (int iteration = 0; iteration < 300; iteration++) {
+            byte[] input = randomLogcat(random, 1 + random.nextInt(200));
+            List<String> expected = referenceScan(input, KEYWORDS);
+            Result actual = scan(input, new SplitInputStream(input, random, 1 + random.nextInt(iteration % 3 == 0 ? 16 : 8192)),
+                    KEYWORDS);
+            assertEquals("iteration " + iteration, expected, actual.lines);
+        }
+    }
+
+    @Test
+    public void capturedLogcatMatchesReaderPath() throws IOException {
+        byte[] fixture = readResource("/logcat/turn_signal_brief.txt");
+        List<String> expected = referenceScan(fixture, KEYWORDS);
+        Result actual = scan(fixture, new ByteArrayInputStream(fixture), KEYWORDS);
+        assertEquals(expected, actual.lines);
+        assertEquals(33, actual.lineCount);
+        assertEquals(21, actual.lines.size());
+        assertTrue(actual.lines.contains("1|I/VehicleSignal( 1532): TurnSignalProcess data1 = 1 data2 = 0"));
+        assertTrue(actual.lines.contains("2|I/VehicleSignal( 1532): TurnSignalProcess data1 =2 data1 = 2"));
+        assertTrue(actual.lines.contains("-1|I/VehicleSignal( 1532): TurnSignalProcess data1 = 4294967296 data2 = 0"));
+        assertTrue(actual.lines.contains("2|I/VehicleSignal( 1532): 转向灯信号 data1 = 2 来源=BCM"));
+
+        // 同一份日志换成 CRLF 并逐字节读取，结果不变
+        byte[] crlf = new String(fixture, StandardCharsets.UTF_8).replace("\n", "\r\n").getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected, scan(crlf, new SplitInputStream(crlf, new Random(1), 1), KEYWORDS).lines);
+    }
+
+    @Test
+    public void onlyData1LinesWithoutKeywords() throws IOException {
+        byte[] fixture = readResource("/logcat/turn_signal_brief.txt");
+        Result actual = scan(fixture, new ByteArrayInputStream(fixture));
+        assertEquals(referenceScan(fixture), actual.lines);
+        assertEquals(12, actual.lines.size());
+    }
+
+    @Test
+    public void overlongLineIsSplitAtBufferSize() throws IOException {
+        StringBuilder sb = new StringBuilder("data1 = 5 ");
+        while (sb.length() < 20 * 1024) {
+            sb.append('x');
+        }
+        sb.append("\nnext data1 = 6\n");
+        byte[] input = sb.toString().getBytes(StandardCharsets.UTF_8);
+        Result actual = scan(input, new ByteArrayInputStream(input));
+        // 超过 16KB 仍无换行时先按一行处理，余下部分不含关键字
+        assertEquals(2, actual.lines.size());
+        assertTrue(actual.lines.get(0).startsWith("5|data1 = 5 xxx"));
+        assertEquals("6|next data1 = 6", actual.lines.get(1));
+        assertEquals(3, actual.lineCount);
+    }
+
+    @Test
+    public void blankKeywordsAreIgnoredAndCountIsLimited() {
+        new LogcatLineScanner(null, null, "", "data1 =", "x");
+        String[] keywords = new String[64];
+        for (int i = 0; i < keywords.length; i++) {
+            keywords[i] = "k" + i;
+        }
+        try {
+            new LogcatLineScanner(null, keywords);
+            fail("65 patterns");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    // ==================== 参照实现 ====================
+
+    /**
+     * 改造前的读取方式：逐行 readLine，命中 "data1 =" 或关键字的行用正则取 data1
+     * @return "data1|line" 列表
+     */
+    static List<String> referenceScan(byte[] input, String... keywords) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(input), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            boolean matched = line.contains(LogcatLineScanner.DATA1_PATTERN);
+            for (String keyword : keywords) {
+                matched |= line.contains(keyword);
+            }
+            if (!matched) continue;
+            int data1 = -1;
+            if (line.contains(LogcatLineScanner.DATA1_PATTERN)) {
+                Matcher matcher = SIGNAL_PATTERN.matcher(line);
+                if (matcher.find()) {
+                    try {
+                        data1 = Integer.parseInt(matcher.group(1));
+                    } catch (NumberFormatException e) {
+                        data1 = -1;
+                    }
+                }
+            }
+            lines.add(data1 + "|" + line);
+        }
+        return lines;
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static final class Result {
+        final List<String> lines = new ArrayList<>();
+        long lineCount;
+    }
+
+    private static Result scan(byte[] input, InputStream in, String... keywords) throws IOException {
+        Result result = new Result();
+        LogcatLineScanner scanner = new LogcatLineScanner((line, data1) -> result.lines.add(data1 + "|" + line), keywords);
+        while (scanner.readFrom(in) >= 0) {
+            // 每次读取后已回调其中所有完整的行
+        }
+        scanner.flush();
+        result.lineCount = scanner.getLineCount();
+        assertEquals(result.lines.size(), scanner.getMatchedLineCount());
+        return result;
+    }
+
+    /**
+     * 随机 logcat 文本：片段拼接成行，LF 或 CRLF 结尾，偶尔有长行、空行，最后一行可能没有换行符
+     * （不含单独的 '\r'：readLine 会把它当作换行，logcat 输出中不会出现）
+     */
+    static byte[] randomLogcat(Random random, int lineCount) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            int fragments = random.nextInt(20) == 0 ? 500 + random.nextInt(1000) : random.nextInt(12);
+            int lineStart = sb.length();
+            // 长行不超过扫描缓冲区（16KB）
+            for (int f = 0; f < fragments && sb.length() - lineStart < 4000; f++) {
+                if (random.nextInt(4) == 0) {
+                    sb.append((char) ('a' + random.nextInt(26)));
+                } else {
+                    sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                }
+            }
+            if (i < lineCount - 1 || random.nextBoolean()) {
+                sb.append(random.nextInt(4) == 0 ? "\r\n" : "\n");
+            }
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] readResource(String name) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(name)) {
+            assertNotNull(name, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /** 每次 read 最多返回 1..maxChunk 个字节（模拟进程管道的零散读取） */
+    private static final class SplitInputStream extends InputStream {
+        private final byte[] data;
+        private final Random random;
+        private final int maxChunk;
+        private int pos;
+
+        SplitInputStream(byte[] data, Random random, int maxChunk) {
+            this.data = data;
+            this.random = random;
+            this.maxChunk = maxChunk;
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= data.length) return -1;
+            int n = Math.min(Math.min(len, data.length - pos), 1 + random.nextInt(maxChunk));
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+}
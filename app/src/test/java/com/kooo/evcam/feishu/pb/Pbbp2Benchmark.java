@@ -0,0 +1,95 @@
+package com.kooo.evcam.feishu.pb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 飞书 Pbbp2 编解码基准（运行方式见 JmhBenchmarks）
+ *
+ * 输入与 WebSocket 收到的一致：ByteString.asByteBuffer() 给出的只读视图，64KB payload 加常见 header。
+ * copyThenParse 复现旧路径（整帧 toByteArray 后解析、再复制 payload），用于对比每帧分配量（gc.alloc.rate.norm）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Pbbp2Benchmark {
+
+    private static final int PAYLOAD_SIZE = 64 * 1024;
+    private static final int FRAGMENTS = 4;
+
+    private ByteBuffer frameView;
+    private Pbbp2Frame parsed;
+    private byte[] response;
+    private ByteBuffer[] fragments;
+    private Pbbp2Reassembler reassembler;
+    private long messageCounter;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] payload = new byte[PAYLOAD_SIZE];
+        new Random(1).nextBytes(payload);
+        Pbbp2Frame frame = new Pbbp2Frame();
+        frame.setSeqID(123456);
+        frame.setLogID(987654321L);
+        frame.setService(1);
+        frame.setMethod(Pbbp2Frame.METHOD_DATA);
+        frame.addHeader(Pbbp2Frame.HEADER_TYPE, Pbbp2Frame.TYPE_EVENT);
+        frame.addHeader(Pbbp2Frame.HEADER_MESSAGE_ID, "7f3c1a2b-6d5e-4c3b-9a8f-1e2d3c4b5a69");
+        frame.addHeader(Pbbp2Frame.HEADER_TRACE_ID, "a1b2c3d4e5f6");
+        frame.addHeader(Pbbp2Frame.HEADER_SUM, "1");
+        frame.addHeader(Pbbp2Frame.HEADER_SEQ, "0");
+        frame.setPayload(payload);
+        byte[] encoded = frame.toByteArray();
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+        direct.put(encoded).flip();
+        frameView = direct.asReadOnlyBuffer();
+
+        parsed = Pbbp2Frame.parseFrom(encoded);
+        response = "{\"code\":200}".getBytes(StandardCharsets.UTF_8);
+
+        fragments = new ByteBuffer[FRAGMENTS];
+        int size = PAYLOAD_SIZE / FRAGMENTS;
+        for (int i = 0; i < FRAGMENTS; i++) {
+            fragments[i] = ByteBuffer.wrap(payload, i * size, size).slice();
+        }
+        reassembler = new Pbbp2Reassembler();
+    }
+
+    @Benchmark
+    public ByteBuffer parseView() throws IOException {
+        return Pbbp2Frame.parseFrom(frameView).getPayloadBuffer();
+    }
+
+    @Benchmark
+    public byte[] copyThenParse() throws IOException {
+        byte[] copy = new byte[frameView.remaining()];
+        frameView.duplicate().get(copy);
+        return Pbbp2Frame.parseFrom(copy).getPayload();
+    }
+
+    @Benchmark
+    public byte[] encodeResponse() throws IOException {
+        return parsed.copyWithPayload(response).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] reassemble() throws IOException {
+        String msgId = "m" + (messageCounter++ & 63);
+        byte[] combined = null;
+        for (int seq = FRAGMENTS - 1; seq >= 0; seq--) {
+            combined = reassembler.offer(msgId, FRAGMENTS, seq, fragments[seq], 0);
+        }
+        return combined;
+    }
+}
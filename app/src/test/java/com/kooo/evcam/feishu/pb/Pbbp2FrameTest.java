@@ -0,0 +1,255 @@
+package com.kooo.evcam.feishu.pb;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pbbp2Frame / ProtobufLite 编解码测试
+ * 编码结果与逐字段写 ByteArrayOutputStream 的原编码方式逐字节比较，解码覆盖数组、直接缓冲区与截断输入。
+ */
+public class Pbbp2FrameTest {
+
+    /** 包含多字节 UTF-8、代理对和孤立代理项的字符串 */
+    private static final String[] SAMPLES = {
+            "", "ping", "message_id", "中文消息", "emoji 😀 表情", "a\uD800b", "\uDC00", "é",
+            "{\"text\":\"拍照\"}"};
+
+    @Test
+    public void encodeIsByteIdenticalToReference() throws IOException {
+        Random random = new Random(44);
+        for (int i = 0; i < 2000; i++) {
+            Pbbp2Frame frame = randomFrame(random);
+            assertArrayEquals("frame " + i, referenceEncode(frame), frame.toByteArray());
+            assertEquals(frame.toByteArray().length, frame.getSerializedSize());
+        }
+    }
+
+    @Test
+    public void roundTripKeepsAllFields() throws IOException {
+        Random random = new Random(4);
+        for (int i = 0; i < 500; i++) {
+            Pbbp2Frame frame = randomFrame(random);
+            byte[] encoded = frame.toByteArray();
+            assertFrameEquals(frame, Pbbp2Frame.parseFrom(encoded));
+
+            // OkHttp ByteString.asByteBuffer() 是只读视图，走非数组分支
+            ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length + 6);
+            direct.position(3);
+            direct.put(encoded);
+            direct.position(3);
+            direct.limit(3 + encoded.length);
+            Pbbp2Frame parsed = Pbbp2Frame.parseFrom(direct.asReadOnlyBuffer());
+            assertFrameEquals(frame, parsed);
+            assertEquals(3, direct.position());
+        }
+    }
+
+    @Test
+    public void payloadIsAViewUntilCopied() throws IOException {
+        Pbbp2Frame frame = new Pbbp2Frame();
+        frame.setPayloadFromString("hello");
+        byte[] encoded = frame.toByteArray();
+        Pbbp2Frame parsed = Pbbp2Frame.parseFrom(encoded);
+        assertEquals(5, parsed.getPayloadSize());
+        byte[] copy = parsed.getPayload();
+        copy[0] = 'j';
+        assertEquals("hello", parsed.getPayloadAsString());
+        assertTrue(parsed.getPayloadBuffer().isReadOnly());
+    }
+
+    @Test
+    public void unknownFieldsAreSkipped() throws IOException {
+        ProtobufLite.Writer writer = new ProtobufLite.Writer();
+        writer.writeUInt64(1, 7);
+        writer.writeTag(20, ProtobufLite.WIRE_TYPE_64BIT);
+        for (int i = 0; i < 8; i++) {
+            writer.writeVarint(0x11);
+        }
+        writer.writeTag(21, ProtobufLite.WIRE_TYPE_32BIT);
+        for (int i = 0; i < 4; i++) {
+            writer.writeVarint(0x22);
+        }
+        writer.writeBytes(22, new byte[300]);
+        writer.writeInt32(23, -1);
+        writer.writeString(7, "json");
+        Pbbp2Frame parsed = Pbbp2Frame.parseFrom(writer.toByteArray());
+        assertEquals(7, parsed.getSeqID());
+        assertEquals("json", parsed.getPayloadType());
+    }
+
+    @Test
+    public void negativeInt32UsesTenBytes() throws IOException {
+        Pbbp2Frame frame = new Pbbp2Frame();
+        frame.setService(-1);
+        byte[] encoded = frame.toByteArray();
+        assertEquals(1 + 1 + 1 + 1 + 1 + 10 + 1 + 1, encoded.length);
+        assertEquals(-1, Pbbp2Frame.parseFrom(encoded).getService());
+    }
+
+    @Test
+    public void truncatedInputThrows() throws IOException {
+        Pbbp2Frame frame = randomFrame(new Random(1));
+        frame.setPayload(new byte[100]);
+        byte[] encoded = frame.toByteArray();
+        // 任意位置截断只能得到 IOException（字段边界处截断时解析成功），不能越界
+        for (int cut = 1; cut < encoded.length; cut++) {
+            byte[] truncated = new byte[cut];
+            System.arraycopy(encoded, 0, truncated, 0, cut);
+            try {
+                Pbbp2Frame.parseFrom(truncated);
+            } catch (IOException expected) {
+            }
+        }
+        try {
+            Pbbp2Frame.parseFrom(new byte[]{0x42, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F});
+            fail("length beyond input");
+        } catch (IOException expected) {
+        }
+        byte[] longVarint = new byte[12];
+        longVarint[0] = 0x08;
+        for (int i = 1; i < longVarint.length; i++) {
+            longVarint[i] = (byte) 0x80;
+        }
+        try {
+            Pbbp2Frame.parseFrom(longVarint);
+            fail("malformed varint");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void utf8LengthMatchesGetBytes() {
+        for (String s : SAMPLES) {
+            assertEquals(s, s.getBytes(StandardCharsets.UTF_8).length, ProtobufLite.utf8Length(s));
+        }
+        for (long v : new long[]{0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Long.MAX_VALUE}) {
+            assertEquals(referenceVarint(v).length, ProtobufLite.varintSize(v));
+        }
+    }
+
+    // ==================== 参照实现 ====================
+
+    /**
+     * 原编码方式：headers 先各自编码成数组，字符串用 getBytes，逐字段写 ByteArrayOutputStream
+     */
+    private static byte[] referenceEncode(Pbbp2Frame frame) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarintField(out, 1, frame.getSeqID());
+        writeVarintField(out, 2, frame.getLogID());
+        writeVarintField(out, 3, frame.getService());
+        writeVarintField(out, 4, frame.getMethod());
+        for (Pbbp2Header header : frame.getHeaders()) {
+            ByteArrayOutputStream h = new ByteArrayOutputStream();
+            writeStringField(h, 1, header.getKey());
+            writeStringField(h, 2, header.getValue());
+            writeBytesField(out, 5, h.toByteArray());
+        }
+        writeStringField(out, 6, frame.getPayloadEncoding());
+        writeStringField(out, 7, frame.getPayloadType());
+        byte[] payload = frame.getPayload();
+        if (payload != null && payload.length > 0) {
+            writeBytesField(out, 8, payload);
+        }
+        writeStringField(out, 9, frame.getLogIDNew());
+        return out.toByteArray();
+    }
+
+    private static void writeVarintField(ByteArrayOutputStream out, int field, long value) throws IOException {
+        out.write(referenceVarint(field << 3));
+        out.write(referenceVarint(value));
+    }
+
+    private static void writeStringField(ByteArrayOutputStream out, int field, String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            writeBytesField(out, field, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void writeBytesField(ByteArrayOutputStream out, int field, byte[] value) throws IOException {
+        out.write(referenceVarint((field << 3) | 2));
+        out.write(referenceVarint(value.length));
+        out.write(value);
+    }
+
+    private static byte[] referenceVarint(long value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while ((value & ~0x7FL) != 0) {
+            out.write(((int) value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+        return out.toByteArray();
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static Pbbp2Frame randomFrame(Random random) {
+        Pbbp2Frame frame = new Pbbp2Frame();
+        frame.setSeqID(random.nextInt(4) == 0 ? random.nextLong() : random.nextInt(1 << 20));
+        frame.setLogID(random.nextLong());
+        frame.setService(random.nextInt(8) == 0 ? -random.nextInt(100) : random.nextInt(100000));
+        frame.setMethod(random.nextInt(2));
+        int headers = random.nextInt(6);
+        for (int i = 0; i < headers; i++) {
+            frame.addHeader(randomString(random), randomString(random));
+        }
+        if (random.nextBoolean()) frame.setPayloadEncoding(randomString(random));
+        if (random.nextBoolean()) frame.setPayloadType(randomString(random));
+        if (random.nextBoolean()) {
+            byte[] payload = new byte[random.nextInt(4) == 0 ? 70000 : random.nextInt(200)];
+            random.nextBytes(payload);
+            frame.setPayload(payload);
+        }
+        if (random.nextBoolean()) frame.setLogIDNew(randomString(random));
+        return frame;
+    }
+
+    private static String randomString(Random random) {
+        if (random.nextInt(3) == 0) {
+            return random.nextInt(5) == 0 ? null : SAMPLES[random.nextInt(SAMPLES.length)];
+        }
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(random.nextInt(10) == 0 ? 300 : 20);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) (random.nextBoolean() ? 'a' + random.nextInt(26) : random.nextInt(0x10000)));
+        }
+        return sb.toString();
+    }
+
+    private static void assertFrameEquals(Pbbp2Frame expected, Pbbp2Frame actual) {
+        assertEquals(expected.getSeqID(), actual.getSeqID());
+        assertEquals(expected.getLogID(), actual.getLogID());
+        assertEquals(expected.getService(), actual.getService());
+        assertEquals(expected.getMethod(), actual.getMethod());
+        assertEquals(expected.getHeaders().size(), actual.getHeaders().size());
+        for (int i = 0; i < expected.getHeaders().size(); i++) {
+            assertEquals(decoded(expected.getHeaders().get(i).getKey()), nullToEmpty(actual.getHeaders().get(i).getKey()));
+            assertEquals(decoded(expected.getHeaders().get(i).getValue()), nullToEmpty(actual.getHeaders().get(i).getValue()));
+        }
+        assertEquals(decoded(expected.getPayloadEncoding()), nullToEmpty(actual.getPayloadEncoding()));
+        assertEquals(decoded(expected.getPayloadType()), nullToEmpty(actual.getPayloadType()));
+        assertEquals(decoded(expected.getLogIDNew()), nullToEmpty(actual.getLogIDNew()));
+        byte[] payload = expected.getPayload();
+        if (payload == null || payload.length == 0) {
+            assertNull(actual.getPayload());
+        } else {
+            assertArrayEquals(payload, actual.getPayload());
+        }
+    }
+
+    /** 编码后再解码的字符串：孤立代理项变成 '?'，空串与 null 不写入 */
+    private static String decoded(String value) {
+        return value == null ? "" : new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,162 @@
+package com.kooo.evcam.feishu.pb;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pbbp2Reassembler 分包重组测试：乱序与重复分包、非法 seq/sum、过期淘汰、数量与内存上限
+ */
+public class Pbbp2ReassemblerTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @Test
+    public void reassemblesOutOfOrderAndIgnoresDuplicates() throws IOException {
+        Pbbp2Reassembler reassembler = new Pbbp2Reassembler();
+        byte[] message = random(10000, 1);
+        ByteBuffer[] parts = split(message, 4);
+
+        assertNull(reassembler.offer("m1", 4, 2, parts[2], 0));
+        assertNull(reassembler.offer("m1", 4, 0, parts[0], 1));
+        assertNull(reassembler.offer("m1", 4, 2, parts[2], 2));
+        assertNull(reassembler.offer("m1", 4, 3, parts[3], 3));
+        assertEquals(1, reassembler.getPendingCount());
+        assertArrayEquals(message, reassembler.offer("m1", 4, 1, parts[1], 4));
+        assertEquals(0, reassembler.getPendingCount());
+        // 分包视图的游标不被移动
+        assertEquals(message.length / 4, parts[1].remaining());
+    }
+
+    @Test
+    public void singlePacketAndEmptyParts() throws IOException {
+        Pbbp2Reassembler reassembler = new Pbbp2Reassembler();
+        assertArrayEquals(new byte[]{1, 2, 3}, reassembler.offer("a", 1, 0, ByteBuffer.wrap(new byte[]{1, 2, 3}), 0));
+        assertNull(reassembler.offer("b", 2, 0, null, 0));
+        assertArrayEquals(new byte[]{9}, reassembler.offer("b", 2, 1, ByteBuffer.wrap(new byte[]{9}), 0));
+    }
+
+    @Test
+    public void rejectsOutOfRangeSeqAndSum() throws IOException {
+        Pbbp2Reassembler reassembler = new Pbbp2Reassembler();
+        ByteBuffer part = ByteBuffer.wrap(new byte[10]);
+        int[][] invalid = {{0, 0}, {-1, 0}, {257, 0}, {2, 2}, {2, -1}, {3, 7}};
+        for (int[] sumSeq : invalid) {
+            try {
+                reassembler.offer("m", sumSeq[0], sumSeq[1], part, 0);
+                fail("sum=" + sumSeq[0] + " seq=" + sumSeq[1]);
+            } catch (IOException expected) {
+            }
+        }
+        try {
+            reassembler.offer(null, 1, 0, part, 0);
+            fail("null message id");
+        } catch (IOException expected) {
+        }
+        assertEquals(0, reassembler.getPendingCount());
+        // 上限本身合法
+        assertNull(reassembler.offer("m", 256, 255, part, 0));
+        assertEquals(1, reassembler.getPendingCount());
+    }
+
+    @Test
+    public void inconsistentSumDropsMessage() throws IOException {
+        Pbbp2Reassembler reassembler = new Pbbp2Reassembler();
+        reassembler.offer("m", 3, 0, ByteBuffer.wrap(new byte[10]), 0);
+        try {
+            reassembler.offer("m", 4, 1, ByteBuffer.wrap(new byte[10]), 0);
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(0, reassembler.getPendingCount());
+        assertEquals(1, reassembler.getEvictedCount());
+    }
+
+    @Test
+    public void expiredMessagesAreEvicted() throws IOException {
+        Pbbp2Reassembler reassembler = new Pbbp2Reassembler(30_000);
+        reassembler.offer("old", 2, 0, ByteBuffer.wrap(new byte[10]), 0);
+        reassembler.offer("new", 2, 0, ByteBuffer.wrap(new byte[10]), 20_000);
+        // 刚好到有效期仍保留
+        reassembler.offer("x", 2, 0, ByteBuffer.wrap(new byte[10]), 30_000);
+        assertEquals(3, reassembler.getPendingCount());
+
+        reassembler.offer("y", 2, 0, ByteBuffer.wrap(new byte[10]), 30_001);
+        assertEquals(3, reassembler.getPendingCount());
+        assertEquals(1, reassembler.getEvictedCount());
+        // 丢失首包的旧消息后续分包到达时重新开始，不会拼出残缺数据
+        assertNull(reassembler.offer("old", 2, 1, ByteBuffer.wrap(new byte[10]), 30_002));
+        assertArrayEquals(new byte[20], reassembler.offer("new", 2, 1, ByteBuffer.wrap(new byte[10]), 30_003));
+    }
+
+    @Test
+    public void pendingMessageCountIsCapped() throws IOException {
+        Pbbp2Reassembler reassembler = new Pbbp2Reassembler();
+        for (int i = 0; i < 40; i++) {
+            reassembler.offer("m" + i, 2, 0, ByteBuffer.wrap(new byte[]{(byte) i}), i);
+        }
+        assertEquals(32, reassembler.getPendingCount());
+        assertEquals(8, reassembler.getEvictedCount());
+        // 最早的 8 条被淘汰，最新的仍能完成
+        assertNull(reassembler.offer("m0", 2, 1, ByteBuffer.wrap(new byte[]{0}), 41));
+        assertArrayEquals(new byte[]{39, 1}, reassembler.offer("m39", 2, 1, ByteBuffer.wrap(new byte[]{1}), 42));
+    }
+
+    @Test
+    public void singleMessageOverByteCapIsRejected() throws IOException {
+        Pbbp2Reassembler reassembler = new Pbbp2Reassembler();
+        reassembler.offer("big", 3, 0, ByteBuffer.allocate(5 * MB), 0);
+        try {
+            reassembler.offer("big", 3, 1, ByteBuffer.allocate(4 * MB), 0);
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(0, reassembler.getPendingCount());
+    }
+
+    @Test
+    public void totalPendingBytesAreCapped() throws IOException {
+        Pbbp2Reassembler reassembler = new Pbbp2Reassembler();
+        reassembler.offer("a", 2, 0, ByteBuffer.allocate(3 * MB), 0);
+        reassembler.offer("b", 2, 0, ByteBuffer.allocate(3 * MB), 1);
+        reassembler.offer("c", 2, 0, ByteBuffer.allocate(3 * MB), 2);
+        // 超过 8MB：淘汰最早的 a
+        assertEquals(2, reassembler.getPendingCount());
+        assertEquals(1, reassembler.getEvictedCount());
+        assertNull(reassembler.offer("a", 2, 1, ByteBuffer.allocate(1), 3));
+        assertEquals(3 * MB + 1, reassembler.offer("c", 2, 1, ByteBuffer.allocate(1), 4).length);
+    }
+
+    @Test
+    public void clearDropsEverything() throws IOException {
+        Pbbp2Reassembler reassembler = new Pbbp2Reassembler();
+        reassembler.offer("a", 2, 0, ByteBuffer.allocate(3 * MB), 0);
+        reassembler.clear();
+        assertEquals(0, reassembler.getPendingCount());
+        // 清空后字节计数归零，不会误判超限
+        for (int i = 0; i < 2; i++) {
+            reassembler.offer("m" + i, 2, 0, ByteBuffer.allocate(3 * MB), 1);
+        }
+        assertEquals(2, reassembler.getPendingCount());
+    }
+
+    private static ByteBuffer[] split(byte[] data, int count) {
+        ByteBuffer[] parts = new ByteBuffer[count];
+        int size = data.length / count;
+        for (int i = 0; i < count; i++) {
+            int end = i == count - 1 ? data.length : (i + 1) * size;
+            parts[i] = ByteBuffer.wrap(data, i * size, end - i * size).slice();
+        }
+        return parts;
+    }
+
+    private static byte[] random(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
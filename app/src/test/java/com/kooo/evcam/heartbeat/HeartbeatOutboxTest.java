@@ -0,0 +1,336 @@
+package com.kooo.evcam.heartbeat;
+
+import com.kooo.evcam.remote.core.HttpStatusException;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * HeartbeatOutbox 补发与退避测试
+ * 用本地 HTTP 服务器代替心跳服务器，按脚本返回状态码，检查补发顺序、退避窗口、离线判断、
+ * 被拒绝记录的丢弃、图片去重和容量上限。
+ */
+public class HeartbeatOutboxTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /** 服务器收到的一次心跳 */
+    private static final class Received {
+        final long capturedAt;
+        final int imageBytes;
+
+        Received(long capturedAt, int imageBytes) {
+            this.capturedAt = capturedAt;
+            this.imageBytes = imageBytes;
+        }
+    }
+
+    private HttpServer server;
+    private final Deque<Integer> scriptedCodes = new ArrayDeque<>();
+    private final List<Received> received = Collections.synchronizedList(new ArrayList<>());
+    private HeartbeatOutbox outbox;
+    private HeartbeatOutbox.Sender sender;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/heartbeat", exchange -> {
+            byte[] body = readAll(exchange.getRequestBody());
+            Integer scripted;
+            synchronized (scriptedCodes) {
+                scripted = scriptedCodes.poll();
+            }
+            int code = scripted != null ? scripted : 200;
+            if (code == 200) {
+                received.add(new Received(Long.parseLong(exchange.getRequestHeaders().getFirst("X-Captured-At")),
+                        body.length));
+            }
+            exchange.sendResponseHeaders(code, -1);
+            exchange.close();
+        });
+        server.start();
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/heartbeat");
+        sender = (record, imageBytes) -> {
+            int code = post(url, record.capturedAt, imageBytes);
+            if (code != 200) {
+                throw new HttpStatusException(code, "HTTP " + code);
+            }
+        };
+        outbox = new HeartbeatOutbox(temp.newFolder("outbox"));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private void failNext(int count, int code) {
+        synchronized (scriptedCodes) {
+            for (int i = 0; i < count; i++) {
+                scriptedCodes.add(code);
+            }
+        }
+    }
+
+    @Test
+    public void replaysInOrderAfterOutage() {
+        for (int i = 1; i <= 5; i++) {
+            outbox.enqueue(1000L * i, image(i, 2048), 640, 360, 1, "{}");
+        }
+        failNext(1, 503);
+        long before = System.currentTimeMillis();
+        assertEquals(0, outbox.flush(sender));
+        long after = System.currentTimeMillis();
+        assertEquals(5, outbox.getPendingCount());
+        // 第一次失败：30 秒 × (0.5 ~ 1.5) 后重试
+        assertFalse(outbox.isAttemptDue(before + 14_000));
+        assertTrue(outbox.isAttemptDue(after + 45_000));
+
+        assertEquals(5, outbox.flush(sender));
+        assertFalse(outbox.hasPending());
+        assertTrue(outbox.isAttemptDue(System.currentTimeMillis()));
+        assertEquals(5, received.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1000L * (i + 1), received.get(i).capturedAt);
+            assertEquals(2048, received.get(i).imageBytes);
+        }
+        assertEquals(0, imageFiles().length);
+    }
+
+    @Test
+    public void stopsAtFirstFailureAndKeepsRemainder() {
+        for (int i = 1; i <= 4; i++) {
+            outbox.enqueue(1000L * i, null, 0, 0, 0, "{}");
+        }
+        // 前两条送达，第三条失败
+        synchronized (scriptedCodes) {
+            scriptedCodes.add(200);
+            scriptedCodes.add(200);
+            scriptedCodes.add(500);
+        }
+        assertEquals(2, outbox.flush(sender));
+        assertEquals(2, outbox.getPendingCount());
+        assertEquals(2, outbox.flush(sender));
+        assertEquals(4, received.size());
+        assertEquals(3000L, received.get(2).capturedAt);
+    }
+
+    @Test
+    public void rejectedRecordsAreDroppedWithoutBackoff() {
+        for (int i = 1; i <= 5; i++) {
+            outbox.enqueue(1000L * i, image(i, 1024), 640, 360, 1, "{}");
+        }
+        // 第一、三、四条被服务器拒绝，后面的记录照常送达
+        synchronized (scriptedCodes) {
+            scriptedCodes.add(400);
+            scriptedCodes.add(200);
+            scriptedCodes.add(401);
+            scriptedCodes.add(403);
+        }
+        long now = System.currentTimeMillis();
+        assertEquals(2, outbox.flush(sender));
+        assertFalse(outbox.hasPending());
+        assertTrue(outbox.isAttemptDue(now));
+        assertFalse(outbox.shouldSkipCapture(now + 10 * 60_000));
+        assertEquals(2, received.size());
+        assertEquals(2000L, received.get(0).capturedAt);
+        assertEquals(5000L, received.get(1).capturedAt);
+        assertEquals(0, imageFiles().length);
+    }
+
+    @Test
+    public void rejectionsDoNotCountTowardOffline() {
+        long firstBefore = System.currentTimeMillis();
+        for (int round = 0; round < 4; round++) {
+            outbox.enqueue(1000L + round, null, 0, 0, 0, "{}");
+            failNext(1, 401);
+            assertEquals(0, outbox.flush(sender));
+            assertFalse(outbox.hasPending());
+        }
+        assertFalse(outbox.shouldSkipCapture(firstBefore + 10 * 60_000));
+        assertTrue(outbox.isAttemptDue(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void throttledAndTimedOutRequestsAreRetried() {
+        outbox.enqueue(1000L, null, 0, 0, 0, "{}");
+        outbox.enqueue(2000L, null, 0, 0, 0, "{}");
+        failNext(1, 429);
+        assertEquals(0, outbox.flush(sender));
+        assertEquals(2, outbox.getPendingCount());
+        assertFalse(outbox.isAttemptDue(System.currentTimeMillis()));
+
+        outbox.resetBackoff();
+        failNext(1, 408);
+        assertEquals(0, outbox.flush(sender));
+        assertEquals(2, outbox.getPendingCount());
+
+        assertEquals(2, outbox.flush(sender));
+        assertEquals(1000L, received.get(0).capturedAt);
+    }
+
+    @Test
+    public void retryableClassification() {
+        assertTrue(HeartbeatOutbox.isRetryable(new IOException("connect timed out")));
+        assertTrue(HeartbeatOutbox.isRetryable(new HttpStatusException(500, "HTTP 500")));
+        assertTrue(HeartbeatOutbox.isRetryable(new HttpStatusException(503, "HTTP 503")));
+        assertTrue(HeartbeatOutbox.isRetryable(new HttpStatusException(408, "HTTP 408")));
+        assertTrue(HeartbeatOutbox.isRetryable(new HttpStatusException(429, "HTTP 429")));
+        assertFalse(HeartbeatOutbox.isRetryable(new HttpStatusException(400, "HTTP 400")));
+        assertFalse(HeartbeatOutbox.isRetryable(new HttpStatusException(401, "HTTP 401")));
+        assertFalse(HeartbeatOutbox.isRetryable(new HttpStatusException(403, "HTTP 403")));
+        assertFalse(HeartbeatOutbox.isRetryable(new IOException("wrapped", new HttpStatusException(404, "HTTP 404"))));
+        assertFalse(HeartbeatOutbox.isRetryable(new IllegalStateException("bad record")));
+    }
+
+    @Test
+    public void backoffGrowsAndGoesOffline() {
+        outbox.enqueue(1000L, null, 0, 0, 0, "{}");
+        long firstBefore = System.currentTimeMillis();
+        failNext(3, 503);
+        outbox.flush(sender);
+        long firstAfter = System.currentTimeMillis();
+
+        // 第二次失败：60 秒 × (0.5 ~ 1.5)
+        long before = System.currentTimeMillis();
+        outbox.flush(sender);
+        assertFalse(outbox.isAttemptDue(before + 29_000));
+        // 第三次失败：120 秒 × (0.5 ~ 1.5)
+        before = System.currentTimeMillis();
+        outbox.flush(sender);
+        long after = System.currentTimeMillis();
+        assertFalse(outbox.isAttemptDue(before + 59_000));
+        assertTrue(outbox.isAttemptDue(after + 180_000));
+
+        // 连续失败 3 次，但从第一次失败起不足 5 分钟，仍然唤醒相机
+        assertFalse(outbox.shouldSkipCapture(firstBefore + 60_000));
+        assertTrue(outbox.shouldSkipCapture(firstAfter + 5 * 60_000));
+
+        // 网络恢复后清除退避
+        assertEquals(1, outbox.flush(sender));
+        assertFalse(outbox.shouldSkipCapture(firstAfter + 5 * 60_000));
+        assertTrue(outbox.isAttemptDue(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void resetBackoffAllowsImmediateAttempt() {
+        outbox.enqueue(1000L, null, 0, 0, 0, "{}");
+        failNext(1, 503);
+        outbox.flush(sender);
+        long now = System.currentTimeMillis();
+        assertFalse(outbox.isAttemptDue(now));
+        outbox.resetBackoff();
+        assertTrue(outbox.isAttemptDue(now));
+    }
+
+    @Test
+    public void repeatedImageIsSentOnce() {
+        byte[] same = image(7, 4096);
+        outbox.enqueue(1000L, same, 640, 360, 1, "{}");
+        outbox.enqueue(2000L, same, 640, 360, 1, "{}");
+        outbox.enqueue(3000L, same, 640, 360, 1, "{}");
+        assertEquals(1, imageFiles().length);
+
+        assertEquals(3, outbox.flush(sender));
+        assertEquals(4096, received.get(0).imageBytes);
+        assertEquals(0, received.get(1).imageBytes);
+        assertEquals(0, received.get(2).imageBytes);
+        assertEquals(0, imageFiles().length);
+    }
+
+    @Test
+    public void trimsToRecordLimit() {
+        for (int i = 0; i < 100; i++) {
+            outbox.enqueue(1000L + i, null, 0, 0, 0, "{}");
+        }
+        assertEquals(96, outbox.getPendingCount());
+        assertEquals(96, outbox.flush(sender));
+        // 最旧的 4 条被丢弃
+        assertEquals(1004L, received.get(0).capturedAt);
+    }
+
+    @Test
+    public void trimsImageBudgetKeepingSharedImages() {
+        int mb = 1024 * 1024;
+        byte[] shared = image(100, mb);
+        outbox.enqueue(1000L, shared, 640, 360, 1, "{}");
+        for (int i = 1; i <= 10; i++) {
+            outbox.enqueue(1000L + i, image(i, mb), 640, 360, 1, "{}");
+        }
+        // 最新一条与最旧一条共用图片：丢弃最旧记录不释放该图片，继续丢弃下一条
+        outbox.enqueue(2000L, shared, 640, 360, 1, "{}");
+
+        long total = 0;
+        for (File image : imageFiles()) {
+            total += image.length();
+        }
+        assertTrue("image bytes " + total, total <= 10L * mb);
+        assertEquals(10, imageFiles().length);
+        assertEquals(10, outbox.getPendingCount());
+
+        assertEquals(10, outbox.flush(sender));
+        assertEquals(1002L, received.get(0).capturedAt);
+        assertEquals(2000L, received.get(9).capturedAt);
+        assertEquals(mb, received.get(9).imageBytes);
+    }
+
+    private File[] imageFiles() {
+        File[] files = new File(temp.getRoot(), "outbox").listFiles((d, name) -> name.endsWith(".jpg"));
+        return files != null ? files : new File[0];
+    }
+
+    private static byte[] image(int seed, int size) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static int post(URL url, long capturedAt, byte[] imageBytes) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        try {
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.setRequestProperty("X-Captured-At", String.valueOf(capturedAt));
+            byte[] body = imageBytes != null ? imageBytes : new byte[0];
+            conn.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(body);
+            }
+            return conn.getResponseCode();
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
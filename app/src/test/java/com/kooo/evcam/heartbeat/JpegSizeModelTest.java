@@ -0,0 +1,204 @@
+package com.kooo.evcam.heartbeat;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JpegSizeModel 回放测试
+ *
+ * 体积曲线是 1280x720 画面在质量 10~95（步长 5）下的 JPEG 字节数：
+ * 白天场景纹理丰富，体积随质量平滑增长；夜间场景大面积暗部，低质量段几乎不变、高质量段陡增。
+ * 测试按心跳的编码循环（最多 3 次编码、容差 max(20KB, 目标/5)）回放这些曲线。
+ */
+public class JpegSizeModelTest {
+
+    private static final long CURVE_PIXELS = 1280L * 720;
+
+    private static final int[] DAY_CURVE = {
+            17731, 23629, 31970, 41220, 49174, 56870, 63109, 70032, 76266,
+            84048, 93809, 106681, 122722, 141782, 168497, 202121, 249287, 330805};
+
+    private static final int[] NIGHT_CURVE = {
+            16617, 16738, 17456, 18158, 18564, 18753, 20415, 22045, 22539,
+            25012, 29235, 34048, 42689, 52962, 67843, 89923, 133919, 247184};
+
+    private static final int MAX_PASSES = 3;
+
+    /** 曲线上的编码体积（质量间线性插值，按像素数缩放） */
+    private static int encode(int[] curve, int quality, long pixels) {
+        int q = Math.max(10, Math.min(95, quality));
+        int i = Math.min((q - 10) / 5, curve.length - 2);
+        double t = (q - (10 + i * 5)) / 5.0;
+        double bytes = curve[i] + t * (curve[i + 1] - curve[i]);
+        return (int) Math.round(bytes * pixels / CURVE_PIXELS);
+    }
+
+    private static int tolerance(int targetBytes) {
+        return Math.max(20 * 1024, targetBytes / 5);
+    }
+
+    /** 一次心跳的结果 */
+    private static final class Result {
+        int passes;
+        int bytes;
+        int quality;
+    }
+
+    /**
+     * 与 HeartbeatImageProcessor.compressToTargetSize 相同的预测-编码-修正循环
+     */
+    private static Result heartbeat(JpegSizeModel model, String key, int[] curve, long pixels, int targetBytes) {
+        Result result = new Result();
+        int quality = model.predictQuality(key, pixels, targetBytes);
+        int toleranceBytes = tolerance(targetBytes);
+        int bestDiff = Integer.MAX_VALUE;
+        while (result.passes < MAX_PASSES) {
+            result.passes++;
+            int bytes = encode(curve, quality, pixels);
+            model.record(key, quality, pixels, bytes);
+            int diff = bytes - targetBytes;
+            if (Math.abs(diff) < bestDiff) {
+                bestDiff = Math.abs(diff);
+                result.bytes = bytes;
+                result.quality = quality;
+            }
+            if (Math.abs(diff) <= toleranceBytes
+                    || (diff < 0 && quality >= JpegSizeModel.MAX_QUALITY)
+                    || (diff > 0 && quality <= JpegSizeModel.MIN_QUALITY)) {
+                break;
+            }
+            int next = model.predictQuality(key, pixels, targetBytes);
+            if (next == quality) {
+                next = diff > 0 ? quality - 5 : quality + 5;
+            }
+            quality = Math.max(JpegSizeModel.MIN_QUALITY, Math.min(JpegSizeModel.MAX_QUALITY, next));
+        }
+        return result;
+    }
+
+    @Test
+    public void noSamples_usesGenericCurve() {
+        JpegSizeModel model = new JpegSizeModel();
+        assertFalse(model.hasSamples("tiles:1"));
+        assertEquals(0.12, model.predictBytesPerPixel("tiles:1", 75), 1e-9);
+        assertEquals(1.0, JpegSizeModel.relativeSize(75), 1e-9);
+        // 曲线两端之外取端点值
+        assertEquals(JpegSizeModel.relativeSize(10), JpegSizeModel.relativeSize(1), 1e-9);
+        assertEquals(JpegSizeModel.relativeSize(95), JpegSizeModel.relativeSize(100), 1e-9);
+    }
+
+    @Test
+    public void predictQuality_isMonotonicAndClamped() {
+        JpegSizeModel model = new JpegSizeModel();
+        long pixels = CURVE_PIXELS;
+        for (int q = 10; q <= 95; q += 5) {
+            model.record("tiles:1", q, pixels, encode(DAY_CURVE, q, pixels));
+        }
+        int previous = JpegSizeModel.MIN_QUALITY;
+        for (int kb = 10; kb <= 400; kb += 10) {
+            int quality = model.predictQuality("tiles:1", pixels, kb * 1024);
+            assertTrue(quality >= previous);
+            assertTrue(quality >= JpegSizeModel.MIN_QUALITY && quality <= JpegSizeModel.MAX_QUALITY);
+            previous = quality;
+        }
+        assertEquals(JpegSizeModel.MIN_QUALITY, model.predictQuality("tiles:1", pixels, 1));
+        assertEquals(JpegSizeModel.MAX_QUALITY, model.predictQuality("tiles:1", pixels, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void replayDayCurve_hitsTargetWithFewEncodes() {
+        JpegSizeModel model = new JpegSizeModel();
+        int[] targetsKb = {60, 100, 150, 80, 120, 200, 60, 100};
+        int totalPasses = 0;
+        for (int round = 0; round < 3; round++) {
+            for (int kb : targetsKb) {
+                int target = kb * 1024;
+                Result r = heartbeat(model, "tiles:1", DAY_CURVE, CURVE_PIXELS, target);
+                assertTrue("target " + kb + "KB got " + r.bytes, Math.abs(r.bytes - target) <= tolerance(target));
+                if (round > 0) {
+                    // 模型已有观测后应一次命中
+                    assertEquals("target " + kb + "KB", 1, r.passes);
+                }
+                totalPasses += r.passes;
+            }
+        }
+        assertTrue("passes=" + totalPasses, totalPasses <= targetsKb.length * 3 + targetsKb.length);
+    }
+
+    @Test
+    public void replaySceneChange_recoversWithinMaxPasses() {
+        JpegSizeModel model = new JpegSizeModel();
+        int target = 100 * 1024;
+        for (int i = 0; i < 5; i++) {
+            heartbeat(model, "tiles:1", DAY_CURVE, CURVE_PIXELS, target);
+        }
+        // 天黑：同样质量下体积大幅下降，白天的观测与新观测矛盾，需要被淘汰后才能收敛
+        int heartbeats = 0;
+        Result r;
+        do {
+            r = heartbeat(model, "tiles:1", NIGHT_CURVE, CURVE_PIXELS, target);
+            heartbeats++;
+        } while (Math.abs(r.bytes - target) > tolerance(target) && heartbeats < 10);
+        assertTrue("heartbeats to recover: " + heartbeats, heartbeats <= 3);
+        assertTrue("night quality " + r.quality, r.quality > 80);
+        for (int i = 0; i < 5; i++) {
+            Result settled = heartbeat(model, "tiles:1", NIGHT_CURVE, CURVE_PIXELS, target);
+            assertEquals(1, settled.passes);
+            assertTrue(Math.abs(settled.bytes - target) <= tolerance(target));
+        }
+    }
+
+    @Test
+    public void observationsArePerPixelAndPerKey() {
+        JpegSizeModel model = new JpegSizeModel();
+        // 四宫格按 1280x720 观测，换成一半边长的格子后每像素字节数不变
+        model.record("tiles:4", 60, CURVE_PIXELS, encode(DAY_CURVE, 60, CURVE_PIXELS));
+        long quarter = CURVE_PIXELS / 4;
+        assertEquals(encode(DAY_CURVE, 60, quarter), model.predictBytes("tiles:4", 60, quarter), 1.0);
+        // 其他分组不受影响
+        assertFalse(model.hasSamples("tiles:1"));
+        assertEquals(0.12, model.predictBytesPerPixel("tiles:1", 75), 1e-9);
+    }
+
+    @Test
+    public void sameQualityKeepsLatestObservation() {
+        JpegSizeModel model = new JpegSizeModel();
+        model.record("k", 50, 1000, 100);
+        model.record("k", 50, 1000, 300);
+        assertEquals(0.3, model.predictBytesPerPixel("k", 50), 1e-9);
+    }
+
+    @Test
+    public void oldObservationsAreEvicted() {
+        JpegSizeModel model = new JpegSizeModel();
+        // 质量 10 的观测（与后续观测一致）在新增 6 个观测后按数量淘汰
+        model.record("k", 10, 1000, 5);
+        model.record("k", 60, 1000, encode(DAY_CURVE, 60, 1000));
+        assertEquals(0.005, model.predictBytesPerPixel("k", 10), 1e-9);
+        for (int q = 65; q <= 90; q += 5) {
+            model.record("k", q, 1000, encode(DAY_CURVE, q, 1000));
+        }
+        assertNotEquals(0.005, model.predictBytesPerPixel("k", 10), 1e-6);
+    }
+
+    @Test
+    public void contradictingObservationsAreDropped() {
+        JpegSizeModel model = new JpegSizeModel();
+        model.record("k", 40, 1000, 200);
+        model.record("k", 80, 1000, 400);
+        // 画面变暗：质量 60 的体积比原先质量 40 还小，质量 40 的旧观测被丢弃
+        model.record("k", 60, 1000, 150);
+        // 80 与 60 一致，保留；40 已不在，低质量段按 60 的观测外推
+        assertEquals(0.4, model.predictBytesPerPixel("k", 80), 1e-9);
+        assertTrue(model.predictBytesPerPixel("k", 40) < 0.15);
+    }
+
+    @Test
+    public void ignoresEmptyObservations() {
+        JpegSizeModel model = new JpegSizeModel();
+        model.record("k", 50, 0, 100);
+        model.record("k", 50, 1000, 0);
+        assertFalse(model.hasSamples("k"));
+    }
+}
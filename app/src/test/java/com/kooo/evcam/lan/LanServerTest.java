@@ -0,0 +1,468 @@
+package com.kooo.evcam.lan;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * 局域网服务测试
+ * 在本机端口启动 LanHttpServer，挂上与正式服务相同的推流/快照处理，用原始 Socket 当客户端，
+ * 检查口令校验、快照、MJPEG 观看者断开后订阅能否释放（预览不可用时也一样），以及连接数不会被耗尽；
+ * 同时挂上 LanFileServer，检查文件索引、Range/If-Range/HEAD、路径穿越拦截和下载限速。
+ */
+public class LanServerTest {
+
+    private static final String TOKEN = "secret";
+    /** 录像修改时间（秒级，文件系统精度以内） */
+    private static final long MODIFIED = 1_767_225_600_000L;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final AtomicReference<byte[]> frame = new AtomicReference<>();
+    /** 下载限速（字节/秒），0 表示不限速 */
+    private final AtomicLong downloadRate = new AtomicLong();
+    private LiveFrameHub hub;
+    private LanHttpServer server;
+    private File videos;
+    private byte[] video;
+
+    @Before
+    public void setUp() throws IOException {
+        hub = new LiveFrameHub("test", frame::get, 20);
+        server = new LanHttpServer(0, TOKEN, null);
+        server.route("/live/", (request, socket, out) ->
+                LanServerManager.streamMjpeg(hub, "front", request, socket, out, 100));
+        server.route("/snapshot/", (request, socket, out) ->
+                LanServerManager.sendSnapshot(hub, request, out, 300));
+
+        videos = temp.newFolder("videos");
+        File photos = temp.newFolder("photos");
+        video = random(1, 100_000);
+        writeFile(videos, "20260101_000000_front.mp4", video, MODIFIED);
+        writeFile(videos, "20260101_000100_front.mp4", random(2, 2000), MODIFIED + 60_000);
+        writeFile(videos, ".pending.mp4", random(3, 100), MODIFIED);
+        writeFile(videos, "notes.txt", random(4, 100), MODIFIED);
+        writeFile(photos, "20260101_000000_front.jpg", jpeg(5), MODIFIED);
+        // 根目录之外的文件，不应能通过路径穿越读到
+        writeFile(temp.getRoot(), "secret.mp4", random(6, 100), MODIFIED);
+        Map<String, File> roots = new LinkedHashMap<>();
+        roots.put("videos", videos);
+        roots.put("photos", photos);
+        new LanFileServer(() -> roots, new TransferThrottle(downloadRate::get)).register(server);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        hub.shutdown();
+    }
+
+    @Test
+    public void rejectsMissingOrWrongToken() throws IOException {
+        frame.set(jpeg(1));
+        assertEquals(401, request("GET /snapshot/front.jpg HTTP/1.1", null).status);
+        assertEquals(401, request("GET /snapshot/front.jpg?token=secreT HTTP/1.1", null).status);
+        assertEquals(401, request("GET /snapshot/front.jpg?token=secret2 HTTP/1.1", null).status);
+        assertEquals(200, request("GET /snapshot/front.jpg HTTP/1.1", "Authorization: Bearer secret").status);
+        assertEquals(405, request("POST /snapshot/front.jpg?token=secret HTTP/1.1", null).status);
+        assertEquals(404, request("GET /nothing?token=secret HTTP/1.1", null).status);
+    }
+
+    @Test
+    public void snapshotReturnsLatestFrame() throws IOException {
+        byte[] expected = jpeg(2);
+        frame.set(expected);
+        Response response = request("GET /snapshot/front.jpg?token=secret HTTP/1.1", null);
+        assertEquals(200, response.status);
+        assertTrue(response.headers.contains("Content-Type: image/jpeg"));
+        assertArrayEquals(expected, response.body);
+    }
+
+    @Test
+    public void snapshotWithoutPreviewIs503() throws Exception {
+        assertEquals(503, request("GET /snapshot/front.jpg?token=secret HTTP/1.1", null).status);
+        waitForSubscribers(0);
+    }
+
+    @Test
+    public void mjpegDisconnectReleasesSubscription() throws Exception {
+        byte[] expected = jpeg(3);
+        frame.set(expected);
+        try (Socket socket = open("/live/front.mjpg?token=secret")) {
+            InputStream in = socket.getInputStream();
+            String headers = readHeaders(in);
+            assertTrue(headers, headers.startsWith("HTTP/1.1 200"));
+            assertTrue(headers.contains("multipart/x-mixed-replace; boundary=evcamframe"));
+            String partHeaders = readHeaders(in);
+            assertTrue(partHeaders, partHeaders.contains("--evcamframe"));
+            assertTrue(partHeaders.contains("Content-Length: " + expected.length));
+            assertArrayEquals(expected, readFully(in, expected.length));
+            assertEquals(1, hub.getSubscriberCount());
+        }
+        waitForSubscribers(0);
+    }
+
+    @Test
+    public void mjpegDisconnectWithoutPreviewReleasesSubscription() throws Exception {
+        // 预览不可用时没有帧可写，只能靠保活写入发现客户端断开
+        try (Socket socket = open("/live/front.mjpg?token=secret")) {
+            assertTrue(readHeaders(socket.getInputStream()).startsWith("HTTP/1.1 200"));
+            waitForSubscribers(1);
+        }
+        waitForSubscribers(0);
+    }
+
+    @Test
+    public void disconnectedViewersDoNotExhaustConnections() throws Exception {
+        // 预览不可用时占满连接上限（16）的观看者全部断开，之后的观看者和快照仍能接入
+        for (int round = 0; round < 2; round++) {
+            Socket[] viewers = new Socket[16];
+            for (int i = 0; i < viewers.length; i++) {
+                viewers[i] = open("/live/front.mjpg?token=secret");
+                assertTrue(readHeaders(viewers[i].getInputStream()).startsWith("HTTP/1.1 200"));
+            }
+            waitForSubscribers(viewers.length);
+            for (Socket viewer : viewers) {
+                viewer.close();
+            }
+            waitForSubscribers(0);
+            // 订阅关闭后连接线程还要返回线程池
+            Thread.sleep(100);
+        }
+        frame.set(jpeg(4));
+        assertEquals(200, request("GET /snapshot/front.jpg?token=secret HTTP/1.1", null).status);
+    }
+
+    @Test
+    public void onlyLocalAddressesAreAccepted() throws IOException {
+        assertTrue(LanHttpServer.isLocalAddress(InetAddress.getByName("127.0.0.1")));
+        assertTrue(LanHttpServer.isLocalAddress(InetAddress.getByName("::1")));
+        assertTrue(LanHttpServer.isLocalAddress(InetAddress.getByName("192.168.43.12")));
+        assertTrue(LanHttpServer.isLocalAddress(InetAddress.getByName("10.1.2.3")));
+        assertTrue(LanHttpServer.isLocalAddress(InetAddress.getByName("172.20.0.5")));
+        assertTrue(LanHttpServer.isLocalAddress(InetAddress.getByName("169.254.10.1")));
+        assertTrue(LanHttpServer.isLocalAddress(InetAddress.getByName("fe80::1")));
+        assertTrue(LanHttpServer.isLocalAddress(InetAddress.getByName("fd12:3456::1")));
+        assertTrue(LanHttpServer.isLocalAddress(InetAddress.getByName("::ffff:192.168.1.2")));
+        assertFalse(LanHttpServer.isLocalAddress(InetAddress.getByName("8.8.8.8")));
+        assertFalse(LanHttpServer.isLocalAddress(InetAddress.getByName("100.64.1.1")));
+        assertFalse(LanHttpServer.isLocalAddress(InetAddress.getByName("172.32.0.1")));
+        assertFalse(LanHttpServer.isLocalAddress(InetAddress.getByName("2001:db8::1")));
+        assertFalse(LanHttpServer.isLocalAddress(null));
+    }
+
+    @Test
+    public void libraryListsDownloadableFilesNewestFirst() throws IOException {
+        Response response = request("GET /api/library?token=secret HTTP/1.1", null);
+        assertEquals(200, response.status);
+        assertTrue(response.headers.contains("Content-Type: application/json"));
+        JSONObject library = new JSONObject(new String(response.body, StandardCharsets.UTF_8));
+
+        // 隐藏文件和不支持的类型不列出
+        JSONArray videoList = library.getJSONArray("videos");
+        assertEquals(2, videoList.length());
+        JSONObject newest = videoList.getJSONObject(0);
+        assertEquals("20260101_000100_front.mp4", newest.getString("name"));
+        assertEquals(2000, newest.getLong("size"));
+        assertEquals(MODIFIED + 60_000, newest.getLong("modified"));
+        assertEquals("/files/videos/20260101_000100_front.mp4", newest.getString("url"));
+        assertEquals("20260101_000000_front.mp4", videoList.getJSONObject(1).getString("name"));
+        assertEquals(1, library.getJSONArray("photos").length());
+
+        Response head = request("HEAD /api/library?token=secret HTTP/1.1", null);
+        assertEquals(200, head.status);
+        assertTrue(head.headers.contains("Content-Length: " + response.body.length));
+        assertEquals(0, head.body.length);
+        assertEquals(401, request("GET /api/library HTTP/1.1", null).status);
+    }
+
+    @Test
+    public void fileDownloadSupportsRanges() throws IOException {
+        String target = "/files/videos/20260101_000000_front.mp4?token=secret";
+        Response full = request("GET " + target + " HTTP/1.1", null);
+        assertEquals(200, full.status);
+        assertEquals("video/mp4", header(full, "Content-Type"));
+        assertEquals("bytes", header(full, "Accept-Ranges"));
+        assertEquals(String.valueOf(video.length), header(full, "Content-Length"));
+        assertNotNull(header(full, "ETag"));
+        assertNotNull(header(full, "Last-Modified"));
+        assertArrayEquals(video, full.body);
+
+        Response middle = request("GET " + target + " HTTP/1.1", "Range: bytes=100-199");
+        assertEquals(206, middle.status);
+        assertEquals("bytes 100-199/100000", header(middle, "Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(video, 100, 200), middle.body);
+
+        Response suffix = request("GET " + target + " HTTP/1.1", "Range: bytes=-500");
+        assertEquals(206, suffix.status);
+        assertEquals("bytes 99500-99999/100000", header(suffix, "Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(video, 99_500, 100_000), suffix.body);
+
+        // 结束位置超过文件长度时截到末尾
+        Response tail = request("GET " + target + " HTTP/1.1", "Range: bytes=99000-200000");
+        assertEquals(206, tail.status);
+        assertEquals("bytes 99000-99999/100000", header(tail, "Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(video, 99_000, 100_000), tail.body);
+
+        // 多段请求直接返回整个文件
+        Response multi = request("GET " + target + " HTTP/1.1", "Range: bytes=0-1,5-6");
+        assertEquals(200, multi.status);
+        assertArrayEquals(video, multi.body);
+    }
+
+    @Test
+    public void unsatisfiableRangeIs416() throws IOException {
+        String target = "/files/videos/20260101_000000_front.mp4?token=secret";
+        for (String range : new String[]{"bytes=100000-", "bytes=500-400", "bytes=-0"}) {
+            Response response = request("GET " + target + " HTTP/1.1", "Range: " + range);
+            assertEquals(range, 416, response.status);
+            assertEquals(range, "bytes */100000", header(response, "Content-Range"));
+            assertEquals(0, response.body.length);
+        }
+    }
+
+    @Test
+    public void ifRangeMismatchReturnsWholeFile() throws IOException {
+        String target = "/files/videos/20260101_000000_front.mp4?token=secret";
+        String etag = header(request("HEAD " + target + " HTTP/1.1", null), "ETag");
+
+        Response matching = request("GET " + target + " HTTP/1.1", "Range: bytes=0-9\r\nIf-Range: " + etag);
+        assertEquals(206, matching.status);
+        assertArrayEquals(Arrays.copyOfRange(video, 0, 10), matching.body);
+
+        // 文件已变化：忽略 Range，从头下载
+        Response stale = request("GET " + target + " HTTP/1.1", "Range: bytes=0-9\r\nIf-Range: \"0-0\"");
+        assertEquals(200, stale.status);
+        assertNull(header(stale, "Content-Range"));
+        assertArrayEquals(video, stale.body);
+    }
+
+    @Test
+    public void headSendsHeadersOnly() throws IOException {
+        String target = "/files/videos/20260101_000000_front.mp4?token=secret";
+        Response head = request("HEAD " + target + " HTTP/1.1", null);
+        assertEquals(200, head.status);
+        assertEquals("100000", header(head, "Content-Length"));
+        assertEquals(0, head.body.length);
+
+        Response headRange = request("HEAD " + target + " HTTP/1.1", "Range: bytes=-500");
+        assertEquals(206, headRange.status);
+        assertEquals("500", header(headRange, "Content-Length"));
+        assertEquals("bytes 99500-99999/100000", header(headRange, "Content-Range"));
+        assertEquals(0, headRange.body.length);
+    }
+
+    @Test
+    public void pathTraversalIsRejected() throws IOException {
+        String[] targets = {
+                "/files/videos/..%2Fsecret.mp4",
+                "/files/videos/%2F..%2Fsecret.mp4",
+                "/files/videos/..%5Csecret.mp4",
+                "/files/videos/..",
+                "/files/videos/.pending.mp4",
+                "/files/videos/notes.txt",
+                "/files/../secret.mp4",
+                "/files/%2E%2E/secret.mp4",
+                "/files/secret.mp4",
+                "/files/music/20260101_000000_front.mp4",
+        };
+        for (String target : targets) {
+            Response response = request("GET " + target + "?token=secret HTTP/1.1", null);
+            assertEquals(target, 404, response.status);
+        }
+        assertEquals(200, request("GET /files/photos/20260101_000000_front.jpg?token=secret HTTP/1.1", null).status);
+    }
+
+    @Test
+    public void downloadsAreThrottled() throws IOException {
+        byte[] big = random(7, 600 * 1024);
+        writeFile(videos, "big.mp4", big, MODIFIED);
+        // 1 MB/s：600 KB 减去 250ms 突发额度，最后一块开始发送前至少要等约 260ms
+        downloadRate.set(1024 * 1024);
+        long start = System.nanoTime();
+        Response response = request("GET /files/videos/big.mp4?token=secret HTTP/1.1", null);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(200, response.status);
+        assertArrayEquals(big, response.body);
+        assertTrue("elapsed " + elapsedMs + "ms", elapsedMs >= 200);
+
+        // 空闲时不限速
+        downloadRate.set(0);
+        assertArrayEquals(big, request("GET /files/videos/big.mp4?token=secret HTTP/1.1", null).body);
+    }
+
+    @Test
+    public void parseRangeHandlesSingleAndSuffixRanges() {
+        assertArrayEquals(new long[]{0, 99}, LanFileServer.parseRange("bytes=0-99", 1000));
+        assertArrayEquals(new long[]{500, 999}, LanFileServer.parseRange("bytes=500-", 1000));
+        assertArrayEquals(new long[]{900, 999}, LanFileServer.parseRange("bytes=900-5000", 1000));
+        assertArrayEquals(new long[]{900, 999}, LanFileServer.parseRange("bytes=-100", 1000));
+        assertArrayEquals(new long[]{0, 999}, LanFileServer.parseRange("bytes=-5000", 1000));
+        assertArrayEquals(new long[]{7, 7}, LanFileServer.parseRange("bytes= 7 - 7 ", 1000));
+    }
+
+    @Test
+    public void parseRangeRejectsUnsatisfiableRanges() {
+        assertEquals(0, LanFileServer.parseRange("bytes=1000-", 1000).length);
+        assertEquals(0, LanFileServer.parseRange("bytes=5-4", 1000).length);
+        assertEquals(0, LanFileServer.parseRange("bytes=-0", 1000).length);
+        assertEquals(0, LanFileServer.parseRange("bytes=0-", 0).length);
+    }
+
+    @Test
+    public void parseRangeIgnoresUnsupportedHeaders() {
+        assertNull(LanFileServer.parseRange("items=0-99", 1000));
+        assertNull(LanFileServer.parseRange("bytes=0-1,5-6", 1000));
+        assertNull(LanFileServer.parseRange("bytes=100", 1000));
+        assertNull(LanFileServer.parseRange("bytes=abc-", 1000));
+        assertNull(LanFileServer.parseRange("bytes=-x", 1000));
+    }
+
+    // ==================== 客户端辅助方法 ====================
+
+    private static final class Response {
+        int status;
+        String headers;
+        byte[] body;
+    }
+
+    private Socket open(String target) throws IOException {
+        Socket socket = new Socket("127.0.0.1", server.getPort());
+        socket.setSoTimeout(5000);
+        write(socket, "GET " + target + " HTTP/1.1", null);
+        return socket;
+    }
+
+    private Response request(String requestLine, String extraHeader) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.setSoTimeout(5000);
+            write(socket, requestLine, extraHeader);
+            InputStream in = socket.getInputStream();
+            Response response = new Response();
+            response.headers = readHeaders(in);
+            response.status = Integer.parseInt(response.headers.split(" ")[1]);
+            response.body = readAll(in);
+            return response;
+        }
+    }
+
+    private static void write(Socket socket, String requestLine, String extraHeader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(requestLine).append("\r\nHost: localhost\r\n");
+        if (extraHeader != null) {
+            sb.append(extraHeader).append("\r\n");
+        }
+        sb.append("\r\n");
+        OutputStream out = socket.getOutputStream();
+        out.write(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    /** 读到空行为止（跳过分隔符之间的空行） */
+    private static String readHeaders(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (buffer.size() == 0 && (b == '\r' || b == '\n')) {
+                continue;
+            }
+            buffer.write(b);
+            byte[] bytes = buffer.toByteArray();
+            int n = bytes.length;
+            if (n >= 4 && bytes[n - 4] == '\r' && bytes[n - 3] == '\n' && bytes[n - 2] == '\r' && bytes[n - 1] == '\n') {
+                break;
+            }
+        }
+        return new String(buffer.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] data = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int n = in.read(data, offset, length - offset);
+            if (n < 0) {
+                throw new IOException("eof");
+            }
+            offset += n;
+        }
+        return data;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /** 取响应头的值（不区分大小写），没有时返回 null */
+    private static String header(Response response, String name) {
+        for (String line : response.headers.split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).equalsIgnoreCase(name)) {
+                return line.substring(colon + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    private void waitForSubscribers(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (hub.getSubscriberCount() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, hub.getSubscriberCount());
+    }
+
+    private static void writeFile(File dir, String name, byte[] data, long modified) throws IOException {
+        File file = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        assertTrue(file.setLastModified(modified));
+    }
+
+    private static byte[] random(int seed, int size) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] jpeg(int seed) {
+        byte[] data = new byte[1000 + seed * 100];
+        data[0] = (byte) 0xFF;
+        data[1] = (byte) 0xD8;
+        for (int i = 2; i < data.length; i++) {
+            data[i] = (byte) (seed * 31 + i);
+        }
+        return data;
+    }
+}
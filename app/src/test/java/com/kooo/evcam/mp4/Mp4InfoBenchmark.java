@@ -0,0 +1,54 @@
+package com.kooo.evcam.mp4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MP4 时长探测基准（运行方式见 JmhBenchmarks）
+ *
+ * 输入为 Mp4InfoTest.buildMp4 构造的 moov 在后的录像（视频轨 + 音频轨，可变帧率）。
+ * parse 用 Mp4Movie 展开全部样本表后取主轨道时长（ClipPackager 打包前的解析方式），
+ * probe 只读 moov 中的 mvhd / mdhd / hdlr / stsz。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Mp4InfoBenchmark {
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("probe", ".mp4");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(Mp4InfoTest.buildMp4(1000, true, true, true, 1, true));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long probe() throws IOException {
+        return Mp4Info.probe(file).getDurationMs();
+    }
+
+    @Benchmark
+    public long parse() throws IOException {
+        Mp4Track video = Mp4Movie.parse(file).getPrimaryTrack();
+        return video.getMediaDuration() * 1000 / video.getTimescale();
+    }
+}
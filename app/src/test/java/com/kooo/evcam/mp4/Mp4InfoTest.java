@@ -0,0 +1,399 @@
+package com.kooo.evcam.mp4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Mp4Info 探测测试
+ * 在测试中拼出一个小的 MP4（H.264 视频轨带 B 帧式 ctts、AAC 音频轨），
+ * 用完整解析样本表的 Mp4Movie 作为参照，核对时长、音频轨道和视频样本数。
+ */
+public class Mp4InfoTest {
+
+    private static final long VIDEO_TIMESCALE = 90000;
+    private static final long AUDIO_TIMESCALE = 48000;
+
+    /** 前 10 帧 3000、后 20 帧 3003（两个 stts 游程） */
+    private static final int[][] VIDEO_STTS = {{10, 3000}, {20, 3003}};
+    private static final int[] VIDEO_SYNC = {1, 11, 21, 26};
+    /** 约 0.98 秒，与视频基本等长 */
+    private static final int AUDIO_SAMPLES = 46;
+    private static final int AUDIO_DELTA = 1024;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void matchesMp4Movie() throws IOException {
+        File file = write("movie.mp4", buildMp4(1000, true, true, true));
+        Mp4Info info = Mp4Info.probe(file);
+        Mp4Movie movie = Mp4Movie.parse(file);
+        Mp4Track video = movie.getPrimaryTrack();
+
+        assertTrue(video.isVideo());
+        assertEquals(video.getMediaDuration() * 1000 / video.getTimescale(), info.getDurationMs());
+        assertEquals(1, info.getDurationSeconds());
+        assertEquals(video.getSampleCount(), info.getVideoSampleCount());
+        assertEquals(30, info.getVideoSampleCount());
+        assertTrue(info.hasAudio());
+    }
+
+    @Test
+    public void durationFallsBackToLongestTrack() throws IOException {
+        File file = write("nomvhd.mp4", buildMp4(0, true, true, true));
+        Mp4Info info = Mp4Info.probe(file);
+        // 视频 90060/90000 秒，音频 47104/48000 秒
+        assertEquals(1000, info.getDurationMs());
+    }
+
+    @Test
+    public void videoOnlyWithoutStss() throws IOException {
+        File file = write("allsync.mp4", buildMp4(1000, false, true, false));
+        Mp4Info info = Mp4Info.probe(file);
+        assertFalse(info.hasAudio());
+        assertEquals(30, info.getVideoSampleCount());
+        assertTrue(Mp4Movie.parse(file).getPrimaryTrack().isSyncSample(5));
+    }
+
+    @Test
+    public void moovBeforeMdatIsFound() throws IOException {
+        byte[] mp4 = buildMp4(1000, true, false, true);
+        File file = write("faststart.mp4", mp4);
+        assertEquals(1000, Mp4Info.probe(file).getDurationMs());
+        assertEquals(30, Mp4Info.probe(file).getVideoSampleCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void missingMoovThrows() throws IOException {
+        byte[] mp4 = buildMp4(1000, true, true, true);
+        // 录制中断：只剩 ftyp + mdat
+        int moovAt = indexOf(mp4, "moov") - 4;
+        byte[] truncated = new byte[moovAt];
+        System.arraycopy(mp4, 0, truncated, 0, moovAt);
+        Mp4Info.probe(write("broken.mp4", truncated));
+    }
+
+    @Test
+    public void cacheFollowsFileChanges() throws IOException {
+        File file = write("cached.mp4", buildMp4(1000, true, true, true));
+        Mp4Info first = Mp4Info.get(file);
+        assertSame(first, Mp4Info.get(file));
+        write("cached.mp4", buildMp4(2000, true, true, true));
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        Mp4Info second = Mp4Info.get(file);
+        assertNotSame(first, second);
+        assertEquals(2000, second.getDurationMs());
+    }
+
+    // ==================== 构造 MP4 ====================
+
+    /**
+     * @param movieDurationMs mvhd 时长（时间刻度 1000），0 表示未填写
+     * @param withStss 是否写关键帧表
+     * @param moovAtEnd moov 位于 mdat 之后（录像默认布局）；false 时为 faststart 布局
+     * @param withAudio 是否带音频轨
+     */
+    static byte[] buildMp4(long movieDurationMs, boolean withStss, boolean moovAtEnd,
+                           boolean withAudio) throws IOException {
+        return buildMp4(movieDurationMs, withStss, moovAtEnd, withAudio, 0, false);
+    }
+
+    /**
+     * @param seed 样本内容的种子：每个样本填充 (seed, 轨道, 序号) 决定的字节，便于核对复制结果
+     * @param variableFrameRate 视频帧时长在每个 stts 游程内交替 ±3（总时长不变），stts 每帧一项
+     */
+    static byte[] buildMp4(long movieDurationMs, boolean withStss, boolean moovAtEnd,
+                           boolean withAudio, int seed, boolean variableFrameRate) throws IOException {
+        int videoCount = 0;
+        for (int[] run : VIDEO_STTS) {
+            videoCount += run[0];
+        }
+        int[] videoSizes = new int[videoCount];
+        for (int i = 0; i < videoCount; i++) {
+            videoSizes[i] = 100 + i;
+        }
+        int[] audioSizes = new int[withAudio ? AUDIO_SAMPLES : 0];
+        for (int i = 0; i < audioSizes.length; i++) {
+            audioSizes[i] = 20;
+        }
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        for (int i = 0; i < videoSizes.length; i++) {
+            payload.write(sampleBytes(seed, 1, i, videoSizes[i]));
+        }
+        int audioOffsetInMdat = payload.size();
+        for (int i = 0; i < audioSizes.length; i++) {
+            payload.write(sampleBytes(seed, 2, i, audioSizes[i]));
+        }
+
+        byte[] ftyp = box("ftyp", ascii("isom"), u32(512), ascii("isomiso2avc1mp41"));
+        byte[] mdat = box("mdat", payload.toByteArray());
+        // moov 大小与偏移无关，先按 0 偏移构造一次求长度
+        int moovSize = moov(movieDurationMs, withStss, withAudio, variableFrameRate, videoSizes, audioSizes,
+                0, 0).length;
+        long mdatData = moovAtEnd ? ftyp.length + 8 : ftyp.length + moovSize + 8;
+        byte[] moov = moov(movieDurationMs, withStss, withAudio, variableFrameRate, videoSizes, audioSizes,
+                mdatData, mdatData + audioOffsetInMdat);
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(ftyp);
+        if (moovAtEnd) {
+            file.write(mdat);
+            file.write(moov);
+        } else {
+            file.write(moov);
+            file.write(mdat);
+        }
+        return file.toByteArray();
+    }
+
+    /** 样本内容：前 3 字节为种子、轨道号、序号，其余按位置递增 */
+    static byte[] sampleBytes(int seed, int trackId, int index, int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i == 0 ? seed : i == 1 ? trackId : i == 2 ? index : seed * 31 + index + i);
+        }
+        return bytes;
+    }
+
+    private static byte[] moov(long movieDurationMs, boolean withStss, boolean withAudio, boolean variableFrameRate,
+                               int[] videoSizes, int[] audioSizes, long videoOffset, long audioOffset)
+            throws IOException {
+        long videoDuration = 0;
+        for (int[] run : VIDEO_STTS) {
+            videoDuration += (long) run[0] * run[1];
+        }
+        List<byte[]> children = new ArrayList<>();
+        children.add(mvhd(movieDurationMs));
+        children.add(trak(1, Mp4Track.HANDLER_VIDEO, VIDEO_TIMESCALE, videoDuration,
+                videoStbl(withStss, variableFrameRate, videoSizes, videoOffset)));
+        if (withAudio) {
+            children.add(trak(2, Mp4Track.HANDLER_SOUND, AUDIO_TIMESCALE, (long) AUDIO_SAMPLES * AUDIO_DELTA,
+                    audioStbl(audioSizes, audioOffset)));
+        }
+        return box("moov", children.toArray(new byte[0][]));
+    }
+
+    private static byte[] mvhd(long durationMs) throws IOException {
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        b.write(u32(0));            // creation
+        b.write(u32(0));            // modification
+        b.write(u32(1000));         // timescale
+        b.write(u32(durationMs));
+        b.write(u32(0x00010000));   // rate
+        b.write(u16(0x0100));       // volume
+        b.write(new byte[10]);
+        b.write(matrix());
+        b.write(new byte[24]);
+        b.write(u32(3));            // next track id
+        return fullBox("mvhd", 0, b.toByteArray());
+    }
+
+    private static byte[] trak(int id, String handler, long timescale, long duration, byte[] stbl)
+            throws IOException {
+        boolean video = Mp4Track.HANDLER_VIDEO.equals(handler);
+        ByteArrayOutputStream tkhd = new ByteArrayOutputStream();
+        tkhd.write(u32(0));
+        tkhd.write(u32(0));
+        tkhd.write(u32(id));
+        tkhd.write(u32(0));
+        tkhd.write(u32(duration * 1000 / timescale));
+        tkhd.write(new byte[8]);
+        tkhd.write(u16(0));         // layer
+        tkhd.write(u16(0));         // alternate group
+        tkhd.write(u16(video ? 0 : 0x0100));
+        tkhd.write(u16(0));
+        tkhd.write(matrix());
+        tkhd.write(u32(video ? 1280L << 16 : 0));
+        tkhd.write(u32(video ? 720L << 16 : 0));
+
+        ByteArrayOutputStream mdhd = new ByteArrayOutputStream();
+        mdhd.write(u32(0));
+        mdhd.write(u32(0));
+        mdhd.write(u32(timescale));
+        mdhd.write(u32(duration));
+        mdhd.write(u16(0x55C4));    // und
+        mdhd.write(u16(0));
+
+        ByteArrayOutputStream hdlr = new ByteArrayOutputStream();
+        hdlr.write(u32(0));
+        hdlr.write(ascii(handler));
+        hdlr.write(new byte[12]);
+        hdlr.write(ascii(video ? "VideoHandle\0" : "SoundHandle\0"));
+
+        byte[] mediaHeader = video
+                ? fullBox("vmhd", 1, new byte[8])
+                : fullBox("smhd", 0, new byte[4]);
+        byte[] dinf = box("dinf", fullBox("dref", 0, concat(u32(1), fullBox("url ", 1, new byte[0]))));
+        return box("trak",
+                fullBox("tkhd", 3, tkhd.toByteArray()),
+                box("mdia",
+                        fullBox("mdhd", 0, mdhd.toByteArray()),
+                        fullBox("hdlr", 0, hdlr.toByteArray()),
+                        box("minf", mediaHeader, dinf, stbl)));
+    }
+
+    private static byte[] videoStbl(boolean withStss, boolean variableFrameRate, int[] sizes, long offset)
+            throws IOException {
+        ByteArrayOutputStream avc1 = new ByteArrayOutputStream();
+        avc1.write(new byte[6]);
+        avc1.write(u16(1));         // data reference index
+        avc1.write(new byte[16]);
+        avc1.write(u16(1280));
+        avc1.write(u16(720));
+        avc1.write(u32(0x00480000));
+        avc1.write(u32(0x00480000));
+        avc1.write(u32(0));
+        avc1.write(u16(1));         // frame count
+        avc1.write(new byte[32]);
+        avc1.write(u16(0x0018));
+        avc1.write(u16(0xFFFF));
+
+        ByteArrayOutputStream stts = new ByteArrayOutputStream();
+        if (variableFrameRate) {
+            stts.write(u32(sizes.length));
+            for (int[] run : VIDEO_STTS) {
+                for (int i = 0; i < run[0]; i++) {
+                    stts.write(u32(1));
+                    stts.write(u32(run[1] + (i % 2 == 0 ? -3 : 3)));
+                }
+            }
+        } else {
+            stts.write(u32(VIDEO_STTS.length));
+            for (int[] run : VIDEO_STTS) {
+                stts.write(u32(run[0]));
+                stts.write(u32(run[1]));
+            }
+        }
+        // 奇数帧带 2 帧合成偏移（B 帧重排）
+        ByteArrayOutputStream ctts = new ByteArrayOutputStream();
+        ctts.write(u32(sizes.length));
+        for (int i = 0; i < sizes.length; i++) {
+            ctts.write(u32(1));
+            ctts.write(u32(i % 2 == 0 ? 6000 : 0));
+        }
+
+        List<byte[]> children = new ArrayList<>();
+        children.add(fullBox("stsd", 0, concat(u32(1), box("avc1", avc1.toByteArray()))));
+        children.add(fullBox("stts", 0, stts.toByteArray()));
+        children.add(fullBox("ctts", 0, ctts.toByteArray()));
+        if (withStss) {
+            ByteArrayOutputStream stss = new ByteArrayOutputStream();
+            stss.write(u32(VIDEO_SYNC.length));
+            for (int sample : VIDEO_SYNC) {
+                stss.write(u32(sample));
+            }
+            children.add(fullBox("stss", 0, stss.toByteArray()));
+        }
+        children.addAll(chunkTables(sizes, offset));
+        return box("stbl", children.toArray(new byte[0][]));
+    }
+
+    private static byte[] audioStbl(int[] sizes, long offset) throws IOException {
+        ByteArrayOutputStream mp4a = new ByteArrayOutputStream();
+        mp4a.write(new byte[6]);
+        mp4a.write(u16(1));
+        mp4a.write(new byte[8]);
+        mp4a.write(u16(2));         // channels
+        mp4a.write(u16(16));        // sample size
+        mp4a.write(new byte[4]);
+        mp4a.write(u32(AUDIO_TIMESCALE << 16));
+
+        List<byte[]> children = new ArrayList<>();
+        children.add(fullBox("stsd", 0, concat(u32(1), box("mp4a", mp4a.toByteArray()))));
+        children.add(fullBox("stts", 0, concat(u32(1), u32(sizes.length), u32(AUDIO_DELTA))));
+        children.addAll(chunkTables(sizes, offset));
+        return box("stbl", children.toArray(new byte[0][]));
+    }
+
+    /** 所有样本放在一个块里：stsc + stsz + stco */
+    private static List<byte[]> chunkTables(int[] sizes, long offset) throws IOException {
+        List<byte[]> boxes = new ArrayList<>();
+        boxes.add(fullBox("stsc", 0, concat(u32(1), u32(1), u32(sizes.length), u32(1))));
+        ByteArrayOutputStream stsz = new ByteArrayOutputStream();
+        stsz.write(u32(0));
+        stsz.write(u32(sizes.length));
+        for (int size : sizes) {
+            stsz.write(u32(size));
+        }
+        boxes.add(fullBox("stsz", 0, stsz.toByteArray()));
+        boxes.add(fullBox("stco", 0, concat(u32(1), u32(offset))));
+        return boxes;
+    }
+
+    private static byte[] matrix() throws IOException {
+        return concat(u32(0x00010000), u32(0), u32(0), u32(0), u32(0x00010000), u32(0),
+                u32(0), u32(0), u32(0x40000000));
+    }
+
+    // ==================== 字节工具 ====================
+
+    private static byte[] box(String type, byte[]... children) throws IOException {
+        byte[] body = concat(children);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(u32(8 + body.length));
+        out.write(ascii(type));
+        out.write(body);
+        return out.toByteArray();
+    }
+
+    private static byte[] fullBox(String type, int flags, byte[] body) throws IOException {
+        // version 0 + 24 位 flags
+        return box(type, u32(flags & 0xFFFFFF), body);
+    }
+
+    private static byte[] concat(byte[]... parts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] u32(long value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4);
+        new DataOutputStream(out).writeInt((int) value);
+        return out.toByteArray();
+    }
+
+    private static byte[] u16(int value) {
+        return new byte[]{(byte) (value >> 8), (byte) value};
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static int indexOf(byte[] data, String type) {
+        byte[] needle = ascii(type);
+        outer:
+        for (int i = 0; i + needle.length <= data.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (data[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private File write(String name, byte[] data) throws IOException {
+        File file = new File(temp.getRoot(), name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,177 @@
+package com.kooo.evcam.mp4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Mp4Remuxer 拼接与切分测试
+ * 分段由 Mp4InfoTest.buildMp4 构造（每段样本内容不同），输出用 Mp4Movie 重新解析，
+ * 核对样本数、时长、合成偏移与关键帧标记不变，每段从关键帧开始，
+ * 新 chunk 偏移处的样本字节与源文件一致，且每个文件不超过 maxBytes。
+ */
+public class Mp4RemuxerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void underLimitProducesSingleFile() throws IOException {
+        List<Mp4Movie> sources = segments(2, true, false);
+        List<File> parts = Mp4Remuxer.concatAndSplit(sources, Long.MAX_VALUE, temp.newFolder(), "clip");
+        assertEquals(1, parts.size());
+        assertEquals("clip.mp4", parts.get(0).getName());
+        verify(sources, parts, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void splitsAtSyncSamplesWithinLimit() throws IOException {
+        List<Mp4Movie> sources = segments(3, true, false);
+        long maxBytes = 7000;
+        List<File> parts = Mp4Remuxer.concatAndSplit(sources, maxBytes, temp.newFolder(), "clip");
+        assertTrue("parts " + parts.size(), parts.size() > 1);
+        assertEquals("clip_part1.mp4", parts.get(0).getName());
+        verify(sources, parts, maxBytes);
+    }
+
+    @Test
+    public void oversizedGopIsEmittedAlone() throws IOException {
+        List<Mp4Movie> sources = segments(3, true, false);
+        // 每个 GOP 单独成段（4 个关键帧 × 3 段），超限也只能如此
+        List<File> parts = Mp4Remuxer.concatAndSplit(sources, 1, temp.newFolder(), "clip");
+        assertEquals(12, parts.size());
+        verify(sources, parts, Long.MAX_VALUE);
+        for (File part : parts) {
+            Mp4Track video = Mp4Movie.parse(part).getPrimaryTrack();
+            for (int i = 1; i < video.getSampleCount(); i++) {
+                assertFalse(part.getName(), video.isSyncSample(i));
+            }
+        }
+    }
+
+    @Test
+    public void manySegmentsStayWithinEveryLimit() throws IOException {
+        // 可变帧率时 stts 每帧一项，moov 的逐样本开销超过估算值，需要按精确大小收紧余量重新规划
+        List<Mp4Movie> sources = segments(40, true, true);
+        for (long maxBytes = 8_000; maxBytes <= 200_000; maxBytes += 7_919) {
+            List<File> parts = Mp4Remuxer.concatAndSplit(sources, maxBytes, temp.newFolder(), "clip");
+            verify(sources, parts, maxBytes);
+        }
+    }
+
+    @Test
+    public void videoOnlySegmentsWithoutStss() throws IOException {
+        List<Mp4Movie> sources = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            sources.add(Mp4Movie.parse(write("v" + i + ".mp4",
+                    Mp4InfoTest.buildMp4(1000, false, i == 0, false, i + 1, false))));
+        }
+        List<File> parts = Mp4Remuxer.concatAndSplit(sources, 5000, temp.newFolder(), "clip");
+        assertTrue(parts.size() > 1);
+        verify(sources, parts, 5000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void incompatibleSegmentsAreRejected() throws IOException {
+        List<Mp4Movie> sources = new ArrayList<>();
+        sources.add(Mp4Movie.parse(write("a.mp4", Mp4InfoTest.buildMp4(1000, true, true, true, 1, false))));
+        sources.add(Mp4Movie.parse(write("b.mp4", Mp4InfoTest.buildMp4(1000, true, true, false, 2, false))));
+        Mp4Remuxer.concatAndSplit(sources, Long.MAX_VALUE, temp.newFolder(), "clip");
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private List<Mp4Movie> segments(int count, boolean withAudio, boolean variableFrameRate) throws IOException {
+        List<Mp4Movie> movies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // 交替使用 moov 在后 / faststart 两种布局，样本偏移各不相同
+            byte[] data = Mp4InfoTest.buildMp4(1000, true, i % 2 == 0, withAudio, i + 1, variableFrameRate);
+            movies.add(Mp4Movie.parse(write("seg" + i + ".mp4", data)));
+        }
+        return movies;
+    }
+
+    /**
+     * 把各输出文件的样本依次与各源文件的样本逐一比对
+     */
+    private static void verify(List<Mp4Movie> sources, List<File> parts, long maxBytes) throws IOException {
+        int trackCount = sources.get(0).getTracks().size();
+        List<Mp4Movie> outputs = new ArrayList<>();
+        for (File part : parts) {
+            assertTrue(part.getName() + " " + part.length() + " > " + maxBytes, part.length() <= maxBytes);
+            Mp4Movie movie = Mp4Movie.parse(part);
+            assertEquals(trackCount, movie.getTracks().size());
+            Mp4Track primary = movie.getPrimaryTrack();
+            assertTrue(part.getName() + " 应从关键帧开始",
+                    primary.getSampleCount() == 0 || primary.isSyncSample(0));
+            outputs.add(movie);
+        }
+        for (int t = 0; t < trackCount; t++) {
+            List<Sample> expected = samples(sources, t);
+            List<Sample> actual = samples(outputs, t);
+            assertEquals("track " + t + " sample count", expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Sample e = expected.get(i);
+                Sample a = actual.get(i);
+                String at = "track " + t + " sample " + i;
+                assertEquals(at + " duration", e.duration, a.duration);
+                assertEquals(at + " cts", e.cts, a.cts);
+                assertEquals(at + " sync", e.sync, a.sync);
+                assertArrayEquals(at + " bytes", e.read(), a.read());
+            }
+        }
+    }
+
+    private static List<Sample> samples(List<Mp4Movie> movies, int trackIndex) {
+        List<Sample> samples = new ArrayList<>();
+        for (Mp4Movie movie : movies) {
+            Mp4Track track = movie.getTracks().get(trackIndex);
+            for (int i = 0; i < track.getSampleCount(); i++) {
+                Sample s = new Sample();
+                s.file = movie.getFile();
+                s.offset = track.getSampleOffset(i);
+                s.size = track.getSampleSize(i);
+                s.duration = track.getSampleDuration(i);
+                s.cts = track.ctsOffsets != null ? track.ctsOffsets[i] : 0;
+                s.sync = track.isSyncSample(i);
+                samples.add(s);
+            }
+        }
+        return samples;
+    }
+
+    private static final class Sample {
+        File file;
+        long offset;
+        int size;
+        int duration;
+        int cts;
+        boolean sync;
+
+        byte[] read() throws IOException {
+            byte[] bytes = new byte[size];
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.seek(offset);
+                raf.readFully(bytes);
+            }
+            return bytes;
+        }
+    }
+
+    private File write(String name, byte[] data) throws IOException {
+        File file = new File(temp.getRoot(), name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,192 @@
+package com.kooo.evcam.net;
+
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * BandwidthShaper 测试
+ * 用假时钟控制令牌补充和速率调整的时间，检查预览优先于大文件上传、高优先级流量只记账不等待，
+ * 以及 RTT 膨胀时乘性降速、恢复后加性提速。
+ */
+public class BandwidthShaperTest {
+
+    private static final long KB = 1024;
+    private static final int CHUNK = BandwidthShaper.CHUNK_BYTES;
+
+    /** 假时钟（纳秒） */
+    private final AtomicLong nanos = new AtomicLong(1_000_000_000L);
+    private final BandwidthShaper shaper = new BandwidthShaper(nanos::get);
+
+    @Test
+    public void unshapedTrafficIsOnlyAccounted() throws Exception {
+        shaper.setCeiling(64 * KB);
+        // 时钟不动、令牌为负也不等待
+        for (int i = 0; i < 10; i++) {
+            shaper.acquire(TrafficClass.CONTROL, CHUNK);
+        }
+        shaper.acquire(TrafficClass.HEARTBEAT, 100);
+        assertEquals(10L * CHUNK, shaper.getBytesSent(TrafficClass.CONTROL));
+        assertEquals(100, shaper.getBytesSent(TrafficClass.HEARTBEAT));
+        assertEquals(0, shaper.getBytesSent(TrafficClass.BULK));
+    }
+
+    @Test
+    public void previewIsServedBeforeBulk() throws Exception {
+        // 64KB/s，令牌桶容量 16KB（250ms）
+        shaper.setCeiling(64 * KB);
+        List<TrafficClass> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread bulk = sender(TrafficClass.BULK, order, failure);
+        bulk.start();
+        awaitWaiting(bulk);
+        Thread preview = sender(TrafficClass.PREVIEW, order, failure);
+        preview.start();
+        awaitWaiting(preview);
+
+        // 只够放行一块：先到的大文件上传也要让给预览
+        nanos.addAndGet(250_000_000L);
+        preview.join(5000);
+        assertFalse(preview.isAlive());
+        assertEquals(Collections.singletonList(TrafficClass.PREVIEW), order);
+        Thread.sleep(300);
+        assertTrue(bulk.isAlive());
+
+        nanos.addAndGet(250_000_000L);
+        bulk.join(5000);
+        assertFalse(bulk.isAlive());
+        assertNull(failure.get());
+        assertEquals(2, order.size());
+        assertEquals(TrafficClass.BULK, order.get(1));
+        assertEquals(CHUNK, shaper.getBytesSent(TrafficClass.PREVIEW));
+        assertEquals(CHUNK, shaper.getBytesSent(TrafficClass.BULK));
+    }
+
+    @Test
+    public void interruptedWaitThrows() throws Exception {
+        shaper.setCeiling(64 * KB);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread bulk = sender(TrafficClass.BULK, new ArrayList<>(), failure);
+        bulk.start();
+        awaitWaiting(bulk);
+        bulk.interrupt();
+        bulk.join(5000);
+        assertTrue(failure.get() instanceof InterruptedIOException);
+    }
+
+    @Test
+    public void inflatedRttBacksOffAndRecovers() {
+        long ceiling = 1024 * KB;
+        shaper.setCeiling(ceiling);
+        assertEquals(ceiling, shaper.getCurrentRate());
+        shaper.beginRequest(TrafficClass.BULK);
+
+        // 建立基准 RTT，已是上限不再提速
+        shaper.onRttSample(50);
+        assertEquals(ceiling, shaper.getCurrentRate());
+
+        // RTT 超过基准 2 倍 + 100ms：乘性降速
+        advanceMs(1000);
+        shaper.onRttSample(300);
+        long reduced = (long) (ceiling * 0.7);
+        assertEquals(reduced, shaper.getCurrentRate());
+
+        // 1 秒内只调整一次
+        advanceMs(500);
+        shaper.onRttSample(300);
+        assertEquals(reduced, shaper.getCurrentRate());
+
+        // 恢复后每秒加 32KB
+        advanceMs(500);
+        shaper.onRttSample(60);
+        assertEquals(reduced + 32 * KB, shaper.getCurrentRate());
+        advanceMs(1000);
+        shaper.onRttSample(60);
+        assertEquals(reduced + 64 * KB, shaper.getCurrentRate());
+
+        // 介于两个阈值之间保持不变
+        advanceMs(1000);
+        shaper.onRttSample(150);
+        assertEquals(reduced + 64 * KB, shaper.getCurrentRate());
+
+        // 持续拥塞时不低于 32KB/s
+        for (int i = 0; i < 30; i++) {
+            advanceMs(1000);
+            shaper.onRttSample(400);
+        }
+        assertEquals(32 * KB, shaper.getCurrentRate());
+
+        // 恢复到上限为止
+        for (int i = 0; i < 100; i++) {
+            advanceMs(1000);
+            shaper.onRttSample(50);
+        }
+        assertEquals(ceiling, shaper.getCurrentRate());
+    }
+
+    @Test
+    public void rttIsIgnoredWithoutShapedTraffic() {
+        shaper.setCeiling(1024 * KB);
+        shaper.onRttSample(50);
+        advanceMs(1000);
+        // 空闲时的 RTT 不反映排队
+        shaper.onRttSample(400);
+        assertEquals(1024 * KB, shaper.getCurrentRate());
+
+        // 服务端处理慢的样本不计入
+        shaper.beginRequest(TrafficClass.PREVIEW);
+        advanceMs(1000);
+        shaper.onRttSample(6000);
+        assertEquals(1024 * KB, shaper.getCurrentRate());
+        shaper.endRequest(TrafficClass.PREVIEW);
+        advanceMs(1000);
+        shaper.onRttSample(400);
+        assertEquals(1024 * KB, shaper.getCurrentRate());
+    }
+
+    @Test
+    public void ceilingClampsRate() {
+        shaper.setCeiling(256 * KB);
+        assertEquals(256 * KB, shaper.getCurrentRate());
+        // 改为自动时保留当前速率，由 RTT 自适应继续提速
+        shaper.setCeiling(0);
+        assertEquals(256 * KB, shaper.getCurrentRate());
+        shaper.beginRequest(TrafficClass.BULK);
+        shaper.onRttSample(50);
+        assertEquals(288 * KB, shaper.getCurrentRate());
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private void advanceMs(long ms) {
+        nanos.addAndGet(ms * 1_000_000L);
+    }
+
+    private Thread sender(TrafficClass cls, List<TrafficClass> order, AtomicReference<Throwable> failure) {
+        return new Thread(() -> {
+            try {
+                shaper.acquire(cls, CHUNK);
+                order.add(cls);
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }, cls.name());
+    }
+
+    /** 等到线程阻塞在令牌桶上 */
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(Thread.State.TIMED_WAITING, thread.getState());
+    }
+}
@@ -0,0 +1,377 @@
+package com.kooo.evcam.remote.upload;
+
+import com.kooo.evcam.remote.core.HttpStatusException;
+import com.kooo.evcam.remote.core.RemoteUploadCallback;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * UploadEngine 重试、持久化与续传测试
+ * 用本地 HTTP 服务器代替平台接口，按脚本返回状态码；测试上传器与各平台 ApiClient 一样，
+ * 非 2xx 时抛出 HttpStatusException。
+ */
+public class UploadEngineTest {
+
+    /** 微信策略：并发 2、无发送间隔、最多 3 次尝试 */
+    private static final String KEY = "wechat." + UploadJob.KIND_VIDEO;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private HttpServer server;
+    private URL url;
+    private final Deque<Integer> scriptedCodes = new ArrayDeque<>();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private File queueDir;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/upload", exchange -> {
+            readAll(exchange.getRequestBody());
+            requests.add(exchange.getRequestHeaders().getFirst("X-File-Name"));
+            Integer scripted;
+            synchronized (scriptedCodes) {
+                scripted = scriptedCodes.poll();
+            }
+            exchange.sendResponseHeaders(scripted != null ? scripted : 200, -1);
+            exchange.close();
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/upload");
+        queueDir = temp.newFolder("upload_queue");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private void script(int... codes) {
+        synchronized (scriptedCodes) {
+            for (int code : codes) {
+                scriptedCodes.add(code);
+            }
+        }
+    }
+
+    /**
+     * 上传器：把文件 POST 到本地服务器
+     */
+    private class HttpUploader implements UploadEngine.Uploader {
+        final String key;
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile UploadJob finishedJob;
+
+        HttpUploader(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public String uploadFile(UploadJob job, File file, int index) throws Exception {
+            beforeUpload(index);
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            try {
+                conn.setRequestMethod("POST");
+                conn.setDoOutput(true);
+                conn.setRequestProperty("X-File-Name", file.getName());
+                byte[] body = Files.readAllBytes(file.toPath());
+                conn.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(body);
+                }
+                int code = conn.getResponseCode();
+                if (code / 100 != 2) {
+                    throw new HttpStatusException(code, "上传失败: " + code);
+                }
+                return "id-" + file.getName();
+            } finally {
+                conn.disconnect();
+            }
+        }
+
+        void beforeUpload(int index) throws InterruptedException {
+        }
+
+        @Override
+        public void onJobFinished(UploadJob job) {
+            finishedJob = job;
+            finished.countDown();
+        }
+
+        UploadJob awaitFinished() throws InterruptedException {
+            assertTrue("job not finished", finished.await(10, TimeUnit.SECONDS));
+            return finishedJob;
+        }
+    }
+
+    /** 记录结果的回调 */
+    private static final class Result implements RemoteUploadCallback {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Boolean success;
+        volatile String message;
+
+        @Override
+        public void onProgress(String message) {
+        }
+
+        @Override
+        public void onSuccess(String message) {
+            this.success = true;
+            this.message = message;
+            done.countDown();
+        }
+
+        @Override
+        public void onError(String error) {
+            this.success = false;
+            this.message = error;
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("no result", done.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private UploadEngine newEngine() {
+        return new UploadEngine(null, queueDir, 10);
+    }
+
+    @Test
+    public void retriesServerErrorsAndRateLimit() throws Exception {
+        UploadEngine engine = newEngine();
+        HttpUploader uploader = new HttpUploader(KEY);
+        engine.register(uploader);
+        script(503, 429);
+        Result result = new Result();
+        engine.submit(UploadJob.create(KEY, "chat", files("a.mp4")), result);
+        result.await();
+
+        assertTrue(result.message, result.success);
+        assertEquals(Arrays.asList("a.mp4", "a.mp4", "a.mp4"), requests);
+        UploadJob job = uploader.awaitFinished();
+        assertEquals(1, job.getUploadedCount());
+        assertEquals(Collections.singletonList("id-a.mp4"), job.getResults());
+    }
+
+    @Test
+    public void failsFastOnPayloadTooLarge() throws Exception {
+        UploadEngine engine = newEngine();
+        engine.register(new HttpUploader(KEY));
+        script(413);
+        Result result = new Result();
+        engine.submit(UploadJob.create(KEY, "chat", files("big.mp4")), result);
+        result.await();
+
+        assertFalse(result.success);
+        assertTrue(result.message, result.message.contains("big.mp4 (上传失败: 413)"));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() throws Exception {
+        UploadEngine engine = newEngine();
+        engine.register(new HttpUploader(KEY));
+        script(500, 502, 503, 200);
+        Result result = new Result();
+        engine.submit(UploadJob.create(KEY, "chat", files("a.mp4")), result);
+        result.await();
+
+        assertFalse(result.success);
+        assertEquals(3, requests.size());
+    }
+
+    @Test
+    public void failedFileDoesNotStopTheRest() throws Exception {
+        UploadEngine engine = newEngine();
+        HttpUploader uploader = new HttpUploader(KEY);
+        engine.register(uploader);
+        script(413);
+        Result result = new Result();
+        engine.submit(UploadJob.create(KEY, "chat", files("a.mp4", "b.mp4")), result);
+        result.await();
+
+        assertTrue(result.success);
+        UploadJob job = uploader.awaitFinished();
+        assertEquals(1, job.getUploadedCount());
+        assertEquals(1, job.getFailedCount());
+        assertEquals(Arrays.asList("a.mp4", "b.mp4"), requests);
+    }
+
+    @Test
+    public void persistsProgressUntilJobFinishes() throws Exception {
+        UploadEngine engine = newEngine();
+        CountDownLatch atSecond = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpUploader uploader = new HttpUploader(KEY) {
+            @Override
+            void beforeUpload(int index) throws InterruptedException {
+                if (index == 1) {
+                    atSecond.countDown();
+                    release.await();
+                }
+            }
+        };
+        engine.register(uploader);
+        UploadJob job = UploadJob.create(KEY, "chat", files("a.mp4", "b.mp4"));
+        engine.submit(job, null);
+
+        assertTrue(atSecond.await(10, TimeUnit.SECONDS));
+        File jobFile = new File(queueDir, job.getId() + ".job");
+        assertTrue(jobFile.exists());
+        UploadJob saved = UploadJob.fromJson(new JSONObject(
+                new String(Files.readAllBytes(jobFile.toPath()), StandardCharsets.UTF_8)));
+        assertEquals(UploadJob.STATE_DONE, saved.getState(0));
+        assertEquals(UploadJob.STATE_PENDING, saved.getState(1));
+
+        release.countDown();
+        uploader.awaitFinished();
+        assertFalse(jobFile.exists());
+    }
+
+    @Test
+    public void resumesPendingJobWhenUploaderRegisters() throws Exception {
+        // 上次进程在第一个文件传完后被杀
+        UploadJob interrupted = UploadJob.create(KEY, "chat", files("a.mp4", "b.mp4", "c.mp4"));
+        interrupted.markDone(0, "id-a.mp4");
+        writeJob(interrupted);
+        // 其他上传器的任务不受影响，过期任务被丢弃
+        UploadJob other = UploadJob.create("telegram.video", "1", files("x.mp4"));
+        writeJob(other);
+        JSONObject expired = UploadJob.create(KEY, "chat", files("old.mp4")).toJson();
+        expired.put("createdAt", System.currentTimeMillis() - 25 * 60 * 60 * 1000L);
+        File expiredFile = new File(queueDir, expired.getString("id") + ".job");
+        write(expiredFile, expired.toString().getBytes(StandardCharsets.UTF_8));
+
+        UploadEngine engine = newEngine();
+        HttpUploader uploader = new HttpUploader(KEY);
+        engine.register(uploader);
+        UploadJob resumed = uploader.awaitFinished();
+
+        assertEquals(interrupted.getId(), resumed.getId());
+        assertEquals(Arrays.asList("b.mp4", "c.mp4"), requests);
+        assertEquals(3, resumed.getUploadedCount());
+        assertEquals(Arrays.asList("id-a.mp4", "id-b.mp4", "id-c.mp4"), resumed.getResults());
+        assertFalse(new File(queueDir, interrupted.getId() + ".job").exists());
+        assertTrue(new File(queueDir, other.getId() + ".job").exists());
+        assertFalse(expiredFile.exists());
+
+        // 再次注册（ApiClient 重建）不会重复续传
+        engine.register(new HttpUploader(KEY));
+        Thread.sleep(100);
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    public void jobSummaryDoesNotHoldPlatformPermit() throws Exception {
+        // Telegram 并发为 1：前一个任务的汇总消息还在等待时，下一个任务照常上传
+        String key = "telegram." + UploadJob.KIND_VIDEO;
+        UploadEngine engine = newEngine();
+        CountDownLatch summaryBlocked = new CountDownLatch(1);
+        CountDownLatch releaseSummary = new CountDownLatch(1);
+        HttpUploader uploader = new HttpUploader(key) {
+            @Override
+            public void onJobFinished(UploadJob job) {
+                if (summaryBlocked.getCount() > 0) {
+                    summaryBlocked.countDown();
+                    try {
+                        releaseSummary.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }
+        };
+        engine.register(uploader);
+        Result first = new Result();
+        engine.submit(UploadJob.create(key, "1", files("a.mp4")), first);
+        first.await();
+        assertTrue(summaryBlocked.await(10, TimeUnit.SECONDS));
+
+        Result second = new Result();
+        engine.submit(UploadJob.create(key, "1", files("b.mp4")), second);
+        second.await();
+        assertTrue(second.success);
+        releaseSummary.countDown();
+    }
+
+    @Test
+    public void classifiesTransientErrors() {
+        assertTrue(UploadEngine.isTransient(new HttpStatusException(408, "x")));
+        assertTrue(UploadEngine.isTransient(new HttpStatusException(429, "x")));
+        assertTrue(UploadEngine.isTransient(new HttpStatusException(500, "x")));
+        assertTrue(UploadEngine.isTransient(new HttpStatusException(503, "x")));
+        assertFalse(UploadEngine.isTransient(new HttpStatusException(400, "x")));
+        assertFalse(UploadEngine.isTransient(new HttpStatusException(401, "x")));
+        assertFalse(UploadEngine.isTransient(new HttpStatusException(413, "x")));
+        assertFalse(UploadEngine.isTransient(new RuntimeException(new HttpStatusException(413, "x"))));
+        // 状态码只看类型，不再从异常信息中解析
+        assertTrue(UploadEngine.isTransient(new IOException("发送视频失败: 413, too large")));
+        assertFalse(UploadEngine.isTransient(new IllegalStateException("微信云服务未启动")));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private List<File> files(String... names) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String name : names) {
+            File file = new File(temp.getRoot(), name);
+            write(file, ("content of " + name).getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        return files;
+    }
+
+    private void writeJob(UploadJob job) throws Exception {
+        write(new File(queueDir, job.getId() + ".job"), job.toJson().toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,123 @@
+package com.kooo.evcam.signal;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * LatencyHistogram 测试：子桶划分的连续性与精度，百分位与精确值的误差不超过 1/32
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsAreContiguous() {
+        long previousUpper = -1;
+        for (int index = 0; index <= LatencyHistogram.bucketIndex((1L << 24) - 1); index++) {
+            long upper = LatencyHistogram.bucketUpperMicros(index);
+            // 上一个子桶结束处紧接着本子桶开始，子桶上界仍映射回本子桶
+            assertEquals("index " + index, index, LatencyHistogram.bucketIndex(previousUpper + 1));
+            assertEquals("index " + index, index, LatencyHistogram.bucketIndex(upper));
+            assertTrue("index " + index, upper > previousUpper);
+            previousUpper = upper;
+        }
+        assertEquals((1L << 24) - 1, previousUpper);
+    }
+
+    @Test
+    public void bucketErrorIsBounded() {
+        int previous = -1;
+        for (long micros = 0; micros < (1L << 24); micros += 1 + micros / 97) {
+            int index = LatencyHistogram.bucketIndex(micros);
+            assertTrue("micros " + micros, index >= previous);
+            previous = index;
+            long upper = LatencyHistogram.bucketUpperMicros(index);
+            assertTrue("micros " + micros, upper >= micros);
+            if (micros < 64) {
+                assertEquals(micros, upper);
+            } else {
+                assertTrue("micros " + micros + " upper " + upper, upper - micros < micros / 32.0);
+            }
+        }
+    }
+
+    @Test
+    public void smallLatenciesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram("small");
+        for (int micros = 1; micros <= 63; micros++) {
+            histogram.record(micros * 1000L + 999);
+        }
+        assertEquals(32, histogram.getPercentileMicros(50));
+        assertEquals(57, histogram.getPercentileMicros(90));
+        assertEquals(63, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void percentilesMatchExactValuesWithinPrecision() {
+        Random random = new Random(49);
+        for (int round = 0; round < 20; round++) {
+            LatencyHistogram histogram = new LatencyHistogram("random");
+            long[] micros = new long[1 + random.nextInt(5000)];
+            for (int i = 0; i < micros.length; i++) {
+                // 对数分布：1 微秒 ~ 约 4 秒
+                micros[i] = (long) Math.exp(random.nextDouble() * Math.log(4_000_000));
+                histogram.record(micros[i] * 1000);
+            }
+            Arrays.sort(micros);
+            for (double percentile : new double[]{1, 50, 90, 99, 99.9, 100}) {
+                long target = Math.max(1, (long) Math.ceil(micros.length * percentile / 100.0));
+                long exact = micros[(int) target - 1];
+                long reported = histogram.getPercentileMicros(percentile);
+                String message = "p" + percentile + " exact=" + exact + " reported=" + reported;
+                assertTrue(message, reported >= exact);
+                assertTrue(message, reported - exact <= Math.max(0, exact / 32));
+            }
+            assertEquals(micros.length, histogram.getCount());
+        }
+    }
+
+    @Test
+    public void overflowReportsMax() {
+        LatencyHistogram histogram = new LatencyHistogram("overflow");
+        histogram.record(1_000_000);
+        histogram.record(30_000_000_000L);
+        // 1000 微秒落在 [992, 1007] 子桶
+        assertEquals(1007, histogram.getPercentileMicros(50));
+        assertEquals(30_000_000, histogram.getPercentileMicros(99));
+    }
+
+    @Test
+    public void resetAndSummary() {
+        LatencyHistogram histogram = new LatencyHistogram("turnSignal");
+        assertEquals("turnSignal: n=0", histogram.summary());
+        histogram.record(175_000);
+        histogram.record(415_000);
+        histogram.record(-5);
+        assertEquals("turnSignal: n=3 avg=196us p50<=175us p90<=415us p99<=415us max=415us", histogram.summary());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMicros(50));
+    }
+
+    @Test
+    public void concurrentRecordsAreCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram("concurrent");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record((id * 100_000L + i) * 1000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(399_999, histogram.getPercentileMicros(100));
+    }
+}
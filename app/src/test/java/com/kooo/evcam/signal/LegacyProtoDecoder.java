@@ -0,0 +1,239 @@
+package com.kooo.evcam.signal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 改为游标解码之前的 VhalSignalObserver.ProtoDecoder（原样保留，仅供对照测试与基准使用）
+ * 每个子消息复制成新数组，readVarint 每次返回 int[]。
+ */
+final class LegacyProtoDecoder {
+
+    private LegacyProtoDecoder() {
+    }
+
+    /** 读取 message 字段（返回子消息原始字节） */
+    static byte[] readMessage(byte[] data, int fieldNumber) {
+        int pos = 0;
+        while (pos < data.length) {
+            int[] tagResult = readVarint(data, pos);
+            int tag = tagResult[0];
+            pos = tagResult[1];
+            int wireType = tag & 0x07;
+            int field = tag >>> 3;
+
+            if (wireType == 2) { // length-delimited
+                int[] lenResult = readVarint(data, pos);
+                int len = lenResult[0];
+                pos = lenResult[1];
+                if (field == fieldNumber) {
+                    byte[] result = new byte[len];
+                    System.arraycopy(data, pos, result, 0, len);
+                    return result;
+                }
+                pos += len;
+            } else if (wireType == 0) { // varint
+                int[] v = readVarint(data, pos);
+                pos = v[1];
+            } else if (wireType == 5) { // 32-bit
+                pos += 4;
+            } else if (wireType == 1) { // 64-bit
+                pos += 8;
+            } else {
+                break; // unknown wire type
+            }
+        }
+        return null;
+    }
+
+    /** 读取所有同一 field number 的 message 字段 */
+    static List<byte[]> readRepeatedMessage(byte[] data, int fieldNumber) {
+        List<byte[]> results = new ArrayList<>();
+        int pos = 0;
+        while (pos < data.length) {
+            int[] tagResult = readVarint(data, pos);
+            int tag = tagResult[0];
+            pos = tagResult[1];
+            int wireType = tag & 0x07;
+            int field = tag >>> 3;
+
+            if (wireType == 2) {
+                int[] lenResult = readVarint(data, pos);
+                int len = lenResult[0];
+                pos = lenResult[1];
+                if (field == fieldNumber) {
+                    byte[] result = new byte[len];
+                    System.arraycopy(data, pos, result, 0, len);
+                    results.add(result);
+                }
+                pos += len;
+            } else if (wireType == 0) {
+                int[] v = readVarint(data, pos);
+                pos = v[1];
+            } else if (wireType == 5) {
+                pos += 4;
+            } else if (wireType == 1) {
+                pos += 8;
+            } else {
+                break;
+            }
+        }
+        return results;
+    }
+
+    /** 读取 int32/uint32 varint 字段 */
+    static int readInt32(byte[] data, int fieldNumber) {
+        int pos = 0;
+        while (pos < data.length) {
+            int[] tagResult = readVarint(data, pos);
+            int tag = tagResult[0];
+            pos = tagResult[1];
+            int wireType = tag & 0x07;
+            int field = tag >>> 3;
+
+            if (wireType == 0) {
+                int[] v = readVarint(data, pos);
+                pos = v[1];
+                if (field == fieldNumber) {
+                    return v[0];
+                }
+            } else if (wireType == 2) {
+                int[] lenResult = readVarint(data, pos);
+                pos = lenResult[1] + lenResult[0];
+            } else if (wireType == 5) {
+                pos += 4;
+            } else if (wireType == 1) {
+                pos += 8;
+            } else {
+                break;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 读取 packed repeated sint32 字段 (zigzag 编码)。
+     * 也兼容非 packed 的逐个 varint 编码。
+     */
+    static List<Integer> readPackedSint32(byte[] data, int fieldNumber) {
+        List<Integer> results = new ArrayList<>();
+        int pos = 0;
+        while (pos < data.length) {
+            int[] tagResult = readVarint(data, pos);
+            int tag = tagResult[0];
+            pos = tagResult[1];
+            int wireType = tag & 0x07;
+            int field = tag >>> 3;
+
+            if (field == fieldNumber) {
+                if (wireType == 2) {
+                    // packed: length-delimited containing varints
+                    int[] lenResult = readVarint(data, pos);
+                    int len = lenResult[0];
+                    pos = lenResult[1];
+                    int end = pos + len;
+                    while (pos < end) {
+                        int[] v = readVarint(data, pos);
+                        pos = v[1];
+                        // zigzag decode: (n >>> 1) ^ -(n & 1)
+                        int decoded = (v[0] >>> 1) ^ -(v[0] & 1);
+                        results.add(decoded);
+                    }
+                } else if (wireType == 0) {
+                    // non-packed: single varint
+                    int[] v = readVarint(data, pos);
+                    pos = v[1];
+                    int decoded = (v[0] >>> 1) ^ -(v[0] & 1);
+                    results.add(decoded);
+                }
+            } else {
+                if (wireType == 0) {
+                    int[] v = readVarint(data, pos);
+                    pos = v[1];
+                } else if (wireType == 2) {
+                    int[] lenResult = readVarint(data, pos);
+                    pos = lenResult[1] + lenResult[0];
+                } else if (wireType == 5) {
+                    pos += 4;
+                } else if (wireType == 1) {
+                    pos += 8;
+                } else {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 读取 packed repeated float 字段 (fixed32 编码)。
+     * 也兼容非 packed 的逐个 fixed32 编码。
+     */
+    static List<Float> readPackedFloat(byte[] data, int fieldNumber) {
+        List<Float> results = new ArrayList<>();
+        int pos = 0;
+        while (pos < data.length) {
+            int[] tagResult = readVarint(data, pos);
+            int tag = tagResult[0];
+            pos = tagResult[1];
+            int wireType = tag & 0x07;
+            int field = tag >>> 3;
+
+            if (field == fieldNumber) {
+                if (wireType == 2) {
+                    // packed: length-delimited containing fixed32 values
+                    int[] lenResult = readVarint(data, pos);
+                    int len = lenResult[0];
+                    pos = lenResult[1];
+                    int end = pos + len;
+                    while (pos + 4 <= end) {
+                        int bits = (data[pos] & 0xFF)
+                                | ((data[pos + 1] & 0xFF) << 8)
+                                | ((data[pos + 2] & 0xFF) << 16)
+                                | ((data[pos + 3] & 0xFF) << 24);
+                        results.add(Float.intBitsToFloat(bits));
+                        pos += 4;
+                    }
+                } else if (wireType == 5) {
+                    // non-packed: single fixed32
+                    if (pos + 4 <= data.length) {
+                        int bits = (data[pos] & 0xFF)
+                                | ((data[pos + 1] & 0xFF) << 8)
+                                | ((data[pos + 2] & 0xFF) << 16)
+                                | ((data[pos + 3] & 0xFF) << 24);
+                        results.add(Float.intBitsToFloat(bits));
+                        pos += 4;
+                    }
+                }
+            } else {
+                if (wireType == 0) {
+                    int[] v = readVarint(data, pos);
+                    pos = v[1];
+                } else if (wireType == 2) {
+                    int[] lenResult = readVarint(data, pos);
+                    pos = lenResult[1] + lenResult[0];
+                } else if (wireType == 5) {
+                    pos += 4;
+                } else if (wireType == 1) {
+                    pos += 8;
+                } else {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /** 读取 varint，返回 [value, newPosition] */
+    private static int[] readVarint(byte[] data, int pos) {
+        int result = 0;
+        int shift = 0;
+        while (pos < data.length) {
+            byte b = data[pos++];
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+            shift += 7;
+        }
+        return new int[]{result, pos};
+    }
+}
@@ -0,0 +1,245 @@
+package com.kooo.evcam.signal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 信号回放 → 补盲延迟统计的 JVM 回路测试
+ *
+ * 录制一段 SignalTrace，经 SignalReplayer 注入不连接 VHAL 的 VehicleSignalHub，
+ * 假的补盲服务按 VhalSignalObserver 的方式去重转向灯状态，在预定延迟后标记窗口和首帧，
+ * 检查 BlindSpotLatencyTracker 的计数和百分位与预定延迟一致。
+ */
+public class SignalReplayLatencyTest {
+
+    private static final int TURN = 0x11400408;
+    private static final int DOOR = 0x16400b00;
+    private static final int SIGNAL_NONE = 0;
+    private static final int SIGNAL_RIGHT = 1;
+    private static final int SIGNAL_LEFT = 2;
+
+    private final VehicleSignalHub hub = new VehicleSignalHub(false);
+    private final BlindSpotLatencyTracker tracker = new BlindSpotLatencyTracker();
+    private File traceFile;
+
+    @Before
+    public void setUp() throws IOException {
+        traceFile = File.createTempFile("signal", ".trace");
+    }
+
+    @After
+    public void tearDown() {
+        traceFile.delete();
+    }
+
+    @Test
+    public void replayedTurnSignalsProduceExpectedLatencies() throws Exception {
+        Random random = new Random(49);
+        int activations = 300;
+        List<Long> windowMicros = new ArrayList<>();
+        List<Long> frameMicros = new ArrayList<>();
+        List<long[]> plan = new ArrayList<>();
+        for (int i = 0; i < activations; i++) {
+            if (i % 50 == 7) {
+                // 方向未变化等情况：补盲没有出窗口
+                plan.add(null);
+            } else if (i % 50 == 19) {
+                // 超过 5 秒才出窗口：视为与该信号无关
+                plan.add(new long[]{6_000_000, 6_200_000});
+            } else {
+                long window = 20_000 + random.nextInt(400_000);
+                long frame = window + 30_000 + random.nextInt(800_000);
+                plan.add(new long[]{window, frame});
+                windowMicros.add(window);
+                frameMicros.add(frame);
+            }
+        }
+
+        int written = writeTrace(activations, random);
+        FakeBlindSpotService service = new FakeBlindSpotService(plan);
+        hub.subscribe(service, Runnable::run, TURN, DOOR);
+        ReplayResult result = replay(0);
+
+        assertEquals(written, result.records);
+        assertEquals(activations, result.logLines.get());
+        assertEquals(activations, service.activations);
+        assertEquals(activations, service.doorEvents);
+
+        LatencyHistogram window = tracker.getSignalToWindow();
+        LatencyHistogram frame = tracker.getSignalToFirstFrame();
+        assertEquals(windowMicros.size(), window.getCount());
+        assertEquals(frameMicros.size(), frame.getCount());
+        assertPercentiles(windowMicros, window);
+        assertPercentiles(frameMicros, frame);
+    }
+
+    @Test
+    public void turnStateBeforeSubscribingIsNotMeasured() throws Exception {
+        // 订阅前已在打左转向：补发的当前状态只用于同步，不计入延迟
+        hub.inject(TURN, 0, true, SIGNAL_LEFT, false, 0f, 1);
+        FakeBlindSpotService service = new FakeBlindSpotService(
+                Collections.nCopies(4, new long[]{100_000, 300_000}));
+        hub.subscribe(service, Runnable::run, TURN);
+        assertEquals(1, service.activations);
+        assertEquals(0, tracker.getSignalToWindow().getCount());
+
+        try (SignalTrace.Writer writer = new SignalTrace.Writer(traceFile, 0)) {
+            writer.writeVhal(turnEvent(SIGNAL_LEFT, 10_000_000));
+            writer.writeVhal(turnEvent(SIGNAL_NONE, 20_000_000));
+            writer.writeVhal(turnEvent(SIGNAL_RIGHT, 30_000_000));
+        }
+        replay(0);
+        assertEquals(2, service.activations);
+        assertEquals(1, tracker.getSignalToWindow().getCount());
+        assertEquals(100_000, tracker.getSignalToWindow().getPercentileMicros(100));
+        assertEquals(300_000, tracker.getSignalToFirstFrame().getPercentileMicros(100));
+    }
+
+    @Test
+    public void pacedReplayKeepsRecordedSpacing() throws Exception {
+        try (SignalTrace.Writer writer = new SignalTrace.Writer(traceFile, 0)) {
+            for (int i = 0; i < 6; i++) {
+                writer.writeVhal(turnEvent(i % 2 == 0 ? SIGNAL_LEFT : SIGNAL_NONE, i * 100_000_000L));
+            }
+        }
+        List<Long> timestamps = new ArrayList<>();
+        hub.subscribe(event -> timestamps.add(event.getTimestampNanos()), Runnable::run, TURN);
+        long startNanos = System.nanoTime();
+        replay(10);
+        // 500ms 的录制按 10 倍速至少需要 50ms，事件时间取注入时刻
+        assertEquals(6, timestamps.size());
+        assertTrue(timestamps.get(5) - startNanos >= 50_000_000L);
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertTrue(timestamps.get(i) >= timestamps.get(i - 1));
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    /**
+     * 录制 activations 次左右交替的转向，每次之间夹杂重复状态、车门和 logcat 记录
+     * @return 记录总数
+     */
+    private int writeTrace(int activations, Random random) throws IOException {
+        long t = 0;
+        try (SignalTrace.Writer writer = new SignalTrace.Writer(traceFile, 0)) {
+            for (int i = 0; i < activations; i++) {
+                int direction = i % 2 == 0 ? SIGNAL_LEFT : SIGNAL_RIGHT;
+                t += 1_000_000 + random.nextInt(1_000_000);
+                writer.writeVhal(turnEvent(direction, t));
+                // VHAL 按闪烁周期重复推送同一状态
+                writer.writeVhal(turnEvent(direction, t += 400_000_000));
+                writer.writeLogLine(t += 1_000_000, "I/VehicleSignal( 1532): TurnSignalProcess data1 = "
+                        + direction + " data2 = 0", direction);
+                writer.writeVhal(doorEvent(i, t += 2_000_000));
+                writer.writeVhal(turnEvent(SIGNAL_NONE, t += 3_000_000_000L));
+            }
+            return writer.getRecordCount();
+        }
+    }
+
+    private ReplayResult replay(float speed) throws InterruptedException {
+        ReplayResult result = new ReplayResult();
+        new SignalReplayer(traceFile, speed, result, hub).start();
+        assertTrue("replay timed out", result.finished.await(10, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private static VehicleSignalEvent turnEvent(int state, long timestampNanos) {
+        VehicleSignalEvent event = new VehicleSignalEvent();
+        event.propId = TURN;
+        event.hasIntValue = true;
+        event.intValue = state;
+        event.timestampNanos = timestampNanos;
+        return event;
+    }
+
+    private static VehicleSignalEvent doorEvent(int index, long timestampNanos) {
+        VehicleSignalEvent event = new VehicleSignalEvent();
+        event.propId = DOOR;
+        event.areaId = 1 << (index % 4);
+        event.hasIntValue = true;
+        event.intValue = index % 2;
+        event.timestampNanos = timestampNanos;
+        return event;
+    }
+
+    /** 百分位不低于精确值，误差在子桶宽度（1/32）以内 */
+    private static void assertPercentiles(List<Long> expectedMicros, LatencyHistogram histogram) {
+        List<Long> sorted = new ArrayList<>(expectedMicros);
+        Collections.sort(sorted);
+        for (double percentile : new double[]{50, 90, 99, 100}) {
+            long target = Math.max(1, (long) Math.ceil(sorted.size() * percentile / 100.0));
+            long exact = sorted.get((int) target - 1);
+            long reported = histogram.getPercentileMicros(percentile);
+            String message = "p" + percentile + " exact=" + exact + " reported=" + reported;
+            assertTrue(message, reported >= exact);
+            assertTrue(message, reported - exact <= exact / 32);
+        }
+    }
+
+    private static final class ReplayResult implements SignalReplayer.Listener {
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicInteger logLines = new AtomicInteger();
+        volatile int records;
+
+        @Override
+        public void onLogLine(String line, int data1) {
+            logLines.incrementAndGet();
+        }
+
+        @Override
+        public void onFinished(int records) {
+            this.records = records;
+            finished.countDown();
+        }
+    }
+
+    /**
+     * 假的补盲服务：转向灯去重与 VhalSignalObserver 一致，每次打灯按计划的延迟（微秒）
+     * 标记窗口加入和首帧，计划为 null 时不出窗口
+     */
+    private final class FakeBlindSpotService implements VehicleSignalHub.Subscriber {
+        private final List<long[]> plan;
+        private int lastState = SIGNAL_NONE;
+        int activations;
+        int doorEvents;
+
+        FakeBlindSpotService(List<long[]> plan) {
+            this.plan = plan;
+        }
+
+        @Override
+        public void onSignal(VehicleSignalEvent event) {
+            if (event.getPropId() == DOOR) {
+                doorEvents++;
+                return;
+            }
+            int state = event.getIntValue();
+            if (state == lastState) return;
+            lastState = state;
+            if (state != SIGNAL_LEFT && state != SIGNAL_RIGHT) return;
+            long[] delays = plan.get(activations++);
+            if (event.isReplayed()) return;
+            long signalNanos = event.getTimestampNanos();
+            tracker.markSignal(signalNanos);
+            if (delays != null) {
+                tracker.markWindowShown(signalNanos + delays[0] * 1000);
+                tracker.markFirstFrame(signalNanos + delays[1] * 1000);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.kooo.evcam.signal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * SignalRingBuffer 测试：顺序读取、覆盖检测，以及一个生产者对多个消费者的并发读取不会读到撕裂的事件
+ */
+public class SignalRingBufferTest {
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(4, new SignalRingBuffer(3).capacity());
+        assertEquals(256, new SignalRingBuffer(256).capacity());
+        assertEquals(512, new SignalRingBuffer(257).capacity());
+    }
+
+    @Test
+    public void readsPublishedEventsAndDetectsOverwrite() {
+        SignalRingBuffer ring = new SignalRingBuffer(8);
+        VehicleSignalEvent out = new VehicleSignalEvent();
+        assertEquals(-1, ring.getPublished());
+        assertFalse(ring.read(0, out));
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, publish(ring, i));
+        }
+        assertEquals(7, ring.getPublished());
+        assertTrue(ring.read(3, out));
+        assertEvent(3, out);
+        assertFalse(out.isReplayed());
+
+        publish(ring, 8);
+        // 序号 0 的槽位已被序号 8 覆盖
+        assertFalse(ring.read(0, out));
+        assertTrue(ring.read(8, out));
+        assertEvent(8, out);
+        assertFalse(ring.read(9, out));
+    }
+
+    @Test
+    public void concurrentReadersNeverSeeTornEvents() throws Exception {
+        SignalRingBuffer ring = new SignalRingBuffer(16);
+        int total = 500_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        long[] lost = new long[4];
+        for (int r = 0; r < lost.length; r++) {
+            int id = r;
+            Thread reader = new Thread(() -> {
+                VehicleSignalEvent out = new VehicleSignalEvent();
+                long next = 0;
+                try {
+                    while (next < total) {
+                        long published = ring.getPublished();
+                        while (next <= published) {
+                            if (ring.read(next, out)) {
+                                assertEvent(next, out);
+                            } else {
+                                lost[id]++;
+                            }
+                            next++;
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        for (int i = 0; i < total; i++) {
+            publish(ring, i);
+        }
+        for (Thread reader : readers) {
+            reader.join(30_000);
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        for (long n : lost) {
+            assertTrue(n < total);
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    /** 所有字段都由序号推出，读到不同事件的字段拼在一起时 assertEvent 失败 */
+    private static long publish(SignalRingBuffer ring, long seq) {
+        int v = (int) seq;
+        return ring.publish(v, v * 31, (v & 1) == 0, v * 7, (v & 2) == 0, v * 0.5f, seq * 1000);
+    }
+
+    private static void assertEvent(long seq, VehicleSignalEvent event) {
+        int v = (int) seq;
+        assertEquals(seq, event.getSequence());
+        assertEquals(v, event.getPropId());
+        assertEquals(v * 31, event.getAreaId());
+        assertEquals((v & 1) == 0, event.hasIntValue());
+        assertEquals(v * 7, event.getIntValue());
+        assertEquals((v & 2) == 0, event.hasFloatValue());
+        assertEquals(v * 0.5f, event.getFloatValue(), 0f);
+        assertEquals(seq * 1000, event.getTimestampNanos());
+    }
+}
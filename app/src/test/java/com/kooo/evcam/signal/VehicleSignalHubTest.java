@@ -0,0 +1,168 @@
+package com.kooo.evcam.signal;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * VehicleSignalHub 测试（不连接 VHAL，事件经 inject 发布，回调在手动驱动的队列上执行）
+ * 检查新订阅者先收到已有的最新值、之后的事件不重不漏，以及消费过慢时的丢失计数。
+ */
+public class VehicleSignalHubTest {
+
+    private static final int TURN = 0x11400400;
+    private static final int DOOR = 0x16400b00;
+    private static final int SPEED = 0x11600207;
+
+    private final VehicleSignalHub hub = new VehicleSignalHub(false);
+
+    @Test
+    public void newSubscriberReceivesLatestValuesThenLiveEvents() {
+        Recorder keepAlive = new Recorder();
+        hub.subscribe(keepAlive, keepAlive.queue::add, TURN, DOOR);
+
+        inject(TURN, 0, 1, 100);
+        inject(DOOR, 4, 1, 200);
+        inject(DOOR, 16, 1, 300);
+        inject(DOOR, 4, 0, 400);
+        inject(SPEED, 0, 50, 500);
+        inject(TURN, 0, 2, 600);
+
+        Recorder late = new Recorder();
+        hub.subscribe(late, late.queue::add, TURN, DOOR);
+        late.runAll();
+        // 每个 (propId, areaId) 只补发最新值，按发布顺序排列，时间戳保持原值
+        assertEquals(3, late.events.size());
+        assertEvent(late.events.get(0), DOOR, 16, 1, 300, true);
+        assertEvent(late.events.get(1), DOOR, 4, 0, 400, true);
+        assertEvent(late.events.get(2), TURN, 0, 2, 600, true);
+
+        inject(TURN, 0, 0, 700);
+        inject(SPEED, 0, 60, 800);
+        late.runAll();
+        assertEquals(4, late.events.size());
+        assertEvent(late.events.get(3), TURN, 0, 0, 700, false);
+        assertEquals(late.events.get(2).getSequence() + 1, late.events.get(3).getSequence());
+    }
+
+    @Test
+    public void unrelatedPropertiesAreNotReplayed() {
+        Recorder first = new Recorder();
+        hub.subscribe(first, first.queue::add, TURN);
+        inject(TURN, 0, 1, 100);
+
+        Recorder speed = new Recorder();
+        hub.subscribe(speed, speed.queue::add, SPEED);
+        speed.runAll();
+        assertTrue(speed.events.isEmpty());
+        inject(SPEED, 0, 30, 200);
+        speed.runAll();
+        assertEquals(1, speed.events.size());
+        assertEvent(speed.events.get(0), SPEED, 0, 30, 200, false);
+    }
+
+    @Test
+    public void closedSubscriptionGetsNothing() {
+        Recorder first = new Recorder();
+        hub.subscribe(first, first.queue::add, TURN);
+        inject(TURN, 0, 1, 100);
+
+        Recorder closing = new Recorder();
+        VehicleSignalHub.Subscription subscription = hub.subscribe(closing, closing.queue::add, TURN);
+        inject(TURN, 0, 2, 200);
+        subscription.close();
+        closing.runAll();
+        assertTrue(closing.events.isEmpty());
+        assertEquals(1, hub.getSubscriberCount());
+    }
+
+    @Test
+    public void latestValuesAreDroppedWhenLastSubscriberLeaves() {
+        Recorder first = new Recorder();
+        VehicleSignalHub.Subscription subscription = hub.subscribe(first, first.queue::add, TURN);
+        inject(TURN, 0, 1, 100);
+        subscription.close();
+        assertEquals(0, hub.getSubscriberCount());
+
+        Recorder next = new Recorder();
+        hub.subscribe(next, next.queue::add, TURN);
+        next.runAll();
+        assertTrue(next.events.isEmpty());
+    }
+
+    @Test
+    public void slowSubscriberReportsOverrun() {
+        Recorder slow = new Recorder();
+        hub.subscribe(slow, slow.queue::add, TURN);
+        for (int i = 0; i < 300; i++) {
+            inject(TURN, 0, i, i);
+        }
+        slow.runAll();
+        // 容量 256：最早的 44 条已被覆盖，其余按顺序送达
+        assertEquals(44, slow.lost);
+        assertEquals(256, slow.events.size());
+        for (int i = 0; i < slow.events.size(); i++) {
+            assertEquals(44 + i, slow.events.get(i).getIntValue());
+        }
+    }
+
+    @Test
+    public void directExecutorDeliversEveryEventOnce() {
+        Recorder direct = new Recorder();
+        hub.subscribe(direct, Runnable::run, TURN, DOOR);
+        for (int i = 0; i < 1000; i++) {
+            inject(i % 3 == 0 ? DOOR : TURN, i % 5, i, i);
+            inject(SPEED, 0, i, i);
+        }
+        assertEquals(1000, direct.events.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, direct.events.get(i).getIntValue());
+            assertFalse(direct.events.get(i).isReplayed());
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private void inject(int propId, int areaId, int value, long timestampNanos) {
+        hub.inject(propId, areaId, true, value, false, 0f, timestampNanos);
+    }
+
+    private static void assertEvent(VehicleSignalEvent event, int propId, int areaId, int value,
+                                    long timestampNanos, boolean replayed) {
+        assertEquals(propId, event.getPropId());
+        assertEquals(areaId, event.getAreaId());
+        assertEquals(value, event.getIntValue());
+        assertEquals(timestampNanos, event.getTimestampNanos());
+        assertEquals(replayed, event.isReplayed());
+    }
+
+    /** 记录回调；queue 作为执行器，runAll 模拟 Handler 线程处理积压的消息 */
+    private static final class Recorder implements VehicleSignalHub.Subscriber {
+        final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        final List<VehicleSignalEvent> events = new ArrayList<>();
+        long lost;
+
+        @Override
+        public void onSignal(VehicleSignalEvent event) {
+            VehicleSignalEvent copy = new VehicleSignalEvent();
+            copy.copyFrom(event);
+            events.add(copy);
+        }
+
+        @Override
+        public void onOverrun(long lostEvents) {
+            lost += lostEvents;
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = queue.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.kooo.evcam.signal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VHAL 属性批次解码基准（运行方式见 JmhBenchmarks）
+ *
+ * 输入模拟一次 SendAll 推送：64 个属性值，其中 4 个在订阅集合中。
+ * legacyDecodeBatch 复现改造前的路径（子消息逐层复制、readVarint 返回 int[]），用于对比每批分配量（gc.alloc.rate.norm）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VhalPropertyStreamBenchmark {
+
+    private static final int VALUES_PER_BATCH = 64;
+    private static final int[] FILTER = {0x11400400, 0x21400a01, 0x2140a012, 0x2140a013};
+
+    private byte[] batch;
+    private VhalPropertyStream stream;
+    private int checksum;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(45);
+        VhalPropertyStreamTest.ProtoWriter writer = new VhalPropertyStreamTest.ProtoWriter();
+        for (int i = 0; i < VALUES_PER_BATCH; i++) {
+            int propId = i % 16 == 0 ? FILTER[i / 16] : 0x11400000 + random.nextInt(0x10000);
+            VhalPropertyStreamTest.ProtoWriter value = new VhalPropertyStreamTest.ProtoWriter();
+            value.varintField(1, propId);
+            value.varintField(2, 0x00400000);
+            value.varintField(3, System.nanoTime());
+            value.varintField(4, random.nextInt(16));
+            value.packedSint32(5, new int[]{random.nextInt(3)});
+            if (i % 4 == 0) {
+                value.packedFloat(6, new float[]{random.nextFloat() * 100});
+            }
+            VhalPropertyStreamTest.ProtoWriter wrapped = new VhalPropertyStreamTest.ProtoWriter();
+            wrapped.bytesField(1, value.toByteArray());
+            writer.bytesField(1, wrapped.toByteArray());
+        }
+        batch = writer.toByteArray();
+
+        stream = new VhalPropertyStream(new VhalPropertyStream.Sink() {
+            @Override
+            public void onPropertyValue(VhalPropertyStream.PropValueDecoder value, long receivedAt) {
+                checksum += value.propId + value.areaId + value.int32Value;
+            }
+
+            @Override
+            public void onConnectionStateChanged(boolean connected) {
+            }
+        });
+        stream.setPropFilter(FILTER);
+    }
+
+    @Benchmark
+    public int decodeBatch() {
+        stream.processPropertyBatch(batch, 0);
+        return checksum;
+    }
+
+    @Benchmark
+    public int legacyDecodeBatch() {
+        int sum = 0;
+        for (byte[] wrapped : LegacyProtoDecoder.readRepeatedMessage(batch, 1)) {
+            byte[] value = LegacyProtoDecoder.readMessage(wrapped, 1);
+            if (value == null) continue;
+            int propId = LegacyProtoDecoder.readInt32(value, 1);
+            if (Arrays.binarySearch(FILTER, propId) < 0) continue;
+            List<Integer> ints = LegacyProtoDecoder.readPackedSint32(value, 5);
+            sum += propId + LegacyProtoDecoder.readInt32(value, 4) + (ints.isEmpty() ? 0 : ints.get(0));
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,298 @@
+package com.kooo.evcam.signal;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * VHAL 属性流游标解码测试
+ * 随机生成 VehiclePropValue 编码（packed / 逐个编码的 int32 与 float 6/7 字段、重复与缺失字段、未知字段），
+ * 与改造前的 ProtoDecoder（LegacyProtoDecoder）逐个比对解码结果。
+ */
+public class VhalPropertyStreamTest {
+
+    private static final int ITERATIONS = 20_000;
+    private static final int[] UNKNOWN_FIELDS = {2, 3, 8, 9, 10, 11, 12};
+
+    @Test
+    public void decoderMatchesLegacyDecoder() {
+        Random random = new Random(45);
+        VhalPropertyStream.PropValueDecoder decoder = new VhalPropertyStream.PropValueDecoder();
+        for (int i = 0; i < ITERATIONS; i++) {
+            byte[] value = randomPropValue(random);
+            // 放进更大的缓冲区中间，检查解码不会越过 [start, end)
+            int padding = random.nextInt(8);
+            byte[] buffer = new byte[padding + value.length + random.nextInt(8)];
+            random.nextBytes(buffer);
+            System.arraycopy(value, 0, buffer, padding, value.length);
+            int end = padding + value.length;
+
+            String message = "value " + i + " " + Arrays.toString(value);
+            int legacyProp = LegacyProtoDecoder.readInt32(value, 1);
+            assertEquals(message, legacyProp, decoder.readPropId(buffer, padding, end));
+            decoder.decode(buffer, padding, end);
+            assertDecoded(message, value, decoder);
+        }
+    }
+
+    @Test
+    public void batchDispatchesOnlySubscribedProperties() {
+        Random random = new Random(7);
+        int[] filter = {0x11400400, 0x21400a01, 0x2140a012};
+        List<int[]> received = new ArrayList<>();
+        VhalPropertyStream stream = new VhalPropertyStream(new VhalPropertyStream.Sink() {
+            @Override
+            public void onPropertyValue(VhalPropertyStream.PropValueDecoder value, long receivedAt) {
+                received.add(new int[]{value.propId, value.areaId, value.hasInt32 ? value.int32Value : Integer.MIN_VALUE});
+            }
+
+            @Override
+            public void onConnectionStateChanged(boolean connected) {
+            }
+        });
+        stream.setPropFilter(filter);
+
+        for (int i = 0; i < 2000; i++) {
+            byte[] batch = randomBatch(random, filter);
+            received.clear();
+            stream.processPropertyBatch(batch, 0);
+
+            List<int[]> expected = new ArrayList<>();
+            for (byte[] wrapped : LegacyProtoDecoder.readRepeatedMessage(batch, 1)) {
+                byte[] value = LegacyProtoDecoder.readMessage(wrapped, 1);
+                if (value == null) continue;
+                int propId = LegacyProtoDecoder.readInt32(value, 1);
+                if (Arrays.binarySearch(filter, propId) < 0) continue;
+                List<Integer> ints = LegacyProtoDecoder.readPackedSint32(value, 5);
+                expected.add(new int[]{propId, LegacyProtoDecoder.readInt32(value, 4),
+                        ints.isEmpty() ? Integer.MIN_VALUE : ints.get(0)});
+            }
+            assertEquals("batch " + i, expected.size(), received.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertArrayEquals("batch " + i + " value " + j, expected.get(j), received.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void truncatedValueDoesNotReadPastEnd() {
+        VhalPropertyStream.PropValueDecoder decoder = new VhalPropertyStream.PropValueDecoder();
+        ProtoWriter w = new ProtoWriter();
+        w.varintField(1, 0x11400400);
+        w.packedSint32(5, new int[]{2, -3});
+        w.packedFloat(6, new float[]{1.5f});
+        byte[] value = w.toByteArray();
+        for (int cut = 0; cut < value.length; cut++) {
+            decoder.decode(value, 0, cut);
+        }
+        // 长度前缀超出数据：跳过该字段，不抛异常
+        byte[] broken = {0x08, 0x05, 0x2A, 0x7F, 0x02};
+        decoder.decode(broken, 0, broken.length);
+        assertEquals(5, decoder.propId);
+        assertFalse(decoder.hasInt32);
+    }
+
+    // ==================== 随机编码 ====================
+
+    private static byte[] randomPropValue(Random random) {
+        ProtoWriter w = new ProtoWriter();
+        int fields = random.nextInt(12);
+        for (int f = 0; f < fields; f++) {
+            switch (random.nextInt(10)) {
+                case 0:
+                case 1:
+                    w.varintField(1, randomPropId(random));
+                    break;
+                case 2:
+                    w.varintField(4, random.nextInt(4) == 0 ? 0 : random.nextInt() & 0x7FFFFFFF);
+                    break;
+                case 3:
+                case 4:
+                    int[] ints = randomInts(random);
+                    if (random.nextBoolean()) {
+                        w.packedSint32(5, ints);
+                    } else {
+                        for (int v : ints) w.sint32Field(5, v);
+                    }
+                    break;
+                case 5:
+                case 6:
+                    int field = random.nextBoolean() ? 6 : 7;
+                    float[] floats = randomFloats(random);
+                    if (random.nextBoolean()) {
+                        w.packedFloat(field, floats);
+                    } else {
+                        for (float v : floats) w.fixed32Field(field, Float.floatToRawIntBits(v));
+                    }
+                    break;
+                default:
+                    randomUnknownField(random, w);
+                    break;
+            }
+        }
+        return w.toByteArray();
+    }
+
+    /** VehiclePropValue 中解码器不关心的字段：value_type、timestamp、int64/string/bytes 值等 */
+    private static void randomUnknownField(Random random, ProtoWriter w) {
+        int field = UNKNOWN_FIELDS[random.nextInt(UNKNOWN_FIELDS.length)];
+        switch (random.nextInt(4)) {
+            case 0:
+                w.varintField(field, random.nextLong());
+                break;
+            case 1:
+                w.tag(field, 1);
+                for (int i = 0; i < 8; i++) w.raw(random.nextInt(256));
+                break;
+            case 2:
+                byte[] bytes = new byte[random.nextInt(4) == 0 ? 200 + random.nextInt(200) : random.nextInt(12)];
+                random.nextBytes(bytes);
+                w.bytesField(field, bytes);
+                break;
+            default:
+                w.fixed32Field(field, random.nextInt());
+                break;
+        }
+    }
+
+    private static byte[] randomBatch(Random random, int[] filter) {
+        ProtoWriter batch = new ProtoWriter();
+        int count = random.nextInt(40);
+        for (int i = 0; i < count; i++) {
+            ProtoWriter value = new ProtoWriter();
+            int propId = random.nextInt(3) == 0 ? filter[random.nextInt(filter.length)] : randomPropId(random);
+            value.varintField(1, propId);
+            value.varintField(4, random.nextInt(16));
+            if (random.nextBoolean()) value.packedSint32(5, randomInts(random));
+            value.varintField(3, random.nextLong() & Long.MAX_VALUE);
+
+            ProtoWriter wrapped = new ProtoWriter();
+            if (random.nextInt(4) == 0) wrapped.varintField(2, random.nextInt(100));
+            wrapped.bytesField(1, value.toByteArray());
+            if (random.nextInt(8) == 0) {
+                batch.varintField(2, random.nextInt(100));
+            }
+            batch.bytesField(1, wrapped.toByteArray());
+        }
+        return batch.toByteArray();
+    }
+
+    private static int randomPropId(Random random) {
+        return random.nextBoolean() ? 0x11400400 + random.nextInt(0x1000) : random.nextInt() & 0x7FFFFFFF;
+    }
+
+    private static int[] randomInts(Random random) {
+        int[] values = new int[random.nextInt(5)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextBoolean() ? random.nextInt(7) - 3 : random.nextInt();
+        }
+        return values;
+    }
+
+    private static float[] randomFloats(Random random) {
+        float[] values = new float[random.nextInt(4)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextBoolean() ? random.nextInt(300) / 3f : Float.intBitsToFloat(random.nextInt());
+        }
+        return values;
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static void assertDecoded(String message, byte[] value, VhalPropertyStream.PropValueDecoder decoder) {
+        assertEquals(message, LegacyProtoDecoder.readInt32(value, 1), decoder.propId);
+        assertEquals(message, LegacyProtoDecoder.readInt32(value, 4), decoder.areaId);
+
+        List<Integer> ints = LegacyProtoDecoder.readPackedSint32(value, 5);
+        assertEquals(message, !ints.isEmpty(), decoder.hasInt32);
+        if (!ints.isEmpty()) {
+            assertEquals(message, (int) ints.get(0), decoder.int32Value);
+        }
+
+        List<Float> floats6 = LegacyProtoDecoder.readPackedFloat(value, 6);
+        assertEquals(message, !floats6.isEmpty(), decoder.hasFloat6);
+        if (!floats6.isEmpty()) {
+            assertEquals(message, Float.floatToIntBits(floats6.get(0)), Float.floatToIntBits(decoder.float6));
+        }
+
+        List<Float> floats7 = LegacyProtoDecoder.readPackedFloat(value, 7);
+        assertEquals(message, !floats7.isEmpty(), decoder.hasFloat7);
+        if (!floats7.isEmpty()) {
+            assertEquals(message, Float.floatToIntBits(floats7.get(0)), Float.floatToIntBits(decoder.float7));
+        }
+    }
+
+    /** 测试用最小 protobuf 编码器 */
+    static final class ProtoWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void raw(int b) {
+            out.write(b);
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write(((int) value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        void tag(int field, int wireType) {
+            varint((field << 3) | wireType);
+        }
+
+        void varintField(int field, long value) {
+            tag(field, 0);
+            varint(value);
+        }
+
+        void sint32Field(int field, int value) {
+            varintField(field, zigzag(value));
+        }
+
+        void fixed32Field(int field, int bits) {
+            tag(field, 5);
+            fixed32(bits);
+        }
+
+        void bytesField(int field, byte[] bytes) {
+            tag(field, 2);
+            varint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        void packedSint32(int field, int[] values) {
+            ProtoWriter content = new ProtoWriter();
+            for (int v : values) content.varint(zigzag(v));
+            bytesField(field, content.toByteArray());
+        }
+
+        void packedFloat(int field, float[] values) {
+            ProtoWriter content = new ProtoWriter();
+            for (float v : values) content.fixed32(Float.floatToRawIntBits(v));
+            bytesField(field, content.toByteArray());
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void fixed32(int bits) {
+            out.write(bits & 0xFF);
+            out.write((bits >>> 8) & 0xFF);
+            out.write((bits >>> 16) & 0xFF);
+            out.write((bits >>> 24) & 0xFF);
+        }
+
+        private static long zigzag(int value) {
+            return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+        }
+    }
+}